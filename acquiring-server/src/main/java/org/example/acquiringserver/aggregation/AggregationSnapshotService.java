@@ -0,0 +1,66 @@
+package org.example.acquiringserver.aggregation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Восстановление агрегатов из снимка при старте и периодическая запись снимков.
+ * После аварийного завершения агрегаты теряют транзакции с момента последнего снимка
+ * и при необходимости пересчитываются из таблицы transactions
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "aggregation.snapshot.enabled", havingValue = "true", matchIfMissing = true)
+public class AggregationSnapshotService {
+
+    private final MerchantAggregator aggregator;
+    private final Path file;
+
+    public AggregationSnapshotService(MerchantAggregator aggregator,
+                                      @Value("${aggregation.snapshot.file:aggregates/rollup-snapshot.txt}") String file,
+                                      MeterRegistry meterRegistry) {
+        this.aggregator = aggregator;
+        this.file = Path.of(file);
+        meterRegistry.gauge("acquirer.aggregation.merchants", aggregator, MerchantAggregator::size);
+    }
+
+    @PostConstruct
+    public void restore() throws IOException {
+        if (!Files.exists(file)) {
+            log.info("No rollup snapshot at {}, starting with empty aggregates", file.toAbsolutePath());
+            return;
+        }
+        List<Rollup> rollups = RollupSnapshots.read(file);
+        aggregator.restore(rollups);
+        log.info("Aggregates restored from {} ({} rollups, {} merchants)",
+                file.toAbsolutePath(), rollups.size(), aggregator.size());
+    }
+
+    @Scheduled(fixedDelayString = "${aggregation.snapshot.interval-ms:60000}",
+            initialDelayString = "${aggregation.snapshot.interval-ms:60000}")
+    public void snapshot() {
+        try {
+            List<Rollup> rollups = aggregator.snapshot();
+            RollupSnapshots.write(file, rollups);
+            log.debug("Rollup snapshot written to {} ({} rollups)", file, rollups.size());
+        } catch (IOException e) {
+            log.error("Failed to write rollup snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.acquiringserver.aggregation;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Шаг агрегатов. Номер корзины считается по локальному времени транзакции (как timestamp
+ * в БД): минуты, часы или дни от эпохи, без перевода в UTC
+ */
+public enum Granularity {
+    MINUTE,
+    HOUR,
+    DAY;
+
+    public long index(LocalDateTime time) {
+        long day = time.toLocalDate().toEpochDay();
+        return switch (this) {
+            case DAY -> day;
+            case HOUR -> day * 24 + time.getHour();
+            case MINUTE -> (day * 24 + time.getHour()) * 60 + time.getMinute();
+        };
+    }
+
+    public LocalDateTime start(long index) {
+        return switch (this) {
+            case DAY -> LocalDateTime.of(1970, 1, 1, 0, 0).plusDays(index);
+            case HOUR -> LocalDateTime.of(1970, 1, 1, 0, 0).plus(index, ChronoUnit.HOURS);
+            case MINUTE -> LocalDateTime.of(1970, 1, 1, 0, 0).plus(index, ChronoUnit.MINUTES);
+        };
+    }
+}
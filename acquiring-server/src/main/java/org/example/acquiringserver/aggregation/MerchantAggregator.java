@@ -0,0 +1,171 @@
+package org.example.acquiringserver.aggregation;
+
+import org.example.acquiringserver.engine.TransactionListener;
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Инкрементальные агрегаты по мерчантам: поминутные, почасовые и посуточные корзины.
+ * <p>
+ * Получает итоги транзакций от движка ({@link TransactionListener}), поэтому дашборды
+ * и предварительный расчет взаиморасчетов читают готовые суммы, а не сканируют таблицу
+ * transactions. Корзины каждого шага лежат в кольце фиксированной длины: корзина нового
+ * периода вытесняет корзину того же слота, и глубина истории ограничена длиной кольца.
+ */
+public class MerchantAggregator implements TransactionListener {
+
+    private static final String UNKNOWN_REASON = "UNKNOWN";
+
+    private final ConcurrentHashMap<String, MerchantRollups> merchants = new ConcurrentHashMap<>();
+    private final int[] retention = new int[Granularity.values().length];
+
+    /**
+     * @param minutes число хранимых поминутных корзин
+     * @param hours   число почасовых
+     * @param days    число посуточных
+     */
+    public MerchantAggregator(int minutes, int hours, int days) {
+        if (minutes <= 0 || hours <= 0 || days <= 0) {
+            throw new IllegalArgumentException("Rollup retention must be positive");
+        }
+        retention[Granularity.MINUTE.ordinal()] = minutes;
+        retention[Granularity.HOUR.ordinal()] = hours;
+        retention[Granularity.DAY.ordinal()] = days;
+    }
+
+    @Override
+    public void onCompleted(TransactionEntity transaction) {
+        MerchantRollups rollups = merchant(transaction.getMerchantId());
+        LocalDateTime time = transaction.getTimestamp();
+        boolean approved = "APPROVED".equals(transaction.getStatus());
+        String reason = transaction.getDeclineReason() != null ? transaction.getDeclineReason() : UNKNOWN_REASON;
+        for (Granularity granularity : Granularity.values()) {
+            RollupBucket bucket = rollups.bucket(granularity, granularity.index(time));
+            if (bucket == null) {
+                continue;
+            }
+            if (approved) {
+                bucket.approved(transaction.getAmount());
+            } else {
+                bucket.declined(reason, 1);
+            }
+        }
+    }
+
+    /**
+     * Корзины мерчанта, начинающиеся в [from, to), по возрастанию времени; null - без ограничения
+     */
+    public List<Rollup> rollups(String merchantId, Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        MerchantRollups rollups = merchants.get(merchantId);
+        if (rollups == null) {
+            return List.of();
+        }
+        long fromIndex = from == null ? Long.MIN_VALUE : granularity.index(from);
+        long toIndex = to == null ? Long.MAX_VALUE : granularity.index(to);
+        List<Rollup> result = new ArrayList<>();
+        AtomicReferenceArray<RollupBucket> ring = rollups.rings[granularity.ordinal()];
+        for (int i = 0; i < ring.length(); i++) {
+            RollupBucket bucket = ring.get(i);
+            if (bucket != null && bucket.index >= fromIndex && bucket.index < toIndex) {
+                result.add(bucket.toRollup(merchantId, granularity));
+            }
+        }
+        result.sort(Comparator.comparing(Rollup::start));
+        return result;
+    }
+
+    public Set<String> merchants() {
+        return merchants.keySet();
+    }
+
+    /**
+     * Все хранимые корзины всех мерчантов. Корзины читаются без остановки записи,
+     * поэтому снимок не атомарен по агрегатору целиком
+     */
+    public List<Rollup> snapshot() {
+        List<Rollup> result = new ArrayList<>();
+        for (String merchantId : merchants.keySet()) {
+            for (Granularity granularity : Granularity.values()) {
+                result.addAll(rollups(merchantId, granularity, null, null));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Добавление корзин из снимка к текущим; корзины старше глубины кольца пропускаются
+     */
+    public void restore(Collection<Rollup> rollups) {
+        for (Rollup rollup : rollups) {
+            Granularity granularity = rollup.granularity();
+            RollupBucket bucket = merchant(rollup.merchantId()).bucket(granularity, granularity.index(rollup.start()));
+            if (bucket == null) {
+                continue;
+            }
+            bucket.add(rollup.approvedCount(), rollup.approvedAmount());
+            for (Map.Entry<String, Long> decline : rollup.declinesByReason().entrySet()) {
+                bucket.declined(decline.getKey(), decline.getValue());
+            }
+        }
+    }
+
+    public int size() {
+        return merchants.size();
+    }
+
+    private MerchantRollups merchant(String merchantId) {
+        MerchantRollups rollups = merchants.get(merchantId);
+        if (rollups != null) {
+            return rollups;
+        }
+        return merchants.computeIfAbsent(merchantId, key -> new MerchantRollups(retention));
+    }
+
+    /**
+     * Кольца корзин одного мерчанта по шагам
+     */
+    private static final class MerchantRollups {
+
+        private final AtomicReferenceArray<RollupBucket>[] rings;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        MerchantRollups(int[] retention) {
+            rings = new AtomicReferenceArray[retention.length];
+            for (int i = 0; i < retention.length; i++) {
+                rings[i] = new AtomicReferenceArray<>(retention[i]);
+            }
+        }
+
+        /**
+         * Корзина периода index; слот с корзиной прошлого периода переиспользуется через CAS
+         *
+         * @return null, если слот уже занят более новым периодом (запоздавшая транзакция)
+         */
+        RollupBucket bucket(Granularity granularity, long index) {
+            AtomicReferenceArray<RollupBucket> ring = rings[granularity.ordinal()];
+            int slot = (int) Math.floorMod(index, (long) ring.length());
+            while (true) {
+                RollupBucket current = ring.get(slot);
+                if (current != null && current.index == index) {
+                    return current;
+                }
+                if (current != null && current.index > index) {
+                    return null;
+                }
+                RollupBucket created = new RollupBucket(index);
+                if (ring.compareAndSet(slot, current, created)) {
+                    return created;
+                }
+            }
+        }
+    }
+}
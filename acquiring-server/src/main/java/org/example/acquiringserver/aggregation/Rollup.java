@@ -0,0 +1,41 @@
+package org.example.acquiringserver.aggregation;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Агрегаты мерчанта за одну корзину: число и сумма одобренных, число отказов всего и по причинам.
+ * Суммы в минимальных единицах валюты, как amount в TLV
+ */
+public record Rollup(String merchantId,
+                     Granularity granularity,
+                     LocalDateTime start,
+                     long approvedCount,
+                     long approvedAmount,
+                     long declinedCount,
+                     Map<String, Long> declinesByReason) {
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder(160);
+        json.append("{\"merchantId\":").append(quote(merchantId))
+                .append(",\"granularity\":\"").append(granularity).append('"')
+                .append(",\"start\":\"").append(start).append('"')
+                .append(",\"approvedCount\":").append(approvedCount)
+                .append(",\"approvedAmount\":").append(approvedAmount)
+                .append(",\"declinedCount\":").append(declinedCount)
+                .append(",\"declinesByReason\":{");
+        boolean first = true;
+        for (Map.Entry<String, Long> decline : declinesByReason.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            json.append(quote(decline.getKey())).append(':').append(decline.getValue());
+            first = false;
+        }
+        return json.append("}}").toString();
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.acquiringserver.aggregation;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики одной корзины. LongAdder раскладывает конкурентные инкременты по ячейкам,
+ * поэтому потоки, считающие одного мерчанта, не спорят за одну переменную
+ */
+final class RollupBucket {
+
+    final long index;
+    private final LongAdder approvedCount = new LongAdder();
+    private final LongAdder approvedAmount = new LongAdder();
+    private final LongAdder declinedCount = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> declinesByReason = new ConcurrentHashMap<>();
+
+    RollupBucket(long index) {
+        this.index = index;
+    }
+
+    void approved(long amount) {
+        approvedCount.increment();
+        approvedAmount.add(amount);
+    }
+
+    void declined(String reason, long count) {
+        declinedCount.add(count);
+        declinesByReason.computeIfAbsent(reason, key -> new LongAdder()).add(count);
+    }
+
+    void add(long approved, long amount) {
+        approvedCount.add(approved);
+        approvedAmount.add(amount);
+    }
+
+    Rollup toRollup(String merchantId, Granularity granularity) {
+        Map<String, Long> declines = new TreeMap<>();
+        declinesByReason.forEach((reason, count) -> declines.put(reason, count.sum()));
+        return new Rollup(merchantId, granularity, granularity.start(index),
+                approvedCount.sum(), approvedAmount.sum(), declinedCount.sum(), declines);
+    }
+}
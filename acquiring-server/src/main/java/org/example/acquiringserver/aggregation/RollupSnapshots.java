@@ -0,0 +1,109 @@
+package org.example.acquiringserver.aggregation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Чтение и запись снимков агрегатов.
+ * <p>
+ * Формат - текст, строка на корзину:
+ * merchantId;granularity;index;approvedCount;approvedAmount;declinedCount;reason=count,reason=count.
+ * Как и снимок леджера, пишется во временный файл и атомарно переименовывается
+ */
+public final class RollupSnapshots {
+
+    private static final String HEADER = "# rollup-snapshot v1";
+    private static final char SEPARATOR = ';';
+
+    private RollupSnapshots() {
+    }
+
+    public static void write(Path file, Collection<Rollup> rollups) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Rollup rollup : rollups) {
+                    writer.write(rollup.merchantId());
+                    writer.write(SEPARATOR);
+                    writer.write(rollup.granularity().name());
+                    writer.write(SEPARATOR);
+                    writer.write(Long.toString(rollup.granularity().index(rollup.start())));
+                    writer.write(SEPARATOR);
+                    writer.write(Long.toString(rollup.approvedCount()));
+                    writer.write(SEPARATOR);
+                    writer.write(Long.toString(rollup.approvedAmount()));
+                    writer.write(SEPARATOR);
+                    writer.write(Long.toString(rollup.declinedCount()));
+                    writer.write(SEPARATOR);
+                    boolean first = true;
+                    for (Map.Entry<String, Long> decline : rollup.declinesByReason().entrySet()) {
+                        if (!first) {
+                            writer.write(',');
+                        }
+                        writer.write(decline.getKey());
+                        writer.write('=');
+                        writer.write(Long.toString(decline.getValue()));
+                        first = false;
+                    }
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public static List<Rollup> read(Path file) throws IOException {
+        List<Rollup> rollups = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (!HEADER.equals(header)) {
+                throw new IOException("Not a rollup snapshot: " + file);
+            }
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] parts = line.split(String.valueOf(SEPARATOR), -1);
+                if (parts.length != 7) {
+                    throw new IOException("Malformed rollup snapshot line " + lineNumber + " in " + file);
+                }
+                Granularity granularity = Granularity.valueOf(parts[1]);
+                Map<String, Long> declines = new TreeMap<>();
+                if (!parts[6].isEmpty()) {
+                    for (String decline : parts[6].split(",")) {
+                        int separator = decline.indexOf('=');
+                        declines.put(decline.substring(0, separator), Long.parseLong(decline.substring(separator + 1)));
+                    }
+                }
+                rollups.add(new Rollup(
+                        parts[0],
+                        granularity,
+                        granularity.start(Long.parseLong(parts[2])),
+                        Long.parseLong(parts[3]),
+                        Long.parseLong(parts[4]),
+                        Long.parseLong(parts[5]),
+                        declines));
+            }
+        }
+        return rollups;
+    }
+}
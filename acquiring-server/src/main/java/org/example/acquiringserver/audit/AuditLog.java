@@ -0,0 +1,140 @@
+package org.example.acquiringserver.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.metrics.ProcessingTrace;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Журнал аудита транзакций: одна строка JSON на каждый обработанный пакет.
+ * <p>
+ * Заменяет синхронные строки лога на каждую транзакцию. Поток обработки только копирует
+ * итог в слот {@link AuditRing} - без блокировок, аллокаций и ввода-вывода. Поток
+ * Audit-Writer забирает записи пакетами до batch-size, форматирует их и пишет одним
+ * системным вызовом в audit.log с ротацией по размеру. При переполнении кольца запись
+ * отбрасывается и считается в acquirer.audit.dropped - задержка ответа важнее полноты аудита
+ */
+@Slf4j
+@Component
+public class AuditLog {
+
+    private final boolean enabled;
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final AuditRing ring;
+    private final Counter written;
+    private final Counter dropped;
+    private final StringBuilder batch;
+
+    private AuditFileWriter writer;
+    private Thread thread;
+    private volatile boolean running;
+
+    public AuditLog(@Value("${audit.enabled:true}") boolean enabled,
+                    @Value("${audit.file:audit/audit.log}") String file,
+                    @Value("${audit.capacity:8192}") int capacity,
+                    @Value("${audit.batch-size:512}") int batchSize,
+                    @Value("${audit.max-file-size-mb:64}") long maxFileSizeMb,
+                    @Value("${audit.max-files:10}") int maxFiles,
+                    @Value("${audit.flush-interval-ms:5}") long flushIntervalMs,
+                    MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.file = Path.of(file);
+        this.maxFileBytes = maxFileSizeMb * 1024 * 1024;
+        this.maxFiles = maxFiles;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.ring = new AuditRing(capacity);
+        this.batch = new StringBuilder(batchSize * 256);
+        this.written = meterRegistry.counter("acquirer.audit.records");
+        this.dropped = meterRegistry.counter("acquirer.audit.dropped");
+        meterRegistry.gauge("acquirer.audit.backlog", ring, AuditRing::backlog);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            log.info("Audit log is disabled");
+            return;
+        }
+        writer = new AuditFileWriter(file, maxFileBytes, maxFiles);
+        running = true;
+        thread = new Thread(this::run, "Audit-Writer");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Audit log writing to {}", file.toAbsolutePath());
+    }
+
+    /**
+     * Итог пакета из трассировки; пакеты без итога (соединение закрыто до кадра) пропускаются
+     */
+    public void record(ProcessingTrace trace) {
+        if (!running || trace.getOutcome() == null) {
+            return;
+        }
+        if (!ring.offer(trace, trace.elapsedNanos())) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Остановка: записи, уже попавшие в кольцо, дописываются в файл
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+        thread = null;
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                if (writeBatch() == 0) {
+                    LockSupport.parkNanos(flushIntervalNanos);
+                }
+            }
+            while (writeBatch() > 0) {
+                // дописываем остаток кольца
+            }
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Failed to close audit log {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private int writeBatch() {
+        batch.setLength(0);
+        int count = ring.drainTo(batch, batchSize);
+        if (count == 0) {
+            return 0;
+        }
+        try {
+            writer.write(batch);
+            written.increment(count);
+        } catch (IOException e) {
+            dropped.increment(count);
+            log.error("Failed to write {} audit records to {}: {}", count, file, e.getMessage());
+        }
+        return count;
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.acquiringserver.audit;
+
+import org.example.acquiringserver.metrics.ProcessingTrace;
+import org.example.acquiringserver.service.ResponseCode;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Слот кольца аудита: копия итога одного пакета.
+ * <p>
+ * Заполняется в потоке обработки без аллокаций - копируются примитивы и ссылки на уже
+ * созданные строки трассировки. В JSON превращается только в потоке записи. Вывод - чистый
+ * ASCII: строки из сети экранируются, поэтому запись в файл обходится без кодировщика
+ */
+final class AuditRecord {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private long timestampMicros;
+    private long totalMicros;
+    private byte messageType;
+    private ResponseCode outcome;
+    private String transactionId;
+    private String merchantId;
+    private String terminalId;
+    private String clientAddress;
+    private boolean decided;
+    private int amount;
+    private String declineReason;
+    private boolean traceContext;
+    private long traceIdHigh;
+    private long traceIdLow;
+
+    void copyFrom(ProcessingTrace trace, long totalNanos) {
+        timestampMicros = trace.getStartEpochMicros();
+        totalMicros = TimeUnit.NANOSECONDS.toMicros(totalNanos);
+        messageType = trace.getMessageType();
+        outcome = trace.getOutcome();
+        transactionId = trace.getTransactionId();
+        merchantId = trace.getMerchantId();
+        terminalId = trace.getTerminalId();
+        clientAddress = trace.getClientAddress();
+        decided = trace.isDecided();
+        amount = trace.getAmount();
+        declineReason = trace.getDeclineReason();
+        traceContext = trace.hasTraceContext();
+        traceIdHigh = trace.getTraceIdHigh();
+        traceIdLow = trace.getTraceIdLow();
+    }
+
+    /**
+     * Одна строка JSON с переводом строки; пустые поля опускаются
+     */
+    void appendJson(StringBuilder json) {
+        json.append("{\"ts\":\"")
+                .append(Instant.ofEpochSecond(timestampMicros / 1_000_000, timestampMicros % 1_000_000 * 1000))
+                .append("\",\"type\":").append(messageType)
+                .append(",\"outcome\":\"").append(outcome).append('"');
+        appendString(json, "tx", transactionId);
+        appendString(json, "merchant", merchantId);
+        appendString(json, "terminal", terminalId);
+        appendString(json, "client", clientAddress);
+        if (decided) {
+            json.append(",\"amount\":").append(amount);
+            appendString(json, "reason", declineReason);
+        }
+        if (traceContext) {
+            json.append(",\"trace\":\"");
+            appendHex(json, traceIdHigh);
+            appendHex(json, traceIdLow);
+            json.append('"');
+        }
+        json.append(",\"us\":").append(totalMicros).append("}\n");
+    }
+
+    private static void appendString(StringBuilder json, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        json.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7E) {
+                json.append("\\u").append(HEX[c >> 12 & 0xF]).append(HEX[c >> 8 & 0xF])
+                        .append(HEX[c >> 4 & 0xF]).append(HEX[c & 0xF]);
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    private static void appendHex(StringBuilder json, long value) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            json.append(HEX[(int) (value >>> shift) & 0xF]);
+        }
+    }
+}
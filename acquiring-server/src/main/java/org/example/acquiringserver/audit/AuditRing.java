@@ -0,0 +1,81 @@
+package org.example.acquiringserver.audit;
+
+import org.example.acquiringserver.metrics.ProcessingTrace;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Кольцо записей аудита: много производителей, один потребитель, без блокировок.
+ * <p>
+ * Производитель занимает номер CAS по head, копирует итог в заранее выделенный слот и
+ * публикует его, записывая номер в published. Потребитель читает слоты по порядку, пока
+ * номер в слоте совпадает с ожидаемым, и освобождает их сдвигом tail. Полное кольцо
+ * не ждет потребителя: запись отклоняется, и поток обработки не блокируется
+ */
+final class AuditRing {
+
+    private final AuditRecord[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    AuditRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.slots = new AuditRecord[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new AuditRecord();
+            published.set(i, -1);
+        }
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return false, если кольцо заполнено и запись отброшена
+     */
+    boolean offer(ProcessingTrace trace, long totalNanos) {
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail.get() >= slots.length) {
+                return false;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+        int index = (int) sequence & mask;
+        slots[index].copyFrom(trace, totalNanos);
+        published.lazySet(index, sequence);
+        return true;
+    }
+
+    /**
+     * Перенос до max опубликованных записей в json; вызывается только потоком записи
+     *
+     * @return число перенесенных записей
+     */
+    int drainTo(StringBuilder json, int max) {
+        long sequence = tail.get();
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) sequence & mask;
+            if (published.get(index) != sequence) {
+                break;
+            }
+            slots[index].appendJson(json);
+            sequence++;
+            drained++;
+        }
+        tail.lazySet(sequence);
+        return drained;
+    }
+
+    /**
+     * Записи, занятые производителями и еще не прочитанные потребителем
+     */
+    int backlog() {
+        return (int) (head.get() - tail.get());
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.acquiringserver.audit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Прореживание диагностических строк на горячем пути: не больше одной строки за интервал.
+ * Пропущенные строки считаются, и их число выводится со следующей строкой:
+ * <pre>
+ * long suppressed = sampler.sample();
+ * if (suppressed >= 0) {
+ *     log.warn("Returning error response: {} ({} suppressed)", code, suppressed);
+ * }
+ * </pre>
+ */
+public final class LogSampler {
+
+    private final long intervalNanos;
+    private final AtomicLong nextNanos;
+    private final LongAdder suppressed = new LongAdder();
+
+    public LogSampler(long interval, TimeUnit unit) {
+        this.intervalNanos = unit.toNanos(interval);
+        this.nextNanos = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * @return -1, если строку нужно пропустить, иначе число пропущенных с прошлой строки
+     */
+    public long sample() {
+        long now = System.nanoTime();
+        long next = nextNanos.get();
+        if (now - next < 0 || !nextNanos.compareAndSet(next, now + intervalNanos)) {
+            suppressed.increment();
+            return -1;
+        }
+        return suppressed.sumThenReset();
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.acquiringserver.bin;
+
+/**
+ * Маршрут диапазона BIN: эмитент, платежная система и способ решения
+ */
+public record BinRoute(String issuer, String scheme, Route route) {
+
+    public enum Route {
+        /**
+         * Решение принимается локально цепочкой авторизации
+         */
+        LOCAL,
+        /**
+         * Решение принимает эмитент через шлюз эмитентов (IssuerAuthorizer)
+         */
+        ISSUER,
+        /**
+         * Карты диапазона не обслуживаются - отказ CARD_NOT_SUPPORTED
+         */
+        DECLINE
+    }
+}
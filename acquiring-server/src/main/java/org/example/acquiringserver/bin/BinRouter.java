@@ -0,0 +1,74 @@
+package org.example.acquiringserver.bin;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Таблица маршрутизации по BIN из файла bin-routing.file.
+ * <p>
+ * При изменении файла новая таблица собирается целиком и подменяет текущую одной записью
+ * volatile ссылки; ошибка в файле оставляет предыдущую версию.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bin-routing.enabled", havingValue = "true")
+public class BinRouter {
+
+    private final Path file;
+
+    private volatile BinTable table;
+    private volatile FileTime lastModified;
+
+    public BinRouter(@Value("${bin-routing.file:bins/bins.csv}") String file, MeterRegistry meterRegistry) {
+        this.file = Path.of(file);
+        meterRegistry.gauge("acquirer.bin.prefixes", this, router -> router.current().size());
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        lastModified = Files.getLastModifiedTime(file);
+        table = BinTable.load(file);
+        log.info("BIN routing table loaded from {} ({} prefixes, {} routes)",
+                file.toAbsolutePath(), table.size(), table.routes().size());
+    }
+
+    /**
+     * Подмена таблицы, если файл изменился
+     */
+    @Scheduled(fixedDelayString = "${bin-routing.reload-interval-ms:5000}",
+            initialDelayString = "${bin-routing.reload-interval-ms:5000}")
+    public void reloadIfModified() {
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            log.warn("BIN routing table {} is not readable, keeping the current one", file);
+            return;
+        }
+        if (modified.equals(lastModified)) {
+            return;
+        }
+        lastModified = modified;
+        try {
+            table = BinTable.load(file);
+            log.info("BIN routing table reloaded from {} ({} prefixes, {} routes)",
+                    file, table.size(), table.routes().size());
+        } catch (IOException | RuntimeException e) {
+            log.error("Invalid BIN routing table {}, keeping the current one: {}", file, e.getMessage());
+        }
+    }
+
+    public BinTable current() {
+        return table;
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.acquiringserver.bin;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.acquiringserver.engine.Authorizer;
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Выбор маршрута по BIN перед следующим решением.
+ * <p>
+ * Найденный маршрут проставляется в транзакцию (binRoute) для следующих звеньев цепочки
+ * и учитывается в acquirer.bin.routed по эмитенту и платежной системе. Диапазон с маршрутом
+ * DECLINE отклоняется с CARD_NOT_SUPPORTED; PAN без подходящего префикса решается локально.
+ */
+public class BinRoutingAuthorizer implements Authorizer {
+
+    public static final String CARD_NOT_SUPPORTED = "CARD_NOT_SUPPORTED";
+
+    private final BinRouter router;
+    private final Authorizer next;
+    private final MeterRegistry meterRegistry;
+    private final Counter unrouted;
+
+    // Счетчики по номерам маршрутов текущей таблицы; пересоздаются при подмене таблицы
+    private volatile RouteCounters counters;
+
+    public BinRoutingAuthorizer(BinRouter router, Authorizer next, MeterRegistry meterRegistry) {
+        this.router = router;
+        this.next = next;
+        this.meterRegistry = meterRegistry;
+        this.unrouted = meterRegistry.counter("acquirer.bin.routed",
+                "issuer", "unknown", "scheme", "unknown", "route", BinRoute.Route.LOCAL.name());
+        this.counters = new RouteCounters(router.current(), meterRegistry);
+    }
+
+    @Override
+    public String authorize(TransactionEntity transaction) {
+        String declineReason = route(transaction);
+        return declineReason != null ? declineReason : next.authorize(transaction);
+    }
+
+    @Override
+    public CompletableFuture<String> authorizeAsync(TransactionEntity transaction) {
+        String declineReason = route(transaction);
+        return declineReason != null
+                ? CompletableFuture.completedFuture(declineReason)
+                : next.authorizeAsync(transaction);
+    }
+
+    /**
+     * Маршрут транзакции по BIN
+     *
+     * @return CARD_NOT_SUPPORTED для маршрута DECLINE, иначе null - решение за следующим звеном
+     */
+    private String route(TransactionEntity transaction) {
+        BinTable table = router.current();
+        int routeId = table.lookup(transaction.getPan());
+        if (routeId < 0) {
+            unrouted.increment();
+            return null;
+        }
+        RouteCounters current = counters;
+        if (current.table != table) {
+            current = new RouteCounters(table, meterRegistry);
+            counters = current;
+        }
+        current.routed[routeId].increment();
+
+        BinRoute route = table.route(routeId);
+        transaction.setBinRoute(route);
+        if (route.route() == BinRoute.Route.DECLINE) {
+            return CARD_NOT_SUPPORTED;
+        }
+        return null;
+    }
+
+    @Override
+    public void reverse(TransactionEntity transaction) {
+        next.reverse(transaction);
+    }
+
+    private static final class RouteCounters {
+
+        private final BinTable table;
+        private final Counter[] routed;
+
+        RouteCounters(BinTable table, MeterRegistry meterRegistry) {
+            this.table = table;
+            this.routed = new Counter[table.routes().size()];
+            for (int i = 0; i < routed.length; i++) {
+                BinRoute route = table.route(i);
+                routed[i] = meterRegistry.counter("acquirer.bin.routed",
+                        "issuer", route.issuer(), "scheme", route.scheme(), "route", route.route().name());
+            }
+        }
+    }
+}
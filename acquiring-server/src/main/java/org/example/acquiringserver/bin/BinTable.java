@@ -0,0 +1,264 @@
+package org.example.acquiringserver.bin;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Одна версия таблицы маршрутизации по BIN.
+ * <p>
+ * Префикс длиной 6-11 цифр - это диапазон 11-значных ключей. Префиксы либо вложены, либо
+ * не пересекаются, поэтому при сборке они разворачиваются в непересекающиеся отрезки,
+ * каждый из которых помечен самым длинным покрывающим префиксом. Начала отрезков и ссылки
+ * на префиксы лежат вне кучи в отсортированных массивах; поиск - один двоичный поиск
+ * без аллокаций. У замаскированного PAN видно меньше 11 цифр: тогда найденный префикс
+ * заменяется ближайшим объемлющим (ссылка parent), длина которого не больше числа цифр.
+ * <p>
+ * Маршруты (эмитент, система, способ) хранятся один раз и нумеруются подряд, чтобы метрики
+ * и решения могли ветвиться по номеру маршрута без поиска по строкам.
+ */
+public final class BinTable {
+
+    public static final int MIN_PREFIX_LENGTH = 6;
+    public static final int MAX_PREFIX_LENGTH = 11;
+
+    private static final String CSV_HEADER = "prefix,issuer,scheme,route";
+    private static final long[] POWERS_OF_TEN = new long[MAX_PREFIX_LENGTH + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Строка таблицы: префикс PAN и его маршрут
+     */
+    public record Entry(String prefix, BinRoute route) {
+    }
+
+    private final List<BinRoute> routes;
+    private final int prefixes;
+    private final int segments;
+    // Начало отрезка (11-значный ключ) и номер префикса, покрывающего отрезок, или -1
+    private final LongBuffer segmentStarts;
+    private final IntBuffer segmentPrefixes;
+    // Для префикса: [объемлющий префикс или -1][длина префикса][номер маршрута]
+    private final IntBuffer prefixInfo;
+
+    private BinTable(List<BinRoute> routes, int prefixes, long[] starts, int[] owners, int[] info) {
+        this.routes = routes;
+        this.prefixes = prefixes;
+        this.segments = starts.length;
+        this.segmentStarts = offHeapLongs(starts);
+        this.segmentPrefixes = offHeapInts(owners);
+        this.prefixInfo = offHeapInts(info);
+    }
+
+    /**
+     * Загрузка из CSV prefix,issuer,scheme,route с заголовком
+     */
+    public static BinTable load(Path file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            if (!CSV_HEADER.equals(reader.readLine())) {
+                throw new IOException("Expected header " + CSV_HEADER + " in " + file);
+            }
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length != 4) {
+                    throw new IOException("Malformed BIN line " + lineNumber + " in " + file);
+                }
+                BinRoute.Route route;
+                try {
+                    route = BinRoute.Route.valueOf(parts[3].trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Unknown route '" + parts[3].trim() + "' on line " + lineNumber, e);
+                }
+                entries.add(new Entry(parts[0].trim(),
+                        new BinRoute(parts[1].trim(), parts[2].trim(), route)));
+            }
+        }
+        try {
+            return build(entries);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage() + " in " + file, e);
+        }
+    }
+
+    public static BinTable build(List<Entry> entries) {
+        Map<BinRoute, Integer> routeIds = new HashMap<>();
+        List<BinRoute> routes = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int count = entries.size();
+        long[] lows = new long[count];
+        long[] highs = new long[count];
+        int[] info = new int[count * 3];
+        for (int i = 0; i < count; i++) {
+            Entry entry = entries.get(i);
+            String prefix = entry.prefix();
+            if (prefix.length() < MIN_PREFIX_LENGTH || prefix.length() > MAX_PREFIX_LENGTH
+                    || !prefix.chars().allMatch(c -> c >= '0' && c <= '9')) {
+                throw new IllegalArgumentException("BIN prefix must be " + MIN_PREFIX_LENGTH + "-"
+                        + MAX_PREFIX_LENGTH + " digits: '" + prefix + "'");
+            }
+            if (!seen.add(prefix)) {
+                throw new IllegalArgumentException("Duplicate BIN prefix " + prefix);
+            }
+            BinRoute route = entry.route();
+            if (route.issuer().isEmpty() || route.scheme().isEmpty()) {
+                throw new IllegalArgumentException("Issuer and scheme are required for BIN prefix " + prefix);
+            }
+            long span = POWERS_OF_TEN[MAX_PREFIX_LENGTH - prefix.length()];
+            lows[i] = Long.parseLong(prefix) * span;
+            highs[i] = lows[i] + span - 1;
+            info[i * 3 + 1] = prefix.length();
+            info[i * 3 + 2] = routeIds.computeIfAbsent(route, r -> {
+                routes.add(r);
+                return routes.size() - 1;
+            });
+        }
+
+        // Обход в порядке начала (объемлющий префикс раньше вложенного): стек - текущая цепочка вложенности
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingLong(i -> lows[i]).thenComparingLong(i -> -highs[i]));
+        List<long[]> segments = new ArrayList<>();
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (int index : order) {
+            closeBefore(lows[index], stack, highs, segments);
+            info[index * 3] = stack.isEmpty() ? -1 : stack.peek();
+            stack.push(index);
+            addSegment(segments, lows[index], index);
+        }
+        closeBefore(Long.MAX_VALUE, stack, highs, segments);
+
+        long[] starts = new long[segments.size()];
+        int[] owners = new int[segments.size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = segments.get(i)[0];
+            owners[i] = (int) segments.get(i)[1];
+        }
+        return new BinTable(List.copyOf(routes), count, starts, owners, info);
+    }
+
+    /**
+     * Закрывает префиксы стека, которые кончаются раньше key; за каждым начинается отрезок объемлющего
+     */
+    private static void closeBefore(long key, Deque<Integer> stack, long[] highs, List<long[]> segments) {
+        while (!stack.isEmpty() && highs[stack.peek()] < key) {
+            long next = highs[stack.pop()] + 1;
+            addSegment(segments, next, stack.isEmpty() ? -1 : stack.peek());
+        }
+    }
+
+    private static void addSegment(List<long[]> segments, long start, long owner) {
+        if (!segments.isEmpty() && segments.get(segments.size() - 1)[0] == start) {
+            segments.remove(segments.size() - 1);
+        }
+        if (!segments.isEmpty() && segments.get(segments.size() - 1)[1] == owner) {
+            return;
+        }
+        segments.add(new long[]{start, owner});
+    }
+
+    /**
+     * Самый длинный префикс, совпадающий с PAN.
+     * Учитываются ведущие цифры до первого нецифрового символа (маска), не больше 11
+     *
+     * @return номер маршрута или -1, если ни один префикс не подходит
+     */
+    public int lookup(CharSequence pan) {
+        int digits = 0;
+        long key = 0;
+        int limit = Math.min(pan.length(), MAX_PREFIX_LENGTH);
+        while (digits < limit) {
+            char c = pan.charAt(digits);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            key = key * 10 + (c - '0');
+            digits++;
+        }
+        if (digits < MIN_PREFIX_LENGTH || segments == 0) {
+            return -1;
+        }
+        key *= POWERS_OF_TEN[MAX_PREFIX_LENGTH - digits];
+
+        int low = 0;
+        int high = segments - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (segmentStarts.get(mid) <= key) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int prefix = found < 0 ? -1 : segmentPrefixes.get(found);
+        while (prefix >= 0 && prefixInfo.get(prefix * 3 + 1) > digits) {
+            prefix = prefixInfo.get(prefix * 3);
+        }
+        return prefix < 0 ? -1 : prefixInfo.get(prefix * 3 + 2);
+    }
+
+    public BinRoute route(int routeId) {
+        return routes.get(routeId);
+    }
+
+    /**
+     * Различные маршруты таблицы; индекс в списке - номер маршрута из {@link #lookup(CharSequence)}
+     */
+    public List<BinRoute> routes() {
+        return routes;
+    }
+
+    /**
+     * Число префиксов
+     */
+    public int size() {
+        return prefixes;
+    }
+
+    private static LongBuffer offHeapLongs(long[] values) {
+        LongBuffer buffer = ByteBuffer.allocateDirect(values.length * Long.BYTES)
+                .order(ByteOrder.nativeOrder()).asLongBuffer();
+        buffer.put(values).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    private static IntBuffer offHeapInts(int[] values) {
+        IntBuffer buffer = ByteBuffer.allocateDirect(values.length * Integer.BYTES)
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+        buffer.put(values).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+}
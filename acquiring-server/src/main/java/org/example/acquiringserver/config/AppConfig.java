@@ -1,18 +1,55 @@
 package org.example.acquiringserver.config;
 
 
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.aggregation.MerchantAggregator;
+import org.example.acquiringserver.bin.BinRouter;
+import org.example.acquiringserver.bin.BinRoutingAuthorizer;
+import org.example.acquiringserver.crypto.CryptoUtils;
+import org.example.acquiringserver.decoder.TLVDecoder;
+import org.example.acquiringserver.engine.AdmissionControl;
+import org.example.acquiringserver.engine.AuthorizationEngine;
+import org.example.acquiringserver.engine.Authorizer;
+import org.example.acquiringserver.engine.PartitionKey;
+import org.example.acquiringserver.engine.PartitionSettings;
+import org.example.acquiringserver.engine.RecentTransactionCache;
+import org.example.acquiringserver.engine.TransactionStore;
+import org.example.acquiringserver.fault.DisabledFaultInjector;
+import org.example.acquiringserver.fault.FaultInjector;
+import org.example.acquiringserver.ledger.AccountLedger;
+import org.example.acquiringserver.issuer.IssuerAuthorizer;
+import org.example.acquiringserver.issuer.IssuerEndpoint;
+import org.example.acquiringserver.issuer.IssuerGateway;
+import org.example.acquiringserver.issuer.StandInRules;
+import org.example.acquiringserver.ledger.LedgerAuthorizer;
+import org.example.acquiringserver.merchant.MerchantAuthorizer;
+import org.example.acquiringserver.merchant.MerchantRegistry;
+import org.example.acquiringserver.metrics.ProcessingMetrics;
 import org.example.acquiringserver.service.KeyGeneratorService;
+import org.example.acquiringserver.velocity.VelocityAuthorizer;
+import org.example.acquiringserver.velocity.VelocityEngine;
+import org.example.acquiringserver.velocity.VelocityRule;
+import org.example.acquiringserver.velocity.VelocityWindow;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Arrays;
 import java.util.Base64;
-import java.util.Random;
+import java.util.List;
+import java.util.stream.Collectors;
 import java.util.concurrent.Executor;
 
 @Slf4j
@@ -56,9 +93,164 @@ public class AppConfig {
         return executor;
     }
 
+    /**
+     * Реестр метрик; выгружается через MetricsHttpServer на /actuator/prometheus
+     */
     @Bean
-    public Random random() {
-        return new Random();
+    public PrometheusMeterRegistry meterRegistry() {
+        return new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    }
+
+    @Bean
+    public ProcessingMetrics processingMetrics(MeterRegistry meterRegistry) {
+        return new ProcessingMetrics(meterRegistry);
+    }
+
+    /**
+     * Ключ читается после checkKeys, который при первом запуске генерирует пару ключей
+     */
+    @Bean
+    @DependsOn("checkKeys")
+    public CryptoUtils cryptoUtils(@Value("${server.private.key}") String privateKeyPath,
+                                   @Value("${hmac.key}") String hmacKey) {
+        return CryptoUtils.load(privateKeyPath, hmacKey);
+    }
+
+    @Bean
+    public TLVDecoder tlvDecoder() {
+        return new TLVDecoder();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "fault-injection.enabled", havingValue = "false")
+    public DisabledFaultInjector disabledFaultInjector() {
+        return new DisabledFaultInjector();
+    }
+
+    /**
+     * Леджер счетов; суммы и лимиты - в минимальных единицах валюты
+     */
+    @Bean
+    public AccountLedger accountLedger(@Value("${ledger.opening-balance:1000000}") long openingBalance,
+                                       @Value("${ledger.per-transaction-limit:500000}") long perTransactionLimit,
+                                       @Value("${ledger.daily-limit:2000000}") long dailyLimit,
+                                       @Value("${ledger.blocked-cards:}") String blockedCards) {
+        return new AccountLedger(openingBalance, perTransactionLimit, dailyLimit,
+                Arrays.stream(blockedCards.split(","))
+                        .map(String::trim)
+                        .filter(card -> !card.isEmpty())
+                        .collect(Collectors.toSet()),
+                Clock.systemUTC());
+    }
+
+    /**
+     * Агрегаты по мерчантам; retention - число хранимых корзин каждого шага
+     */
+    @Bean
+    public MerchantAggregator merchantAggregator(@Value("${aggregation.retention.minutes:180}") int minutes,
+                                                 @Value("${aggregation.retention.hours:72}") int hours,
+                                                 @Value("${aggregation.retention.days:45}") int days) {
+        return new MerchantAggregator(minutes, hours, days);
+    }
+
+    /**
+     * Проверка скорости; окна - длительность/число корзин, правила - SCOPE:окно:METRIC>порог:ACTION
+     */
+    @Bean
+    @ConditionalOnProperty(name = "velocity.enabled", havingValue = "true", matchIfMissing = true)
+    public VelocityEngine velocityEngine(@Value("${velocity.windows:1m/12,1h/12,24h/24}") String windowSpecs,
+                                         @Value("${velocity.rules:}") String ruleSpecs) {
+        List<VelocityWindow> windows = Arrays.stream(windowSpecs.split(","))
+                .filter(spec -> !spec.isBlank())
+                .map(VelocityWindow::parse)
+                .toList();
+        List<VelocityRule> rules = Arrays.stream(ruleSpecs.split(","))
+                .filter(spec -> !spec.isBlank())
+                .map(spec -> VelocityRule.parse(spec, windows))
+                .toList();
+        log.info("Velocity checks: {} windows, {} rules", windows.size(), rules.size());
+        return new VelocityEngine(windows, rules, Clock.systemUTC());
+    }
+
+    /**
+     * Шлюз эмитентов; эмитенты - ISSUER=host:port[;timeout-ms=..;max-in-flight=..;connections=..] через ','
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "issuer-gateway.enabled", havingValue = "true")
+    public IssuerGateway issuerGateway(@Value("${issuer-gateway.issuers:}") String issuerSpecs,
+                                       @Value("${issuer-gateway.connections:2}") int connections,
+                                       @Value("${issuer-gateway.max-in-flight:64}") int maxInFlight,
+                                       @Value("${issuer-gateway.timeout-ms:500}") long timeoutMs,
+                                       MeterRegistry meterRegistry) {
+        List<IssuerEndpoint> endpoints = Arrays.stream(issuerSpecs.split(","))
+                .filter(spec -> !spec.isBlank())
+                .map(spec -> IssuerEndpoint.parse(spec, connections, maxInFlight, timeoutMs))
+                .toList();
+        log.info("Issuer gateway: {} issuers", endpoints.size());
+        return new IssuerGateway(endpoints, meterRegistry);
+    }
+
+    /**
+     * Цепочка решения: реестр мерчантов, маршрут по BIN и проверка скорости (если включены),
+     * затем эмитент для маршрута ISSUER (если включен шлюз) или баланс и лимиты леджера
+     */
+    @Bean
+    public Authorizer authorizer(AccountLedger accountLedger,
+                                 ObjectProvider<VelocityEngine> velocityEngine,
+                                 ObjectProvider<BinRouter> binRouter,
+                                 ObjectProvider<MerchantRegistry> merchantRegistry,
+                                 ObjectProvider<IssuerGateway> issuerGateway,
+                                 @Value("${issuer-gateway.stand-in.max-amount:0}") long standInMaxAmount,
+                                 MeterRegistry meterRegistry) {
+        Authorizer authorizer = new LedgerAuthorizer(accountLedger);
+        IssuerGateway issuers = issuerGateway.getIfAvailable();
+        if (issuers != null) {
+            authorizer = new IssuerAuthorizer(issuers, new StandInRules(standInMaxAmount), authorizer, meterRegistry);
+        }
+        VelocityEngine velocity = velocityEngine.getIfAvailable();
+        if (velocity != null) {
+            authorizer = new VelocityAuthorizer(velocity, authorizer, meterRegistry);
+        }
+        BinRouter bins = binRouter.getIfAvailable();
+        if (bins != null) {
+            authorizer = new BinRoutingAuthorizer(bins, authorizer, meterRegistry);
+        }
+        MerchantRegistry merchants = merchantRegistry.getIfAvailable();
+        if (merchants != null) {
+            authorizer = new MerchantAuthorizer(merchants, authorizer, meterRegistry);
+        }
+        return authorizer;
+    }
+
+    @Bean
+    public AuthorizationEngine authorizationEngine(CryptoUtils cryptoUtils,
+                                                   TLVDecoder tlvDecoder,
+                                                   TransactionStore transactionStore,
+                                                   Authorizer authorizer,
+                                                   FaultInjector faultInjector,
+                                                   ProcessingMetrics processingMetrics,
+                                                   MerchantAggregator merchantAggregator,
+                                                   ObjectProvider<AdmissionControl> admissionControl,
+                                                   @Value("${partitioning.enabled:false}") boolean partitioned,
+                                                   @Value("${partitioning.partitions:4}") int partitions,
+                                                   @Value("${partitioning.key:MERCHANT}") PartitionKey partitionKey,
+                                                   @Value("${partitioning.queue-capacity:1024}") int queueCapacity,
+                                                   @Value("${partitioning.batch-size:64}") int batchSize,
+                                                   @Value("${inquiry.cache-capacity:50000}") int inquiryCacheCapacity) {
+        return AuthorizationEngine.builder()
+                .cryptoUtils(cryptoUtils)
+                .tlvDecoder(tlvDecoder)
+                .transactionStore(transactionStore)
+                .authorizer(authorizer)
+                .faultInjector(faultInjector)
+                .metrics(processingMetrics)
+                .partitioned(partitioned
+                        ? new PartitionSettings(partitions, partitionKey, queueCapacity, batchSize)
+                        : null)
+                .recentTransactions(new RecentTransactionCache(inquiryCacheCapacity))
+                .listener(merchantAggregator)
+                .admissionControl(admissionControl.getIfAvailable())
+                .build();
     }
 
     @Bean
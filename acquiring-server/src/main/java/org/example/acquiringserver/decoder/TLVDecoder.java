@@ -1,7 +1,6 @@
 package org.example.acquiringserver.decoder;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
 
 import java.io.ByteArrayInputStream;
 import java.util.HashMap;
@@ -9,16 +8,19 @@ import java.util.Map;
 
 
 /**
- * Декодер преобразует бинарные данные в структурированную карту полей
+ * Декодер преобразует бинарные данные в структурированную карту полей.
+ * Без состояния; в приложении создается через @Bean в AppConfig
  */
 @Slf4j
-@Component
 public class TLVDecoder {
 
     /**
      * Парсинг TLV данных в карту полей
      */
     public Map<Byte, byte[]> parseTLV(byte[] tlvData) {
+        if (tlvData == null || tlvData.length == 0) {
+            throw new IllegalArgumentException("TLV data is empty");
+        }
         Map<Byte, byte[]> fields = new HashMap<>();
         ByteArrayInputStream stream = new ByteArrayInputStream(tlvData);
 
@@ -0,0 +1,42 @@
+package org.example.acquiringserver.engine;
+
+/**
+ * SPI допуска пакета к обработке, в два этапа.
+ * <p>
+ * До HMAC и RSA известен только адрес клиента: ID терминала и мерчанта в конверте открыты
+ * и не защищены HMAC, поэтому по ним пакет не ограничивается. После проверки HMAC, расшифровки
+ * и сверки конверта с TLV ограничиваются терминал и мерчант транзакции. Пакет без допуска
+ * получает RATE_LIMITED
+ */
+public interface AdmissionControl {
+
+    /**
+     * Допускает все пакеты - поведение движка без ограничений
+     */
+    AdmissionControl NONE = new AdmissionControl() {
+        @Override
+        public boolean admitClient(String clientAddress) {
+            return true;
+        }
+
+        @Override
+        public boolean admitTransaction(String terminalId, String merchantId) {
+            return true;
+        }
+    };
+
+    /**
+     * Сразу после разбора заголовка и расширений конверта, до HMAC и RSA
+     *
+     * @param clientAddress адрес клиента; null - неизвестен (движок вызван не из TcpServer)
+     */
+    boolean admitClient(String clientAddress);
+
+    /**
+     * После расшифровки: значения из TLV, защищенного HMAC
+     *
+     * @param terminalId ID терминала из TLV; null - терминал не передан
+     * @param merchantId мерчант транзакции
+     */
+    boolean admitTransaction(String terminalId, String merchantId);
+}
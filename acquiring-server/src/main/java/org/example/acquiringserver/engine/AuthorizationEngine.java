@@ -0,0 +1,750 @@
+package org.example.acquiringserver.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.audit.LogSampler;
+import org.example.acquiringserver.crypto.CryptoUtils;
+import org.example.acquiringserver.decoder.TLVDecoder;
+import org.example.acquiringserver.fault.DisabledFaultInjector;
+import org.example.acquiringserver.fault.FaultInjector;
+import org.example.acquiringserver.jfr.PacketProcessedEvent;
+import org.example.acquiringserver.jfr.TlvDecodeEvent;
+import org.example.acquiringserver.metrics.ProcessingMetrics;
+import org.example.acquiringserver.metrics.ProcessingTrace;
+import org.example.acquiringserver.metrics.Stage;
+import org.example.acquiringserver.model.TransactionEntity;
+import org.example.acquiringserver.network.EnvelopeExtensions;
+import org.example.acquiringserver.service.ResponseCode;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Встраиваемый движок авторизации: пакет на входе, ответ на выходе.
+ * <p>
+ * Не зависит от Spring: проверка заголовка и расширений конверта, HMAC, расшифровка,
+ * разбор TLV, решение через {@link Authorizer}, сохранение через {@link TransactionStore} и кодирование ответа.
+ * Потокобезопасен, один экземпляр обслуживает все потоки. Spring приложение - тонкая
+ * обертка (PacketProcessor), а шлюз или бенчмарк собирают движок через {@link #builder()}:
+ * <pre>
+ * AuthorizationEngine engine = AuthorizationEngine.builder()
+ *         .cryptoUtils(CryptoUtils.load("classpath:server-private.pem", hmacKey))
+ *         .transactionStore(store)
+ *         .build();
+ * byte[] response = engine.authorize(packet);
+ * </pre>
+ * В партиционированном режиме ({@link Builder#partitioned(PartitionSettings)}) проверки и
+ * расшифровка по-прежнему выполняются в вызывающем потоке, а решение и сохранение - в
+ * однопоточном воркере партиции мерчанта или PAN (см. {@link PartitionedExecutor}).
+ * <p>
+ * Кроме авторизации (тип 0x01) движок отвечает на запрос статуса (тип 0x02) - терминал
+ * после таймаута узнает итог транзакции, не отправляя ее повторно.
+ * <p>
+ * Если конверт несет срок ответа ({@link EnvelopeExtensions#TAG_DEADLINE}), он проверяется
+ * перед HMAC и расшифровкой, перед решением и перед сохранением. Пакет с истекшим сроком
+ * бросается без ответа; решенная, но не сохраненная транзакция отменяется через
+ * {@link Authorizer#reverse}, поэтому брошенная транзакция либо сохранена целиком, либо не
+ * оставляет следа, и запрос статуса после таймаута вернет TRANSACTION_NOT_FOUND.
+ * <p>
+ * Итог каждой транзакции пишет журнал аудита (AuditLog в TcpServer), поэтому строки об
+ * одобрении и отказе - только DEBUG, а ошибки выводятся не чаще раза в секунду с числом пропущенных.
+ */
+@Slf4j
+public final class AuthorizationEngine implements AutoCloseable {
+
+    private static final int ENCRYPTED_SESSION_KEY_SIZE = 256;
+    private static final int IV_SIZE = 12;
+    private static final int HMAC_SIZE = 32;
+    private static final byte PROTOCOL_VERSION = 0x01;
+    private static final byte PROTOCOL_VERSION_EXTENDED = 0x02;
+    private static final byte MESSAGE_TYPE_AUTHORIZATION = 0x01;
+    private static final byte MESSAGE_TYPE_STATUS_INQUIRY = 0x02;
+    private static final int DEFAULT_RECENT_TRANSACTIONS = 10_000;
+    // Необязательное поле TLV: ID терминала
+    private static final byte TAG_TERMINAL_ID = 0x50;
+
+    private final CryptoUtils cryptoUtils;
+    private final TLVDecoder tlvDecoder;
+    private final TransactionStore transactionStore;
+    private final Authorizer authorizer;
+    private final FaultInjector faultInjector;
+    private final ProcessingMetrics metrics;
+    private final PartitionedExecutor partitions;
+    private final RecentTransactionCache recentTransactions;
+    private final TransactionListener listener;
+    private final AdmissionControl admissionControl;
+    private final LogSampler errorLog = new LogSampler(1, TimeUnit.SECONDS);
+    private final LogSampler failureLog = new LogSampler(1, TimeUnit.SECONDS);
+
+    private AuthorizationEngine(Builder builder) {
+        this.cryptoUtils = Objects.requireNonNull(builder.cryptoUtils, "cryptoUtils is required");
+        this.transactionStore = Objects.requireNonNull(builder.transactionStore, "transactionStore is required");
+        this.tlvDecoder = builder.tlvDecoder != null ? builder.tlvDecoder : new TLVDecoder();
+        this.authorizer = builder.authorizer != null ? builder.authorizer : Authorizer.APPROVE_ALL;
+        this.faultInjector = builder.faultInjector != null ? builder.faultInjector : new DisabledFaultInjector();
+        this.metrics = builder.metrics != null ? builder.metrics : new ProcessingMetrics(new SimpleMeterRegistry());
+        this.recentTransactions = builder.recentTransactions != null
+                ? builder.recentTransactions
+                : new RecentTransactionCache(DEFAULT_RECENT_TRANSACTIONS);
+        this.listener = builder.listener != null ? builder.listener : TransactionListener.NONE;
+        this.admissionControl = builder.admissionControl != null ? builder.admissionControl : AdmissionControl.NONE;
+        metrics.getMeterRegistry().gauge("acquirer.recent-transactions.size",
+                recentTransactions, RecentTransactionCache::size);
+        this.partitions = builder.partitionSettings == null ? null : new PartitionedExecutor(
+                builder.partitionSettings, new PartitionedExecutor.BatchHandler() {
+                    @Override
+                    public void process(List<PendingTransaction> batch) {
+                        processBatch(batch);
+                    }
+
+                    @Override
+                    public void reject(PendingTransaction pending) {
+                        pending.response.complete(error(ResponseCode.SERVICE_UNAVAILABLE, pending.trace));
+                    }
+                }, metrics.getMeterRegistry());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Остановка воркеров партиций; транзакции, оставшиеся в очередях, получают SERVICE_UNAVAILABLE
+     */
+    @Override
+    public void close() {
+        if (partitions != null) {
+            partitions.close();
+        }
+    }
+
+    /**
+     * Обработка одного пакета
+     *
+     * @return ответ или null, если ответ отправлять не нужно (эмуляция таймаута)
+     */
+    public byte[] authorize(byte[] receivedData) {
+        // Обычно трассировку начинает TcpServer при чтении кадра; при прямом вызове начинаем здесь
+        ProcessingTrace trace = ProcessingTrace.current();
+        boolean ownsTrace = !trace.isActive();
+        if (ownsTrace) {
+            trace.begin(System.nanoTime());
+        }
+        PacketProcessedEvent event = new PacketProcessedEvent();
+        event.begin();
+        try {
+            return authorize(receivedData, trace);
+        } finally {
+            if (event.shouldCommit()) {
+                event.size = receivedData.length;
+                event.version = trace.getVersion();
+                event.messageType = trace.getMessageType();
+                event.outcome = trace.getOutcome() == null ? null : trace.getOutcome().name();
+                event.transactionId = trace.getTransactionId();
+                event.commit();
+            }
+            if (ownsTrace) {
+                trace.end();
+            }
+        }
+    }
+
+    private byte[] authorize(byte[] receivedData, ProcessingTrace trace) {
+        try {
+            // 1. Эмуляция таймаута - сервер не отвечает. Задержка ответа вносится в TcpServer
+            if (faultInjector.shouldTimeout()) {
+                log.warn("Emulating timeout - no response sent");
+                metrics.recordOutcome(ResponseCode.NO_RESPONSE);
+                return null;
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(receivedData);
+
+            // 2. Парсинг и валидация заголовка
+            byte version = buffer.get();
+            byte messageType = buffer.get();
+            int totalPacketLength = Short.toUnsignedInt(buffer.getShort());
+            trace.header(version, messageType, totalPacketLength);
+
+            if (totalPacketLength != receivedData.length) {
+                log.warn("Packet length mismatch. Expected: {}, Actual: {}",
+                        totalPacketLength, receivedData.length);
+                return error(ResponseCode.LENGTH_MISMATCH, trace);
+            }
+
+            if (version != PROTOCOL_VERSION && version != PROTOCOL_VERSION_EXTENDED) {
+                log.warn("Unsupported protocol version: {}", version);
+                return error(ResponseCode.UNSUPPORTED_VERSION, trace);
+            }
+
+            if (messageType != MESSAGE_TYPE_AUTHORIZATION && messageType != MESSAGE_TYPE_STATUS_INQUIRY) {
+                log.warn("Unsupported message type: {}", messageType);
+                return error(ResponseCode.UNSUPPORTED_TYPE, trace);
+            }
+
+            if (version == PROTOCOL_VERSION_EXTENDED && !EnvelopeExtensions.read(buffer, trace)) {
+                log.warn("Malformed envelope extensions");
+                return error(ResponseCode.LENGTH_MISMATCH, trace);
+            }
+
+            // Ограничение частоты по адресу клиента - до HMAC и RSA, чтобы поток с одного адреса почти
+            // ничего не стоил. ID терминала и мерчанта в конверте открыты и ограничиваются после расшифровки
+            if (!admissionControl.admitClient(trace.getClientAddress())) {
+                log.debug("Rate limited packet from {}", trace.getClientAddress());
+                return error(ResponseCode.RATE_LIMITED, trace);
+            }
+
+            // 3. Эмуляция недоступности сервиса
+            if (faultInjector.shouldServiceBeUnavailable()) {
+                return error(ResponseCode.SERVICE_UNAVAILABLE, trace);
+            }
+
+            // Срок мог истечь в очереди пула: клиент ушел, HMAC и RSA уже не нужны
+            if (expired(trace, Stage.HMAC_VERIFY)) {
+                return null;
+            }
+
+            if (messageType == MESSAGE_TYPE_STATUS_INQUIRY) {
+                return inquire(buffer, trace);
+            }
+
+            // 4. Извлечение компонентов пакета
+            byte[] encryptedSessionKey = new byte[ENCRYPTED_SESSION_KEY_SIZE];
+            buffer.get(encryptedSessionKey);
+
+            byte[] iv = new byte[IV_SIZE];
+            buffer.get(iv);
+
+            byte[] receivedHmac = new byte[HMAC_SIZE];
+            buffer.get(receivedHmac);
+
+            // Все оставшиеся данные - зашифрованный TLV
+            byte[] encryptedTlvData = new byte[buffer.remaining()];
+            buffer.get(encryptedTlvData);
+
+            // 5. Проверка HMAC
+            long stageStart = System.nanoTime();
+            boolean hmacValid = cryptoUtils.verifyHmac(encryptedTlvData, receivedHmac);
+            stageStart = metrics.recordStage(Stage.HMAC_VERIFY, stageStart);
+            if (!hmacValid) {
+                log.warn("HMAC verification failed");
+                return error(ResponseCode.HMAC_FAILED, trace);
+            }
+
+            // 6. Эмуляция повреждения данных
+            if (faultInjector.shouldDataBeCorrupted()) {
+                throw new RuntimeException("DATA_CORRUPTION_EMULATION");
+            }
+
+            // 7. Расшифровка
+            stageStart = System.nanoTime();
+            byte[] sessionKey = cryptoUtils.decryptWithRSA(encryptedSessionKey);
+            stageStart = metrics.recordStage(Stage.RSA_DECRYPT, stageStart);
+            byte[] tlvData = cryptoUtils.decryptWithAES(encryptedTlvData, sessionKey, iv);
+            stageStart = metrics.recordStage(Stage.AES_DECRYPT, stageStart);
+
+            // 8. Парсинг TLV
+            TlvDecodeEvent tlvEvent = new TlvDecodeEvent();
+            tlvEvent.begin();
+            Map<Byte, byte[]> fields = tlvDecoder.parseTLV(tlvData);
+            if (tlvEvent.shouldCommit()) {
+                tlvEvent.size = tlvData.length;
+                tlvEvent.fieldCount = fields.size();
+                tlvEvent.commit();
+            }
+            TransactionEntity transaction = createTransactionEntity(fields);
+            transaction.setProtocolVersion(version);
+            String envelopeMerchant = trace.getMerchantId();
+            if (envelopeMerchant != null && !envelopeMerchant.equals(transaction.getMerchantId())) {
+                // Мерчант конверта не защищен HMAC: расхождение - попытка уйти от ограничения чужим ID
+                log.warn("Envelope merchant {} does not match merchant {} of transaction {}",
+                        envelopeMerchant, transaction.getMerchantId(), transaction.getTransactionId());
+                return error(ResponseCode.PROCESSING_ERROR, trace);
+            }
+            byte[] terminalField = fields.get(TAG_TERMINAL_ID);
+            String terminalId = terminalField == null ? null : new String(terminalField, StandardCharsets.US_ASCII);
+            String envelopeTerminal = trace.getTerminalId();
+            if (envelopeTerminal != null && !envelopeTerminal.equals(terminalId)) {
+                log.warn("Envelope terminal {} does not match terminal {} of transaction {}",
+                        envelopeTerminal, terminalId, transaction.getTransactionId());
+                return error(ResponseCode.PROCESSING_ERROR, trace);
+            }
+            trace.transaction(transaction.getTransactionId(), transaction.getMerchantId());
+            metrics.recordStage(Stage.TLV_PARSE, stageStart);
+
+            // Терминал и мерчант - из TLV под HMAC: чужим ID нельзя ни потратить, ни обойти их ограничение
+            if (!admissionControl.admitTransaction(terminalId, transaction.getMerchantId())) {
+                log.debug("Rate limited transaction {} of terminal {}, merchant {}",
+                        transaction.getTransactionId(), terminalId, transaction.getMerchantId());
+                return error(ResponseCode.RATE_LIMITED, trace);
+            }
+
+            // Повтор недавней транзакции (терминал не дождался ответа): прежний итог без нового решения.
+            // Более старый повтор хранилище не примет по уникальному transaction_id - см. store
+            RecentTransactionCache.Entry previous = recentTransactions.get(transaction.getTransactionId());
+            if (previous != null) {
+                log.debug("Resent transaction {} is already {}", transaction.getTransactionId(), previous.status());
+                metrics.recordResend();
+                return replay(previous, trace);
+            }
+
+            // 9-10. Решение и сохранение: в потоке соединения или в воркере партиции
+            PendingTransaction pending = new PendingTransaction(transaction, trace);
+            if (partitions == null) {
+                if (expired(trace, Stage.DECISION)) {
+                    return null;
+                }
+                decide(pending);
+                if (expired(trace, Stage.DB_SAVE)) {
+                    abandon(pending);
+                    return null;
+                }
+                persist(pending);
+                return respond(pending);
+            }
+            if (!partitions.submit(pending)) {
+                log.warn("Partition queue is full, transaction {} rejected", transaction.getTransactionId());
+                return error(ResponseCode.SERVICE_UNAVAILABLE, trace);
+            }
+            return pending.response.join();
+
+        } catch (Exception e) {
+            logFailure(e.getMessage());
+            return error(ResponseCode.PROCESSING_ERROR, trace);
+        }
+    }
+
+    /**
+     * Запрос статуса: [HMAC 32][ID транзакции ASCII], HMAC над ID. ID не секретен, поэтому
+     * запрос не шифруется и обходится без RSA. Ответ совпадает с ответом исходной авторизации
+     * (с ее кодом авторизации), для неизвестной или еще не сохраненной транзакции - TRANSACTION_NOT_FOUND
+     */
+    private byte[] inquire(ByteBuffer buffer, ProcessingTrace trace) {
+        if (buffer.remaining() <= HMAC_SIZE) {
+            log.warn("Status inquiry without transaction ID");
+            return error(ResponseCode.LENGTH_MISMATCH, trace);
+        }
+        byte[] receivedHmac = new byte[HMAC_SIZE];
+        buffer.get(receivedHmac);
+        byte[] transactionIdBytes = new byte[buffer.remaining()];
+        buffer.get(transactionIdBytes);
+
+        long stageStart = System.nanoTime();
+        boolean hmacValid = cryptoUtils.verifyHmac(transactionIdBytes, receivedHmac);
+        metrics.recordStage(Stage.HMAC_VERIFY, stageStart, trace);
+        if (!hmacValid) {
+            log.warn("HMAC verification failed");
+            return error(ResponseCode.HMAC_FAILED, trace);
+        }
+
+        String transactionId = new String(transactionIdBytes, StandardCharsets.US_ASCII);
+        trace.transaction(transactionId, null);
+        RecentTransactionCache.Entry entry = recentTransactions.get(transactionId);
+        boolean cached = entry != null;
+        if (!cached) {
+            entry = storedOutcome(transactionId);
+        }
+        metrics.recordInquiry(entry != null, cached);
+
+        if (entry == null) {
+            log.debug("Status inquiry: {} not found", transactionId);
+            return error(ResponseCode.TRANSACTION_NOT_FOUND, trace);
+        }
+        log.debug("Status inquiry: {} is {}", transactionId, entry.status());
+        return replay(entry, trace);
+    }
+
+    /**
+     * Итог транзакции из хранилища, когда ее уже нет в кэше последних
+     */
+    private RecentTransactionCache.Entry storedOutcome(String transactionId) {
+        TransactionEntity stored = transactionStore.findByTransactionId(transactionId);
+        return stored == null ? null : RecentTransactionCache.Entry.of(stored);
+    }
+
+    /**
+     * Ответ исходной авторизации: с ее кодом авторизации
+     */
+    private static byte[] replay(RecentTransactionCache.Entry entry, ProcessingTrace trace) {
+        return entry.approved()
+                ? ResponseEncoder.approval(entry.authCode(), trace)
+                : ResponseEncoder.decline(trace);
+    }
+
+    /**
+     * Решение: эмуляция отказа банка, затем {@link Authorizer} (скорость, баланс и лимиты)
+     */
+    private void decide(PendingTransaction pending) {
+        long start = System.nanoTime();
+        TransactionEntity transaction = pending.transaction;
+        String declineReason = faultInjector.shouldReject(transaction.getMerchantId())
+                ? faultInjector.randomDeclineReason()
+                : authorizer.authorize(transaction);
+        applyDecision(pending, declineReason, start);
+    }
+
+    /**
+     * Решение в воркере партиции. Звено, которое ждет внешнюю систему (эмитента), не блокирует
+     * воркер: транзакция с готовым решением возвращается в очередь своей партиции и сохраняется
+     * со следующим пакетом, а остальные мерчанты партиции тем временем обрабатываются
+     *
+     * @return true, если решение принято сразу
+     */
+    private boolean decideAsync(PendingTransaction pending) {
+        long start = System.nanoTime();
+        TransactionEntity transaction = pending.transaction;
+        CompletableFuture<String> decision = faultInjector.shouldReject(transaction.getMerchantId())
+                ? CompletableFuture.completedFuture(faultInjector.randomDeclineReason())
+                : authorizer.authorizeAsync(transaction);
+        if (decision.isDone()) {
+            applyDecision(pending, decision.join(), start);
+            return true;
+        }
+        pending.deferred = true;
+        decision.whenComplete((declineReason, error) -> resume(pending, declineReason, error, start));
+        return false;
+    }
+
+    /**
+     * Продолжение отложенного решения в потоке, завершившем future
+     */
+    private void resume(PendingTransaction pending, String declineReason, Throwable error, long start) {
+        if (error != null) {
+            logFailure(error.getMessage());
+            pending.response.complete(error(ResponseCode.PROCESSING_ERROR, pending.trace));
+            return;
+        }
+        applyDecision(pending, declineReason, start);
+        if (!partitions.submit(pending)) {
+            log.warn("Partition queue is full, decided transaction {} rejected",
+                    pending.transaction.getTransactionId());
+            abandon(pending);
+            pending.response.complete(error(ResponseCode.SERVICE_UNAVAILABLE, pending.trace));
+        }
+    }
+
+    private void applyDecision(PendingTransaction pending, String declineReason, long start) {
+        TransactionEntity transaction = pending.transaction;
+        pending.approved = declineReason == null;
+        pending.decided = true;
+        transaction.setStatus(pending.approved ? "APPROVED" : "DECLINED");
+        transaction.setDeclineReason(declineReason);
+        transaction.setAuthCode(pending.approved ? generateAuthCode() : "DECLINED");
+        pending.trace.decision(transaction.getAmount(), declineReason);
+        metrics.recordStage(Stage.DECISION, start, pending.trace);
+    }
+
+    /**
+     * Сохранение одной транзакции вместе с временем обработки на сервере (от чтения кадра до сохранения)
+     */
+    private void persist(PendingTransaction pending) {
+        if (faultInjector.shouldDatabaseFail(pending.transaction.getMerchantId())) {
+            logFailure("DATABASE_FAILURE_EMULATION");
+            return;
+        }
+        stampTimings(pending);
+        store(pending);
+    }
+
+    private void store(PendingTransaction pending) {
+        try {
+            long start = System.nanoTime();
+            transactionStore.save(pending.transaction);
+            metrics.recordStage(Stage.DB_SAVE, start, pending.trace);
+            pending.persisted = true;
+        } catch (RuntimeException e) {
+            pending.previous = findPrevious(pending.transaction.getTransactionId());
+            if (pending.previous == null) {
+                logFailure(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Сохранение отклонено: если транзакция с этим ID уже сохранена, это повтор, вытесненный
+     * из кэша последних. Хранилище спрашивается только здесь, а не перед каждым решением
+     */
+    private RecentTransactionCache.Entry findPrevious(String transactionId) {
+        try {
+            return storedOutcome(transactionId);
+        } catch (RuntimeException e) {
+            log.warn("Lookup of transaction {} after failed save failed: {}", transactionId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Ответ по итогам решения и сохранения. Одобрение, которое не удалось сохранить,
+     * отменяется: клиент получит PROCESSING_ERROR (или прежний итог, если это был повтор),
+     * и списание не должно остаться
+     */
+    private byte[] respond(PendingTransaction pending) {
+        TransactionEntity transaction = pending.transaction;
+        if (!pending.persisted) {
+            if (pending.approved) {
+                authorizer.reverse(transaction);
+            }
+            if (pending.previous != null) {
+                log.debug("Resent transaction {} is already {}", transaction.getTransactionId(),
+                        pending.previous.status());
+                metrics.recordResend();
+                return replay(pending.previous, pending.trace);
+            }
+            return error(ResponseCode.PROCESSING_ERROR, pending.trace);
+        }
+        recentTransactions.put(transaction);
+        notifyListener(transaction);
+        if (pending.approved) {
+            log.debug("Transaction APPROVED: {}", transaction.getTransactionId());
+            metrics.recordOutcome(ResponseCode.APPROVED, pending.trace);
+            return ResponseEncoder.approval(transaction.getAuthCode(), pending.trace);
+        }
+        log.debug("Transaction DECLINED: {} - {}", transaction.getTransactionId(), transaction.getDeclineReason());
+        metrics.recordOutcome(ResponseCode.DECLINED, pending.trace);
+        return ResponseEncoder.decline(pending.trace);
+    }
+
+    private void notifyListener(TransactionEntity transaction) {
+        try {
+            listener.onCompleted(transaction);
+        } catch (RuntimeException e) {
+            log.warn("Transaction listener failed for {}: {}", transaction.getTransactionId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Обработка пакета в воркере партиции: решения по порядку, одно пакетное сохранение,
+     * при его сбое - поштучное, чтобы одна плохая строка не отклонила весь пакет
+     */
+    private void processBatch(List<PendingTransaction> batch) {
+        List<TransactionEntity> toSave = new ArrayList<>(batch.size());
+        for (PendingTransaction pending : batch) {
+            try {
+                if (pending.decided) {
+                    // Вернулась с решением, полученным без воркера
+                    pending.deferred = false;
+                } else {
+                    // Ожидание в очереди партиции тоже расходует срок клиента
+                    if (expired(pending.trace, Stage.DECISION)) {
+                        pending.expired = true;
+                        continue;
+                    }
+                    if (!decideAsync(pending)) {
+                        continue;
+                    }
+                }
+                if (expired(pending.trace, Stage.DB_SAVE)) {
+                    pending.expired = true;
+                    abandon(pending);
+                    continue;
+                }
+                if (faultInjector.shouldDatabaseFail(pending.transaction.getMerchantId())) {
+                    logFailure("DATABASE_FAILURE_EMULATION");
+                    continue;
+                }
+                stampTimings(pending);
+                pending.batched = true;
+                toSave.add(pending.transaction);
+            } catch (RuntimeException e) {
+                logFailure(e.getMessage());
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            transactionStore.saveAll(toSave);
+            for (PendingTransaction pending : batch) {
+                if (pending.batched) {
+                    pending.persisted = true;
+                    metrics.recordStage(Stage.DB_SAVE, start, pending.trace);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Batch save of {} transactions failed, saving one by one: {}", toSave.size(), e.getMessage());
+            for (PendingTransaction pending : batch) {
+                if (pending.batched) {
+                    // Идентификатор мог быть выдан в откатанной транзакции пакета
+                    pending.transaction.setId(null);
+                    store(pending);
+                }
+            }
+        }
+
+        for (PendingTransaction pending : batch) {
+            if (pending.deferred) {
+                continue;
+            }
+            if (pending.expired) {
+                pending.response.complete(null);
+            } else if (!pending.decided) {
+                pending.response.complete(error(ResponseCode.PROCESSING_ERROR, pending.trace));
+            } else {
+                pending.response.complete(respond(pending));
+            }
+        }
+    }
+
+    /**
+     * Срок клиента истек перед этапом skipped: пакет бросается, ответ не отправляется
+     */
+    private boolean expired(ProcessingTrace trace, Stage skipped) {
+        if (!trace.isExpired()) {
+            return false;
+        }
+        log.debug("Deadline expired before {}, transaction {} dropped", skipped.getTag(), trace.getTransactionId());
+        metrics.recordExpired(skipped, trace);
+        return true;
+    }
+
+    /**
+     * Отмена решенной, но не сохраненной транзакции: одобрение не должно оставить списание
+     */
+    private void abandon(PendingTransaction pending) {
+        if (pending.approved) {
+            authorizer.reverse(pending.transaction);
+        }
+    }
+
+    private void stampTimings(PendingTransaction pending) {
+        pending.transaction.setProcessingTimeMs(pending.trace.elapsedMillis());
+        pending.transaction.setStageTimings(pending.trace.stageBreakdown());
+    }
+
+    private byte[] error(ResponseCode code, ProcessingTrace trace) {
+        long suppressed = errorLog.sample();
+        if (suppressed >= 0) {
+            log.warn("Returning error response: {} - {} ({} more since last report)", code.getCode(), code, suppressed);
+        }
+        metrics.recordOutcome(code, trace);
+        return ResponseEncoder.error(code, trace);
+    }
+
+    /**
+     * Сбой обработки; при массовых сбоях (эмуляция, недоступная БД) - одна строка в секунду
+     */
+    private void logFailure(String reason) {
+        long suppressed = failureLog.sample();
+        if (suppressed >= 0) {
+            log.error("Packet processing failed: {} ({} more since last report)", reason, suppressed);
+        }
+    }
+
+    private TransactionEntity createTransactionEntity(Map<Byte, byte[]> fields) {
+        TransactionEntity transaction = new TransactionEntity();
+
+        // PAN
+        transaction.setPan(new String(fields.get((byte) 0x10)));
+        // Amount (BIG-ENDIAN)
+        transaction.setAmount(bytesToIntBigEndian(fields.get((byte) 0x20)));
+        // Transaction ID
+        transaction.setTransactionId(new String(fields.get((byte) 0x30)));
+        // Merchant ID
+        transaction.setMerchantId(new String(fields.get((byte) 0x40)));
+
+        transaction.setTimestamp(LocalDateTime.now());
+        return transaction;
+    }
+
+    /**
+     * Преобразует байты в int (Big-Endian порядок)
+     */
+    private int bytesToIntBigEndian(byte[] bytes) {
+        if (bytes.length != 4) {
+            throw new IllegalArgumentException("Amount must be 4 bytes");
+        }
+        return ((bytes[0] & 0xFF) << 24) |
+                ((bytes[1] & 0xFF) << 16) |
+                ((bytes[2] & 0xFF) << 8)  |
+                (bytes[3] & 0xFF);
+    }
+
+    private String generateAuthCode() {
+        return String.format("%06d", ThreadLocalRandom.current().nextInt(1000000));
+    }
+
+    /**
+     * Сборка движка. Обязательны cryptoUtils и transactionStore; без authorizer движок одобряет
+     * все транзакции, без fault injector работает без эмуляции сбоев, без metrics - пишет
+     * в собственный реестр. Без partitioned решение и сохранение выполняются в вызывающем потоке,
+     * без recentTransactions запросы статуса обслуживает кэш на 10 000 последних транзакций,
+     * listener получает итоги сохраненных транзакций, без admissionControl ограничения частоты нет
+     */
+    public static final class Builder {
+
+        private CryptoUtils cryptoUtils;
+        private TLVDecoder tlvDecoder;
+        private TransactionStore transactionStore;
+        private Authorizer authorizer;
+        private FaultInjector faultInjector;
+        private ProcessingMetrics metrics;
+        private PartitionSettings partitionSettings;
+        private RecentTransactionCache recentTransactions;
+        private TransactionListener listener;
+        private AdmissionControl admissionControl;
+
+        private Builder() {
+        }
+
+        public Builder cryptoUtils(CryptoUtils cryptoUtils) {
+            this.cryptoUtils = cryptoUtils;
+            return this;
+        }
+
+        public Builder tlvDecoder(TLVDecoder tlvDecoder) {
+            this.tlvDecoder = tlvDecoder;
+            return this;
+        }
+
+        public Builder transactionStore(TransactionStore transactionStore) {
+            this.transactionStore = transactionStore;
+            return this;
+        }
+
+        public Builder authorizer(Authorizer authorizer) {
+            this.authorizer = authorizer;
+            return this;
+        }
+
+        public Builder faultInjector(FaultInjector faultInjector) {
+            this.faultInjector = faultInjector;
+            return this;
+        }
+
+        public Builder metrics(ProcessingMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public Builder partitioned(PartitionSettings partitionSettings) {
+            this.partitionSettings = partitionSettings;
+            return this;
+        }
+
+        public Builder recentTransactions(RecentTransactionCache recentTransactions) {
+            this.recentTransactions = recentTransactions;
+            return this;
+        }
+
+        public Builder listener(TransactionListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public Builder admissionControl(AdmissionControl admissionControl) {
+            this.admissionControl = admissionControl;
+            return this;
+        }
+
+        public AuthorizationEngine build() {
+            return new AuthorizationEngine(this);
+        }
+    }
+}
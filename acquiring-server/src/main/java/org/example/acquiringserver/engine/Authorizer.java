@@ -0,0 +1,43 @@
+package org.example.acquiringserver.engine;
+
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * SPI решения по транзакции.
+ * <p>
+ * Вызывается движком после разбора TLV. Одобрение может менять состояние (списание
+ * с баланса), поэтому если транзакцию затем не удалось сохранить, движок вызывает
+ * {@link #reverse(TransactionEntity)} и клиент получает PROCESSING_ERROR.
+ * <p>
+ * Звено, ждущее внешнюю систему (эмитента), переопределяет {@link #authorizeAsync}: воркер
+ * партиции не блокируется на ответе и обрабатывает другие транзакции, пока решение в пути
+ */
+@FunctionalInterface
+public interface Authorizer {
+
+    /**
+     * Одобряет все транзакции - поведение движка без подключенного леджера
+     */
+    Authorizer APPROVE_ALL = transaction -> null;
+
+    /**
+     * @return null - транзакция одобрена, иначе код причины отказа (INSUFFICIENT_FUNDS, ...)
+     */
+    String authorize(TransactionEntity transaction);
+
+    /**
+     * То же без блокировки; по умолчанию - завершенный future с результатом {@link #authorize}.
+     * Декораторы цепочки переопределяют его, чтобы асинхронное звено не стало синхронным
+     */
+    default CompletableFuture<String> authorizeAsync(TransactionEntity transaction) {
+        return CompletableFuture.completedFuture(authorize(transaction));
+    }
+
+    /**
+     * Отмена одобренной транзакции, которая не была сохранена
+     */
+    default void reverse(TransactionEntity transaction) {
+    }
+}
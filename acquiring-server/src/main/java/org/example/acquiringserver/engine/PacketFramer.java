@@ -0,0 +1,54 @@
+package org.example.acquiringserver.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Чтение одного кадра протокола из потока: 4 байта заголовка [версия][тип][длина 2 байта],
+ * затем остаток пакета до указанной в заголовке длины
+ */
+@Slf4j
+public final class PacketFramer {
+
+    public static final int HEADER_SIZE = 4;
+
+    private PacketFramer() {
+    }
+
+    /**
+     * @return пакет целиком вместе с заголовком или null, если кадр неполный или длина некорректна
+     */
+    public static byte[] readFrame(InputStream input) throws IOException {
+        byte[] header = input.readNBytes(HEADER_SIZE);
+
+        if (header.length == 0) {
+            // Соединение закрыто без данных - так работают health check'и терминалов
+            log.debug("Connection closed before packet header");
+            return null;
+        }
+        if (header.length != HEADER_SIZE) {
+            log.error("Invalid header size: {}", header.length);
+            return null;
+        }
+
+        int totalPacketLength = ((header[2] & 0xFF) << 8) | (header[3] & 0xFF);
+        if (totalPacketLength < HEADER_SIZE) {
+            log.error("Invalid packet length: {}", totalPacketLength);
+            return null;
+        }
+
+        byte[] fullPacket = new byte[totalPacketLength];
+        System.arraycopy(header, 0, fullPacket, 0, HEADER_SIZE);
+
+        int remainingLength = totalPacketLength - HEADER_SIZE;
+        int bytesRead = input.readNBytes(fullPacket, HEADER_SIZE, remainingLength);
+
+        if (bytesRead != remainingLength) {
+            log.error("Incomplete packet. Expected: {}, Got: {}", remainingLength, bytesRead);
+            return null;
+        }
+        return fullPacket;
+    }
+}
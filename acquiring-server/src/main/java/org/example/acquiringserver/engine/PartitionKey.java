@@ -0,0 +1,9 @@
+package org.example.acquiringserver.engine;
+
+/**
+ * Поле транзакции, по хешу которого выбирается партиция
+ */
+public enum PartitionKey {
+    MERCHANT,
+    PAN
+}
@@ -0,0 +1,21 @@
+package org.example.acquiringserver.engine;
+
+/**
+ * Параметры партиционированного режима движка
+ *
+ * @param partitions    число однопоточных воркеров
+ * @param key           поле транзакции для выбора партиции
+ * @param queueCapacity емкость очереди партиции; при переполнении - SERVICE_UNAVAILABLE
+ * @param batchSize     максимум транзакций в одном пакетном сохранении
+ */
+public record PartitionSettings(int partitions, PartitionKey key, int queueCapacity, int batchSize) {
+
+    public PartitionSettings {
+        if (partitions < 1 || queueCapacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Partition count, queue capacity and batch size must be positive");
+        }
+        if (key == null) {
+            throw new IllegalArgumentException("Partition key is required");
+        }
+    }
+}
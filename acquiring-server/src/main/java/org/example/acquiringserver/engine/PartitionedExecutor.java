@@ -0,0 +1,188 @@
+package org.example.acquiringserver.engine;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Однопоточные воркеры партиций.
+ * <p>
+ * Транзакция направляется в партицию по хешу мерчанта или PAN, поэтому все транзакции
+ * одного ключа обрабатывает один поток по порядку, и состояние ключа не делится между
+ * потоками. Воркер забирает из очереди все, что накопилось (до batchSize), и передает
+ * обработчику одним пакетом - так сохранение в БД идет пачками. Очередь ограничена:
+ * при переполнении транзакция сразу отклоняется, поток соединения не блокируется.
+ */
+@Slf4j
+final class PartitionedExecutor implements AutoCloseable {
+
+    /**
+     * Обработка пакета транзакций в потоке воркера
+     */
+    interface BatchHandler {
+
+        /**
+         * Решение, сохранение и ответ для каждой транзакции пакета
+         */
+        void process(List<PendingTransaction> batch);
+
+        /**
+         * Ответ транзакции, которая не будет обработана (остановка движка)
+         */
+        void reject(PendingTransaction pending);
+    }
+
+    private final PartitionKey key;
+    private final int batchSize;
+    private final BatchHandler handler;
+    private final Partition[] partitions;
+    private final Timer waitTimer;
+    private final DistributionSummary batchSizes;
+    private volatile boolean running = true;
+
+    PartitionedExecutor(PartitionSettings settings, BatchHandler handler, MeterRegistry meterRegistry) {
+        this.key = settings.key();
+        this.batchSize = settings.batchSize();
+        this.handler = handler;
+        this.waitTimer = Timer.builder("acquirer.partition.wait")
+                .description("Time a decoded transaction waits in its partition queue")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(500))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("acquirer.partition.batch.size")
+                .description("Transactions processed by a partition worker in one batch")
+                .register(meterRegistry);
+        this.partitions = new Partition[settings.partitions()];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition(i, settings.queueCapacity());
+            String tag = String.valueOf(i);
+            Gauge.builder("acquirer.partition.queue.depth", partitions[i].queue, ArrayBlockingQueue::size)
+                    .description("Transactions waiting in a partition queue")
+                    .tag("partition", tag)
+                    .register(meterRegistry);
+            FunctionCounter.builder("acquirer.partition.processed", partitions[i], partition -> partition.processed)
+                    .description("Transactions processed by a partition worker")
+                    .tag("partition", tag)
+                    .register(meterRegistry);
+        }
+        Gauge.builder("acquirer.partition.skew", this, PartitionedExecutor::skew)
+                .description("Busiest partition's processed count relative to the mean; 1.0 is even")
+                .register(meterRegistry);
+        for (Partition partition : partitions) {
+            partition.worker.start();
+        }
+        log.info("Partitioned execution: {} partitions by {}, queue {}, batch {}",
+                partitions.length, key, settings.queueCapacity(), batchSize);
+    }
+
+    /**
+     * Постановка транзакции в очередь ее партиции
+     *
+     * @return false, если очередь переполнена или исполнитель остановлен
+     */
+    boolean submit(PendingTransaction pending) {
+        if (!running) {
+            return false;
+        }
+        pending.enqueuedNanos = System.nanoTime();
+        return partitions[partitionOf(routingKey(pending))].queue.offer(pending);
+    }
+
+    int partitionOf(String routingKey) {
+        int hash = routingKey == null ? 0 : routingKey.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), partitions.length);
+    }
+
+    /**
+     * Отношение числа обработанных транзакций самой загруженной партиции к среднему
+     */
+    double skew() {
+        long total = 0;
+        long max = 0;
+        for (Partition partition : partitions) {
+            long processed = partition.processed;
+            total += processed;
+            max = Math.max(max, processed);
+        }
+        return total == 0 ? 1.0 : max * partitions.length / (double) total;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        for (Partition partition : partitions) {
+            partition.worker.interrupt();
+        }
+        for (Partition partition : partitions) {
+            try {
+                partition.worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            PendingTransaction pending;
+            while ((pending = partition.queue.poll()) != null) {
+                handler.reject(pending);
+            }
+        }
+    }
+
+    private String routingKey(PendingTransaction pending) {
+        return key == PartitionKey.PAN ? pending.transaction.getPan() : pending.transaction.getMerchantId();
+    }
+
+    private final class Partition implements Runnable {
+
+        private final ArrayBlockingQueue<PendingTransaction> queue;
+        private final Thread worker;
+        private final List<PendingTransaction> batch;
+        // Пишет только воркер партиции, читают метрики
+        private volatile long processed;
+
+        Partition(int index, int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.batch = new ArrayList<>(batchSize);
+            this.worker = new Thread(this, "Partition-" + index);
+            this.worker.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    break;
+                }
+                queue.drainTo(batch, batchSize - 1);
+                long now = System.nanoTime();
+                for (PendingTransaction pending : batch) {
+                    waitTimer.record(now - pending.enqueuedNanos, TimeUnit.NANOSECONDS);
+                }
+                batchSizes.record(batch.size());
+                try {
+                    handler.process(batch);
+                } catch (RuntimeException e) {
+                    log.error("Partition worker {} failed on a batch: {}", worker.getName(), e.getMessage());
+                }
+                for (PendingTransaction pending : batch) {
+                    // Обработчик отвечает на каждую транзакцию; это страховка от исключения в нем
+                    if (!pending.response.isDone() && !pending.deferred) {
+                        handler.reject(pending);
+                    }
+                }
+                processed += batch.size();
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.acquiringserver.engine;
+
+import org.example.acquiringserver.metrics.ProcessingTrace;
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Разобранная транзакция между этапом расшифровки и ответом: решение, результат
+ * сохранения и ответ, которого ждет поток соединения
+ */
+final class PendingTransaction {
+
+    final TransactionEntity transaction;
+    final ProcessingTrace trace;
+    final CompletableFuture<byte[]> response = new CompletableFuture<>();
+    long enqueuedNanos;
+    boolean decided;
+    boolean approved;
+    boolean batched;
+    boolean persisted;
+    boolean expired;
+    // Решение ждет внешнюю систему; транзакция вернется в очередь партиции с готовым решением
+    boolean deferred;
+    // Итог ранее сохраненной транзакции с тем же ID, если сохранение отклонено как повтор
+    RecentTransactionCache.Entry previous;
+
+    PendingTransaction(TransactionEntity transaction, ProcessingTrace trace) {
+        this.transaction = transaction;
+        this.trace = trace;
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.acquiringserver.engine;
+
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Итоги последних сохраненных транзакций для запросов статуса.
+ * <p>
+ * Терминал спрашивает статус сразу после таймаута, поэтому почти все запросы попадают
+ * в последние секунды работы. Хранится не сущность, а только статус и код авторизации;
+ * вытеснение - FIFO по кольцу ключей фиксированной емкости, без блокировок
+ */
+public final class RecentTransactionCache {
+
+    /**
+     * Итог транзакции: APPROVED или DECLINED и код авторизации
+     */
+    public record Entry(String status, String authCode) {
+
+        public boolean approved() {
+            return "APPROVED".equals(status);
+        }
+
+        static Entry of(TransactionEntity transaction) {
+            return new Entry(transaction.getStatus(), transaction.getAuthCode());
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries;
+    private final AtomicReferenceArray<String> ring;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public RecentTransactionCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.entries = new ConcurrentHashMap<>(capacity * 2);
+        this.ring = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Запоминает сохраненную транзакцию; самая старая запись вытесняется
+     */
+    public void put(TransactionEntity transaction) {
+        String transactionId = transaction.getTransactionId();
+        entries.put(transactionId, Entry.of(transaction));
+        int slot = (int) (sequence.getAndIncrement() % ring.length());
+        String evicted = ring.getAndSet(slot, transactionId);
+        if (evicted != null && !evicted.equals(transactionId)) {
+            entries.remove(evicted);
+        }
+    }
+
+    /**
+     * @return итог транзакции или null, если ее нет среди последних
+     */
+    public Entry get(String transactionId) {
+        return entries.get(transactionId);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return ring.length();
+    }
+}
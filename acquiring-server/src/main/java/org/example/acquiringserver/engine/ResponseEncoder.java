@@ -0,0 +1,59 @@
+package org.example.acquiringserver.engine;
+
+import org.example.acquiringserver.metrics.ProcessingTrace;
+import org.example.acquiringserver.network.EnvelopeExtensions;
+import org.example.acquiringserver.service.ResponseCode;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Кодирование ответа: [статус 1][данные 6][timestamp 8] и расширения конверта,
+ * если запрос пришел с контекстом трассировки
+ */
+public final class ResponseEncoder {
+
+    /**
+     * Поле данных отклонения. Ошибка обработки (PROCESSING_ERROR) делит с отклонением код 0x01
+     * и отличается только этим полем, поэтому клиенты сравнивают его целиком
+     */
+    public static final String DECLINE_DATA = "DECLIN";
+    public static final String ERROR_DATA = "ERROR";
+
+    private ResponseEncoder() {
+    }
+
+    public static byte[] approval(String authCode, ProcessingTrace trace) {
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        response.write(0x00);
+        response.writeBytes(authCode.getBytes());
+        writeTimestamp(response);
+        EnvelopeExtensions.writeResponse(response, trace);
+        return response.toByteArray();
+    }
+
+    public static byte[] decline(ProcessingTrace trace) {
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        response.write(0x01);
+        response.writeBytes(DECLINE_DATA.getBytes());
+        writeTimestamp(response);
+        EnvelopeExtensions.writeResponse(response, trace);
+        return response.toByteArray();
+    }
+
+    public static byte[] error(ResponseCode code, ProcessingTrace trace) {
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        response.write(code.getCode());
+        response.writeBytes(ERROR_DATA.getBytes());
+        response.write(0x00);
+        writeTimestamp(response);
+        EnvelopeExtensions.writeResponse(response, trace);
+        return response.toByteArray();
+    }
+
+    private static void writeTimestamp(ByteArrayOutputStream stream) {
+        long timestamp = System.currentTimeMillis();
+        for (int i = 56; i >= 0; i -= 8) {
+            stream.write((byte) ((timestamp >> i) & 0xFF));
+        }
+    }
+}
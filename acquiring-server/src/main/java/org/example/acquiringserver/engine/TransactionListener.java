@@ -0,0 +1,19 @@
+package org.example.acquiringserver.engine;
+
+import org.example.acquiringserver.model.TransactionEntity;
+
+/**
+ * SPI получателя итогов транзакций.
+ * <p>
+ * Вызывается движком для каждой сохраненной транзакции (одобренной или отклоненной) в потоке
+ * обработки перед отправкой ответа, поэтому должен быть быстрым. Исключение получателя
+ * логируется и на ответ не влияет
+ */
+@FunctionalInterface
+public interface TransactionListener {
+
+    TransactionListener NONE = transaction -> {
+    };
+
+    void onCompleted(TransactionEntity transaction);
+}
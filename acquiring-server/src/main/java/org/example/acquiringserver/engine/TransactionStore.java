@@ -0,0 +1,37 @@
+package org.example.acquiringserver.engine;
+
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.util.List;
+
+/**
+ * SPI хранения авторизованных транзакций.
+ * <p>
+ * В приложении реализуется поверх JPA репозитория (JpaTransactionStore), при встраивании
+ * движка - чем угодно: очередь в шлюз, файл, заглушка в бенчмарке. Исключение из save
+ * превращается движком в ответ PROCESSING_ERROR
+ */
+@FunctionalInterface
+public interface TransactionStore {
+
+    void save(TransactionEntity transaction);
+
+    /**
+     * Пакетное сохранение; по умолчанию - поштучно
+     */
+    default void saveAll(List<TransactionEntity> transactions) {
+        for (TransactionEntity transaction : transactions) {
+            save(transaction);
+        }
+    }
+
+    /**
+     * Поиск для запроса статуса, когда транзакции уже нет в кэше движка;
+     * по умолчанию хранилище поиск не поддерживает
+     *
+     * @return транзакция или null, если не найдена
+     */
+    default TransactionEntity findByTransactionId(String transactionId) {
+        return null;
+    }
+}
@@ -0,0 +1,164 @@
+package org.example.acquiringserver.export;
+
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Компактный бинарный колоночный формат.
+ * <p>
+ * Файл - сигнатура TXC1 и блоки до {@value #BLOCK_ROWS} строк, в конце - блок с нулем строк.
+ * Блок: int число строк, int длина тела, тело - колонки подряд: id (long), время в микросекундах
+ * UTC (long), сумма (int), время обработки (long, -1 - нет), версия протокола (byte, -1 - нет),
+ * затем строковые колонки {@link #STRING_COLUMNS}. Строковая колонка кодируется словарем, если
+ * различных значений в блоке не больше четверти строк (мерчант, статус, причина отказа), иначе -
+ * значениями с длиной. Все числа big-endian. Читается {@link ColumnarTransactionReader}.
+ */
+final class ColumnarExportWriter implements TransactionExportWriter {
+
+    static final byte[] MAGIC = {'T', 'X', 'C', '1'};
+    static final int BLOCK_ROWS = 4096;
+    static final int STRING_COLUMNS = 7;
+    static final byte PLAIN = 0;
+    static final byte DICTIONARY = 1;
+    static final int NULL_LENGTH = -1;
+
+    private final ChannelSink sink;
+    private final long[] ids = new long[BLOCK_ROWS];
+    private final long[] timestamps = new long[BLOCK_ROWS];
+    private final int[] amounts = new int[BLOCK_ROWS];
+    private final long[] processingTimes = new long[BLOCK_ROWS];
+    private final byte[] protocolVersions = new byte[BLOCK_ROWS];
+    private final String[][] strings = new String[STRING_COLUMNS][BLOCK_ROWS];
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private ByteBuffer block = ByteBuffer.allocate(256 * 1024);
+    private int rows;
+    private boolean started;
+
+    ColumnarExportWriter(ChannelSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void write(TransactionEntity transaction) throws IOException {
+        int row = rows++;
+        ids[row] = transaction.getId() == null ? -1 : transaction.getId();
+        timestamps[row] = toEpochMicros(transaction.getTimestamp());
+        amounts[row] = transaction.getAmount();
+        processingTimes[row] = transaction.getProcessingTimeMs() == null ? -1 : transaction.getProcessingTimeMs();
+        protocolVersions[row] = transaction.getProtocolVersion() == null ? -1 : transaction.getProtocolVersion();
+        strings[0][row] = transaction.getTransactionId();
+        strings[1][row] = transaction.getPan();
+        strings[2][row] = transaction.getMerchantId();
+        strings[3][row] = transaction.getStatus();
+        strings[4][row] = transaction.getDeclineReason();
+        strings[5][row] = transaction.getAuthCode();
+        strings[6][row] = transaction.getVelocityFlag();
+        if (rows == BLOCK_ROWS) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (rows > 0) {
+            writeBlock();
+        }
+        writeMagicOnce();
+        sink.write(ByteBuffer.allocate(8).putInt(0).putInt(0).flip());
+        sink.flush();
+    }
+
+    static long toEpochMicros(LocalDateTime timestamp) {
+        return timestamp == null ? Long.MIN_VALUE
+                : ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), timestamp);
+    }
+
+    private void writeBlock() throws IOException {
+        writeMagicOnce();
+        block.clear();
+        block.position(8);
+        for (int i = 0; i < rows; i++) {
+            ensure(8).putLong(ids[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            ensure(8).putLong(timestamps[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            ensure(4).putInt(amounts[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            ensure(8).putLong(processingTimes[i]);
+        }
+        ensure(rows).put(protocolVersions, 0, rows);
+        for (String[] column : strings) {
+            writeStringColumn(column);
+        }
+        block.putInt(0, rows).putInt(4, block.position() - 8);
+        block.flip();
+        sink.write(block);
+        for (String[] column : strings) {
+            Arrays.fill(column, 0, rows, null);
+        }
+        rows = 0;
+    }
+
+    private void writeStringColumn(String[] column) {
+        dictionary.clear();
+        for (int i = 0; i < rows && dictionary.size() <= rows / 4; i++) {
+            if (column[i] != null) {
+                dictionary.putIfAbsent(column[i], dictionary.size());
+            }
+        }
+        if (dictionary.size() > rows / 4 || dictionary.size() > Short.MAX_VALUE) {
+            ensure(1).put(PLAIN);
+            for (int i = 0; i < rows; i++) {
+                writeString(column[i]);
+            }
+            return;
+        }
+        ensure(3).put(DICTIONARY).putShort((short) dictionary.size());
+        String[] entries = new String[dictionary.size()];
+        dictionary.forEach((value, index) -> entries[index] = value);
+        for (String entry : entries) {
+            writeString(entry);
+        }
+        for (int i = 0; i < rows; i++) {
+            ensure(2).putShort(column[i] == null ? NULL_LENGTH : dictionary.get(column[i]).shortValue());
+        }
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            ensure(2).putShort((short) NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(2 + bytes.length).putShort((short) bytes.length).put(bytes);
+    }
+
+    private ByteBuffer ensure(int bytes) {
+        if (block.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(block.capacity() * 2, block.position() + bytes));
+            block.flip();
+            grown.put(block);
+            block = grown;
+        }
+        return block;
+    }
+
+    private void writeMagicOnce() throws IOException {
+        if (!started) {
+            sink.write(ByteBuffer.wrap(MAGIC));
+            started = true;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.acquiringserver.export;
+
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Чтение колоночного формата выгрузки (см. {@link ColumnarExportWriter}) по блокам:
+ * в памяти одновременно находится только один блок
+ */
+public final class ColumnarTransactionReader {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC);
+
+    private ColumnarTransactionReader() {
+    }
+
+    /**
+     * @return число прочитанных транзакций
+     */
+    public static long read(ReadableByteChannel channel, Consumer<TransactionEntity> consumer) throws IOException {
+        ByteBuffer magic = readFully(channel, ByteBuffer.allocate(ColumnarExportWriter.MAGIC.length));
+        if (!Arrays.equals(magic.array(), ColumnarExportWriter.MAGIC)) {
+            throw new IOException("Not a columnar transaction export");
+        }
+        ByteBuffer header = ByteBuffer.allocate(8);
+        ByteBuffer body = ByteBuffer.allocate(0);
+        long total = 0;
+        while (true) {
+            header.clear();
+            readFully(channel, header);
+            int rows = header.getInt(0);
+            int length = header.getInt(4);
+            if (rows == 0) {
+                return total;
+            }
+            if (body.capacity() < length) {
+                body = ByteBuffer.allocate(length);
+            }
+            body.clear().limit(length);
+            readFully(channel, body);
+            decodeBlock(body, rows, consumer);
+            total += rows;
+        }
+    }
+
+    private static void decodeBlock(ByteBuffer body, int rows, Consumer<TransactionEntity> consumer) {
+        TransactionEntity[] transactions = new TransactionEntity[rows];
+        for (int i = 0; i < rows; i++) {
+            transactions[i] = new TransactionEntity();
+            long id = body.getLong();
+            transactions[i].setId(id == -1 ? null : id);
+        }
+        for (int i = 0; i < rows; i++) {
+            long micros = body.getLong();
+            transactions[i].setTimestamp(micros == Long.MIN_VALUE ? null : EPOCH.plus(micros, ChronoUnit.MICROS));
+        }
+        for (int i = 0; i < rows; i++) {
+            transactions[i].setAmount(body.getInt());
+        }
+        for (int i = 0; i < rows; i++) {
+            long processingTime = body.getLong();
+            transactions[i].setProcessingTimeMs(processingTime == -1 ? null : processingTime);
+        }
+        for (int i = 0; i < rows; i++) {
+            byte version = body.get();
+            transactions[i].setProtocolVersion(version == -1 ? null : version);
+        }
+        String[] values = new String[rows];
+        for (int column = 0; column < ColumnarExportWriter.STRING_COLUMNS; column++) {
+            readStringColumn(body, values);
+            for (int i = 0; i < rows; i++) {
+                TransactionEntity transaction = transactions[i];
+                switch (column) {
+                    case 0 -> transaction.setTransactionId(values[i]);
+                    case 1 -> transaction.setPan(values[i]);
+                    case 2 -> transaction.setMerchantId(values[i]);
+                    case 3 -> transaction.setStatus(values[i]);
+                    case 4 -> transaction.setDeclineReason(values[i]);
+                    case 5 -> transaction.setAuthCode(values[i]);
+                    default -> transaction.setVelocityFlag(values[i]);
+                }
+            }
+        }
+        for (TransactionEntity transaction : transactions) {
+            consumer.accept(transaction);
+        }
+    }
+
+    private static void readStringColumn(ByteBuffer body, String[] values) {
+        byte encoding = body.get();
+        if (encoding == ColumnarExportWriter.PLAIN) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readString(body);
+            }
+            return;
+        }
+        String[] dictionary = new String[body.getShort()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(body);
+        }
+        for (int i = 0; i < values.length; i++) {
+            short index = body.getShort();
+            values[i] = index == ColumnarExportWriter.NULL_LENGTH ? null : dictionary[index];
+        }
+    }
+
+    private static String readString(ByteBuffer body) {
+        short length = body.getShort();
+        if (length == ColumnarExportWriter.NULL_LENGTH) {
+            return null;
+        }
+        String value = new String(body.array(), body.arrayOffset() + body.position(), length, StandardCharsets.UTF_8);
+        body.position(body.position() + length);
+        return value;
+    }
+
+    private static ByteBuffer readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Truncated columnar transaction export");
+            }
+        }
+        return buffer.flip();
+    }
+}
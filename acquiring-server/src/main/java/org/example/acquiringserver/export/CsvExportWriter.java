@@ -0,0 +1,82 @@
+package org.example.acquiringserver.export;
+
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.io.IOException;
+
+/**
+ * CSV по RFC 4180: заголовок, затем строка на транзакцию; поля с запятой, кавычкой
+ * или переводом строки берутся в кавычки
+ */
+final class CsvExportWriter implements TransactionExportWriter {
+
+    static final String HEADER = "id,transaction_id,pan,amount,merchant_id,status,decline_reason,auth_code,"
+            + "timestamp,processing_time_ms,protocol_version,velocity_flag\n";
+
+    private final ChannelSink sink;
+    private final StringBuilder row = new StringBuilder(256);
+    private boolean headerWritten;
+
+    CsvExportWriter(ChannelSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void write(TransactionEntity transaction) throws IOException {
+        writeHeaderOnce();
+        row.setLength(0);
+        row.append(transaction.getId()).append(',');
+        field(transaction.getTransactionId()).append(',');
+        field(transaction.getPan()).append(',');
+        row.append(transaction.getAmount()).append(',');
+        field(transaction.getMerchantId()).append(',');
+        field(transaction.getStatus()).append(',');
+        field(transaction.getDeclineReason()).append(',');
+        field(transaction.getAuthCode()).append(',');
+        row.append(transaction.getTimestamp()).append(',');
+        optional(transaction.getProcessingTimeMs()).append(',');
+        optional(transaction.getProtocolVersion()).append(',');
+        field(transaction.getVelocityFlag()).append('\n');
+        sink.write(row);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writeHeaderOnce();
+        sink.flush();
+    }
+
+    private void writeHeaderOnce() throws IOException {
+        if (!headerWritten) {
+            sink.write(HEADER);
+            headerWritten = true;
+        }
+    }
+
+    private StringBuilder optional(Object value) {
+        return value == null ? row : row.append(value);
+    }
+
+    private StringBuilder field(String value) {
+        if (value == null) {
+            return row;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return row.append(value);
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        return row.append('"');
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.acquiringserver.export;
+
+import java.time.LocalDateTime;
+
+/**
+ * Условия выгрузки; null - без ограничения по полю. Интервал времени полуоткрытый: [from, to)
+ */
+public record ExportFilter(LocalDateTime from, LocalDateTime to, String merchantId, String status) {
+
+    public static ExportFilter all() {
+        return new ExportFilter(null, null, null, null);
+    }
+}
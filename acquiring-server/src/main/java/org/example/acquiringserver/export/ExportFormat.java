@@ -0,0 +1,31 @@
+package org.example.acquiringserver.export;
+
+/**
+ * Форматы выгрузки транзакций
+ */
+public enum ExportFormat {
+    CSV("text/csv; charset=utf-8"),
+    NDJSON("application/x-ndjson"),
+    COLUMNAR("application/octet-stream");
+
+    private final String contentType;
+
+    ExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Новый writer формата; writer не потокобезопасен и используется для одной выгрузки
+     */
+    TransactionExportWriter newWriter(ChannelSink sink) {
+        return switch (this) {
+            case CSV -> new CsvExportWriter(sink);
+            case NDJSON -> new NdjsonExportWriter(sink);
+            case COLUMNAR -> new ColumnarExportWriter(sink);
+        };
+    }
+}
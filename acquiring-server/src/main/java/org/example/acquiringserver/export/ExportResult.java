@@ -0,0 +1,17 @@
+package org.example.acquiringserver.export;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Итог выгрузки
+ */
+public record ExportResult(long rows, long bytes, long elapsedMillis) {
+
+    public long rowsPerSecond() {
+        return rate(rows, TimeUnit.MILLISECONDS.toNanos(elapsedMillis));
+    }
+
+    static long rate(long rows, long elapsedNanos) {
+        return elapsedNanos <= 0 ? rows : rows * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+}
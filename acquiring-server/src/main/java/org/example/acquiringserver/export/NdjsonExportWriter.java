@@ -0,0 +1,75 @@
+package org.example.acquiringserver.export;
+
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.io.IOException;
+
+/**
+ * Newline-delimited JSON: объект на строку, null-поля опускаются
+ */
+final class NdjsonExportWriter implements TransactionExportWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ChannelSink sink;
+    private final StringBuilder row = new StringBuilder(320);
+
+    NdjsonExportWriter(ChannelSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void write(TransactionEntity transaction) throws IOException {
+        row.setLength(0);
+        row.append("{\"id\":").append(transaction.getId());
+        string("transactionId", transaction.getTransactionId());
+        string("pan", transaction.getPan());
+        row.append(",\"amount\":").append(transaction.getAmount());
+        string("merchantId", transaction.getMerchantId());
+        string("status", transaction.getStatus());
+        string("declineReason", transaction.getDeclineReason());
+        string("authCode", transaction.getAuthCode());
+        string("timestamp", transaction.getTimestamp() == null ? null : transaction.getTimestamp().toString());
+        number("processingTimeMs", transaction.getProcessingTimeMs());
+        number("protocolVersion", transaction.getProtocolVersion());
+        string("velocityFlag", transaction.getVelocityFlag());
+        row.append("}\n");
+        sink.write(row);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        sink.flush();
+    }
+
+    private void number(String name, Number value) {
+        if (value != null) {
+            row.append(",\"").append(name).append("\":").append(value);
+        }
+    }
+
+    private void string(String name, String value) {
+        if (value == null) {
+            return;
+        }
+        row.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> row.append("\\\"");
+                case '\\' -> row.append("\\\\");
+                case '\n' -> row.append("\\n");
+                case '\r' -> row.append("\\r");
+                case '\t' -> row.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        row.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        row.append(c);
+                    }
+                }
+            }
+        }
+        row.append('"');
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.acquiringserver.export;
+
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.io.IOException;
+
+/**
+ * Запись транзакций в формате выгрузки. Строка копируется в буфер writer'а сразу,
+ * поэтому сущность после {@link #write(TransactionEntity)} можно отсоединять от контекста
+ */
+interface TransactionExportWriter {
+
+    void write(TransactionEntity transaction) throws IOException;
+
+    /**
+     * Дописывает хвост формата и сбрасывает буфер в канал
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,102 @@
+package org.example.acquiringserver.export;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.model.TransactionEntity;
+import org.example.acquiringserver.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Потоковая выгрузка сохраненных транзакций.
+ * <p>
+ * Транзакции читаются курсором (TransactionRepository#streamForExport), каждая сразу
+ * записывается в буфер формата и отсоединяется от контекста персистентности, поэтому
+ * память не зависит от числа строк. Ход выгрузки пишется в лог каждые
+ * export.progress-interval-rows строк вместе со скоростью, число строк - в метрику.
+ */
+@Slf4j
+@Service
+public class TransactionExporter {
+
+    private final TransactionRepository repository;
+    private final EntityManager entityManager;
+    private final MeterRegistry meterRegistry;
+    private final int bufferSize;
+    private final long progressInterval;
+    private final AtomicLong rowsInProgress = new AtomicLong();
+
+    public TransactionExporter(TransactionRepository repository,
+                               EntityManager entityManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${export.buffer-size:65536}") int bufferSize,
+                               @Value("${export.progress-interval-rows:100000}") long progressInterval) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.meterRegistry = meterRegistry;
+        this.bufferSize = bufferSize;
+        this.progressInterval = progressInterval;
+        meterRegistry.gauge("acquirer.export.rows.in.progress", rowsInProgress);
+    }
+
+    /**
+     * Выгрузка в канал; канал не закрывается
+     */
+    @Transactional(readOnly = true)
+    public ExportResult export(ExportFilter filter, ExportFormat format, WritableByteChannel channel)
+            throws IOException {
+        long start = System.nanoTime();
+        ChannelSink sink = new ChannelSink(channel, bufferSize);
+        TransactionExportWriter writer = format.newWriter(sink);
+        long rows = 0;
+        rowsInProgress.set(0);
+        try (Stream<TransactionEntity> stream = repository.streamForExport(
+                filter.from(), filter.to(), filter.merchantId(), filter.status())) {
+            Iterator<TransactionEntity> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                TransactionEntity transaction = iterator.next();
+                writer.write(transaction);
+                entityManager.detach(transaction);
+                rows++;
+                if (rows % progressInterval == 0) {
+                    rowsInProgress.set(rows);
+                    log.info("Export {}: {} rows, {} rows/s", format, rows,
+                            ExportResult.rate(rows, System.nanoTime() - start));
+                }
+            }
+            writer.finish();
+        } finally {
+            rowsInProgress.set(0);
+        }
+
+        ExportResult result = new ExportResult(rows, sink.bytesWritten(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        meterRegistry.counter("acquirer.export.rows", "format", format.name()).increment(rows);
+        log.info("Export {} finished: {} rows, {} bytes in {} ms ({} rows/s)",
+                format, result.rows(), result.bytes(), result.elapsedMillis(), result.rowsPerSecond());
+        return result;
+    }
+
+    /**
+     * Выгрузка в файл через FileChannel; существующий файл перезаписывается
+     */
+    @Transactional(readOnly = true)
+    public ExportResult exportToFile(ExportFilter filter, ExportFormat format, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return export(filter, format, channel);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.example.acquiringserver.fault;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.jfr.FaultInjectedEvent;
+import org.example.acquiringserver.metrics.FaultType;
+import org.example.acquiringserver.metrics.ProcessingMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Движок fault injection с конфигурацией из файла.
+ * <p>
+ * Конфигурация читается в неизменяемый снимок, который подменяется целиком при изменении
+ * файла, поэтому обработчики видят либо старые, либо новые настройки, но не их смесь.
+ * Ошибка в новом файле не ломает работу: остается предыдущий снимок.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "fault-injection.enabled", havingValue = "true", matchIfMissing = true)
+public class ConfigurableFaultInjector implements FaultInjector {
+
+    private final ResourceLoader resourceLoader;
+    private final ProcessingMetrics metrics;
+    private final FaultRandom random;
+    private final String location;
+
+    private volatile FaultConfiguration configuration = FaultConfiguration.parse(new Properties());
+    private volatile long lastModified = Long.MIN_VALUE;
+
+    public ConfigurableFaultInjector(ResourceLoader resourceLoader,
+                                     ProcessingMetrics metrics,
+                                     @Value("${fault-injection.config:classpath:fault-injection.properties}") String location,
+                                     @Value("${fault-injection.seed:}") String seed) {
+        this.resourceLoader = resourceLoader;
+        this.metrics = metrics;
+        this.location = location;
+        this.random = seed.isBlank() ? FaultRandom.unseeded() : FaultRandom.seeded(Long.parseLong(seed.trim()));
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Resource resource = resourceLoader.getResource(location);
+        configuration = load(resource);
+        lastModified = lastModified(resource);
+        log.info("Fault injection configuration loaded from {} ({} merchant overrides)",
+                location, configuration.merchantOverrideCount());
+    }
+
+    /**
+     * Перечитывание конфигурации, если файл изменился
+     */
+    @Scheduled(fixedDelayString = "${fault-injection.reload-interval-ms:5000}",
+            initialDelayString = "${fault-injection.reload-interval-ms:5000}")
+    public void reloadIfModified() {
+        Resource resource = resourceLoader.getResource(location);
+        long modified = lastModified(resource);
+        if (modified == lastModified) {
+            return;
+        }
+        try {
+            configuration = load(resource);
+            lastModified = modified;
+            log.info("Fault injection configuration reloaded from {} ({} merchant overrides)",
+                    location, configuration.merchantOverrideCount());
+        } catch (IOException | RuntimeException e) {
+            lastModified = modified;
+            log.error("Invalid fault injection configuration {}, keeping previous one: {}", location, e.getMessage());
+        }
+    }
+
+    public FaultConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    @Override
+    public boolean shouldTimeout() {
+        boolean timeout = check(null, FaultType.TIMEOUT);
+        if (timeout) {
+            log.warn("Emulating timeout - packet will be dropped");
+        }
+        return timeout;
+    }
+
+    @Override
+    public boolean shouldServiceBeUnavailable() {
+        boolean unavailable = check(null, FaultType.SERVICE_UNAVAILABLE);
+        if (unavailable) {
+            log.error("Emulating service unavailable");
+        }
+        return unavailable;
+    }
+
+    @Override
+    public boolean shouldDataBeCorrupted() {
+        boolean corrupted = check(null, FaultType.DATA_CORRUPTION);
+        if (corrupted) {
+            log.error("Emulating data corruption");
+        }
+        return corrupted;
+    }
+
+    @Override
+    public boolean shouldReject(String merchantId) {
+        boolean reject = check(merchantId, FaultType.ISSUER_REJECT);
+        if (reject) {
+            log.warn("Emulating bank rejection - transaction declined");
+        }
+        return reject;
+    }
+
+    @Override
+    public String randomDeclineReason() {
+        FaultConfiguration current = configuration;
+        return current.declineReason(random.nextInt(current.declineReasonCount()));
+    }
+
+    @Override
+    public boolean shouldDatabaseFail(String merchantId) {
+        boolean dbFail = check(merchantId, FaultType.DATABASE_FAILURE);
+        if (dbFail) {
+            log.error("Emulating database failure");
+        }
+        return dbFail;
+    }
+
+    @Override
+    public long responseDelayMillis(String merchantId) {
+        FaultProfile profile = configuration.profile(merchantId);
+        if (!random.chance(profile.probability(FaultType.NETWORK_DELAY))) {
+            return 0;
+        }
+        long delay = profile.getDelay().sample(random);
+        if (delay > 0) {
+            recordFault(FaultType.NETWORK_DELAY);
+            log.debug("Emulating network delay: {}ms", delay);
+        }
+        return delay;
+    }
+
+    private boolean check(String merchantId, FaultType fault) {
+        boolean injected = random.chance(configuration.profile(merchantId).probability(fault));
+        if (injected) {
+            recordFault(fault);
+        }
+        return injected;
+    }
+
+    private void recordFault(FaultType fault) {
+        metrics.recordFault(fault);
+        FaultInjectedEvent event = new FaultInjectedEvent();
+        if (event.shouldCommit()) {
+            event.faultType = fault.name();
+            event.commit();
+        }
+    }
+
+    private static FaultConfiguration load(Resource resource) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = resource.getInputStream()) {
+            properties.load(input);
+        }
+        return FaultConfiguration.parse(properties);
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            // Ресурс внутри jar: изменения отследить нельзя
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.acquiringserver.fault;
+
+/**
+ * Распределение задержки ответа в миллисекундах.
+ * <p>
+ * FIXED - всегда meanMs, UNIFORM - равномерно в [minMs, maxMs],
+ * EXPONENTIAL - minMs плюс экспонента со средним meanMs, обрезанная по maxMs
+ */
+public record DelayDistribution(Type type, long minMs, long maxMs, long meanMs) {
+
+    public enum Type {
+        FIXED,
+        UNIFORM,
+        EXPONENTIAL
+    }
+
+    public DelayDistribution {
+        if (minMs < 0 || maxMs < minMs) {
+            throw new IllegalArgumentException("Delay bounds must satisfy 0 <= min <= max: " + minMs + ", " + maxMs);
+        }
+        if (meanMs < 0) {
+            throw new IllegalArgumentException("Mean delay must be >= 0: " + meanMs);
+        }
+    }
+
+    public long sample(FaultRandom random) {
+        return switch (type) {
+            case FIXED -> meanMs;
+            case UNIFORM -> minMs + random.nextInt((int) (maxMs - minMs + 1));
+            case EXPONENTIAL -> Math.min(maxMs, minMs + (long) (-meanMs * Math.log(1.0 - random.nextDouble())));
+        };
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.acquiringserver.fault;
+
+/**
+ * Режим без сбоев для чистых замеров производительности: конфигурация не читается,
+ * случайные числа не генерируются, а вызовы сводятся JIT к константам.
+ * Используется движком по умолчанию; в приложении - бин при fault-injection.enabled=false
+ */
+public class DisabledFaultInjector implements FaultInjector {
+
+    @Override
+    public boolean shouldTimeout() {
+        return false;
+    }
+
+    @Override
+    public boolean shouldServiceBeUnavailable() {
+        return false;
+    }
+
+    @Override
+    public boolean shouldDataBeCorrupted() {
+        return false;
+    }
+
+    @Override
+    public boolean shouldReject(String merchantId) {
+        return false;
+    }
+
+    @Override
+    public String randomDeclineReason() {
+        return null;
+    }
+
+    @Override
+    public boolean shouldDatabaseFail(String merchantId) {
+        return false;
+    }
+
+    @Override
+    public long responseDelayMillis(String merchantId) {
+        return 0;
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.acquiringserver.fault;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Снимок конфигурации fault injection: общий профиль, переопределения по мерчантам
+ * и причины отказа эмитента.
+ * <p>
+ * Формат (java.util.Properties):
+ * <pre>
+ * timeout.probability=0.05
+ * network-delay.distribution=UNIFORM
+ * network-delay.max-ms=100
+ * issuer-reject.reasons=INSUFFICIENT_FUNDS,CARD_EXPIRED
+ * merchant.MERCHANT_000001.issuer-reject.probability=0.5
+ * </pre>
+ * Ключи мерчанта переопределяют только указанные значения общего профиля.
+ */
+public final class FaultConfiguration {
+
+    private static final String MERCHANT_PREFIX = "merchant.";
+    private static final String REASONS_KEY = "issuer-reject.reasons";
+    private static final String[] DEFAULT_REASONS = {"TECHNICAL_ERROR"};
+
+    private final FaultProfile defaults;
+    private final Map<String, FaultProfile> merchants;
+    private final String[] declineReasons;
+
+    private FaultConfiguration(FaultProfile defaults, Map<String, FaultProfile> merchants, String[] declineReasons) {
+        this.defaults = defaults;
+        this.merchants = merchants;
+        this.declineReasons = declineReasons;
+    }
+
+    public static FaultConfiguration parse(Properties properties) {
+        FaultProfile defaults = FaultProfile.parse(properties, "", FaultProfile.none());
+
+        Map<String, FaultProfile> merchants = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(MERCHANT_PREFIX)) {
+                int end = key.indexOf('.', MERCHANT_PREFIX.length());
+                if (end < 0) {
+                    throw new IllegalArgumentException("Malformed merchant override key: " + key);
+                }
+                String merchantId = key.substring(MERCHANT_PREFIX.length(), end);
+                merchants.computeIfAbsent(merchantId, id ->
+                        FaultProfile.parse(properties, MERCHANT_PREFIX + id + ".", defaults));
+            }
+        }
+
+        String reasons = properties.getProperty(REASONS_KEY);
+        String[] declineReasons = reasons == null ? DEFAULT_REASONS : Arrays.stream(reasons.split(","))
+                .map(String::trim)
+                .filter(reason -> !reason.isEmpty())
+                .toArray(String[]::new);
+        if (declineReasons.length == 0) {
+            declineReasons = DEFAULT_REASONS;
+        }
+        return new FaultConfiguration(defaults, Map.copyOf(merchants), declineReasons);
+    }
+
+    /**
+     * Профиль мерчанта, а если переопределений нет или мерчант неизвестен - общий
+     */
+    public FaultProfile profile(String merchantId) {
+        if (merchantId == null || merchants.isEmpty()) {
+            return defaults;
+        }
+        return merchants.getOrDefault(merchantId, defaults);
+    }
+
+    public String declineReason(int index) {
+        return declineReasons[index];
+    }
+
+    public int declineReasonCount() {
+        return declineReasons.length;
+    }
+
+    public int merchantOverrideCount() {
+        return merchants.size();
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.acquiringserver.fault;
+
+/**
+ * Точки внесения сбоев в конвейер обработки пакетов.
+ * <p>
+ * merchantId может быть null: сбои, которые решаются до расшифровки пакета
+ * (таймаут, недоступность, повреждение данных), мерчанта еще не знают и
+ * используют общие настройки.
+ */
+public interface FaultInjector {
+
+    /**
+     * Запрос "теряется": сервер закрывает соединение без ответа
+     */
+    boolean shouldTimeout();
+
+    boolean shouldServiceBeUnavailable();
+
+    boolean shouldDataBeCorrupted();
+
+    /**
+     * Отказ банка-эмитента
+     */
+    boolean shouldReject(String merchantId);
+
+    String randomDeclineReason();
+
+    boolean shouldDatabaseFail(String merchantId);
+
+    /**
+     * Задержка перед отправкой ответа, мс; 0 - отвечать сразу
+     */
+    long responseDelayMillis(String merchantId);
+}
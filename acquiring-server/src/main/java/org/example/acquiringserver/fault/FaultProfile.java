@@ -0,0 +1,70 @@
+package org.example.acquiringserver.fault;
+
+import org.example.acquiringserver.metrics.FaultType;
+
+import java.util.Properties;
+
+/**
+ * Неизменяемый набор вероятностей сбоев и распределение задержки ответа
+ */
+public final class FaultProfile {
+
+    private static final FaultType[] FAULTS = FaultType.values();
+
+    private final double[] probabilities;
+    private final DelayDistribution delay;
+
+    private FaultProfile(double[] probabilities, DelayDistribution delay) {
+        this.probabilities = probabilities;
+        this.delay = delay;
+    }
+
+    /**
+     * Профиль без сбоев
+     */
+    public static FaultProfile none() {
+        return new FaultProfile(new double[FAULTS.length],
+                new DelayDistribution(DelayDistribution.Type.FIXED, 0, 0, 0));
+    }
+
+    /**
+     * Чтение профиля из ключей вида prefix + "timeout.probability"; отсутствующие
+     * ключи наследуются от base
+     */
+    static FaultProfile parse(Properties properties, String prefix, FaultProfile base) {
+        double[] probabilities = base.probabilities.clone();
+        for (FaultType fault : FAULTS) {
+            String value = properties.getProperty(prefix + fault.getKey() + ".probability");
+            if (value != null) {
+                double probability = Double.parseDouble(value.trim());
+                if (probability < 0 || probability > 1) {
+                    throw new IllegalArgumentException(
+                            "Probability of " + fault.getKey() + " must be within [0, 1]: " + probability);
+                }
+                probabilities[fault.ordinal()] = probability;
+            }
+        }
+
+        String delayPrefix = prefix + FaultType.NETWORK_DELAY.getKey();
+        String type = properties.getProperty(delayPrefix + ".distribution");
+        DelayDistribution delay = new DelayDistribution(
+                type != null ? DelayDistribution.Type.valueOf(type.trim()) : base.delay.type(),
+                longProperty(properties, delayPrefix + ".min-ms", base.delay.minMs()),
+                longProperty(properties, delayPrefix + ".max-ms", base.delay.maxMs()),
+                longProperty(properties, delayPrefix + ".mean-ms", base.delay.meanMs()));
+        return new FaultProfile(probabilities, delay);
+    }
+
+    public double probability(FaultType fault) {
+        return probabilities[fault.ordinal()];
+    }
+
+    public DelayDistribution getDelay() {
+        return delay;
+    }
+
+    private static long longProperty(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null ? Long.parseLong(value.trim()) : defaultValue;
+    }
+}
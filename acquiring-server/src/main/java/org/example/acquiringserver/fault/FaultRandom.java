@@ -0,0 +1,53 @@
+package org.example.acquiringserver.fault;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Источник случайных чисел без общей блокировки между потоками.
+ * <p>
+ * Без seed используется ThreadLocalRandom. С seed каждый поток при первом обращении
+ * получает собственный SplittableRandom, отщепленный от корневого генератора, поэтому
+ * последовательности потоков воспроизводимы от запуска к запуску (при одинаковом
+ * порядке первого обращения потоков) и не конкурируют друг с другом.
+ */
+public final class FaultRandom {
+
+    private final ThreadLocal<SplittableRandom> seeded;
+
+    private FaultRandom(Long seed) {
+        if (seed == null) {
+            this.seeded = null;
+        } else {
+            SplittableRandom root = new SplittableRandom(seed);
+            this.seeded = ThreadLocal.withInitial(() -> {
+                synchronized (root) {
+                    return root.split();
+                }
+            });
+        }
+    }
+
+    public static FaultRandom unseeded() {
+        return new FaultRandom(null);
+    }
+
+    public static FaultRandom seeded(long seed) {
+        return new FaultRandom(seed);
+    }
+
+    public double nextDouble() {
+        return seeded == null ? ThreadLocalRandom.current().nextDouble() : seeded.get().nextDouble();
+    }
+
+    public int nextInt(int bound) {
+        return seeded == null ? ThreadLocalRandom.current().nextInt(bound) : seeded.get().nextInt(bound);
+    }
+
+    /**
+     * Проверка события с вероятностью probability; при 0 генератор не вызывается
+     */
+    public boolean chance(double probability) {
+        return probability > 0 && nextDouble() < probability;
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.acquiringserver.issuer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.audit.LogSampler;
+import org.example.acquiringserver.bin.BinRoute;
+import org.example.acquiringserver.engine.Authorizer;
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Решение эмитента для транзакций с маршрутом ISSUER (см. BinRoutingAuthorizer).
+ * <p>
+ * Такие транзакции пересылаются через {@link IssuerGateway}, и ответ эмитента заменяет
+ * локальное решение (леджер). Если эмитент не ответил вовремя, недоступен или его лимит
+ * одновременных запросов исчерпан, решение принимается по {@link StandInRules}; отказ
+ * stand-in после таймаута сопровождается отменой у эмитента (timeout reversal).
+ * Остальные транзакции передаются следующему звену без изменений.
+ */
+@Slf4j
+public class IssuerAuthorizer implements Authorizer {
+
+    private final IssuerGateway gateway;
+    private final StandInRules standIn;
+    private final Authorizer next;
+    private final Counter standInApproved;
+    private final Counter standInDeclined;
+    private final Counter timeoutReversals;
+    private final LogSampler standInLog = new LogSampler(1, TimeUnit.SECONDS);
+
+    public IssuerAuthorizer(IssuerGateway gateway, StandInRules standIn, Authorizer next, MeterRegistry meterRegistry) {
+        this.gateway = gateway;
+        this.standIn = standIn;
+        this.next = next;
+        this.standInApproved = meterRegistry.counter("acquirer.issuer.stand-in", "result", "approved");
+        this.standInDeclined = meterRegistry.counter("acquirer.issuer.stand-in", "result", "declined");
+        this.timeoutReversals = meterRegistry.counter("acquirer.issuer.timeout-reversals");
+    }
+
+    @Override
+    public String authorize(TransactionEntity transaction) {
+        BinRoute route = transaction.getBinRoute();
+        if (route == null || route.route() != BinRoute.Route.ISSUER) {
+            return next.authorize(transaction);
+        }
+        return resolve(route, transaction, gateway.authorize(route.issuer(), transaction).join());
+    }
+
+    /**
+     * Без ожидания ответа эмитента: future завершается потоком чтения соединения или таймером
+     */
+    @Override
+    public CompletableFuture<String> authorizeAsync(TransactionEntity transaction) {
+        BinRoute route = transaction.getBinRoute();
+        if (route == null || route.route() != BinRoute.Route.ISSUER) {
+            return next.authorizeAsync(transaction);
+        }
+        return gateway.authorize(route.issuer(), transaction)
+                .thenApply(decision -> resolve(route, transaction, decision));
+    }
+
+    /**
+     * Ответ эмитента или решение stand-in. После таймаута эмитент мог одобрить транзакцию
+     * с опозданием; если stand-in отказал, эмитенту отправляется отмена, иначе сумма останется
+     * заблокированной на карте без расчета
+     */
+    private String resolve(BinRoute route, TransactionEntity transaction, IssuerGateway.Decision decision) {
+        if (decision.result().answered()) {
+            return decision.declineReason();
+        }
+        String declineReason = standIn.decide(transaction);
+        (declineReason == null ? standInApproved : standInDeclined).increment();
+        if (declineReason != null && decision.result() == IssuerGateway.Result.TIMEOUT) {
+            gateway.reverse(route.issuer(), transaction);
+            timeoutReversals.increment();
+        }
+        // При недоступном эмитенте stand-in решает каждую транзакцию - не больше строки в секунду
+        long suppressed = standInLog.sample();
+        if (suppressed >= 0) {
+            log.warn("Issuer {} {} for transaction {}, stand-in {} ({} more since last report)", route.issuer(),
+                    decision.result(), transaction.getTransactionId(),
+                    declineReason == null ? "approved" : "declined", suppressed);
+        }
+        return declineReason;
+    }
+
+    @Override
+    public void reverse(TransactionEntity transaction) {
+        BinRoute route = transaction.getBinRoute();
+        if (route == null || route.route() != BinRoute.Route.ISSUER) {
+            next.reverse(transaction);
+            return;
+        }
+        gateway.reverse(route.issuer(), transaction);
+    }
+}
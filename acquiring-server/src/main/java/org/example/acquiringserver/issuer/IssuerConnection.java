@@ -0,0 +1,167 @@
+package org.example.acquiringserver.issuer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Одно мультиплексированное соединение с эмитентом.
+ * <p>
+ * Запросы пишутся под блокировкой соединения, ответы читает отдельный поток и завершает
+ * ожидающие future по correlation ID. Соединение открывается при первом запросе и после
+ * разрыва открывается заново; при разрыве все ожидающие запросы завершаются ошибкой.
+ */
+@Slf4j
+final class IssuerConnection {
+
+    private final IssuerEndpoint endpoint;
+    private final String name;
+    private final Map<Long, CompletableFuture<IssuerProtocol.Response>> pending = new ConcurrentHashMap<>();
+
+    private Socket socket;
+    private OutputStream output;
+    // После неудачного подключения новые попытки не делаются до этого момента (System.nanoTime)
+    private long reconnectAfterNanos;
+
+    IssuerConnection(IssuerEndpoint endpoint, int index) {
+        this.endpoint = endpoint;
+        this.name = "Issuer-" + endpoint.issuer() + "-" + index;
+    }
+
+    /**
+     * Отправка запроса; future завершится ответом с тем же correlation ID
+     */
+    void send(IssuerProtocol.Request request, CompletableFuture<IssuerProtocol.Response> response) {
+        pending.put(request.correlationId(), response);
+        try {
+            synchronized (this) {
+                if (socket == null) {
+                    connect();
+                }
+                output.write(IssuerProtocol.encode(request));
+                output.flush();
+            }
+        } catch (IOException e) {
+            pending.remove(request.correlationId());
+            response.completeExceptionally(e);
+            disconnect(e);
+        }
+    }
+
+    /**
+     * Отправка без ожидания ответа (отмена)
+     */
+    void sendOneWay(IssuerProtocol.Request request) throws IOException {
+        synchronized (this) {
+            if (socket == null) {
+                connect();
+            }
+            output.write(IssuerProtocol.encode(request));
+            output.flush();
+        }
+    }
+
+    /**
+     * Запрос больше не ждет ответа (таймаут); поздний ответ будет отброшен
+     */
+    void forget(long correlationId) {
+        pending.remove(correlationId);
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Подключение под блокировкой соединения. Пока эмитент недоступен, попытки не чаще раза
+     * в timeout-ms: остальные запросы сразу получают ошибку и уходят в stand-in
+     */
+    private void connect() throws IOException {
+        if (System.nanoTime() - reconnectAfterNanos < 0) {
+            throw new IOException("Issuer " + endpoint.issuer() + " is unavailable");
+        }
+        Socket connected = new Socket();
+        try {
+            connected.setTcpNoDelay(true);
+            connected.connect(new InetSocketAddress(endpoint.host(), endpoint.port()), (int) endpoint.timeoutMs());
+        } catch (IOException e) {
+            connected.close();
+            reconnectAfterNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(endpoint.timeoutMs());
+            throw e;
+        }
+        socket = connected;
+        output = connected.getOutputStream();
+        DataInputStream input = new DataInputStream(new BufferedInputStream(connected.getInputStream()));
+        Thread reader = new Thread(() -> readLoop(connected, input), name);
+        reader.setDaemon(true);
+        reader.start();
+        log.info("Connected to issuer {} at {}:{}", endpoint.issuer(), endpoint.host(), endpoint.port());
+    }
+
+    private void readLoop(Socket connected, DataInputStream input) {
+        try {
+            IssuerProtocol.Response response;
+            while ((response = IssuerProtocol.readResponse(input)) != null) {
+                CompletableFuture<IssuerProtocol.Response> waiting = pending.remove(response.correlationId());
+                if (waiting != null) {
+                    waiting.complete(response);
+                }
+            }
+            disconnect(connected, new IOException("Issuer " + endpoint.issuer() + " closed the connection"));
+        } catch (IOException e) {
+            disconnect(connected, e);
+        }
+    }
+
+    private void disconnect(IOException cause) {
+        Socket current;
+        synchronized (this) {
+            current = socket;
+        }
+        if (current != null) {
+            disconnect(current, cause);
+        }
+    }
+
+    private void disconnect(Socket connected, IOException cause) {
+        synchronized (this) {
+            if (socket != connected) {
+                return;
+            }
+            socket = null;
+            output = null;
+        }
+        close(connected);
+        if (!pending.isEmpty()) {
+            log.warn("Connection to issuer {} lost, failing {} pending requests: {}",
+                    endpoint.issuer(), pending.size(), cause.getMessage());
+        }
+        for (Long correlationId : pending.keySet()) {
+            CompletableFuture<IssuerProtocol.Response> waiting = pending.remove(correlationId);
+            if (waiting != null) {
+                waiting.completeExceptionally(cause);
+            }
+        }
+    }
+
+    void close() {
+        disconnect(new IOException("Issuer gateway is closed"));
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.warn("Error closing issuer socket: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.acquiringserver.issuer;
+
+import java.util.Locale;
+
+/**
+ * Адрес эмитента и ограничения обмена с ним.
+ * <p>
+ * Формат - ISSUER=host:port с необязательными переопределениями через ';', например
+ * BANK_A=localhost:9101;timeout-ms=300;max-in-flight=32;connections=2
+ *
+ * @param connections число мультиплексированных соединений
+ * @param maxInFlight сколько запросов к эмитенту может ждать ответа одновременно
+ * @param timeoutMs   сколько ждать ответа эмитента до решения по правилам stand-in
+ */
+public record IssuerEndpoint(String issuer, String host, int port, int connections, int maxInFlight, long timeoutMs) {
+
+    public IssuerEndpoint {
+        if (connections <= 0 || maxInFlight <= 0 || timeoutMs <= 0) {
+            throw new IllegalArgumentException("Connections, max-in-flight and timeout of issuer " + issuer
+                    + " must be positive");
+        }
+    }
+
+    public static IssuerEndpoint parse(String spec, int connections, int maxInFlight, long timeoutMs) {
+        String[] parts = spec.trim().split(";");
+        int equals = parts[0].indexOf('=');
+        int colon = parts[0].lastIndexOf(':');
+        if (equals <= 0 || colon < equals) {
+            throw new IllegalArgumentException("Issuer endpoint must look like BANK_A=localhost:9101: " + spec);
+        }
+        String issuer = parts[0].substring(0, equals).trim();
+        String host = parts[0].substring(equals + 1, colon).trim();
+        int port = Integer.parseInt(parts[0].substring(colon + 1).trim());
+        for (int i = 1; i < parts.length; i++) {
+            String[] option = parts[i].split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Malformed option '" + parts[i] + "' in issuer endpoint " + spec);
+            }
+            String value = option[1].trim();
+            switch (option[0].trim().toLowerCase(Locale.ROOT)) {
+                case "connections" -> connections = Integer.parseInt(value);
+                case "max-in-flight" -> maxInFlight = Integer.parseInt(value);
+                case "timeout-ms" -> timeoutMs = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option '" + option[0] + "' in " + spec);
+            }
+        }
+        return new IssuerEndpoint(issuer, host, port, connections, maxInFlight, timeoutMs);
+    }
+}
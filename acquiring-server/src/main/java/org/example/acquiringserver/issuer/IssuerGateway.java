@@ -0,0 +1,198 @@
+package org.example.acquiringserver.issuer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Асинхронная пересылка авторизаций эмитентам.
+ * <p>
+ * К каждому эмитенту открыто несколько мультиплексированных соединений, запросы
+ * распределяются по ним по кругу. Число ожидающих ответа запросов ограничено семафором
+ * эмитента: при исчерпании запрос сразу завершается {@link Result#REJECTED}, а не копится
+ * в очереди. Ответ, не пришедший за timeout-ms эмитента, - {@link Result#TIMEOUT};
+ * поздний ответ отбрасывается. Решение по отказам шлюза принимает вызывающий (stand-in).
+ */
+@Slf4j
+public class IssuerGateway implements AutoCloseable {
+
+    /**
+     * Итог обмена с эмитентом
+     */
+    public enum Result {
+        APPROVED,
+        DECLINED,
+        /**
+         * Эмитент не ответил вовремя
+         */
+        TIMEOUT,
+        /**
+         * Превышен лимит одновременных запросов к эмитенту
+         */
+        REJECTED,
+        /**
+         * Эмитент неизвестен или соединение недоступно
+         */
+        UNAVAILABLE;
+
+        public boolean answered() {
+            return this == APPROVED || this == DECLINED;
+        }
+    }
+
+    /**
+     * @param declineReason причина отказа эмитента, для остальных итогов - null
+     */
+    public record Decision(Result result, String declineReason) {
+    }
+
+    private final Map<String, IssuerClient> clients = new HashMap<>();
+    private final AtomicLong correlationIds = new AtomicLong();
+
+    public IssuerGateway(List<IssuerEndpoint> endpoints, MeterRegistry meterRegistry) {
+        for (IssuerEndpoint endpoint : endpoints) {
+            if (clients.put(endpoint.issuer(), new IssuerClient(endpoint, meterRegistry)) != null) {
+                throw new IllegalArgumentException("Duplicate issuer endpoint " + endpoint.issuer());
+            }
+        }
+    }
+
+    /**
+     * Пересылка авторизации эмитенту; future всегда завершается нормально
+     */
+    public CompletableFuture<Decision> authorize(String issuer, TransactionEntity transaction) {
+        IssuerClient client = clients.get(issuer);
+        if (client == null) {
+            return CompletableFuture.completedFuture(new Decision(Result.UNAVAILABLE, null));
+        }
+        return client.authorize(request(IssuerProtocol.AUTHORIZATION, transaction));
+    }
+
+    /**
+     * Отмена одобрения эмитента без ожидания ответа
+     */
+    public void reverse(String issuer, TransactionEntity transaction) {
+        IssuerClient client = clients.get(issuer);
+        if (client != null) {
+            client.reverse(request(IssuerProtocol.REVERSAL, transaction));
+        }
+    }
+
+    public boolean knows(String issuer) {
+        return clients.containsKey(issuer);
+    }
+
+    @Override
+    public void close() {
+        clients.values().forEach(IssuerClient::close);
+    }
+
+    private IssuerProtocol.Request request(byte type, TransactionEntity transaction) {
+        return new IssuerProtocol.Request(correlationIds.incrementAndGet(), type, transaction.getAmount(),
+                transaction.getPan(), transaction.getMerchantId(), transaction.getTransactionId());
+    }
+
+    /**
+     * Соединения, семафор и метрики одного эмитента
+     */
+    private static final class IssuerClient {
+
+        private final IssuerEndpoint endpoint;
+        private final IssuerConnection[] connections;
+        private final AtomicInteger next = new AtomicInteger();
+        private final Semaphore inFlight;
+        private final Timer latency;
+        private final Counter[] results = new Counter[Result.values().length];
+
+        IssuerClient(IssuerEndpoint endpoint, MeterRegistry meterRegistry) {
+            this.endpoint = endpoint;
+            this.connections = new IssuerConnection[endpoint.connections()];
+            for (int i = 0; i < connections.length; i++) {
+                connections[i] = new IssuerConnection(endpoint, i);
+            }
+            this.inFlight = new Semaphore(endpoint.maxInFlight());
+            this.latency = Timer.builder("acquirer.issuer.latency")
+                    .description("Time from forwarding an authorization to the issuer's answer")
+                    .tag("issuer", endpoint.issuer())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(10_000))
+                    .maximumExpectedValue(Duration.ofSeconds(5))
+                    .register(meterRegistry);
+            for (Result result : Result.values()) {
+                results[result.ordinal()] = meterRegistry.counter("acquirer.issuer.requests",
+                        "issuer", endpoint.issuer(), "result", result.name());
+            }
+            meterRegistry.gauge("acquirer.issuer.in-flight", Tags.of("issuer", endpoint.issuer()),
+                    inFlight, permits -> endpoint.maxInFlight() - permits.availablePermits());
+        }
+
+        CompletableFuture<Decision> authorize(IssuerProtocol.Request request) {
+            if (!inFlight.tryAcquire()) {
+                return completed(Result.REJECTED, null);
+            }
+            long start = System.nanoTime();
+            IssuerConnection connection = connection();
+            CompletableFuture<IssuerProtocol.Response> response = new CompletableFuture<>();
+            connection.send(request, response);
+            return response
+                    .orTimeout(endpoint.timeoutMs(), TimeUnit.MILLISECONDS)
+                    .handle((answer, failure) -> {
+                        inFlight.release();
+                        if (failure == null) {
+                            latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                            return count(answer.approved() ? Result.APPROVED : Result.DECLINED,
+                                    answer.declineReason());
+                        }
+                        if (failure instanceof TimeoutException) {
+                            connection.forget(request.correlationId());
+                            return count(Result.TIMEOUT, null);
+                        }
+                        log.debug("Issuer {} request failed: {}", endpoint.issuer(), failure.getMessage());
+                        return count(Result.UNAVAILABLE, null);
+                    });
+        }
+
+        void reverse(IssuerProtocol.Request request) {
+            try {
+                connection().sendOneWay(request);
+            } catch (IOException e) {
+                log.warn("Reversal of {} to issuer {} failed: {}",
+                        request.transactionId(), endpoint.issuer(), e.getMessage());
+            }
+        }
+
+        void close() {
+            for (IssuerConnection connection : connections) {
+                connection.close();
+            }
+        }
+
+        private IssuerConnection connection() {
+            return connections[Math.floorMod(next.getAndIncrement(), connections.length)];
+        }
+
+        private Decision count(Result result, String declineReason) {
+            results[result.ordinal()].increment();
+            return new Decision(result, declineReason);
+        }
+
+        private CompletableFuture<Decision> completed(Result result, String declineReason) {
+            return CompletableFuture.completedFuture(count(result, declineReason));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.acquiringserver.issuer;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Кадры обмена с эмитентом. Все кадры - [длина тела 2][тело], big-endian.
+ * <p>
+ * Запрос: [correlation ID 8][тип 1][сумма 4][PAN][мерчант][ID транзакции], строки - [длина 1][ASCII].
+ * Ответ: [correlation ID 8][причина отказа], пустая причина - одобрение. По correlation ID
+ * ответы сопоставляются с запросами, поэтому в одном соединении одновременно идет много
+ * запросов, и эмитент отвечает в любом порядке.
+ */
+public final class IssuerProtocol {
+
+    public static final byte AUTHORIZATION = 0x01;
+    /**
+     * Отмена одобрения, которое не удалось сохранить; ответ эмитента не ожидается
+     */
+    public static final byte REVERSAL = 0x02;
+
+    private static final int MAX_STRING_LENGTH = 255;
+
+    private IssuerProtocol() {
+    }
+
+    public record Request(long correlationId, byte type, int amount, String pan, String merchantId,
+                          String transactionId) {
+    }
+
+    /**
+     * @param declineReason null - одобрено
+     */
+    public record Response(long correlationId, String declineReason) {
+
+        public boolean approved() {
+            return declineReason == null;
+        }
+    }
+
+    public static byte[] encode(Request request) {
+        byte[] pan = ascii(request.pan());
+        byte[] merchantId = ascii(request.merchantId());
+        byte[] transactionId = ascii(request.transactionId());
+        int bodyLength = 8 + 1 + 4 + 3 + pan.length + merchantId.length + transactionId.length;
+        ByteBuffer buffer = ByteBuffer.allocate(2 + bodyLength)
+                .putShort((short) bodyLength)
+                .putLong(request.correlationId())
+                .put(request.type())
+                .putInt(request.amount());
+        putString(buffer, pan);
+        putString(buffer, merchantId);
+        putString(buffer, transactionId);
+        return buffer.array();
+    }
+
+    public static byte[] encode(Response response) {
+        byte[] reason = response.declineReason() == null ? new byte[0] : ascii(response.declineReason());
+        int bodyLength = 8 + 1 + reason.length;
+        ByteBuffer buffer = ByteBuffer.allocate(2 + bodyLength)
+                .putShort((short) bodyLength)
+                .putLong(response.correlationId());
+        putString(buffer, reason);
+        return buffer.array();
+    }
+
+    /**
+     * @return запрос или null, если поток закрыт между кадрами
+     */
+    public static Request readRequest(DataInputStream input) throws IOException {
+        ByteBuffer body = readBody(input);
+        if (body == null) {
+            return null;
+        }
+        return new Request(body.getLong(), body.get(), body.getInt(),
+                getString(body), getString(body), getString(body));
+    }
+
+    /**
+     * @return ответ или null, если поток закрыт между кадрами
+     */
+    public static Response readResponse(DataInputStream input) throws IOException {
+        ByteBuffer body = readBody(input);
+        if (body == null) {
+            return null;
+        }
+        long correlationId = body.getLong();
+        String reason = getString(body);
+        return new Response(correlationId, reason.isEmpty() ? null : reason);
+    }
+
+    private static ByteBuffer readBody(DataInputStream input) throws IOException {
+        int high = input.read();
+        if (high < 0) {
+            return null;
+        }
+        int length = (high << 8) | input.readUnsignedByte();
+        byte[] body = new byte[length];
+        input.readFully(body);
+        return ByteBuffer.wrap(body);
+    }
+
+    private static byte[] ascii(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > MAX_STRING_LENGTH) {
+            throw new IllegalArgumentException("Field is longer than " + MAX_STRING_LENGTH + " bytes: " + value);
+        }
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        buffer.put((byte) value.length).put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) throws EOFException {
+        int length = Byte.toUnsignedInt(buffer.get());
+        if (length > buffer.remaining()) {
+            throw new EOFException("Truncated issuer frame");
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.US_ASCII);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.acquiringserver.issuer;
+
+import org.example.acquiringserver.fault.DelayDistribution;
+
+import java.util.Locale;
+
+/**
+ * Поведение заглушки эмитента: задержка ответа, доля отказов и доля запросов без ответа.
+ * <p>
+ * Формат - пары ключ=значение через ',' с ключами как у профилей сбоев, например
+ * distribution=EXPONENTIAL,min-ms=2,max-ms=500,mean-ms=15,decline=0.05,drop=0.01.
+ * Отсутствующие ключи - без задержки, отказов и потерь
+ */
+public record IssuerStubProfile(DelayDistribution delay, double declineProbability, double dropProbability) {
+
+    public static final String DECLINE_REASON = "DO_NOT_HONOR";
+
+    public IssuerStubProfile {
+        if (declineProbability < 0 || declineProbability > 1 || dropProbability < 0 || dropProbability > 1) {
+            throw new IllegalArgumentException("Probabilities must be within [0, 1]: decline=" + declineProbability
+                    + ", drop=" + dropProbability);
+        }
+    }
+
+    public static IssuerStubProfile parse(String spec) {
+        DelayDistribution.Type type = DelayDistribution.Type.FIXED;
+        long minMs = 0;
+        long maxMs = 0;
+        long meanMs = 0;
+        double decline = 0;
+        double drop = 0;
+        for (String pair : spec.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            String[] keyValue = pair.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Malformed issuer stub profile entry '" + pair + "'");
+            }
+            String value = keyValue[1].trim();
+            switch (keyValue[0].trim().toLowerCase(Locale.ROOT)) {
+                case "distribution" -> type = DelayDistribution.Type.valueOf(value.toUpperCase(Locale.ROOT));
+                case "min-ms" -> minMs = Long.parseLong(value);
+                case "max-ms" -> maxMs = Long.parseLong(value);
+                case "mean-ms" -> meanMs = Long.parseLong(value);
+                case "decline" -> decline = Double.parseDouble(value);
+                case "drop" -> drop = Double.parseDouble(value);
+                default -> throw new IllegalArgumentException("Unknown issuer stub profile key '" + keyValue[0] + "'");
+            }
+        }
+        return new IssuerStubProfile(new DelayDistribution(type, minMs, Math.max(minMs, maxMs), meanMs),
+                decline, drop);
+    }
+}
@@ -0,0 +1,165 @@
+package org.example.acquiringserver.issuer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.fault.FaultRandom;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Заглушка эмитента для локальной работы и тестов шлюза.
+ * <p>
+ * Принимает мультиплексированные соединения шлюза и отвечает на каждую авторизацию после
+ * задержки из {@link IssuerStubProfile}; ответы отправляются по мере готовности, то есть
+ * не в порядке запросов. Отмены принимаются без ответа и только подсчитываются. Профиль можно сменить на ходу.
+ * Отдельным процессом:
+ * <pre>
+ * java -cp acquiring-server.jar org.example.acquiringserver.issuer.IssuerStubServer 9101 mean-ms=20,decline=0.05
+ * </pre>
+ */
+@Slf4j
+public class IssuerStubServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final FaultRandom random = FaultRandom.unseeded();
+    private final ScheduledExecutorService responder = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "Issuer-Stub-Responder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger reversals = new AtomicInteger();
+    private volatile IssuerStubProfile profile;
+    private volatile boolean running = true;
+
+    private IssuerStubServer(ServerSocket serverSocket, IssuerStubProfile profile) {
+        this.serverSocket = serverSocket;
+        this.profile = profile;
+    }
+
+    /**
+     * Запуск на порту port (0 - эфемерный)
+     */
+    public static IssuerStubServer start(int port, IssuerStubProfile profile) throws IOException {
+        ServerSocket serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port));
+        IssuerStubServer server = new IssuerStubServer(serverSocket, profile);
+        Thread acceptor = new Thread(server::acceptLoop, "Issuer-Stub-Acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Issuer stub started on port {}", serverSocket.getLocalPort());
+        return server;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: IssuerStubServer <port> [profile]");
+            System.exit(2);
+        }
+        IssuerStubProfile profile = IssuerStubProfile.parse(args.length == 2 ? args[1] : "");
+        try (IssuerStubServer server = start(Integer.parseInt(args[0]), profile)) {
+            System.out.println("Issuer stub listening on port " + server.getLocalPort() + " with " + profile);
+            Thread.currentThread().join();
+        }
+    }
+
+    public int getLocalPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Сколько отмен получено с момента запуска
+     */
+    public int getReversals() {
+        return reversals.get();
+    }
+
+    public void setProfile(IssuerStubProfile profile) {
+        this.profile = profile;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.warn("Error closing issuer stub socket: {}", e.getMessage());
+        }
+        responder.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread reader = new Thread(() -> serve(socket), "Issuer-Stub-Connection");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (SocketException e) {
+                if (running) {
+                    log.error("Issuer stub socket error: {}", e.getMessage());
+                }
+            } catch (IOException e) {
+                log.error("Issuer stub failed to accept connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            OutputStream output = socket.getOutputStream();
+            IssuerProtocol.Request request;
+            while (running && (request = IssuerProtocol.readRequest(input)) != null) {
+                if (request.type() == IssuerProtocol.AUTHORIZATION) {
+                    answer(request, output);
+                } else if (request.type() == IssuerProtocol.REVERSAL) {
+                    reversals.incrementAndGet();
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                log.debug("Issuer stub connection closed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void answer(IssuerProtocol.Request request, OutputStream output) {
+        IssuerStubProfile current = profile;
+        if (random.chance(current.dropProbability())) {
+            return;
+        }
+        String declineReason = random.chance(current.declineProbability()) ? IssuerStubProfile.DECLINE_REASON : null;
+        byte[] frame = IssuerProtocol.encode(new IssuerProtocol.Response(request.correlationId(), declineReason));
+        long delayMs = current.delay().sample(random);
+        try {
+            responder.schedule(() -> write(output, frame), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Issuer stub is stopping, response dropped");
+        }
+    }
+
+    private static void write(OutputStream output, byte[] frame) {
+        try {
+            synchronized (output) {
+                output.write(frame);
+                output.flush();
+            }
+        } catch (IOException e) {
+            log.debug("Issuer stub response failed: {}", e.getMessage());
+        }
+    }
+}
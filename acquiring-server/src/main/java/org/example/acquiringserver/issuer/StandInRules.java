@@ -0,0 +1,25 @@
+package org.example.acquiringserver.issuer;
+
+import org.example.acquiringserver.model.TransactionEntity;
+
+/**
+ * Решение за эмитента, когда он не ответил: одобрение суммы не выше maxAmount,
+ * остальное - отказ ISSUER_UNAVAILABLE. При maxAmount = 0 отказ без исключений
+ */
+public record StandInRules(long maxAmount) {
+
+    public static final String ISSUER_UNAVAILABLE = "ISSUER_UNAVAILABLE";
+
+    public StandInRules {
+        if (maxAmount < 0) {
+            throw new IllegalArgumentException("Stand-in max amount must be >= 0: " + maxAmount);
+        }
+    }
+
+    /**
+     * @return null - одобрено, иначе причина отказа
+     */
+    public String decide(TransactionEntity transaction) {
+        return transaction.getAmount() <= maxAmount ? null : ISSUER_UNAVAILABLE;
+    }
+}
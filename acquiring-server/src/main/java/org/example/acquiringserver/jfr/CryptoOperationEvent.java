@@ -0,0 +1,30 @@
+package org.example.acquiringserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Криптографическая операция CryptoUtils (RSA, AES-GCM, HMAC)
+ */
+@Name("org.example.acquiring.CryptoOperation")
+@Label("Crypto Operation")
+@Category({"Payment", "Crypto"})
+@Description("Single cryptographic operation on the payment path")
+@StackTrace(false)
+public class CryptoOperationEvent extends Event {
+
+    @Label("Algorithm")
+    public String algorithm;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Input Size")
+    @DataAmount
+    public int inputSize;
+}
@@ -0,0 +1,22 @@
+package org.example.acquiringserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Сбой, внесенный эмулятором отказов. Для задержки сети длительность события равна задержке
+ */
+@Name("org.example.acquiring.FaultInjected")
+@Label("Fault Injected")
+@Category({"Payment", "Fault Injection"})
+@Description("Fault injected by the failure emulator")
+@StackTrace(false)
+public class FaultInjectedEvent extends Event {
+
+    @Label("Fault Type")
+    public String faultType;
+}
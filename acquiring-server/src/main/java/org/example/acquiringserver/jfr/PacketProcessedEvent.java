@@ -0,0 +1,36 @@
+package org.example.acquiringserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Пакет обработан PacketProcessor. Длительность события - полное время processPacket
+ */
+@Name("org.example.acquiring.PacketProcessed")
+@Label("Packet Processed")
+@Category({"Payment", "Processing"})
+@Description("Payment packet processed from header validation to response")
+@StackTrace(false)
+public class PacketProcessedEvent extends Event {
+
+    @Label("Size")
+    @DataAmount
+    public int size;
+
+    @Label("Protocol Version")
+    public byte version;
+
+    @Label("Message Type")
+    public byte messageType;
+
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("Transaction Id")
+    public String transactionId;
+}
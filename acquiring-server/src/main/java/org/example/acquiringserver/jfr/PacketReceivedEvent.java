@@ -0,0 +1,30 @@
+package org.example.acquiringserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Кадр пакета полностью прочитан из сокета. Длительность события - время чтения кадра
+ */
+@Name("org.example.acquiring.PacketReceived")
+@Label("Packet Received")
+@Category({"Payment", "Network"})
+@Description("Binary packet frame read from a POS connection")
+@StackTrace(false)
+public class PacketReceivedEvent extends Event {
+
+    @Label("Size")
+    @DataAmount
+    public int size;
+
+    @Label("Protocol Version")
+    public byte version;
+
+    @Label("Message Type")
+    public byte messageType;
+}
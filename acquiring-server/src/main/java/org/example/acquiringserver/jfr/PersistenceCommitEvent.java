@@ -0,0 +1,28 @@
+package org.example.acquiringserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Сохранение транзакций через репозиторий
+ */
+@Name("org.example.acquiring.PersistenceCommit")
+@Label("Persistence Commit")
+@Category({"Payment", "Persistence"})
+@Description("Repository save of one or more transactions")
+@StackTrace(false)
+public class PersistenceCommitEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Batch Size")
+    public int batchSize;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
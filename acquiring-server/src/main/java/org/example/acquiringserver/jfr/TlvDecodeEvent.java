@@ -0,0 +1,27 @@
+package org.example.acquiringserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Разбор расшифрованных TLV данных
+ */
+@Name("org.example.acquiring.TlvDecode")
+@Label("TLV Decode")
+@Category({"Payment", "Processing"})
+@Description("Decoding of decrypted TLV transaction data")
+@StackTrace(false)
+public class TlvDecodeEvent extends Event {
+
+    @Label("Size")
+    @DataAmount
+    public int size;
+
+    @Label("Field Count")
+    public int fieldCount;
+}
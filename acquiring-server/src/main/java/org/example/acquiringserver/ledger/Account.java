@@ -0,0 +1,78 @@
+package org.example.acquiringserver.ledger;
+
+/**
+ * Счет одной карты.
+ * <p>
+ * Все изменения выполняются под монитором самого счета: операции по разным картам
+ * не конкурируют, а неоспариваемый монитор почти не стоит времени. Суточный лимит
+ * сбрасывается при первой операции нового дня.
+ */
+final class Account {
+
+    private final String pan;
+    private long balance;
+    private long perTransactionLimit;
+    private long dailyLimit;
+    private long dailySpent;
+    private long epochDay;
+    private boolean blocked;
+
+    Account(AccountState state) {
+        this.pan = state.pan();
+        this.balance = state.balance();
+        this.perTransactionLimit = state.perTransactionLimit();
+        this.dailyLimit = state.dailyLimit();
+        this.dailySpent = state.dailySpent();
+        this.epochDay = state.epochDay();
+        this.blocked = state.blocked();
+    }
+
+    /**
+     * Проверка и списание одной операцией
+     *
+     * @return null - списано, иначе причина отказа
+     */
+    synchronized DeclineReason debit(long amount, long today) {
+        if (blocked) {
+            return DeclineReason.CARD_BLOCKED;
+        }
+        if (amount > perTransactionLimit) {
+            return DeclineReason.TRANSACTION_LIMIT_EXCEEDED;
+        }
+        rollOver(today);
+        if (dailySpent + amount > dailyLimit) {
+            return DeclineReason.TRANSACTION_LIMIT_EXCEEDED;
+        }
+        if (amount > balance) {
+            return DeclineReason.INSUFFICIENT_FUNDS;
+        }
+        balance -= amount;
+        dailySpent += amount;
+        return null;
+    }
+
+    /**
+     * Возврат списания; суточный расход уменьшается, только если списание было сегодня
+     */
+    synchronized void credit(long amount, long today) {
+        balance += amount;
+        if (epochDay == today) {
+            dailySpent = Math.max(0, dailySpent - amount);
+        }
+    }
+
+    synchronized void setBlocked(boolean blocked) {
+        this.blocked = blocked;
+    }
+
+    synchronized AccountState state() {
+        return new AccountState(pan, balance, perTransactionLimit, dailyLimit, dailySpent, epochDay, blocked);
+    }
+
+    private void rollOver(long today) {
+        if (epochDay != today) {
+            epochDay = today;
+            dailySpent = 0;
+        }
+    }
+}
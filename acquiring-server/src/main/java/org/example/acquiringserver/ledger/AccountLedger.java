@@ -0,0 +1,139 @@
+package org.example.acquiringserver.ledger;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Леджер счетов в памяти, ключ - токен PAN (маскированный номер из TLV).
+ * <p>
+ * Поиск счета - чтение ConcurrentHashMap без блокировок, проверка и списание - под монитором
+ * одного счета (см. {@link Account}), поэтому авторизации по разным картам выполняются
+ * параллельно без общих блокировок. Счет неизвестной карты открывается при первой операции
+ * с балансом и лимитами по умолчанию. Для восстановления после перезапуска состояние
+ * выгружается в снимок ({@link #snapshot()}, {@link LedgerSnapshots}). Карты из списка
+ * блокировки открываются заблокированными, в том числе при восстановлении из снимка.
+ */
+public class AccountLedger {
+
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    private final ConcurrentHashMap<String, Account> accounts = new ConcurrentHashMap<>();
+    private final long openingBalance;
+    private final long perTransactionLimit;
+    private final long dailyLimit;
+    private final Set<String> blockedCards;
+    private final Clock clock;
+
+    public AccountLedger(long openingBalance, long perTransactionLimit, long dailyLimit, Clock clock) {
+        this(openingBalance, perTransactionLimit, dailyLimit, Set.of(), clock);
+    }
+
+    public AccountLedger(long openingBalance, long perTransactionLimit, long dailyLimit,
+                         Set<String> blockedCards, Clock clock) {
+        if (openingBalance < 0 || perTransactionLimit < 0 || dailyLimit < 0) {
+            throw new IllegalArgumentException("Ledger balance and limits must not be negative");
+        }
+        this.openingBalance = openingBalance;
+        this.perTransactionLimit = perTransactionLimit;
+        this.dailyLimit = dailyLimit;
+        this.blockedCards = Set.copyOf(blockedCards);
+        this.clock = clock;
+    }
+
+    /**
+     * Проверка лимитов и списание суммы
+     *
+     * @return null - одобрено и списано, иначе причина отказа
+     */
+    public DeclineReason authorize(String pan, long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount must not be negative: " + amount);
+        }
+        return account(pan).debit(amount, today());
+    }
+
+    /**
+     * Возврат ранее одобренной суммы
+     */
+    public void reverse(String pan, long amount) {
+        Account account = accounts.get(pan);
+        if (account != null) {
+            account.credit(amount, today());
+        }
+    }
+
+    public void block(String pan) {
+        account(pan).setBlocked(true);
+    }
+
+    public void unblock(String pan) {
+        account(pan).setBlocked(false);
+    }
+
+    /**
+     * Открытие или замена счета с заданным состоянием
+     */
+    public void open(AccountState state) {
+        accounts.put(state.pan(), newAccount(state));
+    }
+
+    /**
+     * @return состояние счета или null, если счета нет
+     */
+    public AccountState state(String pan) {
+        Account account = accounts.get(pan);
+        return account == null ? null : account.state();
+    }
+
+    /**
+     * Снимок всех счетов. Каждый счет согласован сам по себе, но снимок не атомарен
+     * по леджеру целиком: операции, идущие во время обхода, могут попасть в него частично
+     */
+    public List<AccountState> snapshot() {
+        List<AccountState> states = new ArrayList<>(accounts.size());
+        for (Account account : accounts.values()) {
+            states.add(account.state());
+        }
+        return states;
+    }
+
+    /**
+     * Замена всех счетов состоянием из снимка
+     */
+    public void restore(Collection<AccountState> states) {
+        accounts.clear();
+        for (AccountState state : states) {
+            open(state);
+        }
+    }
+
+    public int size() {
+        return accounts.size();
+    }
+
+    private Account account(String pan) {
+        Account account = accounts.get(pan);
+        if (account != null) {
+            return account;
+        }
+        return accounts.computeIfAbsent(pan, key -> newAccount(
+                new AccountState(key, openingBalance, perTransactionLimit, dailyLimit, 0, today(), false)));
+    }
+
+    private Account newAccount(AccountState state) {
+        Account account = new Account(state);
+        if (blockedCards.contains(state.pan())) {
+            account.setBlocked(true);
+        }
+        return account;
+    }
+
+    private long today() {
+        return Math.floorDiv(clock.millis(), MILLIS_PER_DAY);
+    }
+}
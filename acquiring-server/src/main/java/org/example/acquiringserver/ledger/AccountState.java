@@ -0,0 +1,14 @@
+package org.example.acquiringserver.ledger;
+
+/**
+ * Состояние счета в снимке. Суммы в минимальных единицах валюты (как amount в TLV),
+ * epochDay - день UTC, к которому относится dailySpent
+ */
+public record AccountState(String pan,
+                           long balance,
+                           long perTransactionLimit,
+                           long dailyLimit,
+                           long dailySpent,
+                           long epochDay,
+                           boolean blocked) {
+}
@@ -0,0 +1,10 @@
+package org.example.acquiringserver.ledger;
+
+/**
+ * Причины отказа леджера; имена совпадают с кодами issuer-reject.reasons и пишутся в decline_reason
+ */
+public enum DeclineReason {
+    INSUFFICIENT_FUNDS,
+    TRANSACTION_LIMIT_EXCEEDED,
+    CARD_BLOCKED
+}
@@ -0,0 +1,27 @@
+package org.example.acquiringserver.ledger;
+
+import org.example.acquiringserver.engine.Authorizer;
+import org.example.acquiringserver.model.TransactionEntity;
+
+/**
+ * Решение движка по балансу и лимитам счета карты
+ */
+public class LedgerAuthorizer implements Authorizer {
+
+    private final AccountLedger ledger;
+
+    public LedgerAuthorizer(AccountLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    @Override
+    public String authorize(TransactionEntity transaction) {
+        DeclineReason reason = ledger.authorize(transaction.getPan(), transaction.getAmount());
+        return reason == null ? null : reason.name();
+    }
+
+    @Override
+    public void reverse(TransactionEntity transaction) {
+        ledger.reverse(transaction.getPan(), transaction.getAmount());
+    }
+}
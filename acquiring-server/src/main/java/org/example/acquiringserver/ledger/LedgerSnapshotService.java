@@ -0,0 +1,66 @@
+package org.example.acquiringserver.ledger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Восстановление леджера из снимка при старте и периодическая запись снимков.
+ * <p>
+ * Снимок пишется в фоне и при остановке; после аварийного завершения теряются только
+ * операции с момента последнего снимка.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ledger.snapshot.enabled", havingValue = "true", matchIfMissing = true)
+public class LedgerSnapshotService {
+
+    private final AccountLedger ledger;
+    private final Path file;
+
+    public LedgerSnapshotService(AccountLedger ledger,
+                                 @Value("${ledger.snapshot.file:ledger/ledger-snapshot.txt}") String file,
+                                 MeterRegistry meterRegistry) {
+        this.ledger = ledger;
+        this.file = Path.of(file);
+        meterRegistry.gauge("acquirer.ledger.accounts", ledger, AccountLedger::size);
+    }
+
+    @PostConstruct
+    public void restore() throws IOException {
+        if (!Files.exists(file)) {
+            log.info("No ledger snapshot at {}, starting with an empty ledger", file.toAbsolutePath());
+            return;
+        }
+        List<AccountState> states = LedgerSnapshots.read(file);
+        ledger.restore(states);
+        log.info("Ledger restored from {} ({} accounts)", file.toAbsolutePath(), states.size());
+    }
+
+    @Scheduled(fixedDelayString = "${ledger.snapshot.interval-ms:60000}",
+            initialDelayString = "${ledger.snapshot.interval-ms:60000}")
+    public void snapshot() {
+        try {
+            List<AccountState> states = ledger.snapshot();
+            LedgerSnapshots.write(file, states);
+            log.debug("Ledger snapshot written to {} ({} accounts)", file, states.size());
+        } catch (IOException e) {
+            log.error("Failed to write ledger snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+    }
+}
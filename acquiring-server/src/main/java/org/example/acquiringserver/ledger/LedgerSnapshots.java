@@ -0,0 +1,90 @@
+package org.example.acquiringserver.ledger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Чтение и запись снимков леджера.
+ * <p>
+ * Формат - текст, строка на счет: pan;balance;perTransactionLimit;dailyLimit;dailySpent;epochDay;blocked.
+ * Запись идет во временный файл, который затем атомарно переименовывается, поэтому после
+ * сбоя на диске остается либо старый, либо новый снимок целиком.
+ */
+public final class LedgerSnapshots {
+
+    private static final String HEADER = "# ledger-snapshot v1";
+    private static final char SEPARATOR = ';';
+
+    private LedgerSnapshots() {
+    }
+
+    public static void write(Path file, Collection<AccountState> states) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (AccountState state : states) {
+                    writer.write(state.pan());
+                    writer.write(SEPARATOR);
+                    writer.write(Long.toString(state.balance()));
+                    writer.write(SEPARATOR);
+                    writer.write(Long.toString(state.perTransactionLimit()));
+                    writer.write(SEPARATOR);
+                    writer.write(Long.toString(state.dailyLimit()));
+                    writer.write(SEPARATOR);
+                    writer.write(Long.toString(state.dailySpent()));
+                    writer.write(SEPARATOR);
+                    writer.write(Long.toString(state.epochDay()));
+                    writer.write(SEPARATOR);
+                    writer.write(state.blocked() ? '1' : '0');
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public static List<AccountState> read(Path file) throws IOException {
+        List<AccountState> states = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (!HEADER.equals(header)) {
+                throw new IOException("Not a ledger snapshot: " + file);
+            }
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] parts = line.split(String.valueOf(SEPARATOR));
+                if (parts.length != 7) {
+                    throw new IOException("Malformed ledger snapshot line " + lineNumber + " in " + file);
+                }
+                states.add(new AccountState(
+                        parts[0],
+                        Long.parseLong(parts[1]),
+                        Long.parseLong(parts[2]),
+                        Long.parseLong(parts[3]),
+                        Long.parseLong(parts[4]),
+                        Long.parseLong(parts[5]),
+                        "1".equals(parts[6])));
+            }
+        }
+        return states;
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.acquiringserver.merchant;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.acquiringserver.engine.Authorizer;
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Проверка мерчанта по реестру перед следующим решением: неизвестный или неактивный
+ * мерчант - INVALID_MERCHANT, сумма выше лимита мерчанта - TRANSACTION_LIMIT_EXCEEDED
+ */
+public class MerchantAuthorizer implements Authorizer {
+
+    public static final String INVALID_MERCHANT = "INVALID_MERCHANT";
+    public static final String TRANSACTION_LIMIT_EXCEEDED = "TRANSACTION_LIMIT_EXCEEDED";
+
+    private final MerchantRegistry registry;
+    private final Authorizer next;
+    private final Counter unknown;
+    private final Counter inactive;
+    private final Counter overLimit;
+
+    public MerchantAuthorizer(MerchantRegistry registry, Authorizer next, MeterRegistry meterRegistry) {
+        this.registry = registry;
+        this.next = next;
+        this.unknown = meterRegistry.counter("acquirer.merchant.declines", "reason", "unknown");
+        this.inactive = meterRegistry.counter("acquirer.merchant.declines", "reason", "inactive");
+        this.overLimit = meterRegistry.counter("acquirer.merchant.declines", "reason", "limit");
+    }
+
+    @Override
+    public String authorize(TransactionEntity transaction) {
+        String declineReason = check(transaction);
+        return declineReason != null ? declineReason : next.authorize(transaction);
+    }
+
+    @Override
+    public CompletableFuture<String> authorizeAsync(TransactionEntity transaction) {
+        String declineReason = check(transaction);
+        return declineReason != null
+                ? CompletableFuture.completedFuture(declineReason)
+                : next.authorizeAsync(transaction);
+    }
+
+    /**
+     * @return причина отказа по реестру или null, если решение за следующим звеном
+     */
+    private String check(TransactionEntity transaction) {
+        MerchantTable table = registry.current();
+        int slot = table.find(transaction.getMerchantId());
+        if (slot < 0) {
+            unknown.increment();
+            return INVALID_MERCHANT;
+        }
+        if (!table.active(slot)) {
+            inactive.increment();
+            return INVALID_MERCHANT;
+        }
+        long maxAmount = table.maxAmount(slot);
+        if (maxAmount > 0 && transaction.getAmount() > maxAmount) {
+            overLimit.increment();
+            return TRANSACTION_LIMIT_EXCEEDED;
+        }
+        return null;
+    }
+
+    @Override
+    public void reverse(TransactionEntity transaction) {
+        next.reverse(transaction);
+    }
+}
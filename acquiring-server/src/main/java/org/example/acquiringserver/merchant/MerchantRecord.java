@@ -0,0 +1,8 @@
+package org.example.acquiringserver.merchant;
+
+/**
+ * Мерчант в реестре: активность, MCC и максимальная сумма одной транзакции
+ * в минимальных единицах валюты (0 - без ограничения)
+ */
+public record MerchantRecord(String merchantId, boolean active, int mcc, long maxAmount) {
+}
@@ -0,0 +1,78 @@
+package org.example.acquiringserver.merchant;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Реестр мерчантов из файла merchant-registry.file.
+ * <p>
+ * Текущая версия - неизменяемая {@link MerchantTable}; при изменении файла новая версия
+ * отображается в память и подменяет старую одной записью volatile ссылки. Поток обработки
+ * берет ссылку один раз на транзакцию и видит одну версию целиком. Ошибка в новом файле
+ * не ломает работу: остается предыдущая версия.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "merchant-registry.enabled", havingValue = "true")
+public class MerchantRegistry {
+
+    private final Path file;
+
+    private volatile MerchantTable table;
+    private volatile FileTime lastModified;
+
+    public MerchantRegistry(@Value("${merchant-registry.file:merchants/merchants.bin}") String file,
+                            MeterRegistry meterRegistry) {
+        this.file = Path.of(file);
+        meterRegistry.gauge("acquirer.merchant.registry.size", this, registry -> registry.current().size());
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        lastModified = Files.getLastModifiedTime(file);
+        table = MerchantTable.open(file);
+        log.info("Merchant registry loaded from {} ({} merchants, generation {})",
+                file.toAbsolutePath(), table.size(), table.generation());
+    }
+
+    /**
+     * Подмена версии, если файл изменился
+     */
+    @Scheduled(fixedDelayString = "${merchant-registry.reload-interval-ms:5000}",
+            initialDelayString = "${merchant-registry.reload-interval-ms:5000}")
+    public void reloadIfModified() {
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            log.warn("Merchant registry {} is not readable, keeping generation {}", file, table.generation());
+            return;
+        }
+        if (modified.equals(lastModified)) {
+            return;
+        }
+        lastModified = modified;
+        try {
+            table = MerchantTable.open(file);
+            log.info("Merchant registry reloaded from {} ({} merchants, generation {})",
+                    file, table.size(), table.generation());
+        } catch (IOException | RuntimeException e) {
+            log.error("Invalid merchant registry {}, keeping generation {}: {}",
+                    file, table.generation(), e.getMessage());
+        }
+    }
+
+    public MerchantTable current() {
+        return table;
+    }
+}
@@ -0,0 +1,198 @@
+package org.example.acquiringserver.merchant;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Сборка файла реестра мерчантов (формат - см. {@link MerchantTable}).
+ * <p>
+ * Файл пишется во временный и атомарно переименовывается, поэтому работающий сервер
+ * подхватывает новую версию целиком. Источник - CSV merchant_id,active,mcc,max_amount
+ * с заголовком; из командной строки:
+ * <pre>
+ * java -cp acquiring-server.jar org.example.acquiringserver.merchant.MerchantRegistryFile merchants.csv merchants.bin
+ * </pre>
+ */
+public final class MerchantRegistryFile {
+
+    private static final String CSV_HEADER = "merchant_id,active,mcc,max_amount";
+    private static final int KEYS_PER_BUCKET = 4;
+    private static final int MAX_DISPLACEMENT = 1 << 24;
+
+    private MerchantRegistryFile() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: MerchantRegistryFile <merchants.csv> <merchants.bin>");
+            System.exit(2);
+        }
+        List<MerchantRecord> merchants = readCsv(Path.of(args[0]));
+        write(Path.of(args[1]), merchants);
+        System.out.println("Merchant registry " + args[1] + " written: " + merchants.size() + " merchants");
+    }
+
+    public static List<MerchantRecord> readCsv(Path file) throws IOException {
+        List<MerchantRecord> merchants = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            if (!CSV_HEADER.equals(reader.readLine())) {
+                throw new IOException("Expected header " + CSV_HEADER + " in " + file);
+            }
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length != 4) {
+                    throw new IOException("Malformed merchant line " + lineNumber + " in " + file);
+                }
+                merchants.add(new MerchantRecord(parts[0].trim(), Boolean.parseBoolean(parts[1].trim()),
+                        Integer.parseInt(parts[2].trim()), Long.parseLong(parts[3].trim())));
+            }
+        }
+        return merchants;
+    }
+
+    public static void write(Path file, List<MerchantRecord> merchants) throws IOException {
+        validate(merchants);
+        int count = merchants.size();
+        int buckets = Math.max(1, (count + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET);
+        int[] displacements = new int[buckets];
+        MerchantRecord[] slots = new MerchantRecord[count];
+        place(merchants, buckets, displacements, slots);
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                output.writeInt(MerchantTable.MAGIC);
+                output.writeInt(MerchantTable.RECORD_SIZE);
+                output.writeInt(count);
+                output.writeInt(buckets);
+                output.writeLong(System.currentTimeMillis());
+                for (int displacement : displacements) {
+                    output.writeInt(displacement);
+                }
+                byte[] id = new byte[MerchantTable.MAX_ID_LENGTH];
+                for (MerchantRecord merchant : slots) {
+                    byte[] bytes = merchant.merchantId().getBytes(StandardCharsets.US_ASCII);
+                    Arrays.fill(id, (byte) 0);
+                    System.arraycopy(bytes, 0, id, 0, bytes.length);
+                    output.writeByte(bytes.length);
+                    output.writeByte(merchant.active() ? 1 : 0);
+                    output.writeShort(merchant.mcc());
+                    output.writeInt(0);
+                    output.writeLong(merchant.maxAmount());
+                    output.write(id);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Hash-and-displace: корзины разбираются от больших к меньшим, для корзины подбирается
+     * seed, при котором все ее ключи попадают в свободные и разные слоты. Корзины из одного
+     * ключа занимают оставшиеся слоты напрямую (смещение -(slot + 1))
+     */
+    private static void place(List<MerchantRecord> merchants, int buckets, int[] displacements,
+                              MerchantRecord[] slots) {
+        int count = merchants.size();
+        List<List<MerchantRecord>> members = new ArrayList<>(buckets);
+        for (int i = 0; i < buckets; i++) {
+            members.add(new ArrayList<>(KEYS_PER_BUCKET));
+        }
+        for (MerchantRecord merchant : merchants) {
+            members.get((int) Long.remainderUnsigned(MerchantTable.hash(merchant.merchantId(), 0), buckets))
+                    .add(merchant);
+        }
+        Integer[] order = new Integer[buckets];
+        for (int i = 0; i < buckets; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> members.get(b).size() - members.get(a).size());
+
+        int[] candidate = new int[KEYS_PER_BUCKET * 8];
+        int freeCursor = 0;
+        for (int bucket : order) {
+            List<MerchantRecord> keys = members.get(bucket);
+            if (keys.isEmpty()) {
+                break;
+            }
+            if (keys.size() == 1) {
+                while (slots[freeCursor] != null) {
+                    freeCursor++;
+                }
+                slots[freeCursor] = keys.get(0);
+                displacements[bucket] = -freeCursor - 1;
+                continue;
+            }
+            if (candidate.length < keys.size()) {
+                candidate = new int[keys.size()];
+            }
+            int seed = 1;
+            while (!fits(keys, seed, count, slots, candidate)) {
+                if (++seed > MAX_DISPLACEMENT) {
+                    throw new IllegalStateException("Cannot place merchant bucket of " + keys.size() + " keys");
+                }
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                slots[candidate[i]] = keys.get(i);
+            }
+            displacements[bucket] = seed;
+        }
+    }
+
+    private static boolean fits(List<MerchantRecord> keys, int seed, int count, MerchantRecord[] slots,
+                                int[] candidate) {
+        for (int i = 0; i < keys.size(); i++) {
+            int slot = (int) Long.remainderUnsigned(MerchantTable.hash(keys.get(i).merchantId(), seed), count);
+            if (slots[slot] != null) {
+                return false;
+            }
+            for (int j = 0; j < i; j++) {
+                if (candidate[j] == slot) {
+                    return false;
+                }
+            }
+            candidate[i] = slot;
+        }
+        return true;
+    }
+
+    private static void validate(List<MerchantRecord> merchants) {
+        Set<String> ids = new HashSet<>(merchants.size() * 2);
+        for (MerchantRecord merchant : merchants) {
+            String id = merchant.merchantId();
+            if (id.isEmpty() || id.length() > MerchantTable.MAX_ID_LENGTH
+                    || !StandardCharsets.US_ASCII.newEncoder().canEncode(id)) {
+                throw new IllegalArgumentException("Merchant ID must be 1-" + MerchantTable.MAX_ID_LENGTH
+                        + " ASCII characters: " + id);
+            }
+            if (merchant.mcc() < 0 || merchant.mcc() > 0xFFFF) {
+                throw new IllegalArgumentException("Invalid MCC " + merchant.mcc() + " for merchant " + id);
+            }
+            if (!ids.add(id)) {
+                throw new IllegalArgumentException("Duplicate merchant ID: " + id);
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.acquiringserver.merchant;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Одна версия реестра мерчантов, отображенная в память из файла.
+ * <p>
+ * Формат (big-endian): заголовок [magic 4][размер записи 4][число мерчантов 4][число корзин 4][поколение 8],
+ * затем смещения корзин по 4 байта и записи фиксированного размера в порядке слотов:
+ * [длина ID 1][флаги 1][MCC 2][резерв 4][макс. сумма 8][ID 32 ASCII].
+ * <p>
+ * Слот мерчанта дает минимальная совершенная хеш-функция (hash-and-displace): первый хеш
+ * выбирает корзину, ее смещение - seed второго хеша или, для корзины из одного ключа,
+ * сам слот. Поиск - два хеша и сравнение ID с записью, без аллокаций; данные лежат
+ * вне кучи, и открытие файла не зависит от числа мерчантов.
+ */
+public final class MerchantTable {
+
+    static final int MAGIC = 0x4D524731;
+    static final int HEADER_SIZE = 24;
+    static final int RECORD_SIZE = 48;
+    static final int MAX_ID_LENGTH = 32;
+
+    private static final int FLAG_ACTIVE = 0x01;
+    private static final int OFFSET_FLAGS = 1;
+    private static final int OFFSET_MCC = 2;
+    private static final int OFFSET_MAX_AMOUNT = 8;
+    private static final int OFFSET_ID = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int buckets;
+    private final long generation;
+    private final int recordsOffset;
+
+    private MerchantTable(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a merchant registry file");
+        }
+        if (buffer.getInt(4) != RECORD_SIZE) {
+            throw new IOException("Unsupported merchant record size: " + buffer.getInt(4));
+        }
+        this.count = buffer.getInt(8);
+        this.buckets = buffer.getInt(12);
+        this.generation = buffer.getLong(16);
+        this.recordsOffset = HEADER_SIZE + buckets * 4;
+        if (count < 0 || buckets <= 0 || (long) recordsOffset + (long) count * RECORD_SIZE != buffer.capacity()) {
+            throw new IOException("Truncated or corrupt merchant registry file");
+        }
+    }
+
+    /**
+     * Отображение файла в память; файл можно сразу заменить новой версией - отображение остается
+     */
+    public static MerchantTable open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MerchantTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return слот мерчанта или -1, если его нет в реестре
+     */
+    public int find(CharSequence merchantId) {
+        int length = merchantId.length();
+        if (count == 0 || length > MAX_ID_LENGTH) {
+            return -1;
+        }
+        int bucket = (int) Long.remainderUnsigned(hash(merchantId, 0), buckets);
+        int displacement = buffer.getInt(HEADER_SIZE + bucket * 4);
+        int slot = displacement < 0
+                ? -displacement - 1
+                : (int) Long.remainderUnsigned(hash(merchantId, displacement), count);
+        int record = recordsOffset + slot * RECORD_SIZE;
+        if ((buffer.get(record) & 0xFF) != length) {
+            return -1;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(record + OFFSET_ID + i) != (byte) merchantId.charAt(i) || merchantId.charAt(i) > 0x7F) {
+                return -1;
+            }
+        }
+        return slot;
+    }
+
+    public boolean active(int slot) {
+        return (buffer.get(record(slot) + OFFSET_FLAGS) & FLAG_ACTIVE) != 0;
+    }
+
+    public int mcc(int slot) {
+        return Short.toUnsignedInt(buffer.getShort(record(slot) + OFFSET_MCC));
+    }
+
+    public long maxAmount(int slot) {
+        return buffer.getLong(record(slot) + OFFSET_MAX_AMOUNT);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Время сборки файла в мс от эпохи - отличает версии реестра в логах
+     */
+    public long generation() {
+        return generation;
+    }
+
+    private int record(int slot) {
+        return recordsOffset + slot * RECORD_SIZE;
+    }
+
+    static long hash(CharSequence key, int seed) {
+        long h = 0xCBF29CE484222325L ^ (seed * 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.acquiringserver.metrics;
+
+/**
+ * Типы сбоев, которые вносит движок fault injection
+ */
+public enum FaultType {
+    NETWORK_DELAY("network-delay"),
+    TIMEOUT("timeout"),
+    SERVICE_UNAVAILABLE("service-unavailable"),
+    DATA_CORRUPTION("data-corruption"),
+    ISSUER_REJECT("issuer-reject"),
+    DATABASE_FAILURE("database-failure");
+
+    private final String key;
+
+    FaultType(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Префикс настроек сбоя в конфигурации fault injection
+     */
+    public String getKey() {
+        return key;
+    }
+}
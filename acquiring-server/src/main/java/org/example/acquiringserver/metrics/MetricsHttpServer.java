@@ -0,0 +1,222 @@
+package org.example.acquiringserver.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.aggregation.Granularity;
+import org.example.acquiringserver.aggregation.MerchantAggregator;
+import org.example.acquiringserver.aggregation.Rollup;
+import org.example.acquiringserver.export.ExportFilter;
+import org.example.acquiringserver.export.ExportFormat;
+import org.example.acquiringserver.export.TransactionExporter;
+import org.example.acquiringserver.network.TcpServer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Легковесный HTTP сервер для health check и выгрузки метрик в формате Prometheus.
+ * <p>
+ * Основной порт занят бинарным TCP протоколом, а web-стартер Spring не подключен,
+ * поэтому используется встроенный в JDK com.sun.net.httpserver на отдельном порту.
+ * Здесь же - потоковая выгрузка транзакций /export (одна одновременно, в отдельном потоке
+ * от health check) и агрегаты по мерчантам /aggregates.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "metrics.http.enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsHttpServer {
+
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
+    private final PrometheusMeterRegistry meterRegistry;
+    private final TcpServer tcpServer;
+    private final SlowTransactionLog slowTransactionLog;
+    private final DataSource dataSource;
+    private final TransactionExporter transactionExporter;
+    private final MerchantAggregator merchantAggregator;
+    private final Semaphore exportPermit = new Semaphore(1);
+
+    @Value("${metrics.http.port:8082}")
+    private int port;
+
+    private HttpServer httpServer;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+        // Второй поток: выгрузка может идти минутами, health check не должен ждать ее
+        executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "Metrics-Http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpServer.setExecutor(executor);
+        httpServer.createContext("/actuator/health", this::handleHealth);
+        httpServer.createContext("/actuator/prometheus", this::handlePrometheus);
+        httpServer.createContext("/slow-transactions", this::handleSlowTransactions);
+        httpServer.createContext("/export", this::handleExport);
+        httpServer.createContext("/aggregates", this::handleAggregates);
+        httpServer.start();
+        log.info("Metrics endpoint started on port {}", httpServer.getAddress().getPort());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        boolean tcpUp = tcpServer.isRunning();
+        boolean dbUp = isDatabaseUp();
+        boolean up = tcpUp && dbUp;
+
+        String body = String.format("{\"status\":\"%s\",\"components\":{\"tcp\":\"%s\",\"db\":\"%s\"}}",
+                status(up), status(tcpUp), status(dbUp));
+        send(exchange, up ? 200 : 503, JSON_CONTENT_TYPE, body);
+    }
+
+    private void handlePrometheus(HttpExchange exchange) throws IOException {
+        send(exchange, 200, PROMETHEUS_CONTENT_TYPE, meterRegistry.scrape());
+    }
+
+    private void handleSlowTransactions(HttpExchange exchange) throws IOException {
+        send(exchange, 200, JSON_CONTENT_TYPE, "[" + String.join(",\n", slowTransactionLog.snapshot()) + "]");
+    }
+
+    /**
+     * GET /export?format=csv|ndjson|columnar&amp;merchant=...&amp;status=...&amp;from=...&amp;to=...
+     * (время - ISO-8601 без зоны). Ответ передается chunked по мере чтения из БД
+     */
+    private void handleExport(HttpExchange exchange) throws IOException {
+        ExportFormat format;
+        ExportFilter filter;
+        try {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            format = ExportFormat.valueOf(query.getOrDefault("format", "csv").toUpperCase(Locale.ROOT));
+            filter = new ExportFilter(dateTime(query.get("from")), dateTime(query.get("to")),
+                    query.get("merchant"), query.get("status"));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            send(exchange, 400, JSON_CONTENT_TYPE, "{\"error\":\"Invalid export parameters\"}");
+            return;
+        }
+        if (!exportPermit.tryAcquire()) {
+            send(exchange, 409, JSON_CONTENT_TYPE, "{\"error\":\"Export already running\"}");
+            return;
+        }
+        try {
+            exchange.getResponseHeaders().set("Content-Type", format.getContentType());
+            exchange.sendResponseHeaders(200, 0);
+            try (WritableByteChannel channel = Channels.newChannel(exchange.getResponseBody())) {
+                transactionExporter.export(filter, format, channel);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Заголовки уже отправлены: клиент увидит оборванный chunked ответ
+            log.error("Export failed: {}", e.getMessage());
+            exchange.close();
+        } finally {
+            exportPermit.release();
+        }
+    }
+
+    /**
+     * GET /aggregates?granularity=minute|hour|day&amp;merchant=...&amp;from=...&amp;to=... - корзины
+     * мерчанта (без merchant - всех мерчантов), начинающиеся в [from, to)
+     */
+    private void handleAggregates(HttpExchange exchange) throws IOException {
+        List<Rollup> rollups = new ArrayList<>();
+        try {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            Granularity granularity = Granularity.valueOf(
+                    query.getOrDefault("granularity", "hour").toUpperCase(Locale.ROOT));
+            LocalDateTime from = dateTime(query.get("from"));
+            LocalDateTime to = dateTime(query.get("to"));
+            String merchant = query.get("merchant");
+            for (String merchantId : merchant != null ? Set.of(merchant) : merchantAggregator.merchants()) {
+                rollups.addAll(merchantAggregator.rollups(merchantId, granularity, from, to));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            send(exchange, 400, JSON_CONTENT_TYPE, "{\"error\":\"Invalid aggregate parameters\"}");
+            return;
+        }
+        send(exchange, 200, JSON_CONTENT_TYPE,
+                "[" + rollups.stream().map(Rollup::toJson).collect(Collectors.joining(",\n")) + "]");
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0 && separator < pair.length() - 1) {
+                query.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static LocalDateTime dateTime(String value) {
+        return value == null ? null : LocalDateTime.parse(value);
+    }
+
+    private boolean isDatabaseUp() {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.isValid(1);
+        } catch (Exception e) {
+            log.warn("Database health check failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static String status(boolean up) {
+        return up ? "UP" : "DOWN";
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
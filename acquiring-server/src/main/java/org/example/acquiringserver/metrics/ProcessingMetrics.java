@@ -0,0 +1,154 @@
+package org.example.acquiringserver.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.acquiringserver.service.ResponseCode;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики конвейера обработки пакетов.
+ * <p>
+ * Все таймеры и счетчики регистрируются заранее и лежат в массивах по ordinal,
+ * поэтому запись на горячем пути - это вызов System.nanoTime() и обновление
+ * атомарных счетчиков гистограммы, без поиска по реестру и без аллокаций.
+ * Без Spring: в приложении создается через @Bean в AppConfig, в движке - над любым MeterRegistry.
+ */
+public class ProcessingMetrics {
+
+    private final Timer[] stageTimers = new Timer[Stage.values().length];
+    private final Counter[] outcomeCounters = new Counter[ResponseCode.values().length];
+    private final Counter[] faultCounters = new Counter[FaultType.values().length];
+    private final Counter[] expiredCounters = new Counter[Stage.values().length];
+    private final Timer queueWaitTimer;
+    private final Counter inquiryCacheHits;
+    private final Counter inquiryStoreHits;
+    private final Counter inquiryMisses;
+    private final Counter resends;
+    private final MeterRegistry meterRegistry;
+
+    public ProcessingMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Stage stage : Stage.values()) {
+            stageTimers[stage.ordinal()] = Timer.builder("acquirer.stage.duration")
+                    .description("Time spent in a packet processing stage")
+                    .tag("stage", stage.getTag())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(500))
+                    .maximumExpectedValue(Duration.ofSeconds(5))
+                    .register(meterRegistry);
+        }
+        for (Stage stage : Stage.values()) {
+            expiredCounters[stage.ordinal()] = Counter.builder("acquirer.deadline.expired")
+                    .description("Packets dropped because the client deadline expired, by the stage skipped")
+                    .tag("stage", stage.getTag())
+                    .register(meterRegistry);
+        }
+        for (ResponseCode code : ResponseCode.values()) {
+            outcomeCounters[code.ordinal()] = Counter.builder("acquirer.responses")
+                    .description("Responses by response code")
+                    .tag("code", code.name())
+                    .register(meterRegistry);
+        }
+        for (FaultType fault : FaultType.values()) {
+            faultCounters[fault.ordinal()] = Counter.builder("acquirer.faults.injected")
+                    .description("Faults injected by the fault injection engine")
+                    .tag("type", fault.name())
+                    .register(meterRegistry);
+        }
+        queueWaitTimer = Timer.builder("acquirer.queue.wait")
+                .description("Time between accepting a connection and starting to read its packet")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(500))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(meterRegistry);
+        inquiryCacheHits = inquiryCounter("cache", meterRegistry);
+        inquiryStoreHits = inquiryCounter("store", meterRegistry);
+        inquiryMisses = inquiryCounter("not_found", meterRegistry);
+        resends = Counter.builder("acquirer.resends")
+                .description("Authorizations of already processed transactions answered with the stored outcome")
+                .register(meterRegistry);
+    }
+
+    private static Counter inquiryCounter(String result, MeterRegistry meterRegistry) {
+        return Counter.builder("acquirer.inquiries")
+                .description("Status inquiries by where the transaction was found")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запись длительности этапа, начавшегося в момент startNanos.
+     * Длительность также попадает в ProcessingTrace текущего потока
+     *
+     * @return текущее время, которое можно использовать как начало следующего этапа
+     */
+    public long recordStage(Stage stage, long startNanos) {
+        return recordStage(stage, startNanos, ProcessingTrace.current());
+    }
+
+    /**
+     * То же для явно переданной трассировки - когда этап выполняется не в потоке соединения
+     */
+    public long recordStage(Stage stage, long startNanos, ProcessingTrace trace) {
+        long now = System.nanoTime();
+        long duration = now - startNanos;
+        stageTimers[stage.ordinal()].record(duration, TimeUnit.NANOSECONDS);
+        trace.addStage(stage, duration);
+        return now;
+    }
+
+    public void recordOutcome(ResponseCode code) {
+        recordOutcome(code, ProcessingTrace.current());
+    }
+
+    public void recordOutcome(ResponseCode code, ProcessingTrace trace) {
+        outcomeCounters[code.ordinal()].increment();
+        trace.outcome(code);
+    }
+
+    /**
+     * Запрос статуса: найден в кэше последних транзакций, в хранилище или не найден
+     */
+    public void recordInquiry(boolean found, boolean cached) {
+        if (!found) {
+            inquiryMisses.increment();
+        } else if (cached) {
+            inquiryCacheHits.increment();
+        } else {
+            inquiryStoreHits.increment();
+        }
+    }
+
+    /**
+     * Повторная авторизация уже обработанной транзакции
+     */
+    public void recordResend() {
+        resends.increment();
+    }
+
+    /**
+     * Работа брошена по истечении срока клиента перед этапом skipped
+     */
+    public void recordExpired(Stage skipped, ProcessingTrace trace) {
+        expiredCounters[skipped.ordinal()].increment();
+        recordOutcome(ResponseCode.DEADLINE_EXCEEDED, trace);
+    }
+
+    public void recordQueueWait(long nanos) {
+        queueWaitTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFault(FaultType fault) {
+        faultCounters[fault.ordinal()].increment();
+    }
+
+    /**
+     * Реестр для метрик, которые регистрируются вне конвейера (партиции движка)
+     */
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+}
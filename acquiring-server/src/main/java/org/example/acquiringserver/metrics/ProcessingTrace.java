@@ -0,0 +1,275 @@
+package org.example.acquiringserver.metrics;
+
+import org.example.acquiringserver.service.ResponseCode;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбивка времени обработки одного пакета по этапам.
+ * <p>
+ * Экземпляр принадлежит потоку-обработчику и переиспользуется между пакетами,
+ * поэтому на горячем пути не создается ни одного объекта. Время - только
+ * монотонные часы System.nanoTime().
+ */
+public final class ProcessingTrace {
+
+    private static final ThreadLocal<ProcessingTrace> CURRENT = ThreadLocal.withInitial(ProcessingTrace::new);
+    private static final Stage[] STAGES = Stage.values();
+
+    private final long[] stageNanos = new long[STAGES.length];
+    private final StringBuilder breakdown = new StringBuilder(96);
+
+    private boolean active;
+    private long startNanos;
+    private long receivedNanos;
+    private boolean deadline;
+    private long deadlineNanos;
+    private byte version;
+    private byte messageType;
+    private int packetLength;
+    private String transactionId;
+    private String merchantId;
+    private String terminalId;
+    private String clientAddress;
+    private boolean decided;
+    private int amount;
+    private String declineReason;
+    private ResponseCode outcome;
+
+    private long startEpochMicros;
+    private long receivedEpochMicros;
+    private boolean traceContext;
+    private long traceIdHigh;
+    private long traceIdLow;
+    private long clientSendMicros;
+
+    private ProcessingTrace() {
+    }
+
+    /**
+     * Трассировка текущего потока
+     */
+    public static ProcessingTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Начало обработки нового пакета: все поля предыдущего пакета сбрасываются
+     */
+    public void begin(long startNanos) {
+        Arrays.fill(stageNanos, 0L);
+        this.startNanos = startNanos;
+        this.receivedNanos = startNanos;
+        this.deadline = false;
+        this.active = true;
+        this.version = 0;
+        this.messageType = 0;
+        this.packetLength = 0;
+        this.transactionId = null;
+        this.merchantId = null;
+        this.terminalId = null;
+        this.clientAddress = null;
+        this.decided = false;
+        this.declineReason = null;
+        this.outcome = null;
+        this.startEpochMicros = MicrosClock.toEpochMicros(startNanos);
+        this.receivedEpochMicros = startEpochMicros;
+        this.traceContext = false;
+    }
+
+    /**
+     * Момент приема соединения; разница с началом обработки - ожидание в очереди пула
+     */
+    public void received(long acceptedNanos) {
+        this.receivedNanos = acceptedNanos;
+        this.receivedEpochMicros = MicrosClock.toEpochMicros(acceptedNanos);
+    }
+
+    /**
+     * Контекст трассировки из расширения конверта
+     */
+    public void traceContext(long traceIdHigh, long traceIdLow, long clientSendMicros) {
+        this.traceContext = true;
+        this.traceIdHigh = traceIdHigh;
+        this.traceIdLow = traceIdLow;
+        this.clientSendMicros = clientSendMicros;
+    }
+
+    /**
+     * Срок из расширения конверта: бюджет клиента отсчитывается от приема соединения,
+     * поэтому ожидание в очереди пула тоже расходует его
+     */
+    public void deadline(long budgetMillis) {
+        this.deadline = true;
+        this.deadlineNanos = receivedNanos + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+
+    /**
+     * Клиент уже перестал ждать ответ. Без срока в конверте - всегда false
+     */
+    public boolean isExpired() {
+        return deadline && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    public boolean hasDeadline() {
+        return deadline;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void end() {
+        active = false;
+    }
+
+    void addStage(Stage stage, long nanos) {
+        if (active) {
+            stageNanos[stage.ordinal()] += nanos;
+        }
+    }
+
+    public void header(byte version, byte messageType, int packetLength) {
+        this.version = version;
+        this.messageType = messageType;
+        this.packetLength = packetLength;
+    }
+
+    /**
+     * Адрес клиента соединения - ключ терминала, если конверт не несет ID терминала
+     */
+    public void client(String clientAddress) {
+        this.clientAddress = clientAddress;
+    }
+
+    /**
+     * ID терминала и мерчанта из расширений конверта (до расшифровки)
+     */
+    public void identity(String terminalId, String merchantId) {
+        if (terminalId != null) {
+            this.terminalId = terminalId;
+        }
+        if (merchantId != null) {
+            this.merchantId = merchantId;
+        }
+    }
+
+    public void transaction(String transactionId, String merchantId) {
+        this.transactionId = transactionId;
+        this.merchantId = merchantId;
+    }
+
+    /**
+     * Сумма и причина отказа (null - одобрено) после решения по транзакции
+     */
+    public void decision(int amount, String declineReason) {
+        this.decided = true;
+        this.amount = amount;
+        this.declineReason = declineReason;
+    }
+
+    void outcome(ResponseCode outcome) {
+        if (active) {
+            this.outcome = outcome;
+        }
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos());
+    }
+
+    public long stageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    /**
+     * Компактная разбивка по этапам в микросекундах для хранения вместе с транзакцией,
+     * например "hmac_verify=41;rsa_decrypt=1630;aes_decrypt=22". Нулевые этапы опускаются
+     */
+    public String stageBreakdown() {
+        breakdown.setLength(0);
+        for (Stage stage : STAGES) {
+            long nanos = stageNanos[stage.ordinal()];
+            if (nanos > 0) {
+                if (breakdown.length() > 0) {
+                    breakdown.append(';');
+                }
+                breakdown.append(stage.getTag()).append('=').append(TimeUnit.NANOSECONDS.toMicros(nanos));
+            }
+        }
+        return breakdown.toString();
+    }
+
+    public byte getVersion() {
+        return version;
+    }
+
+    public byte getMessageType() {
+        return messageType;
+    }
+
+    public int getPacketLength() {
+        return packetLength;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String getMerchantId() {
+        return merchantId;
+    }
+
+    public String getTerminalId() {
+        return terminalId;
+    }
+
+    public String getClientAddress() {
+        return clientAddress;
+    }
+
+    public boolean isDecided() {
+        return decided;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public String getDeclineReason() {
+        return declineReason;
+    }
+
+    public ResponseCode getOutcome() {
+        return outcome;
+    }
+
+    public boolean hasTraceContext() {
+        return traceContext;
+    }
+
+    public long getTraceIdHigh() {
+        return traceIdHigh;
+    }
+
+    public long getTraceIdLow() {
+        return traceIdLow;
+    }
+
+    public long getClientSendMicros() {
+        return clientSendMicros;
+    }
+
+    public long getStartEpochMicros() {
+        return startEpochMicros;
+    }
+
+    public long getReceivedEpochMicros() {
+        return receivedEpochMicros;
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.acquiringserver.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кольцевой журнал медленных транзакций.
+ * <p>
+ * На быстром пути выполняется только сравнение с порогом. Медленная транзакция копируется
+ * в заранее выделенный слот кольца, самые старые записи перезаписываются. В журнал попадает
+ * только заголовок пакета (версия, тип, длина) и идентификаторы - зашифрованное содержимое
+ * и ключи не сохраняются.
+ */
+@Slf4j
+@Component
+public class SlowTransactionLog {
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final long thresholdNanos;
+    private final Entry[] ring;
+    private final Counter slowCounter;
+    private long written;
+
+    public SlowTransactionLog(@Value("${slow-transaction.threshold-ms:200}") long thresholdMs,
+                              @Value("${slow-transaction.capacity:256}") int capacity,
+                              MeterRegistry meterRegistry) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.ring = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Entry();
+        }
+        this.slowCounter = meterRegistry.counter("acquirer.slow.transactions");
+    }
+
+    /**
+     * Проверка трассировки завершенного пакета; медленные пакеты сохраняются в кольцо
+     */
+    public void captureIfSlow(ProcessingTrace trace) {
+        long totalNanos = trace.elapsedNanos();
+        if (totalNanos < thresholdNanos) {
+            return;
+        }
+        slowCounter.increment();
+        synchronized (this) {
+            ring[(int) (written++ % ring.length)].copyFrom(trace, totalNanos);
+        }
+        log.debug("Slow transaction {}: {}ms", trace.getTransactionId(), TimeUnit.NANOSECONDS.toMillis(totalNanos));
+    }
+
+    /**
+     * Снимок журнала, от старых записей к новым
+     */
+    public synchronized List<String> snapshot() {
+        int size = (int) Math.min(written, ring.length);
+        List<String> result = new ArrayList<>(size);
+        for (long i = written - size; i < written; i++) {
+            result.add(ring[(int) (i % ring.length)].toJson());
+        }
+        return result;
+    }
+
+    private static final class Entry {
+        private final long[] stageMicros = new long[STAGES.length];
+        private long capturedAtMillis;
+        private long totalMicros;
+        private byte version;
+        private byte messageType;
+        private int packetLength;
+        private String transactionId;
+        private String merchantId;
+        private String traceId;
+
+        void copyFrom(ProcessingTrace trace, long totalNanos) {
+            capturedAtMillis = System.currentTimeMillis();
+            totalMicros = TimeUnit.NANOSECONDS.toMicros(totalNanos);
+            for (Stage stage : STAGES) {
+                stageMicros[stage.ordinal()] = TimeUnit.NANOSECONDS.toMicros(trace.stageNanos(stage));
+            }
+            version = trace.getVersion();
+            messageType = trace.getMessageType();
+            packetLength = trace.getPacketLength();
+            transactionId = trace.getTransactionId();
+            merchantId = trace.getMerchantId();
+            traceId = trace.hasTraceContext()
+                    ? String.format("%016x%016x", trace.getTraceIdHigh(), trace.getTraceIdLow())
+                    : null;
+        }
+
+        String toJson() {
+            StringBuilder json = new StringBuilder(256);
+            json.append("{\"capturedAt\":\"").append(Instant.ofEpochMilli(capturedAtMillis)).append('"')
+                    .append(",\"transactionId\":").append(quote(transactionId))
+                    .append(",\"merchantId\":").append(quote(merchantId))
+                    .append(",\"traceId\":").append(quote(traceId))
+                    .append(",\"header\":{\"version\":").append(version)
+                    .append(",\"type\":").append(messageType)
+                    .append(",\"length\":").append(packetLength).append('}')
+                    .append(",\"totalMicros\":").append(totalMicros)
+                    .append(",\"stagesMicros\":{");
+            for (Stage stage : STAGES) {
+                if (stage.ordinal() > 0) {
+                    json.append(',');
+                }
+                json.append('"').append(stage.getTag()).append("\":").append(stageMicros[stage.ordinal()]);
+            }
+            return json.append("}}").toString();
+        }
+
+        private static String quote(String value) {
+            if (value == null) {
+                return "null";
+            }
+            return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.acquiringserver.metrics;
+
+/**
+ * Этапы обработки пакета, для каждого ведется отдельная гистограмма времени
+ */
+public enum Stage {
+    FRAME_READ("frame_read"),
+    HMAC_VERIFY("hmac_verify"),
+    RSA_DECRYPT("rsa_decrypt"),
+    AES_DECRYPT("aes_decrypt"),
+    TLV_PARSE("tlv_parse"),
+    DECISION("decision"),
+    DB_SAVE("db_save"),
+    RESPONSE_WRITE("response_write");
+
+    private final String tag;
+
+    Stage(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
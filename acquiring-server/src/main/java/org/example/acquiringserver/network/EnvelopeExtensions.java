@@ -0,0 +1,108 @@
+package org.example.acquiringserver.network;
+
+import org.example.acquiringserver.metrics.MicrosClock;
+import org.example.acquiringserver.metrics.ProcessingTrace;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Расширения конверта пакета версии 0x02.
+ * <p>
+ * Сразу после заголовка идет блок [длина 2 байта][tag][len][value]..., затем пакет
+ * продолжается как в версии 0x01. Неизвестные теги пропускаются, поэтому терминалы
+ * могут добавлять расширения раньше сервера. Ответ на пакет с контекстом трассировки
+ * дополняется расширением с тем же тегом после 15 байт основного ответа.
+ */
+public final class EnvelopeExtensions {
+
+    /**
+     * Контекст трассировки: запрос [traceId 16][время отправки 8],
+     * ответ [время приема 8][начало обработки 8][конец обработки 8], все в мкс от эпохи
+     */
+    public static final byte TAG_TRACE_CONTEXT = 0x01;
+
+    /**
+     * ID терминала, ASCII - ключ ограничения частоты вместо адреса клиента
+     */
+    public static final byte TAG_TERMINAL_ID = 0x02;
+
+    /**
+     * ID мерчанта, ASCII - копия поля TLV, доступная до расшифровки для ограничения частоты.
+     * После расшифровки сверяется с TLV
+     */
+    public static final byte TAG_MERCHANT_ID = 0x03;
+
+    /**
+     * Срок ответа: [бюджет 2 байта] в мс, сколько клиент еще будет ждать ответ после отправки.
+     * Сервер отсчитывает его от приема соединения и бросает пакет, срок которого истек
+     */
+    public static final byte TAG_DEADLINE = 0x04;
+
+    static final int TRACE_CONTEXT_REQUEST_LENGTH = 24;
+    static final int TRACE_CONTEXT_RESPONSE_LENGTH = 24;
+    static final int DEADLINE_LENGTH = 2;
+
+    private EnvelopeExtensions() {
+    }
+
+    /**
+     * Чтение блока расширений с текущей позиции буфера
+     *
+     * @return false, если блок не помещается в пакет или расширение обрезано
+     */
+    public static boolean read(ByteBuffer buffer, ProcessingTrace trace) {
+        if (buffer.remaining() < 2) {
+            return false;
+        }
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length > buffer.remaining()) {
+            return false;
+        }
+        int end = buffer.position() + length;
+        while (buffer.position() < end) {
+            if (end - buffer.position() < 2) {
+                return false;
+            }
+            byte tag = buffer.get();
+            int valueLength = buffer.get() & 0xFF;
+            if (valueLength > end - buffer.position()) {
+                return false;
+            }
+            if (tag == TAG_TRACE_CONTEXT && valueLength == TRACE_CONTEXT_REQUEST_LENGTH) {
+                trace.traceContext(buffer.getLong(), buffer.getLong(), buffer.getLong());
+            } else if (tag == TAG_DEADLINE && valueLength == DEADLINE_LENGTH) {
+                trace.deadline(Short.toUnsignedInt(buffer.getShort()));
+            } else if ((tag == TAG_TERMINAL_ID || tag == TAG_MERCHANT_ID) && valueLength > 0) {
+                String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), valueLength,
+                        StandardCharsets.US_ASCII);
+                buffer.position(buffer.position() + valueLength);
+                trace.identity(tag == TAG_TERMINAL_ID ? value : null, tag == TAG_MERCHANT_ID ? value : null);
+            } else {
+                buffer.position(buffer.position() + valueLength);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Дописывает к ответу отметки времени сервера, если запрос пришел с контекстом трассировки
+     */
+    public static void writeResponse(ByteArrayOutputStream response, ProcessingTrace trace) {
+        if (!trace.hasTraceContext()) {
+            return;
+        }
+        response.write(TAG_TRACE_CONTEXT);
+        response.write(TRACE_CONTEXT_RESPONSE_LENGTH);
+        writeLong(response, trace.getReceivedEpochMicros());
+        writeLong(response, trace.getStartEpochMicros());
+        writeLong(response, MicrosClock.nowMicros());
+    }
+
+    private static void writeLong(ByteArrayOutputStream stream, long value) {
+        for (int i = 56; i >= 0; i -= 8) {
+            stream.write((byte) ((value >> i) & 0xFF));
+        }
+    }
+}
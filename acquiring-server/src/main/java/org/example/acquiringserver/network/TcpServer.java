@@ -1,17 +1,31 @@
 package org.example.acquiringserver.network;
 
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.audit.AuditLog;
+import org.example.acquiringserver.engine.PacketFramer;
+import org.example.acquiringserver.fault.FaultInjector;
+import org.example.acquiringserver.jfr.PacketReceivedEvent;
+import org.example.acquiringserver.metrics.ProcessingMetrics;
+import org.example.acquiringserver.metrics.ProcessingTrace;
+import org.example.acquiringserver.metrics.SlowTransactionLog;
+import org.example.acquiringserver.metrics.Stage;
 import org.example.acquiringserver.service.PacketProcessor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
@@ -19,75 +33,179 @@ import java.util.concurrent.Executors;
 public class TcpServer {
 
     private final PacketProcessor packetProcessor;
+    private final ProcessingMetrics metrics;
+    private final SlowTransactionLog slowTransactionLog;
+    private final AuditLog auditLog;
+    private final FaultInjector faultInjector;
 
     @Value("${server.port}")
     private int port;
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(10);
-    private volatile boolean running = true;
+    /**
+     * Потоки обработки соединений; поток ждет ответ целиком, поэтому их число ограничивает
+     * и число одновременных запросов к эмитенту
+     */
+    @Value("${server.handler-threads:10}")
+    private int handlerThreads;
+
+    private volatile ExecutorService executorService;
+    /**
+     * Отложенная отправка ответов при эмуляции задержки сети; потоки создаются при первой задержке
+     */
+    private final ScheduledExecutorService responseScheduler = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "Delayed-Response");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running = false;
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * Открытие порта и запуск потока приема соединений. Возвращает управление сразу после bind
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port));
+        executorService = Executors.newFixedThreadPool(handlerThreads);
+        running = true;
+        log.info("Server started on port {}", serverSocket.getLocalPort());
+
+        Thread acceptor = new Thread(this::acceptLoop, "TCP-Acceptor");
+        acceptor.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                log.warn("Error closing server socket: {}", e.getMessage());
+            }
+        }
+        if (executorService != null) {
+            executorService.shutdown();
+        }
+        responseScheduler.shutdown();
+    }
 
-    private static final int ENCRYPTED_SESSION_KEY_SIZE = 256;
-    private static final int IV_SIZE = 12;
-    private static final int HMAC_SIZE = 32;
-    private static final int HEADER_SIZE = 4;
+    public boolean isRunning() {
+        return running && serverSocket != null && !serverSocket.isClosed();
+    }
 
-    public void start() throws IOException {
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
-            serverSocket.setReuseAddress(true);
-            log.info("Server started on port {}", port);
+    /**
+     * Фактический порт (актуально при server.port=0)
+     */
+    public int getLocalPort() {
+        return serverSocket.getLocalPort();
+    }
 
-            while (running) {
+    private void acceptLoop() {
+        while (running) {
+            try {
                 Socket clientSocket = serverSocket.accept();
+                long acceptedNanos = System.nanoTime();
                 log.debug("New client connected: {}", clientSocket.getInetAddress());
 
-                executorService.submit(() -> handleClient(clientSocket));
+                executorService.submit(() -> handleClient(clientSocket, acceptedNanos));
+            } catch (SocketException e) {
+                if (running) {
+                    log.error("Server socket error: {}", e.getMessage());
+                }
+            } catch (IOException e) {
+                log.error("Failed to accept connection: {}", e.getMessage());
             }
         }
+        log.info("Server on port {} stopped", port);
     }
 
     @Async
-    public void handleClient(Socket socket) {
-        try (var input = socket.getInputStream();
-             var output = socket.getOutputStream()) {
-
-            byte[] header = new byte[4];
-            int headerBytesRead = input.read(header);
-
-            if (headerBytesRead != 4) {
-                log.error("Invalid header size: {}", headerBytesRead);
+    public void handleClient(Socket socket, long acceptedNanos) {
+        ProcessingTrace trace = ProcessingTrace.current();
+        boolean handedOff = false;
+        try {
+            var input = socket.getInputStream();
+
+            long frameStart = System.nanoTime();
+            trace.begin(frameStart);
+            trace.received(acceptedNanos);
+            trace.client(socket.getInetAddress().getHostAddress());
+            metrics.recordQueueWait(frameStart - acceptedNanos);
+            PacketReceivedEvent receivedEvent = new PacketReceivedEvent();
+            receivedEvent.begin();
+            byte[] fullPacket = PacketFramer.readFrame(input);
+            if (fullPacket == null) {
                 return;
             }
-
-            int totalPacketLength = ((header[2] & 0xFF) << 8) | (header[3] & 0xFF);
-
-            int remainingLength = totalPacketLength - 4;
-            byte[] remainingData = new byte[remainingLength];
-            int bytesRead = input.read(remainingData);
-
-            if (bytesRead != remainingLength) {
-                log.error("Incomplete packet. Expected: {}, Got: {}", remainingLength, bytesRead);
-                return;
+            metrics.recordStage(Stage.FRAME_READ, frameStart);
+            if (receivedEvent.shouldCommit()) {
+                receivedEvent.size = fullPacket.length;
+                receivedEvent.version = fullPacket[0];
+                receivedEvent.messageType = fullPacket[1];
+                receivedEvent.commit();
             }
 
-            byte[] fullPacket = new byte[totalPacketLength];
-            System.arraycopy(header, 0, fullPacket, 0, 4);
-            System.arraycopy(remainingData, 0, fullPacket, 4, remainingLength);
-
-            log.debug("Received {} bytes from client", totalPacketLength);
+            log.debug("Received {} bytes from client", fullPacket.length);
             byte[] response = packetProcessor.processPacket(fullPacket);
 
             if (response != null) {
-                output.write(response);
+                long delayMs = faultInjector.responseDelayMillis(trace.getMerchantId());
+                if (delayMs > 0) {
+                    // Эмулируемая задержка сети не занимает поток-обработчик
+                    handedOff = scheduleResponse(socket, response, delayMs);
+                } else {
+                    writeResponse(socket, response);
+                }
             }
+            slowTransactionLog.captureIfSlow(trace);
+            auditLog.record(trace);
 
         } catch (IOException e) {
             log.error("Client handling error: {}", e.getMessage());
         } finally {
-            try {
-                socket.close();
-            } catch (IOException e) {
-                log.warn("Error closing socket: {}", e.getMessage());
+            trace.end();
+            if (!handedOff) {
+                closeSocket(socket);
             }
         }
     }
-}
\ No newline at end of file
+
+    private boolean scheduleResponse(Socket socket, byte[] response, long delayMs) {
+        try {
+            responseScheduler.schedule(() -> {
+                try {
+                    writeResponse(socket, response);
+                } catch (IOException e) {
+                    log.error("Delayed response failed: {}", e.getMessage());
+                } finally {
+                    closeSocket(socket);
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("Server is stopping, delayed response dropped");
+            return false;
+        }
+    }
+
+    private void writeResponse(Socket socket, byte[] response) throws IOException {
+        long writeStart = System.nanoTime();
+        var output = socket.getOutputStream();
+        output.write(response);
+        output.flush();
+        metrics.recordStage(Stage.RESPONSE_WRITE, writeStart);
+    }
+
+    private static void closeSocket(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.warn("Error closing socket: {}", e.getMessage());
+        }
+    }
+}
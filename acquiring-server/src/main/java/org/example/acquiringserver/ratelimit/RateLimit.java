@@ -0,0 +1,29 @@
+package org.example.acquiringserver.ratelimit;
+
+/**
+ * Ограничение частоты: perSecond пакетов в секунду в среднем и до burst подряд.
+ * Формат - скорость/всплеск, например 20/40
+ */
+public record RateLimit(double perSecond, int burst) {
+
+    public RateLimit {
+        if (!(perSecond > 0) || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive: " + perSecond + "/" + burst);
+        }
+    }
+
+    public static RateLimit parse(String spec) {
+        String[] parts = spec.trim().split("/");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Rate limit must look like 20/40 (per second/burst): " + spec);
+        }
+        return new RateLimit(Double.parseDouble(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+    }
+
+    /**
+     * Интервал между пакетами при средней скорости
+     */
+    long intervalNanos() {
+        return Math.max(1, (long) (1_000_000_000L / perSecond));
+    }
+}
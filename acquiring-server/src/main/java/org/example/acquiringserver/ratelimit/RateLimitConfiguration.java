@@ -0,0 +1,63 @@
+package org.example.acquiringserver.ratelimit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Неизменяемый снимок ограничений: адрес клиента, терминал, мерчант по умолчанию и мерчанты
+ * с особыми ограничениями. Ключи файла - address, terminal, merchant и merchant.ID
+ */
+public final class RateLimitConfiguration {
+
+    private static final String MERCHANT_PREFIX = "merchant.";
+
+    private final RateLimit address;
+    private final RateLimit terminal;
+    private final RateLimit merchant;
+    private final Map<String, RateLimit> merchants;
+
+    private RateLimitConfiguration(RateLimit address, RateLimit terminal, RateLimit merchant,
+                                   Map<String, RateLimit> merchants) {
+        this.address = address;
+        this.terminal = terminal;
+        this.merchant = merchant;
+        this.merchants = merchants;
+    }
+
+    public static RateLimitConfiguration parse(Properties properties, RateLimit address, RateLimit terminal,
+                                               RateLimit merchant) {
+        Map<String, RateLimit> merchants = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key);
+            if (key.equals("address")) {
+                address = RateLimit.parse(value);
+            } else if (key.equals("terminal")) {
+                terminal = RateLimit.parse(value);
+            } else if (key.equals("merchant")) {
+                merchant = RateLimit.parse(value);
+            } else if (key.startsWith(MERCHANT_PREFIX)) {
+                merchants.put(key.substring(MERCHANT_PREFIX.length()), RateLimit.parse(value));
+            } else {
+                throw new IllegalArgumentException("Unknown rate limit key: " + key);
+            }
+        }
+        return new RateLimitConfiguration(address, terminal, merchant, Map.copyOf(merchants));
+    }
+
+    public RateLimit address() {
+        return address;
+    }
+
+    public RateLimit terminal() {
+        return terminal;
+    }
+
+    public RateLimit merchant(String merchantId) {
+        return merchants.getOrDefault(merchantId, merchant);
+    }
+
+    public int merchantOverrideCount() {
+        return merchants.size();
+    }
+}
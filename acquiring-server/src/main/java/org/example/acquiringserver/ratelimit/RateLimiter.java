@@ -0,0 +1,202 @@
+package org.example.acquiringserver.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.engine.AdmissionControl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ограничение частоты пакетов по адресам клиентов, терминалам и мерчантам.
+ * <p>
+ * До HMAC каждый пакет проходит корзину своего адреса клиента: адрес дает TCP соединение,
+ * подменить его нельзя. После расшифровки - корзины терминала и мерчанта из TLV под HMAC;
+ * ID терминала только сужает ограничение адреса, поэтому поток пакетов с каждый раз новым
+ * ID терминала упирается в ограничение адреса. У каждого ключа своя {@link TokenBucket};
+ * корзины лежат в ConcurrentHashMap и удаляются, когда снова полны (ключ неактивен).
+ * <p>
+ * Число ключей каждого вида ограничено max-keys. Новый ключ сверх него не получает корзину:
+ * терминал или мерчант остается под ограничением своего адреса, а новый адрес пропускается
+ * до вытеснения неактивных. Общей корзины для лишних ключей нет - чужой поток не может
+ * исчерпать ее для всех новых терминалов. Такие пакеты считаются в acquirer.rate-limit.overflow.
+ * Ограничения мерчантов читаются из файла rate-limit.config и подменяются целиком при его изменении.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rate-limit.enabled", havingValue = "true")
+public class RateLimiter implements AdmissionControl {
+
+    private final ResourceLoader resourceLoader;
+    private final String location;
+    private final RateLimit defaultAddress;
+    private final RateLimit defaultTerminal;
+    private final RateLimit defaultMerchant;
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, TokenBucket> addresses = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenBucket> terminals = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenBucket> merchants = new ConcurrentHashMap<>();
+    private final Counter addressRejects;
+    private final Counter terminalRejects;
+    private final Counter merchantRejects;
+    private final Counter overflow;
+
+    private volatile RateLimitConfiguration configuration;
+    private volatile long lastModified = Long.MIN_VALUE;
+
+    public RateLimiter(ResourceLoader resourceLoader,
+                       MeterRegistry meterRegistry,
+                       @Value("${rate-limit.config:classpath:rate-limits.properties}") String location,
+                       @Value("${rate-limit.address:200/400}") String address,
+                       @Value("${rate-limit.terminal:20/40}") String terminal,
+                       @Value("${rate-limit.merchant:500/1000}") String merchant,
+                       @Value("${rate-limit.max-keys:100000}") int maxKeys) {
+        this.resourceLoader = resourceLoader;
+        this.location = location;
+        this.defaultAddress = RateLimit.parse(address);
+        this.defaultTerminal = RateLimit.parse(terminal);
+        this.defaultMerchant = RateLimit.parse(merchant);
+        this.maxKeys = maxKeys;
+        this.configuration = RateLimitConfiguration.parse(new Properties(), defaultAddress, defaultTerminal,
+                defaultMerchant);
+        this.addressRejects = meterRegistry.counter("acquirer.rate-limit.rejected", "scope", "address");
+        this.terminalRejects = meterRegistry.counter("acquirer.rate-limit.rejected", "scope", "terminal");
+        this.merchantRejects = meterRegistry.counter("acquirer.rate-limit.rejected", "scope", "merchant");
+        this.overflow = meterRegistry.counter("acquirer.rate-limit.overflow");
+        meterRegistry.gauge("acquirer.rate-limit.keys", this, limiter -> limiter.size());
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Resource resource = resourceLoader.getResource(location);
+        if (!resource.exists()) {
+            log.info("Rate limit configuration {} not found, using address {}, terminal {} and merchant {}",
+                    location, defaultAddress, defaultTerminal, defaultMerchant);
+            return;
+        }
+        configuration = load(resource);
+        lastModified = lastModified(resource);
+        log.info("Rate limit configuration loaded from {} ({} merchant overrides)",
+                location, configuration.merchantOverrideCount());
+    }
+
+    /**
+     * Перечитывание конфигурации, если файл изменился; ошибка в файле оставляет предыдущую
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.reload-interval-ms:5000}",
+            initialDelayString = "${rate-limit.reload-interval-ms:5000}")
+    public void reloadIfModified() {
+        Resource resource = resourceLoader.getResource(location);
+        long modified = lastModified(resource);
+        if (modified == lastModified) {
+            return;
+        }
+        lastModified = modified;
+        try {
+            configuration = load(resource);
+            log.info("Rate limit configuration reloaded from {} ({} merchant overrides)",
+                    location, configuration.merchantOverrideCount());
+        } catch (IOException | RuntimeException e) {
+            log.error("Invalid rate limit configuration {}, keeping previous one: {}", location, e.getMessage());
+        }
+    }
+
+    /**
+     * Удаление корзин неактивных ключей
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval-ms:60000}",
+            initialDelayString = "${rate-limit.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        int before = size();
+        addresses.values().removeIf(bucket -> bucket.isFull(now));
+        terminals.values().removeIf(bucket -> bucket.isFull(now));
+        merchants.values().removeIf(bucket -> bucket.isFull(now));
+        log.debug("Evicted {} idle rate limit keys", before - size());
+    }
+
+    @Override
+    public boolean admitClient(String clientAddress) {
+        if (clientAddress == null) {
+            return true;
+        }
+        long now = System.nanoTime();
+        TokenBucket bucket = bucket(addresses, clientAddress, now);
+        if (bucket != null && !bucket.tryAcquire(configuration.address(), now)) {
+            addressRejects.increment();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean admitTransaction(String terminalId, String merchantId) {
+        RateLimitConfiguration current = configuration;
+        long now = System.nanoTime();
+        if (terminalId != null) {
+            TokenBucket bucket = bucket(terminals, terminalId, now);
+            if (bucket != null && !bucket.tryAcquire(current.terminal(), now)) {
+                terminalRejects.increment();
+                return false;
+            }
+        }
+        if (merchantId != null) {
+            TokenBucket bucket = bucket(merchants, merchantId, now);
+            if (bucket != null && !bucket.tryAcquire(current.merchant(merchantId), now)) {
+                merchantRejects.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public RateLimitConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    public int size() {
+        return addresses.size() + terminals.size() + merchants.size();
+    }
+
+    /**
+     * @return корзина ключа или null, если ключей этого вида уже max-keys
+     */
+    private TokenBucket bucket(ConcurrentHashMap<String, TokenBucket> buckets, String key, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            overflow.increment();
+            return null;
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(now));
+    }
+
+    private RateLimitConfiguration load(Resource resource) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = resource.getInputStream()) {
+            properties.load(input);
+        }
+        return RateLimitConfiguration.parse(properties, defaultAddress, defaultTerminal, defaultMerchant);
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            // Ресурс внутри jar или недоступен - перечитывать нечего
+            return Long.MIN_VALUE;
+        }
+    }
+}
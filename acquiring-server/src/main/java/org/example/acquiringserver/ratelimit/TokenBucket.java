@@ -0,0 +1,43 @@
+package org.example.acquiringserver.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Корзина токенов одного терминала или мерчанта без блокировок.
+ * <p>
+ * Состояние - одно число: момент, когда корзина снова станет полной (GCRA). Пополнение
+ * и списание токена - одна CAS: момент сдвигается на интервал одного токена от
+ * max(момент, сейчас), и токен есть, если сдвинутый момент не дальше burst интервалов
+ * от текущего времени. Ограничение передается при каждой проверке, поэтому новая
+ * конфигурация сразу действует и на существующие корзины.
+ */
+final class TokenBucket {
+
+    private final AtomicLong fullAtNanos;
+
+    TokenBucket(long nowNanos) {
+        this.fullAtNanos = new AtomicLong(nowNanos);
+    }
+
+    boolean tryAcquire(RateLimit limit, long nowNanos) {
+        long interval = limit.intervalNanos();
+        long capacity = interval * limit.burst();
+        while (true) {
+            long fullAt = fullAtNanos.get();
+            long next = Math.max(fullAt, nowNanos) + interval;
+            if (next - nowNanos > capacity) {
+                return false;
+            }
+            if (fullAtNanos.compareAndSet(fullAt, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Корзина снова полная - ключ можно удалить без потери состояния
+     */
+    boolean isFull(long nowNanos) {
+        return fullAtNanos.get() - nowNanos <= 0;
+    }
+}
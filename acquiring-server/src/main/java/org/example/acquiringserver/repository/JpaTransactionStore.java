@@ -0,0 +1,50 @@
+package org.example.acquiringserver.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.engine.TransactionStore;
+import org.example.acquiringserver.model.TransactionEntity;
+import org.example.acquiringserver.retention.TransactionArchive;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Хранение транзакций движка в БД через JPA репозиторий
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JpaTransactionStore implements TransactionStore {
+
+    private final TransactionRepository repository;
+    private final TransactionArchive archive;
+
+    @Override
+    public void save(TransactionEntity transaction) {
+        repository.save(transaction);
+    }
+
+    @Override
+    public void saveAll(List<TransactionEntity> transactions) {
+        repository.saveAll(transactions);
+    }
+
+    /**
+     * Поиск по уникальному индексу transaction_id, затем в архиве
+     */
+    @Override
+    public TransactionEntity findByTransactionId(String transactionId) {
+        TransactionEntity transaction = repository.findByTransactionId(transactionId).orElse(null);
+        if (transaction != null) {
+            return transaction;
+        }
+        try {
+            return archive.findByTransactionId(transactionId).orElse(null);
+        } catch (IOException e) {
+            log.warn("Archive lookup of {} failed: {}", transactionId, e.getMessage());
+            return null;
+        }
+    }
+}
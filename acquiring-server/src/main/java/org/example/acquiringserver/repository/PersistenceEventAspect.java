@@ -0,0 +1,45 @@
+package org.example.acquiringserver.repository;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.example.acquiringserver.jfr.PersistenceCommitEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Запись JFR события на каждое сохранение через TransactionRepository
+ */
+@Aspect
+@Component
+public class PersistenceEventAspect {
+
+    @Around("execution(* org.example.acquiringserver.repository.TransactionRepository+.save*(..))")
+    public Object recordCommit(ProceedingJoinPoint joinPoint) throws Throwable {
+        PersistenceCommitEvent event = new PersistenceCommitEvent();
+        event.begin();
+        boolean succeeded = false;
+        try {
+            Object result = joinPoint.proceed();
+            succeeded = true;
+            return result;
+        } finally {
+            if (event.shouldCommit()) {
+                event.operation = joinPoint.getSignature().getName();
+                event.batchSize = batchSize(joinPoint.getArgs());
+                event.succeeded = succeeded;
+                event.commit();
+            }
+        }
+    }
+
+    private static int batchSize(Object[] args) {
+        if (args.length == 1 && args[0] instanceof Iterable<?> entities) {
+            int count = 0;
+            for (Object ignored : entities) {
+                count++;
+            }
+            return count;
+        }
+        return 1;
+    }
+}
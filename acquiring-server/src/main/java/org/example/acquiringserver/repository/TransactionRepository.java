@@ -1,9 +1,83 @@
 package org.example.acquiringserver.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.acquiringserver.model.TransactionEntity;
+import org.example.acquiringserver.settlement.SettlementRow;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<TransactionEntity, Long> {
+
+    Optional<TransactionEntity> findByTransactionId(String transactionId);
+
+    /**
+     * Потоковое чтение для выгрузки: курсор с fetch size, сущности только для чтения.
+     * Вызывать внутри транзакции и закрывать поток; null в параметре - без ограничения
+     */
+    @Query("select t from TransactionEntity t"
+            + " where (:from is null or t.timestamp >= :from)"
+            + " and (:to is null or t.timestamp < :to)"
+            + " and (:merchantId is null or t.merchantId = :merchantId)"
+            + " and (:status is null or t.status = :status)"
+            + " order by t.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    Stream<TransactionEntity> streamForExport(@Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to,
+                                              @Param("merchantId") String merchantId,
+                                              @Param("status") String status);
+
+    long countByTimestampBefore(LocalDateTime cutoff);
+
+    /**
+     * Время самой старой одобренной транзакции, еще не вошедшей в пакет взаиморасчетов;
+     * null, если таких нет
+     */
+    @Query("select min(t.timestamp) from TransactionEntity t"
+            + " where t.status = 'APPROVED' and t.settlementBatch is null")
+    LocalDateTime findOldestUnsettledTimestamp();
+
+    /**
+     * Удаление архивированных транзакций одним запросом, без загрузки сущностей
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from TransactionEntity t where t.timestamp < :cutoff")
+    int deleteByTimestampBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Страница одобренных транзакций для взаиморасчетов после afterId: еще не рассчитанные
+     * и уже помеченные пакетом batch (продолжение прерванного прогона)
+     */
+    @Query("select new org.example.acquiringserver.settlement.SettlementRow(t.id, t.merchantId, t.amount)"
+            + " from TransactionEntity t"
+            + " where t.status = 'APPROVED' and t.timestamp < :cutoff and t.id > :afterId"
+            + " and (t.settlementBatch is null or t.settlementBatch = :batch)"
+            + " order by t.id")
+    List<SettlementRow> findSettlementPage(@Param("cutoff") LocalDateTime cutoff,
+                                           @Param("afterId") long afterId,
+                                           @Param("batch") String batch,
+                                           Pageable page);
+
+    @Modifying
+    @Transactional
+    @Query("update TransactionEntity t set t.settlementBatch = :batch where t.id in :ids")
+    int markSettled(@Param("batch") String batch, @Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,141 @@
+package org.example.acquiringserver.retention;
+
+import org.example.acquiringserver.export.ColumnarTransactionReader;
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Неизменяемый архивный сегмент: файл данных (колоночная выгрузка TXC1 в gzip) и индекс
+ * рядом с ним - диапазон архивации, минимальное и максимальное время транзакций, число строк
+ * и фильтр Блума по transaction_id. Индекс всех сегментов держится в памяти, файл данных
+ * распаковывается только если индекс не исключил сегмент.
+ */
+public final class ArchiveSegment {
+
+    static final String DATA_SUFFIX = ".txc.gz";
+    static final String INDEX_SUFFIX = ".idx";
+
+    private static final int INDEX_MAGIC = 0x54584931; // "TXI1"
+    private static final LocalDateTime EPOCH = LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC);
+
+    private final Path dataFile;
+    private final long fromMicros;
+    private final long toMicros;
+    private final long minMicros;
+    private final long maxMicros;
+    private final long rows;
+    private final BloomFilter transactionIds;
+
+    private ArchiveSegment(Path dataFile, long fromMicros, long toMicros, long minMicros, long maxMicros,
+                           long rows, BloomFilter transactionIds) {
+        this.dataFile = dataFile;
+        this.fromMicros = fromMicros;
+        this.toMicros = toMicros;
+        this.minMicros = minMicros;
+        this.maxMicros = maxMicros;
+        this.rows = rows;
+        this.transactionIds = transactionIds;
+    }
+
+    /**
+     * Построение индекса по записанному файлу данных. Заодно проверяет, что файл читается целиком
+     *
+     * @param fromMicros   нижняя граница архивации (включительно), Long.MIN_VALUE - без границы
+     * @param toMicros     верхняя граница архивации (не включительно)
+     * @param expectedRows число строк, записанных в файл
+     */
+    static ArchiveSegment index(Path dataFile, long fromMicros, long toMicros, long expectedRows,
+                                double falsePositiveRate) throws IOException {
+        BloomFilter bloom = BloomFilter.create(expectedRows, falsePositiveRate);
+        long[] stats = {Long.MAX_VALUE, Long.MIN_VALUE};
+        long rows = scan(dataFile, transaction -> {
+            bloom.add(transaction.getTransactionId());
+            long micros = epochMicros(transaction.getTimestamp());
+            stats[0] = Math.min(stats[0], micros);
+            stats[1] = Math.max(stats[1], micros);
+        });
+        if (rows != expectedRows) {
+            throw new IOException("Archive segment " + dataFile + " holds " + rows + " rows, expected " + expectedRows);
+        }
+        return new ArchiveSegment(dataFile, fromMicros, toMicros, stats[0], stats[1], rows, bloom);
+    }
+
+    void writeIndex(Path indexFile) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile)))) {
+            output.writeInt(INDEX_MAGIC);
+            output.writeLong(fromMicros);
+            output.writeLong(toMicros);
+            output.writeLong(minMicros);
+            output.writeLong(maxMicros);
+            output.writeLong(rows);
+            transactionIds.writeTo(output);
+        }
+    }
+
+    static ArchiveSegment load(Path indexFile) throws IOException {
+        String name = indexFile.getFileName().toString();
+        Path dataFile = indexFile.resolveSibling(
+                name.substring(0, name.length() - INDEX_SUFFIX.length()) + DATA_SUFFIX);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (input.readInt() != INDEX_MAGIC) {
+                throw new IOException("Not an archive segment index: " + indexFile);
+            }
+            return new ArchiveSegment(dataFile, input.readLong(), input.readLong(), input.readLong(),
+                    input.readLong(), input.readLong(), BloomFilter.readFrom(input));
+        }
+    }
+
+    /**
+     * Последовательное чтение всех транзакций сегмента
+     */
+    public long scan(Consumer<TransactionEntity> consumer) throws IOException {
+        return scan(dataFile, consumer);
+    }
+
+    public boolean mightContain(String transactionId) {
+        return transactionIds.mightContain(transactionId);
+    }
+
+    /**
+     * Пересекается ли время транзакций сегмента с интервалом [fromMicros, toMicros)
+     */
+    public boolean overlaps(long fromMicros, long toMicros) {
+        return rows > 0 && minMicros < toMicros && maxMicros >= fromMicros;
+    }
+
+    public Path getDataFile() {
+        return dataFile;
+    }
+
+    public long getToMicros() {
+        return toMicros;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    static long epochMicros(LocalDateTime timestamp) {
+        return ChronoUnit.MICROS.between(EPOCH, timestamp);
+    }
+
+    private static long scan(Path dataFile, Consumer<TransactionEntity> consumer) throws IOException {
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(dataFile), 64 * 1024)) {
+            return ColumnarTransactionReader.read(Channels.newChannel(input), consumer);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.acquiringserver.retention;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.export.ExportFilter;
+import org.example.acquiringserver.export.ExportFormat;
+import org.example.acquiringserver.export.TransactionExporter;
+import org.example.acquiringserver.repository.TransactionRepository;
+import org.example.acquiringserver.settlement.SettlementService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Перенос старых транзакций из таблицы в архивные сегменты.
+ * <p>
+ * За один прогон в сегмент уходят строки с временем от конца предыдущего сегмента до
+ * now - retention.max-age; строки удаляются из таблицы только после записи сегмента.
+ * Если процесс упал между записью сегмента и удалением, следующий прогон сначала
+ * дочищает таблицу до конца последнего сегмента - строка попадает в архив ровно один раз.
+ * <p>
+ * Взаиморасчеты читают только таблицу, поэтому при включенном SettlementService архивация
+ * останавливается перед самой старой одобренной транзакцией без пакета взаиморасчетов: она и
+ * все более поздние строки ждут расчета. Насколько архивация отстала от retention.max-age из-за
+ * нерассчитанных строк, показывает acquirer.archive.settlement-holdback.seconds: растущее значение
+ * значит, что расчет не проходит. Без SettlementService пакетов нет, и граница не сдвигается.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "retention.enabled", havingValue = "true", matchIfMissing = true)
+public class RetentionService {
+
+    private final TransactionRepository repository;
+    private final TransactionExporter exporter;
+    private final TransactionArchive archive;
+    private final Duration maxAge;
+    private final ObjectProvider<SettlementService> settlement;
+    private final Counter archivedRows;
+    private final AtomicLong settlementHoldbackSeconds = new AtomicLong();
+
+    public RetentionService(TransactionRepository repository,
+                            TransactionExporter exporter,
+                            TransactionArchive archive,
+                            @Value("${retention.max-age:P30D}") Duration maxAge,
+                            ObjectProvider<SettlementService> settlement,
+                            MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.exporter = exporter;
+        this.archive = archive;
+        this.maxAge = maxAge;
+        this.settlement = settlement;
+        this.archivedRows = meterRegistry.counter("acquirer.archive.archived.rows");
+        meterRegistry.gauge("acquirer.archive.settlement-holdback.seconds", settlementHoldbackSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${retention.interval-ms:3600000}",
+            initialDelayString = "${retention.interval-ms:3600000}")
+    public void scheduledArchive() {
+        try {
+            archiveOlderThan(LocalDateTime.now().minus(maxAge));
+        } catch (IOException | RuntimeException e) {
+            log.error("Transaction archiving failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Архивация транзакций старше cutoff
+     *
+     * @return сегмент или null, если архивировать нечего
+     */
+    public synchronized ArchiveSegment archiveOlderThan(LocalDateTime cutoff) throws IOException {
+        LocalDateTime to = settledBefore(cutoff.truncatedTo(ChronoUnit.MICROS));
+        long upToMicros = archive.archivedUpToMicros();
+        LocalDateTime from = upToMicros == Long.MIN_VALUE ? null : toDateTime(upToMicros);
+        if (from != null) {
+            int leftovers = repository.deleteByTimestampBefore(from);
+            if (leftovers > 0) {
+                log.warn("Removed {} already archived transactions left by an interrupted run", leftovers);
+            }
+            if (!to.isAfter(from)) {
+                return null;
+            }
+        }
+        if (repository.countByTimestampBefore(to) == 0) {
+            return null;
+        }
+
+        long start = System.nanoTime();
+        ArchiveSegment segment = archive.write(
+                from == null ? Long.MIN_VALUE : upToMicros,
+                ArchiveSegment.epochMicros(to),
+                channel -> exporter.export(new ExportFilter(from, to, null, null), ExportFormat.COLUMNAR, channel).rows());
+        int deleted = repository.deleteByTimestampBefore(to);
+        if (deleted != segment.getRows()) {
+            log.warn("Archived {} transactions but deleted {}", segment.getRows(), deleted);
+        }
+        archivedRows.increment(segment.getRows());
+        log.info("Archived {} transactions older than {} to {} in {} ms", segment.getRows(), to,
+                segment.getDataFile().getFileName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return segment;
+    }
+
+    /**
+     * Граница архивации не позже самой старой нерассчитанной одобренной транзакции,
+     * если взаиморасчеты включены
+     */
+    private LocalDateTime settledBefore(LocalDateTime cutoff) {
+        LocalDateTime unsettled = settlement.getIfAvailable() == null
+                ? null
+                : repository.findOldestUnsettledTimestamp();
+        if (unsettled == null || !unsettled.isBefore(cutoff)) {
+            settlementHoldbackSeconds.set(0);
+            return cutoff;
+        }
+        settlementHoldbackSeconds.set(Duration.between(unsettled, cutoff).toSeconds());
+        log.warn("Archiving stops at unsettled transaction from {} instead of {}", unsettled, cutoff);
+        return unsettled.truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static LocalDateTime toDateTime(long epochMicros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMicros, 1_000_000), 0, ZoneOffset.UTC)
+                .plus(Math.floorMod(epochMicros, 1_000_000), ChronoUnit.MICROS);
+    }
+}
@@ -0,0 +1,180 @@
+package org.example.acquiringserver.retention;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.model.TransactionEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Хранилище архивных сегментов в каталоге retention.archive-dir.
+ * <p>
+ * Сегмент считается записанным, когда рядом с файлом данных появился индекс: оба пишутся
+ * во временные файлы и переименовываются, индекс - последним. Файлы данных без индекса
+ * остаются от прерванной архивации и удаляются при старте.
+ */
+@Slf4j
+@Component
+public class TransactionArchive {
+
+    private final Path directory;
+    private final double falsePositiveRate;
+    private final List<ArchiveSegment> segments = new CopyOnWriteArrayList<>();
+
+    public TransactionArchive(@Value("${retention.archive-dir:archive}") String directory,
+                              @Value("${retention.bloom-false-positive-rate:0.01}") double falsePositiveRate,
+                              MeterRegistry meterRegistry) {
+        this.directory = Path.of(directory);
+        this.falsePositiveRate = falsePositiveRate;
+        meterRegistry.gauge("acquirer.archive.segments", segments, List::size);
+        meterRegistry.gauge("acquirer.archive.rows", this, TransactionArchive::rowCount);
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<ArchiveSegment> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(ArchiveSegment.INDEX_SUFFIX)) {
+                    loaded.add(ArchiveSegment.load(file));
+                } else if (name.endsWith(".tmp") || (name.endsWith(ArchiveSegment.DATA_SUFFIX)
+                        && !Files.exists(indexFileOf(name)))) {
+                    log.warn("Removing incomplete archive file {}", file);
+                    Files.delete(file);
+                }
+            }
+        }
+        loaded.sort(Comparator.comparingLong(ArchiveSegment::getToMicros));
+        segments.addAll(loaded);
+        log.info("Transaction archive {}: {} segments, {} rows", directory.toAbsolutePath(), segments.size(), rowCount());
+    }
+
+    /**
+     * Верхняя граница уже архивированного времени (в микросекундах UTC); Long.MIN_VALUE - архив пуст
+     */
+    public long archivedUpToMicros() {
+        long upTo = Long.MIN_VALUE;
+        for (ArchiveSegment segment : segments) {
+            upTo = Math.max(upTo, segment.getToMicros());
+        }
+        return upTo;
+    }
+
+    /**
+     * Запись нового сегмента с транзакциями интервала [fromMicros, toMicros)
+     *
+     * @param writer пишет колоночную выгрузку в канал и возвращает число строк
+     */
+    public ArchiveSegment write(long fromMicros, long toMicros, SegmentWriter writer) throws IOException {
+        Files.createDirectories(directory);
+        String baseName = "segment-" + toMicros;
+        Path dataFile = directory.resolve(baseName + ArchiveSegment.DATA_SUFFIX);
+        Path indexFile = directory.resolve(baseName + ArchiveSegment.INDEX_SUFFIX);
+        Path dataTemp = directory.resolve(baseName + ArchiveSegment.DATA_SUFFIX + ".tmp");
+        Path indexTemp = directory.resolve(baseName + ArchiveSegment.INDEX_SUFFIX + ".tmp");
+
+        long rows;
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(dataTemp), 64 * 1024);
+             WritableByteChannel channel = Channels.newChannel(output)) {
+            rows = writer.write(channel);
+        }
+        ArchiveSegment indexed = ArchiveSegment.index(dataTemp, fromMicros, toMicros, rows, falsePositiveRate);
+        indexed.writeIndex(indexTemp);
+        Files.move(dataTemp, dataFile, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(indexTemp, indexFile, StandardCopyOption.ATOMIC_MOVE);
+
+        ArchiveSegment segment = ArchiveSegment.load(indexFile);
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Поиск транзакции в архиве; сегменты, исключенные фильтром Блума, не читаются
+     */
+    public Optional<TransactionEntity> findByTransactionId(String transactionId) throws IOException {
+        TransactionEntity[] found = new TransactionEntity[1];
+        for (int i = segments.size() - 1; i >= 0 && found[0] == null; i--) {
+            ArchiveSegment segment = segments.get(i);
+            if (segment.mightContain(transactionId)) {
+                segment.scan(transaction -> {
+                    if (found[0] == null && transactionId.equals(transaction.getTransactionId())) {
+                        found[0] = transaction;
+                    }
+                });
+            }
+        }
+        return Optional.ofNullable(found[0]);
+    }
+
+    /**
+     * Архивные транзакции с временем в [from, to); читаются только сегменты, пересекающие интервал
+     *
+     * @return число найденных транзакций
+     */
+    public long findByTimeRange(LocalDateTime from, LocalDateTime to, Consumer<TransactionEntity> consumer)
+            throws IOException {
+        long fromMicros = ArchiveSegment.epochMicros(from);
+        long toMicros = ArchiveSegment.epochMicros(to);
+        long[] matched = new long[1];
+        for (ArchiveSegment segment : segments) {
+            if (segment.overlaps(fromMicros, toMicros)) {
+                segment.scan(transaction -> {
+                    long micros = ArchiveSegment.epochMicros(transaction.getTimestamp());
+                    if (micros >= fromMicros && micros < toMicros) {
+                        matched[0]++;
+                        consumer.accept(transaction);
+                    }
+                });
+            }
+        }
+        return matched[0];
+    }
+
+    public List<ArchiveSegment> getSegments() {
+        return List.copyOf(segments);
+    }
+
+    public long rowCount() {
+        long rows = 0;
+        for (ArchiveSegment segment : segments) {
+            rows += segment.getRows();
+        }
+        return rows;
+    }
+
+    private Path indexFileOf(String dataFileName) {
+        return directory.resolve(dataFileName.substring(0, dataFileName.length() - ArchiveSegment.DATA_SUFFIX.length())
+                + ArchiveSegment.INDEX_SUFFIX);
+    }
+
+    /**
+     * Запись содержимого сегмента
+     */
+    @FunctionalInterface
+    public interface SegmentWriter {
+
+        long write(WritableByteChannel channel) throws IOException;
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.acquiringserver.service;
+
+/**
+ * Коды ответа сервера (первый байт ответа).
+ * <p>
+ * Отклонение и ошибка обработки исторически делят код 0x01 и различаются
+ * содержимым поля кода авторизации ("DECLIN" / "ERROR").
+ */
+public enum ResponseCode {
+    APPROVED(0x00),
+    DECLINED(0x01),
+    PROCESSING_ERROR(0x01),
+    UNSUPPORTED_VERSION(0x02),
+    UNSUPPORTED_TYPE(0x03),
+    LENGTH_MISMATCH(0x04),
+    SERVICE_UNAVAILABLE(0x05),
+    HMAC_FAILED(0x06),
+    // Запрос статуса: транзакция не найдена ни в кэше, ни в БД, ни в архиве
+    TRANSACTION_NOT_FOUND(0x07),
+    // Превышено ограничение частоты терминала или мерчанта; пакет отклонен до расшифровки
+    RATE_LIMITED(0x08),
+    // Ответ не отправляется (эмуляция таймаута)
+    NO_RESPONSE(-1),
+    // Срок из конверта истек, клиент уже не ждет: работа брошена, ответ не отправляется
+    DEADLINE_EXCEEDED(-1);
+
+    private final int code;
+
+    ResponseCode(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+}
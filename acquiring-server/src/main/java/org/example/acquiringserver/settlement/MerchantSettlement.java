@@ -0,0 +1,8 @@
+package org.example.acquiringserver.settlement;
+
+/**
+ * Итог взаиморасчетов мерчанта за пакет: число одобренных транзакций и сумма к перечислению
+ * в минимальных единицах валюты
+ */
+public record MerchantSettlement(String merchantId, long transactionCount, long amount) {
+}
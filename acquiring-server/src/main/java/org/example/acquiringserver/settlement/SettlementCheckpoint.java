@@ -0,0 +1,124 @@
+package org.example.acquiringserver.settlement;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Контрольная точка прогона: пакет, граница, последний обработанный id и накопленные итоги.
+ * <p>
+ * Пишется после отметки каждой страницы, во временный файл с атомарным переименованием.
+ * Формат - текст: заголовок, строки key=value, затем строки merchantId;count;amount
+ */
+final class SettlementCheckpoint {
+
+    private static final String HEADER = "# settlement-checkpoint v1";
+    private static final char SEPARATOR = ';';
+
+    final String batchId;
+    final LocalDateTime cutoff;
+    private final Map<String, long[]> totals = new TreeMap<>();
+    private long lastId;
+    private long rows;
+
+    SettlementCheckpoint(String batchId, LocalDateTime cutoff) {
+        this.batchId = batchId;
+        this.cutoff = cutoff;
+    }
+
+    void add(Map<String, long[]> pageTotals, long pageLastId, int pageRows) {
+        pageTotals.forEach((merchantId, total) -> {
+            long[] accumulated = totals.computeIfAbsent(merchantId, key -> new long[2]);
+            accumulated[0] += total[0];
+            accumulated[1] += total[1];
+        });
+        lastId = pageLastId;
+        rows += pageRows;
+    }
+
+    long lastId() {
+        return lastId;
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    List<MerchantSettlement> merchants() {
+        List<MerchantSettlement> merchants = new ArrayList<>(totals.size());
+        totals.forEach((merchantId, total) -> merchants.add(new MerchantSettlement(merchantId, total[0], total[1])));
+        return merchants;
+    }
+
+    void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                writer.write("batch=" + batchId);
+                writer.newLine();
+                writer.write("cutoff=" + cutoff);
+                writer.newLine();
+                writer.write("last-id=" + lastId);
+                writer.newLine();
+                writer.write("rows=" + rows);
+                writer.newLine();
+                for (Map.Entry<String, long[]> total : totals.entrySet()) {
+                    writer.write(total.getKey());
+                    writer.write(SEPARATOR);
+                    writer.write(Long.toString(total.getValue()[0]));
+                    writer.write(SEPARATOR);
+                    writer.write(Long.toString(total.getValue()[1]));
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    static SettlementCheckpoint read(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                throw new IOException("Not a settlement checkpoint: " + file);
+            }
+            String batchId = value(reader.readLine(), "batch", file);
+            LocalDateTime cutoff = LocalDateTime.parse(value(reader.readLine(), "cutoff", file));
+            SettlementCheckpoint checkpoint = new SettlementCheckpoint(batchId, cutoff);
+            checkpoint.lastId = Long.parseLong(value(reader.readLine(), "last-id", file));
+            checkpoint.rows = Long.parseLong(value(reader.readLine(), "rows", file));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] parts = line.split(String.valueOf(SEPARATOR));
+                if (parts.length != 3) {
+                    throw new IOException("Malformed settlement checkpoint line in " + file + ": " + line);
+                }
+                checkpoint.totals.put(parts[0], new long[]{Long.parseLong(parts[1]), Long.parseLong(parts[2])});
+            }
+            return checkpoint;
+        }
+    }
+
+    private static String value(String line, String key, Path file) throws IOException {
+        if (line == null || !line.startsWith(key + "=")) {
+            throw new IOException("Missing " + key + " in settlement checkpoint " + file);
+        }
+        return line.substring(key.length() + 1);
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.acquiringserver.settlement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Параллельный неттинг страницы транзакций по мерчантам.
+ * <p>
+ * Строки раскладываются по партициям хешем мерчанта, поэтому каждый мерчант целиком
+ * попадает в одну партицию: листовые задачи суммируют свои партиции без общих данных,
+ * а объединение результатов - простое слияние непересекающихся таблиц.
+ */
+final class SettlementNetting {
+
+    private SettlementNetting() {
+    }
+
+    /**
+     * @return мерчант -> [число транзакций, сумма]
+     */
+    static Map<String, long[]> net(List<SettlementRow> rows, int partitions, ForkJoinPool pool) {
+        List<List<SettlementRow>> partitioned = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            partitioned.add(new ArrayList<>(rows.size() / partitions + 1));
+        }
+        for (SettlementRow row : rows) {
+            partitioned.get(Math.floorMod(row.merchantId().hashCode(), partitions)).add(row);
+        }
+        return pool.invoke(new NetTask(partitioned, 0, partitions));
+    }
+
+    private static final class NetTask extends RecursiveTask<Map<String, long[]>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<List<SettlementRow>> partitions;
+        private final int from;
+        private final int to;
+
+        NetTask(List<List<SettlementRow>> partitions, int from, int to) {
+            this.partitions = partitions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<String, long[]> compute() {
+            if (to - from == 1) {
+                Map<String, long[]> totals = new HashMap<>();
+                for (SettlementRow row : partitions.get(from)) {
+                    long[] total = totals.computeIfAbsent(row.merchantId(), key -> new long[2]);
+                    total[0]++;
+                    total[1] += row.amount();
+                }
+                return totals;
+            }
+            int middle = (from + to) >>> 1;
+            NetTask left = new NetTask(partitions, from, middle);
+            left.fork();
+            Map<String, long[]> totals = new NetTask(partitions, middle, to).compute();
+            totals.putAll(left.join());
+            return totals;
+        }
+    }
+}
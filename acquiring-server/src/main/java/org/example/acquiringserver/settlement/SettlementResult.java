@@ -0,0 +1,21 @@
+package org.example.acquiringserver.settlement;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Итог прогона взаиморасчетов; resumed - прогон продолжен с контрольной точки прерванного
+ */
+public record SettlementResult(String batchId,
+                               LocalDate businessDay,
+                               long rows,
+                               List<MerchantSettlement> merchants,
+                               Path reportFile,
+                               boolean resumed,
+                               long elapsedMillis) {
+
+    public long totalAmount() {
+        return merchants.stream().mapToLong(MerchantSettlement::amount).sum();
+    }
+}
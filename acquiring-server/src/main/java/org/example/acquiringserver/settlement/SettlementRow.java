@@ -0,0 +1,7 @@
+package org.example.acquiringserver.settlement;
+
+/**
+ * Одобренная транзакция в объеме, нужном для взаиморасчетов; читается проекцией без загрузки сущности
+ */
+public record SettlementRow(Long id, String merchantId, Integer amount) {
+}
@@ -0,0 +1,185 @@
+package org.example.acquiringserver.settlement;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Взаиморасчеты с мерчантами за операционный день.
+ * <p>
+ * Одобренные транзакции до границы дня (следующий день, settlement.cutoff-time), еще не
+ * вошедшие ни в один пакет, читаются страницами по возрастанию id. Каждая страница
+ * сворачивается по мерчантам в отдельном ForkJoinPool, строки помечаются пакетом
+ * короткими update по settlement.update-batch-size id, после чего пишется контрольная
+ * точка. Авторизации при этом не блокируются: чтение идет проекцией, а каждая пачка
+ * update - отдельная короткая транзакция.
+ * <p>
+ * Прерванный прогон продолжается с контрольной точки. Строки, помеченные после последней
+ * контрольной точки, снова попадают в выборку (она включает строки своего же пакета после
+ * last-id) и учитываются ровно один раз. По завершении пишется отчет settlement-день.csv,
+ * а контрольная точка удаляется.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "settlement.enabled", havingValue = "true", matchIfMissing = true)
+public class SettlementService {
+
+    static final String REPORT_HEADER = "merchant_id,transaction_count,amount";
+
+    private final TransactionRepository repository;
+    private final Path outputDir;
+    private final LocalTime cutoffTime;
+    private final int pageSize;
+    private final int updateBatchSize;
+    private final int partitions;
+    private final ForkJoinPool pool;
+    private final Counter settledRows;
+
+    public SettlementService(TransactionRepository repository,
+                             @Value("${settlement.output-dir:settlement}") String outputDir,
+                             @Value("${settlement.cutoff-time:00:00}") LocalTime cutoffTime,
+                             @Value("${settlement.page-size:50000}") int pageSize,
+                             @Value("${settlement.update-batch-size:1000}") int updateBatchSize,
+                             @Value("${settlement.parallelism:0}") int parallelism,
+                             MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.outputDir = Path.of(outputDir);
+        this.cutoffTime = cutoffTime;
+        this.pageSize = pageSize;
+        this.updateBatchSize = updateBatchSize;
+        // По умолчанию половина ядер: вторая остается потокам авторизации
+        int threads = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.partitions = threads * 4;
+        this.pool = new ForkJoinPool(threads);
+        this.settledRows = meterRegistry.counter("acquirer.settlement.rows");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Взаиморасчеты за вчерашний день
+     */
+    @Scheduled(cron = "${settlement.cron:0 30 0 * * *}")
+    public void scheduledSettlement() {
+        try {
+            settle(LocalDate.now().minusDays(1));
+        } catch (IOException | RuntimeException e) {
+            log.error("Settlement failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Прогон взаиморасчетов за день или продолжение прерванного
+     *
+     * @return итог или null, если день уже рассчитан
+     */
+    public synchronized SettlementResult settle(LocalDate businessDay) throws IOException {
+        long start = System.nanoTime();
+        Path reportFile = outputDir.resolve("settlement-" + businessDay + ".csv");
+        Path checkpointFile = outputDir.resolve("settlement-" + businessDay + ".checkpoint");
+
+        boolean resumed = Files.exists(checkpointFile);
+        SettlementCheckpoint checkpoint;
+        if (resumed) {
+            checkpoint = SettlementCheckpoint.read(checkpointFile);
+            log.info("Resuming settlement {} after id {} ({} rows settled)",
+                    checkpoint.batchId, checkpoint.lastId(), checkpoint.rows());
+        } else if (Files.exists(reportFile)) {
+            log.info("Business day {} is already settled: {}", businessDay, reportFile);
+            return null;
+        } else {
+            checkpoint = new SettlementCheckpoint("SETTLE-" + businessDay, businessDay.plusDays(1).atTime(cutoffTime));
+        }
+
+        List<SettlementRow> page;
+        do {
+            page = repository.findSettlementPage(checkpoint.cutoff, checkpoint.lastId(), checkpoint.batchId,
+                    PageRequest.of(0, pageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            Map<String, long[]> pageTotals = SettlementNetting.net(page, partitions, pool);
+            markSettled(page, checkpoint.batchId);
+            checkpoint.add(pageTotals, page.get(page.size() - 1).id(), page.size());
+            checkpoint.write(checkpointFile);
+            settledRows.increment(page.size());
+            log.debug("Settlement {}: {} rows settled", checkpoint.batchId, checkpoint.rows());
+        } while (page.size() == pageSize);
+
+        List<MerchantSettlement> merchants = checkpoint.merchants();
+        writeReport(reportFile, merchants);
+        Files.deleteIfExists(checkpointFile);
+
+        SettlementResult result = new SettlementResult(checkpoint.batchId, businessDay, checkpoint.rows(),
+                merchants, reportFile, resumed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Settlement {} completed: {} transactions, {} merchants, amount {} in {} ms",
+                result.batchId(), result.rows(), merchants.size(), result.totalAmount(), result.elapsedMillis());
+        return result;
+    }
+
+    private void markSettled(List<SettlementRow> page, String batchId) {
+        List<Long> ids = new ArrayList<>(Math.min(updateBatchSize, page.size()));
+        for (SettlementRow row : page) {
+            ids.add(row.id());
+            if (ids.size() == updateBatchSize) {
+                repository.markSettled(batchId, ids);
+                ids.clear();
+            }
+        }
+        if (!ids.isEmpty()) {
+            repository.markSettled(batchId, ids);
+        }
+    }
+
+    /**
+     * Отчет: строка на мерчанта и итоговая строка TOTAL; пишется целиком или не появляется вовсе
+     */
+    private static void writeReport(Path file, List<MerchantSettlement> merchants) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            long count = 0;
+            long amount = 0;
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(REPORT_HEADER);
+                writer.newLine();
+                for (MerchantSettlement merchant : merchants) {
+                    writer.write(merchant.merchantId() + "," + merchant.transactionCount() + "," + merchant.amount());
+                    writer.newLine();
+                    count += merchant.transactionCount();
+                    amount += merchant.amount();
+                }
+                writer.write("TOTAL," + count + "," + amount);
+                writer.newLine();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.acquiringserver.velocity;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.acquiringserver.engine.Authorizer;
+import org.example.acquiringserver.model.TransactionEntity;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Проверка скорости перед следующим решением (леджером).
+ * <p>
+ * Правило DECLINE отклоняет транзакцию с SUSPICIOUS_ACTIVITY, не доходя до списания;
+ * правило FLAG только помечает транзакцию (velocity_flag) и пропускает ее дальше
+ */
+@Slf4j
+public class VelocityAuthorizer implements Authorizer {
+
+    public static final String SUSPICIOUS_ACTIVITY = "SUSPICIOUS_ACTIVITY";
+
+    private final VelocityEngine velocity;
+    private final Authorizer next;
+    private final Counter declined;
+    private final Counter flagged;
+
+    public VelocityAuthorizer(VelocityEngine velocity, Authorizer next, MeterRegistry meterRegistry) {
+        this.velocity = velocity;
+        this.next = next;
+        this.declined = meterRegistry.counter("acquirer.velocity.hits", "action", "decline");
+        this.flagged = meterRegistry.counter("acquirer.velocity.hits", "action", "flag");
+    }
+
+    @Override
+    public String authorize(TransactionEntity transaction) {
+        String declineReason = check(transaction);
+        return declineReason != null ? declineReason : next.authorize(transaction);
+    }
+
+    @Override
+    public CompletableFuture<String> authorizeAsync(TransactionEntity transaction) {
+        String declineReason = check(transaction);
+        return declineReason != null
+                ? CompletableFuture.completedFuture(declineReason)
+                : next.authorizeAsync(transaction);
+    }
+
+    /**
+     * @return SUSPICIOUS_ACTIVITY по правилу DECLINE или null; правило FLAG только помечает транзакцию
+     */
+    private String check(TransactionEntity transaction) {
+        VelocityRule rule = velocity.check(transaction.getPan(), transaction.getMerchantId(), transaction.getAmount());
+        if (rule != null) {
+            if (rule.action() == VelocityRule.Action.DECLINE) {
+                declined.increment();
+                log.info("Velocity rule {} declined transaction {}", rule.name(), transaction.getTransactionId());
+                return SUSPICIOUS_ACTIVITY;
+            }
+            flagged.increment();
+            transaction.setVelocityFlag(rule.name());
+        }
+        return null;
+    }
+
+    @Override
+    public void reverse(TransactionEntity transaction) {
+        // Попытка остается в окнах скорости: повтор после сбоя - тоже попытка
+        next.reverse(transaction);
+    }
+}
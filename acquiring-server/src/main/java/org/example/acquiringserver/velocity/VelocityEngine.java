@@ -0,0 +1,99 @@
+package org.example.acquiringserver.velocity;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Проверка скорости транзакций по PAN и мерчанту в скользящих окнах.
+ * <p>
+ * Каждая попытка авторизации учитывается в окнах своего PAN и мерчанта, после чего
+ * правила сравнивают окна с порогами. Все в памяти, без обращения к БД и без блокировок:
+ * поиск ключа - чтение ConcurrentHashMap, обновление - CAS по ячейкам корзин.
+ * Ключи без операций дольше самого длинного окна удаляются {@link #evictIdle()}; попытка,
+ * пришедшая в момент удаления своего ключа, может не учесться - ее ключ и так пуст.
+ */
+public class VelocityEngine {
+
+    private final WindowLayout layout;
+    private final VelocityRule[] rules;
+    private final Clock clock;
+    private final Map<String, WindowCounters> pans = new ConcurrentHashMap<>();
+    private final Map<String, WindowCounters> merchants = new ConcurrentHashMap<>();
+
+    public VelocityEngine(List<VelocityWindow> windows, List<VelocityRule> rules, Clock clock) {
+        this.layout = new WindowLayout(windows);
+        this.rules = rules.toArray(new VelocityRule[0]);
+        this.clock = clock;
+    }
+
+    /**
+     * Учет попытки и проверка правил
+     *
+     * @return сработавшее правило (DECLINE в приоритете над FLAG) или null
+     */
+    public VelocityRule check(String pan, String merchantId, long amount) {
+        long now = clock.millis();
+        WindowCounters panCounters = counters(pans, pan, now);
+        WindowCounters merchantCounters = counters(merchants, merchantId, now);
+        panCounters.add(layout, now, amount);
+        merchantCounters.add(layout, now, amount);
+
+        VelocityRule flagged = null;
+        for (VelocityRule rule : rules) {
+            WindowCounters counters = rule.scope() == VelocityRule.Scope.PAN ? panCounters : merchantCounters;
+            int field = rule.metric() == VelocityRule.Metric.COUNT ? WindowCounters.COUNT : WindowCounters.AMOUNT;
+            if (counters.sum(layout, rule.window(), field, now) > rule.threshold()) {
+                if (rule.action() == VelocityRule.Action.DECLINE) {
+                    return rule;
+                }
+                if (flagged == null) {
+                    flagged = rule;
+                }
+            }
+        }
+        return flagged;
+    }
+
+    /**
+     * Число транзакций PAN в окне; 0, если PAN неизвестен
+     */
+    public long panCount(String pan, int window) {
+        WindowCounters counters = pans.get(pan);
+        return counters == null ? 0 : counters.sum(layout, window, WindowCounters.COUNT, clock.millis());
+    }
+
+    /**
+     * Сумма транзакций мерчанта в окне; 0, если мерчант неизвестен
+     */
+    public long merchantAmount(String merchantId, int window) {
+        WindowCounters counters = merchants.get(merchantId);
+        return counters == null ? 0 : counters.sum(layout, window, WindowCounters.AMOUNT, clock.millis());
+    }
+
+    /**
+     * Удаление ключей, по которым не было операций дольше самого длинного окна
+     *
+     * @return число удаленных ключей
+     */
+    public int evictIdle() {
+        long threshold = clock.millis() - layout.longestWindowMillis();
+        int before = pans.size() + merchants.size();
+        pans.values().removeIf(counters -> counters.idleSince(threshold));
+        merchants.values().removeIf(counters -> counters.idleSince(threshold));
+        return before - pans.size() - merchants.size();
+    }
+
+    public int size() {
+        return pans.size() + merchants.size();
+    }
+
+    private WindowCounters counters(Map<String, WindowCounters> map, String key, long now) {
+        WindowCounters counters = map.get(key);
+        if (counters != null) {
+            return counters;
+        }
+        return map.computeIfAbsent(key, k -> new WindowCounters(layout.totalBuckets(), now));
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.acquiringserver.velocity;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Периодическое удаление неактивных ключей проверки скорости
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "velocity.enabled", havingValue = "true", matchIfMissing = true)
+public class VelocityMaintenance {
+
+    private final VelocityEngine velocity;
+
+    public VelocityMaintenance(VelocityEngine velocity, MeterRegistry meterRegistry) {
+        this.velocity = velocity;
+        meterRegistry.gauge("acquirer.velocity.keys", velocity, VelocityEngine::size);
+    }
+
+    @Scheduled(fixedDelayString = "${velocity.eviction-interval-ms:60000}",
+            initialDelayString = "${velocity.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        int evicted = velocity.evictIdle();
+        if (evicted > 0) {
+            log.debug("Evicted {} idle velocity keys", evicted);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.acquiringserver.velocity;
+
+import java.util.List;
+
+/**
+ * Правило проверки скорости: значение метрики ключа в окне больше порога.
+ * Формат - SCOPE:окно:METRIC&gt;порог:ACTION, например PAN:1m:COUNT&gt;30:DECLINE
+ */
+public record VelocityRule(String name, Scope scope, int window, Metric metric, long threshold, Action action) {
+
+    public enum Scope { PAN, MERCHANT }
+
+    public enum Metric { COUNT, AMOUNT }
+
+    public enum Action { DECLINE, FLAG }
+
+    /**
+     * @param windows окна движка; окно правила ищется по имени
+     */
+    public static VelocityRule parse(String spec, List<VelocityWindow> windows) {
+        String[] parts = spec.trim().split(":");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Velocity rule must look like PAN:1m:COUNT>30:DECLINE: " + spec);
+        }
+        String[] condition = parts[2].trim().split(">");
+        if (condition.length != 2) {
+            throw new IllegalArgumentException("Invalid velocity rule condition: " + spec);
+        }
+        String windowName = parts[1].trim();
+        int window = -1;
+        for (int i = 0; i < windows.size(); i++) {
+            if (windows.get(i).name().equals(windowName)) {
+                window = i;
+            }
+        }
+        if (window < 0) {
+            throw new IllegalArgumentException("Velocity rule refers to unknown window " + windowName + ": " + spec);
+        }
+        Scope scope = Scope.valueOf(parts[0].trim());
+        Metric metric = Metric.valueOf(condition[0].trim());
+        long threshold = Long.parseLong(condition[1].trim());
+        return new VelocityRule(scope + ":" + windowName + ":" + metric + ">" + threshold,
+                scope, window, metric, threshold, Action.valueOf(parts[3].trim()));
+    }
+}
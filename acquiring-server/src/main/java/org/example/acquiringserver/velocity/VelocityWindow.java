@@ -0,0 +1,43 @@
+package org.example.acquiringserver.velocity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Скользящее окно, разбитое на корзины: окно сдвигается на ширину одной корзины.
+ * Формат в конфигурации - длительность/число корзин, например 1m/12 или 24h/24
+ */
+public record VelocityWindow(String name, long durationMillis, int buckets) {
+
+    public VelocityWindow {
+        if (buckets < 1 || durationMillis < buckets) {
+            throw new IllegalArgumentException("Invalid velocity window " + name);
+        }
+    }
+
+    public long bucketMillis() {
+        return durationMillis / buckets;
+    }
+
+    public static VelocityWindow parse(String spec) {
+        String[] parts = spec.trim().split("/");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Velocity window must look like 1m/12: " + spec);
+        }
+        String name = parts[0].trim();
+        return new VelocityWindow(name, parseDuration(name), Integer.parseInt(parts[1].trim()));
+    }
+
+    private static long parseDuration(String value) {
+        if (value.length() < 2) {
+            throw new IllegalArgumentException("Invalid velocity window duration: " + value);
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> TimeUnit.SECONDS.toMillis(amount);
+            case 'm' -> TimeUnit.MINUTES.toMillis(amount);
+            case 'h' -> TimeUnit.HOURS.toMillis(amount);
+            case 'd' -> TimeUnit.DAYS.toMillis(amount);
+            default -> throw new IllegalArgumentException("Invalid velocity window duration: " + value);
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.acquiringserver.velocity;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Счетчики одного ключа (PAN или мерчанта) по всем окнам.
+ * <p>
+ * Все корзины всех окон лежат в одном AtomicLongArray, по две ячейки на корзину: число
+ * транзакций и сумма. В ячейке упакованы номер корзины по времени (старшие 20 бит) и
+ * значение (младшие 44 бита, насыщается на максимуме), поэтому сброс устаревшей корзины
+ * и добавление выполняются одним CAS без блокировок. Число и сумма обновляются раздельно:
+ * читатель может увидеть одно без другого, для порогов это несущественно.
+ */
+final class WindowCounters {
+
+    static final int COUNT = 0;
+    static final int AMOUNT = 1;
+
+    private static final int VALUE_BITS = 44;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+    private static final long STAMP_MASK = (1L << (Long.SIZE - VALUE_BITS)) - 1;
+    private static final long HALF_STAMP_RANGE = (STAMP_MASK + 1) / 2;
+
+    private final AtomicLongArray cells;
+    private volatile long lastTouchedMillis;
+
+    WindowCounters(int totalBuckets, long nowMillis) {
+        this.cells = new AtomicLongArray(totalBuckets * 2);
+        this.lastTouchedMillis = nowMillis;
+    }
+
+    /**
+     * Учет одной транзакции во всех окнах
+     */
+    void add(WindowLayout layout, long nowMillis, long amount) {
+        lastTouchedMillis = nowMillis;
+        for (int w = 0; w < layout.windowCount(); w++) {
+            long epoch = nowMillis / layout.bucketMillis(w);
+            int cell = layout.cell(w, epoch);
+            long stamp = epoch & STAMP_MASK;
+            addCell(cell + COUNT, stamp, 1);
+            addCell(cell + AMOUNT, stamp, amount);
+        }
+    }
+
+    /**
+     * Сумма значения по корзинам окна, попадающим в окно на момент nowMillis
+     */
+    long sum(WindowLayout layout, int window, int field, long nowMillis) {
+        long currentStamp = (nowMillis / layout.bucketMillis(window)) & STAMP_MASK;
+        int buckets = layout.buckets(window);
+        int first = layout.firstCell(window);
+        long total = 0;
+        for (int b = 0; b < buckets; b++) {
+            long value = cells.get(first + b * 2 + field);
+            long age = (currentStamp - (value >>> VALUE_BITS)) & STAMP_MASK;
+            if (age < buckets) {
+                total += value & VALUE_MASK;
+            }
+        }
+        return total;
+    }
+
+    boolean idleSince(long thresholdMillis) {
+        return lastTouchedMillis < thresholdMillis;
+    }
+
+    private void addCell(int index, long stamp, long delta) {
+        while (true) {
+            long current = cells.get(index);
+            long currentStamp = current >>> VALUE_BITS;
+            long diff = (stamp - currentStamp) & STAMP_MASK;
+            long next;
+            if (diff == 0 || diff >= HALF_STAMP_RANGE) {
+                // Та же корзина, либо корзину уже занял более новый период (поток опоздал
+                // на границе корзин) - значение добавляется к тому, что лежит в ячейке
+                next = (currentStamp << VALUE_BITS) | Math.min(VALUE_MASK, (current & VALUE_MASK) + delta);
+            } else {
+                // Корзина устарела: начинается новый период
+                next = (stamp << VALUE_BITS) | Math.min(VALUE_MASK, delta);
+            }
+            if (cells.compareAndSet(index, current, next)) {
+                return;
+            }
+        }
+    }
+}
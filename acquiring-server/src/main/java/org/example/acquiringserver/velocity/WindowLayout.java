@@ -0,0 +1,67 @@
+package org.example.acquiringserver.velocity;
+
+import java.util.List;
+
+/**
+ * Раскладка корзин окон в массиве ячеек {@link WindowCounters}; общая для всех ключей
+ */
+final class WindowLayout {
+
+    private final long[] bucketMillis;
+    private final int[] buckets;
+    private final int[] firstCell;
+    private final int totalBuckets;
+    private final long longestWindowMillis;
+
+    WindowLayout(List<VelocityWindow> windows) {
+        if (windows.isEmpty()) {
+            throw new IllegalArgumentException("At least one velocity window is required");
+        }
+        bucketMillis = new long[windows.size()];
+        buckets = new int[windows.size()];
+        firstCell = new int[windows.size()];
+        int total = 0;
+        long longest = 0;
+        for (int i = 0; i < windows.size(); i++) {
+            VelocityWindow window = windows.get(i);
+            bucketMillis[i] = window.bucketMillis();
+            buckets[i] = window.buckets();
+            firstCell[i] = total * 2;
+            total += window.buckets();
+            longest = Math.max(longest, window.durationMillis());
+        }
+        totalBuckets = total;
+        longestWindowMillis = longest;
+    }
+
+    int windowCount() {
+        return buckets.length;
+    }
+
+    long bucketMillis(int window) {
+        return bucketMillis[window];
+    }
+
+    int buckets(int window) {
+        return buckets[window];
+    }
+
+    int firstCell(int window) {
+        return firstCell[window];
+    }
+
+    /**
+     * Первая ячейка корзины окна для периода epoch
+     */
+    int cell(int window, long epoch) {
+        return firstCell[window] + (int) (epoch % buckets[window]) * 2;
+    }
+
+    int totalBuckets() {
+        return totalBuckets;
+    }
+
+    long longestWindowMillis() {
+        return longestWindowMillis;
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.acquiringserver.soak;
+
+import java.util.Arrays;
+
+/**
+ * Задержки одного клиента в микросекундах. Не потокобезопасен: у каждого клиента свой экземпляр
+ */
+final class LatencySamples {
+
+    private long[] samples = new long[4096];
+    private int size;
+
+    void add(long micros) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = micros;
+    }
+
+    int size() {
+        return size;
+    }
+
+    static long[] merge(Iterable<LatencySamples> parts) {
+        int total = 0;
+        for (LatencySamples part : parts) {
+            total += part.size;
+        }
+        long[] merged = new long[total];
+        int offset = 0;
+        for (LatencySamples part : parts) {
+            System.arraycopy(part.samples, 0, merged, offset, part.size);
+            offset += part.size;
+        }
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    /**
+     * Перцентиль по отсортированному массиву (nearest-rank)
+     */
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.acquiringserver.soak;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.posterminal.crypto.CryptoUtils;
+import org.example.posterminal.crypto.KeyRotationService;
+import org.example.posterminal.encoder.TLVEncoder;
+import org.example.posterminal.resilience.CircuitBreakerSettings;
+import org.example.posterminal.resilience.FallbackQueue;
+import org.example.posterminal.routing.AcquirerRouter;
+import org.example.posterminal.service.TransactionGenerator;
+import org.example.posterminal.service.TransactionService;
+import org.example.posterminal.tracing.TraceRecorder;
+import org.example.posterminal.tracing.ZipkinSpanExporter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.RSAPublicKeySpec;
+
+/**
+ * Сборка TransactionService терминала без Spring контекста pos-terminal.
+ * <p>
+ * У терминала свой application.properties с тем же именем, что у сервера, поэтому второй
+ * контекст в одном classpath не поднять; зависимости создаются вручную, а значения @Value
+ * проставляются напрямую. Публичный ключ берется из закрытого ключа запущенного сервера,
+ * поэтому клиент всегда совпадает с сервером по ключам.
+ * <p>
+ * Без Spring прокси @Retryable не действует: каждая транзакция отправляется ровно один раз,
+ * и потери не маскируются повторами.
+ */
+final class PosClientFactory {
+
+    private PosClientFactory() {
+    }
+
+    static TransactionService create(String host, int port, PublicKey serverPublicKey, String hmacKey,
+                                     MeterRegistry meterRegistry) {
+        CryptoUtils cryptoUtils = new CryptoUtils();
+        ReflectionTestUtils.setField(cryptoUtils, "serverPublicKey", serverPublicKey);
+        ReflectionTestUtils.setField(cryptoUtils, "hmacKey", hmacKey);
+
+        // Цепь размыкается только при 100% ошибок: в замере нужны сами ошибки, а не отказы breaker'а.
+        // Health check'и не запускаются - без Spring нет планировщика
+        AcquirerRouter router = new AcquirerRouter(host + ":" + port, "", 160, 1000, 2,
+                new CircuitBreakerSettings(20, 20, 100, 1000, 3), meterRegistry);
+
+        TransactionService service = new TransactionService(
+                cryptoUtils,
+                new TLVEncoder(),
+                new KeyRotationService(),
+                new SecureRandom(),
+                new TransactionGenerator(),
+                router,
+                new FallbackQueue(1, meterRegistry),
+                new TraceRecorder(meterRegistry, new ZipkinSpanExporter(meterRegistry)));
+        ReflectionTestUtils.setField(service, "fallbackEnabled", false);
+        ReflectionTestUtils.setField(service, "tracingEnabled", true);
+        ReflectionTestUtils.setField(service, "deadlinePropagationEnabled", true);
+        return service;
+    }
+
+    static PublicKey publicKeyOf(PrivateKey privateKey) throws GeneralSecurityException {
+        RSAPrivateCrtKey rsaKey = (RSAPrivateCrtKey) privateKey;
+        return KeyFactory.getInstance("RSA")
+                .generatePublic(new RSAPublicKeySpec(rsaKey.getModulus(), rsaKey.getPublicExponent()));
+    }
+}
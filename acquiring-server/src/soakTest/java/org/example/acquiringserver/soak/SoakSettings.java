@@ -0,0 +1,64 @@
+package org.example.acquiringserver.soak;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+
+/**
+ * Параметры прогона и базовые значения.
+ * <p>
+ * Базовые значения лежат в soak-baseline.properties, параметры прогона можно переопределить
+ * системными свойствами (через gradle: -Psoak.duration-seconds=600)
+ */
+record SoakSettings(int clients,
+                    long durationSeconds,
+                    long warmupSeconds,
+                    boolean recordBaseline,
+                    double baselineThroughputTps,
+                    double baselineLatencyP99Ms,
+                    double tolerance,
+                    long maxHeapGrowthMb) {
+
+    private static final String BASELINE_RESOURCE = "/soak-baseline.properties";
+
+    static SoakSettings load() {
+        Properties baseline = new Properties();
+        try (InputStream input = SoakSettings.class.getResourceAsStream(BASELINE_RESOURCE)) {
+            if (input == null) {
+                throw new IllegalStateException("Missing " + BASELINE_RESOURCE);
+            }
+            baseline.load(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return new SoakSettings(
+                Integer.parseInt(value(baseline, "soak.clients", "8")),
+                Long.parseLong(value(baseline, "soak.duration-seconds", "30")),
+                Long.parseLong(value(baseline, "soak.warmup-seconds", "5")),
+                Boolean.parseBoolean(value(baseline, "soak.record-baseline", "false")),
+                Double.parseDouble(value(baseline, "baseline.throughput-tps", "0")),
+                Double.parseDouble(value(baseline, "baseline.latency-p99-ms", "0")),
+                Double.parseDouble(value(baseline, "tolerance", "0.25")),
+                Long.parseLong(value(baseline, "max-heap-growth-mb", "64")));
+    }
+
+    /**
+     * Минимально допустимая пропускная способность
+     */
+    double minThroughputTps() {
+        return baselineThroughputTps * (1 - tolerance);
+    }
+
+    /**
+     * Максимально допустимый p99
+     */
+    double maxLatencyP99Ms() {
+        return baselineLatencyP99Ms * (1 + tolerance);
+    }
+
+    private static String value(Properties baseline, String key, String defaultValue) {
+        return System.getProperty(key, baseline.getProperty(key, defaultValue));
+    }
+}
@@ -0,0 +1,179 @@
+package org.example.acquiringserver.soak;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.acquiringserver.crypto.CryptoUtils;
+import org.example.acquiringserver.network.TcpServer;
+import org.example.acquiringserver.repository.TransactionRepository;
+import org.example.posterminal.service.TransactionService;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочный прогон POS -> TCP -> PacketProcessor -> БД.
+ * <p>
+ * Сервер поднимается на эфемерном порту без эмуляции сбоев, несколько клиентов
+ * TransactionService отправляют транзакции без пауз заданное время. Проверяется, что
+ * каждая отправленная транзакция сохранена, куча не растет сверх лимита, а p99 и
+ * пропускная способность не хуже базовых значений с учетом допуска. Первые
+ * soak.warmup-seconds в замеры не входят (JIT, пул соединений H2).
+ */
+@SpringBootTest(properties = {
+        "server.port=0",
+        "metrics.http.port=0",
+        "fault-injection.enabled=false",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.example=WARN",
+        "logging.level.org.hibernate=WARN"
+})
+class SoakTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SoakTest.class);
+    private static final Path RECORDED_BASELINE = Path.of("build", "soak-baseline.properties");
+
+    @Autowired
+    private TcpServer tcpServer;
+
+    @Autowired
+    private TransactionRepository repository;
+
+    @Autowired
+    private CryptoUtils serverCrypto;
+
+    @Value("${hmac.key}")
+    private String hmacKey;
+
+    @Test
+    void sustainedLoadStaysWithinBaseline() throws Exception {
+        SoakSettings settings = SoakSettings.load();
+        SimpleMeterRegistry clientMetrics = new SimpleMeterRegistry();
+        long persistedBefore = repository.count();
+        PublicKey serverPublicKey = PosClientFactory.publicKeyOf(
+                (PrivateKey) ReflectionTestUtils.getField(serverCrypto, "serverPrivateKey"));
+
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.SECONDS.toNanos(settings.warmupSeconds());
+        long end = measureStart + TimeUnit.SECONDS.toNanos(settings.durationSeconds());
+
+        ExecutorService pool = Executors.newFixedThreadPool(settings.clients());
+        List<Future<ClientResult>> futures = new ArrayList<>();
+        for (int i = 0; i < settings.clients(); i++) {
+            TransactionService client = PosClientFactory.create(
+                    "localhost", tcpServer.getLocalPort(), serverPublicKey, hmacKey, clientMetrics);
+            futures.add(pool.submit(() -> runClient(client, measureStart, end)));
+        }
+
+        TimeUnit.NANOSECONDS.sleep(Math.max(0, measureStart - System.nanoTime()));
+        long heapAfterWarmup = usedHeapAfterGc();
+
+        List<ClientResult> results = new ArrayList<>();
+        for (Future<ClientResult> future : futures) {
+            results.add(future.get());
+        }
+        pool.shutdown();
+
+        long sent = results.stream().mapToLong(ClientResult::sent).sum();
+        long failed = results.stream().mapToLong(ClientResult::failed).sum();
+        long measured = results.stream().mapToLong(ClientResult::measured).sum();
+        List<LatencySamples> latencies = results.stream().map(ClientResult::latencies).toList();
+
+        long heapGrowthMb = (usedHeapAfterGc() - heapAfterWarmup) / (1024 * 1024);
+        long persisted = repository.count() - persistedBefore;
+        long[] sorted = LatencySamples.merge(latencies);
+        double throughputTps = measured / (double) settings.durationSeconds();
+        double p50Ms = LatencySamples.percentile(sorted, 50) / 1000.0;
+        double p99Ms = LatencySamples.percentile(sorted, 99) / 1000.0;
+
+        log.warn(String.format(Locale.ROOT,
+                "Soak: clients=%d duration=%ds sent=%d failed=%d persisted=%d throughput=%.1f tps "
+                        + "p50=%.2f ms p99=%.2f ms heap growth=%d MB",
+                settings.clients(), settings.durationSeconds(), sent, failed, persisted,
+                throughputTps, p50Ms, p99Ms, heapGrowthMb));
+
+        if (settings.recordBaseline()) {
+            recordBaseline(settings, throughputTps, p99Ms);
+        }
+
+        assertAll(
+                () -> assertEquals(0, failed, "Transactions failed on the client side"),
+                () -> assertEquals(sent, persisted, "Sent and persisted transaction counts differ"),
+                () -> assertTrue(heapGrowthMb <= settings.maxHeapGrowthMb(),
+                        "Heap grew by " + heapGrowthMb + " MB, limit " + settings.maxHeapGrowthMb() + " MB"),
+                () -> assertTrue(settings.recordBaseline() || throughputTps >= settings.minThroughputTps(),
+                        String.format(Locale.ROOT, "Throughput %.1f tps is below baseline %.1f tps - %.0f%%",
+                                throughputTps, settings.baselineThroughputTps(), settings.tolerance() * 100)),
+                () -> assertTrue(settings.recordBaseline() || p99Ms <= settings.maxLatencyP99Ms(),
+                        String.format(Locale.ROOT, "p99 latency %.2f ms exceeds baseline %.2f ms + %.0f%%",
+                                p99Ms, settings.baselineLatencyP99Ms(), settings.tolerance() * 100)));
+    }
+
+    private static ClientResult runClient(TransactionService client, long measureStart, long end) {
+        LatencySamples latencies = new LatencySamples();
+        long sent = 0;
+        long failed = 0;
+        long measured = 0;
+        long started;
+        while ((started = System.nanoTime()) < end) {
+            sent++;
+            try {
+                client.sendRandomTransaction();
+            } catch (IOException | RuntimeException e) {
+                failed++;
+                continue;
+            }
+            if (started >= measureStart) {
+                latencies.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+                measured++;
+            }
+        }
+        return new ClientResult(sent, failed, measured, latencies);
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static void recordBaseline(SoakSettings settings, double throughputTps, double p99Ms) throws IOException {
+        Properties baseline = new Properties();
+        baseline.setProperty("soak.clients", String.valueOf(settings.clients()));
+        baseline.setProperty("soak.duration-seconds", String.valueOf(settings.durationSeconds()));
+        baseline.setProperty("soak.warmup-seconds", String.valueOf(settings.warmupSeconds()));
+        baseline.setProperty("baseline.throughput-tps", String.format(Locale.ROOT, "%.1f", throughputTps));
+        baseline.setProperty("baseline.latency-p99-ms", String.format(Locale.ROOT, "%.2f", p99Ms));
+        baseline.setProperty("tolerance", String.valueOf(settings.tolerance()));
+        baseline.setProperty("max-heap-growth-mb", String.valueOf(settings.maxHeapGrowthMb()));
+        Files.createDirectories(RECORDED_BASELINE.getParent());
+        try (OutputStream output = Files.newOutputStream(RECORDED_BASELINE)) {
+            baseline.store(output, "Recorded soak baseline; copy to src/soakTest/resources/soak-baseline.properties");
+        }
+        log.warn("Soak baseline recorded to {}", RECORDED_BASELINE.toAbsolutePath());
+    }
+
+    private record ClientResult(long sent, long failed, long measured, LatencySamples latencies) {
+    }
+}
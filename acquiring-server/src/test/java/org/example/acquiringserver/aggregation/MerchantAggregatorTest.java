@@ -0,0 +1,121 @@
+package org.example.acquiringserver.aggregation;
+
+import org.example.acquiringserver.model.TransactionEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Тесты агрегатов по мерчантам
+ */
+class MerchantAggregatorTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 3, 1, 10, 15, 30);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRollups_ByGranularity() {
+        MerchantAggregator aggregator = new MerchantAggregator(120, 24, 7);
+        aggregator.onCompleted(transaction("M1", 100, null, TIME));
+        aggregator.onCompleted(transaction("M1", 250, null, TIME.plusMinutes(1)));
+        aggregator.onCompleted(transaction("M1", 900, "INSUFFICIENT_FUNDS", TIME.plusMinutes(1)));
+        aggregator.onCompleted(transaction("M1", 50, "SUSPICIOUS_ACTIVITY", TIME.plusHours(1)));
+        aggregator.onCompleted(transaction("M2", 10, null, TIME));
+
+        List<Rollup> minutes = aggregator.rollups("M1", Granularity.MINUTE, null, null);
+        List<Rollup> hours = aggregator.rollups("M1", Granularity.HOUR, null, null);
+        Rollup day = aggregator.rollups("M1", Granularity.DAY, null, null).get(0);
+
+        assertEquals(3, minutes.size());
+        assertEquals(TIME.withSecond(0), minutes.get(0).start());
+        assertEquals(250, minutes.get(1).approvedAmount());
+        assertEquals(Map.of("INSUFFICIENT_FUNDS", 1L), minutes.get(1).declinesByReason());
+        assertEquals(2, hours.size());
+        assertEquals(350, hours.get(0).approvedAmount());
+        assertEquals(TIME.toLocalDate().atStartOfDay(), day.start());
+        assertEquals(2, day.approvedCount());
+        assertEquals(2, day.declinedCount());
+        assertEquals(1, aggregator.rollups("M1", Granularity.HOUR, TIME.plusHours(1), null).size());
+        assertEquals(2, aggregator.merchants().size());
+    }
+
+    @Test
+    void testRing_ReplacesExpiredBuckets() {
+        MerchantAggregator aggregator = new MerchantAggregator(2, 24, 7);
+        for (int minute = 0; minute < 5; minute++) {
+            aggregator.onCompleted(transaction("M1", 10, null, TIME.plusMinutes(minute)));
+        }
+        // Запоздавшая транзакция вытесненной минуты в поминутные корзины не попадает
+        aggregator.onCompleted(transaction("M1", 10, null, TIME));
+
+        List<Rollup> minutes = aggregator.rollups("M1", Granularity.MINUTE, null, null);
+        assertEquals(2, minutes.size());
+        assertEquals(TIME.plusMinutes(3).withSecond(0), minutes.get(0).start());
+        assertEquals(6, aggregator.rollups("M1", Granularity.HOUR, null, null).get(0).approvedCount());
+    }
+
+    @Test
+    void testConcurrentUpdates() throws Exception {
+        MerchantAggregator aggregator = new MerchantAggregator(60, 24, 7);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    aggregator.onCompleted(transaction("M1", 3, null, TIME));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        Rollup minute = aggregator.rollups("M1", Granularity.MINUTE, null, null).get(0);
+        assertEquals(8000, minute.approvedCount());
+        assertEquals(24000, minute.approvedAmount());
+    }
+
+    @Test
+    void testSnapshot_RoundTrip() throws Exception {
+        MerchantAggregator aggregator = new MerchantAggregator(60, 24, 7);
+        aggregator.onCompleted(transaction("M1", 100, null, TIME));
+        aggregator.onCompleted(transaction("M1", 100, "CARD_BLOCKED", TIME));
+        aggregator.onCompleted(transaction("M2", 40, null, TIME.plusHours(2)));
+        Path file = tempDir.resolve("aggregates").resolve("rollup-snapshot.txt");
+
+        RollupSnapshots.write(file, aggregator.snapshot());
+        MerchantAggregator restored = new MerchantAggregator(60, 24, 7);
+        restored.restore(RollupSnapshots.read(file));
+
+        for (String merchantId : List.of("M1", "M2")) {
+            for (Granularity granularity : Granularity.values()) {
+                assertEquals(aggregator.rollups(merchantId, granularity, null, null),
+                        restored.rollups(merchantId, granularity, null, null));
+            }
+        }
+    }
+
+    private static TransactionEntity transaction(String merchantId, int amount, String declineReason,
+                                                 LocalDateTime timestamp) {
+        TransactionEntity transaction = new TransactionEntity();
+        transaction.setMerchantId(merchantId);
+        transaction.setAmount(amount);
+        transaction.setStatus(declineReason == null ? "APPROVED" : "DECLINED");
+        transaction.setDeclineReason(declineReason);
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+}
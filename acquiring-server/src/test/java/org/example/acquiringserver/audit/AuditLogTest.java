@@ -0,0 +1,143 @@
+package org.example.acquiringserver.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.acquiringserver.metrics.ProcessingMetrics;
+import org.example.acquiringserver.metrics.ProcessingTrace;
+import org.example.acquiringserver.service.ResponseCode;
+import org.example.acquiringserver.support.AllocationMeter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.example.acquiringserver.support.AllocationBudgets.assertWithinBudget;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты журнала аудита: формат записи, ротация, переполнение кольца и прореживание логов
+ */
+class AuditLogTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ProcessingTrace trace = ProcessingTrace.current();
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void endTrace() {
+        trace.end();
+    }
+
+    @Test
+    void testRecord_WritesJsonLinePerPacket() throws Exception {
+        Path file = dir.resolve("audit").resolve("audit.log");
+        AuditLog auditLog = auditLog(true, file, 64);
+        auditLog.start();
+
+        completeTrace("TX-1", "TERM\"01\u00e9", 500, null, ResponseCode.APPROVED);
+        auditLog.record(trace);
+        completeTrace("TX-2", null, 900, "INSUFFICIENT_FUNDS", ResponseCode.DECLINED);
+        auditLog.record(trace);
+        auditLog.stop();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).matches("\\{\"ts\":\"[0-9T:.\\-]+Z\",\"type\":1,\"outcome\":\"APPROVED\","
+                + "\"tx\":\"TX-1\",\"merchant\":\"MERCHANT_001\",\"terminal\":\"TERM\\\\\"01\\\\u00e9\","
+                + "\"amount\":500,\"us\":\\d+}"), lines.get(0));
+        assertTrue(lines.get(1).contains("\"outcome\":\"DECLINED\",\"tx\":\"TX-2\""), lines.get(1));
+        assertTrue(lines.get(1).contains("\"amount\":900,\"reason\":\"INSUFFICIENT_FUNDS\""), lines.get(1));
+        assertEquals(2.0, registry.get("acquirer.audit.records").counter().count());
+    }
+
+    @Test
+    void testDisabled_NothingWritten() throws Exception {
+        Path file = dir.resolve("audit.log");
+        AuditLog auditLog = auditLog(false, file, 64);
+        auditLog.start();
+
+        completeTrace("TX-1", null, 500, null, ResponseCode.APPROVED);
+        auditLog.record(trace);
+        auditLog.stop();
+
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void testRingFull_RecordRejectedWithoutBlocking() {
+        AuditRing ring = new AuditRing(2);
+        completeTrace("TX-1", null, 500, null, ResponseCode.APPROVED);
+
+        assertTrue(ring.offer(trace, 1_000));
+        assertTrue(ring.offer(trace, 1_000));
+        assertFalse(ring.offer(trace, 1_000));
+        assertEquals(2, ring.backlog());
+
+        StringBuilder json = new StringBuilder();
+        assertEquals(2, ring.drainTo(json, 10));
+        assertEquals(0, ring.backlog());
+        assertTrue(ring.offer(trace, 1_000));
+    }
+
+    @Test
+    void testFileWriter_RotatesBySize() throws Exception {
+        Path file = dir.resolve("audit.log");
+        try (AuditFileWriter writer = new AuditFileWriter(file, 100, 2)) {
+            for (int i = 0; i < 5; i++) {
+                writer.write("x".repeat(59) + i + "\n");
+            }
+        }
+
+        assertEquals("x".repeat(59) + "4\n", Files.readString(file));
+        assertEquals("x".repeat(59) + "3\n", Files.readString(dir.resolve("audit.log.1")));
+        assertEquals("x".repeat(59) + "2\n", Files.readString(dir.resolve("audit.log.2")));
+        assertFalse(Files.exists(dir.resolve("audit.log.3")));
+    }
+
+    @Test
+    void testRecord_WithinBudget() throws Exception {
+        AuditLog auditLog = auditLog(true, dir.resolve("audit.log"), 1024);
+        auditLog.start();
+        completeTrace("TX-1", "TERM_01", 500, null, ResponseCode.APPROVED);
+
+        long bytes = AllocationMeter.bytesPerOperation(20_000, 20_000, () -> {
+            auditLog.record(trace);
+            return trace;
+        });
+        auditLog.stop();
+
+        assertWithinBudget("audit-log.record", bytes);
+    }
+
+    @Test
+    void testLogSampler_OneLinePerInterval() throws Exception {
+        LogSampler sampler = new LogSampler(50, TimeUnit.MILLISECONDS);
+
+        assertEquals(0, sampler.sample());
+        assertEquals(-1, sampler.sample());
+        assertEquals(-1, sampler.sample());
+        Thread.sleep(60);
+        assertEquals(2, sampler.sample());
+    }
+
+    private AuditLog auditLog(boolean enabled, Path file, int capacity) {
+        return new AuditLog(enabled, file.toString(), capacity, 16, 1, 2, 1, registry);
+    }
+
+    private void completeTrace(String transactionId, String terminalId, int amount, String declineReason,
+                               ResponseCode outcome) {
+        trace.begin(System.nanoTime());
+        trace.header((byte) 0x02, (byte) 0x01, 400);
+        trace.identity(terminalId, null);
+        trace.transaction(transactionId, "MERCHANT_001");
+        trace.decision(amount, declineReason);
+        new ProcessingMetrics(registry).recordOutcome(outcome, trace);
+    }
+}
@@ -0,0 +1,188 @@
+package org.example.acquiringserver.bin;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.acquiringserver.engine.Authorizer;
+import org.example.acquiringserver.model.TransactionEntity;
+import org.example.acquiringserver.support.AllocationBudgets;
+import org.example.acquiringserver.support.AllocationMeter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Тесты для маршрутизации по BIN
+ */
+class BinTableTest {
+
+    private static final BinRoute VISA = new BinRoute("BANK_A", "VISA", BinRoute.Route.LOCAL);
+    private static final BinRoute VISA_PREMIUM = new BinRoute("BANK_B", "VISA", BinRoute.Route.LOCAL);
+    private static final BinRoute VISA_CORPORATE = new BinRoute("BANK_C", "VISA", BinRoute.Route.DECLINE);
+    private static final BinRoute MASTERCARD = new BinRoute("BANK_A", "MASTERCARD", BinRoute.Route.LOCAL);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testLookup_LongestPrefixWins() {
+        BinTable table = BinTable.build(List.of(
+                new BinTable.Entry("424242", VISA),
+                new BinTable.Entry("42424212", VISA_PREMIUM),
+                new BinTable.Entry("42424212345", VISA_CORPORATE),
+                new BinTable.Entry("555555", MASTERCARD),
+                new BinTable.Entry("411111", VISA)));
+
+        assertEquals(VISA, route(table, "4242420000000000"));
+        assertEquals(VISA, route(table, "4111111111111111"));
+        assertEquals(VISA_PREMIUM, route(table, "4242421200000000"));
+        assertEquals(VISA_CORPORATE, route(table, "4242421234500000"));
+        assertEquals(VISA_PREMIUM, route(table, "4242421234600000"));
+        assertEquals(VISA, route(table, "4242421300000000"));
+        assertEquals(MASTERCARD, route(table, "5555551111111111"));
+        assertEquals(-1, table.lookup("4242410000000000"));
+        assertEquals(-1, table.lookup("5555560000000000"));
+        assertEquals(-1, table.lookup("0000000000000000"));
+        assertEquals(-1, table.lookup("9999999999999999"));
+        // Одинаковые маршруты хранятся один раз
+        assertEquals(5, table.size());
+        assertEquals(4, table.routes().size());
+    }
+
+    @Test
+    void testLookup_MaskedPanMatchesOnlyVisibleDigits() {
+        BinTable table = BinTable.build(List.of(
+                new BinTable.Entry("424242", VISA),
+                new BinTable.Entry("42424212", VISA_PREMIUM)));
+
+        // Видно 7 цифр: 8-значный префикс проверить нельзя, остается 6-значный
+        assertEquals(VISA, route(table, "4242421******4242"));
+        assertEquals(VISA_PREMIUM, route(table, "42424212****4242"));
+        // Меньше 6 видимых цифр - BIN неизвестен
+        assertEquals(-1, table.lookup("4242********4242"));
+        assertEquals(-1, table.lookup(""));
+    }
+
+    @Test
+    void testLookup_MatchesLinearScanOnRandomTable() {
+        Random random = new Random(42);
+        List<BinTable.Entry> entries = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        while (entries.size() < 5000) {
+            // Общее начало, чтобы префиксы часто вкладывались друг в друга
+            int length = 6 + random.nextInt(6);
+            StringBuilder prefix = new StringBuilder("4");
+            while (prefix.length() < length) {
+                prefix.append(random.nextInt(3));
+            }
+            if (!prefixes.contains(prefix.toString())) {
+                prefixes.add(prefix.toString());
+                entries.add(new BinTable.Entry(prefix.toString(),
+                        new BinRoute("BANK_" + entries.size(), "VISA", BinRoute.Route.LOCAL)));
+            }
+        }
+        BinTable table = BinTable.build(entries);
+
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder pan = new StringBuilder("4");
+            while (pan.length() < 16) {
+                pan.append(random.nextInt(3));
+            }
+            BinTable.Entry expected = null;
+            for (BinTable.Entry entry : entries) {
+                if (pan.indexOf(entry.prefix()) == 0
+                        && (expected == null || entry.prefix().length() > expected.prefix().length())) {
+                    expected = entry;
+                }
+            }
+            assertEquals(expected == null ? null : expected.route(), route(table, pan.toString()), "PAN " + pan);
+        }
+    }
+
+    @Test
+    void testLoad_RejectsInvalidTables() throws IOException {
+        Path file = dir.resolve("bins.csv");
+        Files.writeString(file, "prefix,issuer,scheme,route\n"
+                + "4242421,BANK_A,VISA,LOCAL\n"
+                + "4242421,BANK_B,VISA,LOCAL\n");
+        assertThrows(IOException.class, () -> BinTable.load(file));
+        Files.writeString(file, "prefix,issuer,scheme,route\n42424,BANK_A,VISA,LOCAL\n");
+        assertThrows(IOException.class, () -> BinTable.load(file));
+        Files.writeString(file, "prefix,issuer,scheme,route\n424242,BANK_A,VISA,FORWARD\n");
+        assertThrows(IOException.class, () -> BinTable.load(file));
+    }
+
+    @Test
+    void testAuthorizer_RoutesDeclinesAndSwapsTable() throws IOException {
+        Path file = dir.resolve("bins.csv");
+        Files.writeString(file, "prefix,issuer,scheme,route\n"
+                + "424242,BANK_A,VISA,LOCAL\n"
+                + "555555,BANK_A,MASTERCARD,DECLINE\n");
+        BinRouter router = new BinRouter(file.toString(), new SimpleMeterRegistry());
+        router.load();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Authorizer authorizer = new BinRoutingAuthorizer(router, Authorizer.APPROVE_ALL, meterRegistry);
+
+        TransactionEntity visa = transaction("4242424242424242");
+        assertNull(authorizer.authorize(visa));
+        assertEquals(VISA, visa.getBinRoute());
+        assertEquals(BinRoutingAuthorizer.CARD_NOT_SUPPORTED, authorizer.authorize(transaction("5555555555554444")));
+        assertNull(authorizer.authorize(transaction("3782********0005")));
+        assertEquals(1.0, meterRegistry.counter("acquirer.bin.routed",
+                "issuer", "BANK_A", "scheme", "VISA", "route", "LOCAL").count());
+        assertEquals(1.0, meterRegistry.counter("acquirer.bin.routed",
+                "issuer", "unknown", "scheme", "unknown", "route", "LOCAL").count());
+
+        BinTable first = router.current();
+        Files.writeString(file, "prefix,issuer,scheme,route\n555555,BANK_A,MASTERCARD,LOCAL\n");
+        touch(file, 10_000);
+        router.reloadIfModified();
+        assertNull(authorizer.authorize(transaction("5555555555554444")));
+
+        BinTable second = router.current();
+        Files.writeString(file, "broken");
+        touch(file, 20_000);
+        router.reloadIfModified();
+        assertSame(second, router.current());
+        assertEquals(-1, second.lookup("4242424242424242"));
+        assertEquals(0, first.lookup("4242424242424242"));
+    }
+
+    @Test
+    void testLookup_AllocationBudget() {
+        List<BinTable.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            entries.add(new BinTable.Entry(String.valueOf(400_000 + i * 7), VISA));
+        }
+        BinTable table = BinTable.build(entries);
+
+        long bytes = AllocationMeter.bytesPerOperation(20_000, 100_000, () -> table.lookup("4000074242424242"));
+
+        AllocationBudgets.assertWithinBudget("bin-table.lookup", bytes);
+    }
+
+    private static BinRoute route(BinTable table, String pan) {
+        int routeId = table.lookup(pan);
+        return routeId < 0 ? null : table.route(routeId);
+    }
+
+    private static TransactionEntity transaction(String pan) {
+        TransactionEntity transaction = new TransactionEntity();
+        transaction.setPan(pan);
+        return transaction;
+    }
+
+    private static void touch(Path file, long offsetMillis) throws IOException {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + offsetMillis));
+    }
+}
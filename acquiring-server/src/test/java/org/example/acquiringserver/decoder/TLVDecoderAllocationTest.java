@@ -0,0 +1,25 @@
+package org.example.acquiringserver.decoder;
+
+import org.example.acquiringserver.support.AllocationMeter;
+import org.example.acquiringserver.support.TestPackets;
+import org.junit.jupiter.api.Test;
+
+import static org.example.acquiringserver.support.AllocationBudgets.assertWithinBudget;
+
+/**
+ * Бюджет аллокаций TLV декодера
+ */
+class TLVDecoderAllocationTest {
+
+    private final TLVDecoder tlvDecoder = new TLVDecoder();
+
+    @Test
+    void testParseTLV_WithinBudget() {
+        byte[] tlv = TestPackets.transactionTlv(
+                "4242********4242", 10_000, "9f0c2d6e-1b7a-4c39-8e55-3a1f6b2d7c40", "MERCHANT_001");
+
+        long bytes = AllocationMeter.bytesPerOperation(50_000, 20_000, () -> tlvDecoder.parseTLV(tlv));
+
+        assertWithinBudget("tlv-decoder.parse", bytes);
+    }
+}
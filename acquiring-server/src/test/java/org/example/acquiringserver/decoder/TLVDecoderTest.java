@@ -42,7 +42,8 @@ class TLVDecoderTest {
 
     @Test
     void testFromMiddleEndian_ValidConversion() {
-        byte[] amountBytes = {0x00, 0x00, 0x27, 0x10};
+        // 10000 = 0x00002710 в порядке middle-endian: [B2, B3, B0, B1]
+        byte[] amountBytes = {0x00, 0x00, 0x10, 0x27};
 
         int result = tlvDecoder.fromMiddleEndian(amountBytes);
 
@@ -0,0 +1,89 @@
+package org.example.acquiringserver.engine;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.example.acquiringserver.crypto.CryptoUtils;
+import org.example.acquiringserver.metrics.ProcessingTrace;
+import org.example.acquiringserver.support.AllocationMeter;
+import org.example.acquiringserver.support.TestPackets;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.PrivateKey;
+
+import static org.example.acquiringserver.support.AllocationBudgets.assertWithinBudget;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Бюджеты аллокаций движка: кодирование ответов и полный authorize.
+ * <p>
+ * Хранилище - заглушка, чтобы в замер не попадали Hibernate и H2; логирование приглушено,
+ * так как его стоимость зависит от конфигурации, а не от кода обработки
+ */
+class AuthorizationEngineAllocationTest {
+
+    private static final String HMAC_KEY = "my-secret-hmac-key-12345";
+    private static final byte[] TLV = TestPackets.transactionTlv(
+            "4242********4242", 10_000, "9f0c2d6e-1b7a-4c39-8e55-3a1f6b2d7c40", "MERCHANT_001");
+
+    private static final Logger APP_LOGGER = (Logger) LoggerFactory.getLogger("org.example.acquiringserver");
+    private static Level previousLevel;
+
+    private final ProcessingTrace trace = ProcessingTrace.current();
+
+    @BeforeAll
+    static void muteLogging() {
+        previousLevel = APP_LOGGER.getLevel();
+        APP_LOGGER.setLevel(Level.ERROR);
+    }
+
+    @AfterAll
+    static void restoreLogging() {
+        APP_LOGGER.setLevel(previousLevel);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (trace.isActive()) {
+            trace.end();
+        }
+    }
+
+    @Test
+    void testApprovalResponse_WithinBudget() {
+        trace.begin(System.nanoTime());
+        long bytes = AllocationMeter.bytesPerOperation(50_000, 20_000,
+                () -> ResponseEncoder.approval("123456", trace));
+
+        assertWithinBudget("response-encoder.approval", bytes);
+    }
+
+    @Test
+    void testDeclineResponse_WithinBudget() {
+        trace.begin(System.nanoTime());
+        long bytes = AllocationMeter.bytesPerOperation(50_000, 20_000, () -> ResponseEncoder.decline(trace));
+
+        assertWithinBudget("response-encoder.decline", bytes);
+    }
+
+    @Test
+    void testAuthorize_WithinBudget() {
+        CryptoUtils cryptoUtils = CryptoUtils.load("classpath:server-private.pem", HMAC_KEY);
+        AuthorizationEngine engine = AuthorizationEngine.builder()
+                .cryptoUtils(cryptoUtils)
+                .transactionStore(transaction -> { })
+                .build();
+        TestPackets packets = new TestPackets(
+                (PrivateKey) ReflectionTestUtils.getField(cryptoUtils, "serverPrivateKey"), HMAC_KEY);
+        byte[] packet = packets.packet(TLV, TestPackets.traceContextExtension(1L, 2L, 1_700_000_000_000_000L));
+        assertEquals(0x00, engine.authorize(packet)[0], "Test packet must be approved");
+
+        long bytes = AllocationMeter.bytesPerOperation(500, 500, () -> engine.authorize(packet));
+
+        assertWithinBudget("authorization-engine.authorize", bytes);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.acquiringserver.engine;
+
+import org.example.acquiringserver.crypto.CryptoUtils;
+import org.example.acquiringserver.model.TransactionEntity;
+import org.example.acquiringserver.support.TestPackets;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Движок без Spring: сборка через builder и время от создания до первой авторизации
+ */
+class AuthorizationEngineColdStartTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthorizationEngineColdStartTest.class);
+    private static final String HMAC_KEY = "my-secret-hmac-key-12345";
+
+    /**
+     * Запас на медленные CI машины; на рабочей машине холодный старт занимает сотни миллисекунд
+     */
+    private static final long MAX_COLD_START_MS = 2_000;
+
+    @Test
+    void testColdStart_FirstAuthorizationWithinBudget() {
+        List<TransactionEntity> stored = new ArrayList<>();
+
+        long start = System.nanoTime();
+        CryptoUtils cryptoUtils = CryptoUtils.load("classpath:server-private.pem", HMAC_KEY);
+        AuthorizationEngine engine = AuthorizationEngine.builder()
+                .cryptoUtils(cryptoUtils)
+                .transactionStore(stored::add)
+                .build();
+        long builtNanos = System.nanoTime() - start;
+
+        // Пакет собирается вне замера: это работа терминала, а не сервера
+        TestPackets packets = new TestPackets(
+                (PrivateKey) ReflectionTestUtils.getField(cryptoUtils, "serverPrivateKey"), HMAC_KEY);
+        byte[] packet = packets.packet(TestPackets.transactionTlv(
+                "4242********4242", 2_500, "0d7e3c2a-51f4-4b8e-9a60-7c1d2e3f4a5b", "MERCHANT_001"));
+
+        long authorizeStart = System.nanoTime();
+        byte[] response = engine.authorize(packet);
+        long coldStartMs = TimeUnit.NANOSECONDS.toMillis(builtNanos + System.nanoTime() - authorizeStart);
+        log.info("Engine built in {} ms, cold start to first authorization {} ms",
+                TimeUnit.NANOSECONDS.toMillis(builtNanos), coldStartMs);
+
+        assertEquals(0x00, response[0], "First authorization must be approved");
+        assertEquals(1, stored.size());
+        assertEquals("APPROVED", stored.get(0).getStatus());
+        assertEquals("MERCHANT_001", stored.get(0).getMerchantId());
+        assertTrue(coldStartMs <= MAX_COLD_START_MS,
+                "Cold start took " + coldStartMs + " ms, limit " + MAX_COLD_START_MS + " ms");
+    }
+
+    @Test
+    void testBuilder_RequiresCryptoAndStore() {
+        CryptoUtils cryptoUtils = CryptoUtils.load("classpath:server-private.pem", HMAC_KEY);
+
+        assertThrows(NullPointerException.class,
+                () -> AuthorizationEngine.builder().transactionStore(transaction -> { }).build());
+        assertThrows(NullPointerException.class,
+                () -> AuthorizationEngine.builder().cryptoUtils(cryptoUtils).build());
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.acquiringserver.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.acquiringserver.crypto.CryptoUtils;
+import org.example.acquiringserver.metrics.ProcessingMetrics;
+import org.example.acquiringserver.model.TransactionEntity;
+import org.example.acquiringserver.support.TestPackets;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Срок ответа из конверта: пакет с истекшим сроком бросается на границе этапов и не сохраняется
+ */
+class DeadlinePropagationTest {
+
+    private static final String HMAC_KEY = "my-secret-hmac-key-12345";
+    private static final CryptoUtils CRYPTO = CryptoUtils.load("classpath:server-private.pem", HMAC_KEY);
+    private static final TestPackets PACKETS = new TestPackets(
+            (PrivateKey) ReflectionTestUtils.getField(CRYPTO, "serverPrivateKey"), HMAC_KEY);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<TransactionEntity> stored = new ArrayList<>();
+    private final List<String> reversed = new ArrayList<>();
+
+    @Test
+    void testWithinBudget_Processed() {
+        AuthorizationEngine engine = engine(slowAuthorizer(0), null);
+
+        byte[] response = engine.authorize(packet("TX-1", 3000));
+
+        assertEquals(0x00, response[0]);
+        assertEquals(1, stored.size());
+        assertEquals(0.0, expired("hmac_verify") + expired("decision") + expired("db_save"));
+    }
+
+    @Test
+    void testExpiredOnArrival_DroppedBeforeCrypto() {
+        AuthorizationEngine engine = engine(transaction -> {
+            throw new AssertionError("Expired packet must not reach the decision");
+        }, null);
+
+        assertNull(engine.authorize(packet("TX-1", 0)));
+
+        assertTrue(stored.isEmpty());
+        assertEquals(1.0, expired("hmac_verify"));
+        assertEquals(0.0, registry.get("acquirer.stage.duration").tag("stage", "rsa_decrypt").timer().count());
+        assertEquals(1.0, registry.get("acquirer.responses").tag("code", "DEADLINE_EXCEEDED").counter().count());
+    }
+
+    @Test
+    void testExpiredDuringDecision_ReversedAndNotPersisted() {
+        AuthorizationEngine engine = engine(slowAuthorizer(150), null);
+
+        assertNull(engine.authorize(packet("TX-1", 50)));
+
+        assertTrue(stored.isEmpty());
+        assertEquals(List.of("TX-1"), reversed);
+        assertEquals(1.0, expired("db_save"));
+    }
+
+    @Test
+    void testPartitioned_ExpiredInQueueIsDropped() throws Exception {
+        try (AuthorizationEngine engine = engine(slowAuthorizer(150),
+                new PartitionSettings(1, PartitionKey.MERCHANT, 16, 8))) {
+            // Первая транзакция занимает воркер, вторая ждет в очереди дольше своего срока
+            byte[] firstPacket = packet("TX-1", 3000);
+            byte[] secondPacket = packet("TX-2", 50);
+            Thread first = new Thread(() -> engine.authorize(firstPacket));
+            first.start();
+            Thread.sleep(20);
+            byte[] second = engine.authorize(secondPacket);
+            first.join();
+
+            assertNull(second);
+            assertEquals(List.of("TX-1"), stored.stream().map(TransactionEntity::getTransactionId).toList());
+            assertTrue(reversed.isEmpty());
+            assertEquals(1.0, expired("decision"));
+        }
+    }
+
+    private AuthorizationEngine engine(Authorizer decision, PartitionSettings partitionSettings) {
+        Authorizer authorizer = new Authorizer() {
+            @Override
+            public String authorize(TransactionEntity transaction) {
+                return decision.authorize(transaction);
+            }
+
+            @Override
+            public synchronized void reverse(TransactionEntity transaction) {
+                reversed.add(transaction.getTransactionId());
+            }
+        };
+        TransactionStore store = new TransactionStore() {
+            @Override
+            public synchronized void save(TransactionEntity transaction) {
+                stored.add(transaction);
+            }
+
+            @Override
+            public synchronized void saveAll(List<TransactionEntity> transactions) {
+                stored.addAll(transactions);
+            }
+        };
+        return AuthorizationEngine.builder()
+                .cryptoUtils(CRYPTO)
+                .transactionStore(store)
+                .authorizer(authorizer)
+                .metrics(new ProcessingMetrics(registry))
+                .partitioned(partitionSettings)
+                .build();
+    }
+
+    private static Authorizer slowAuthorizer(long delayMillis) {
+        return transaction -> {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        };
+    }
+
+    private static byte[] packet(String transactionId, int budgetMillis) {
+        return PACKETS.packet(TestPackets.transactionTlv("4111111111111111", 500, transactionId, "MERCHANT_001"),
+                TestPackets.deadlineExtension(budgetMillis));
+    }
+
+    private double expired(String stage) {
+        return registry.get("acquirer.deadline.expired").tag("stage", stage).counter().count();
+    }
+}
@@ -0,0 +1,206 @@
+package org.example.acquiringserver.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.acquiringserver.crypto.CryptoUtils;
+import org.example.acquiringserver.metrics.ProcessingMetrics;
+import org.example.acquiringserver.model.TransactionEntity;
+import org.example.acquiringserver.support.TestPackets;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Партиционированный режим движка: однопоточная обработка мерчанта и пакетное сохранение
+ */
+class PartitionedAuthorizationEngineTest {
+
+    private static final String HMAC_KEY = "my-secret-hmac-key-12345";
+    private static final CryptoUtils CRYPTO = CryptoUtils.load("classpath:server-private.pem", HMAC_KEY);
+    private static final TestPackets PACKETS = new TestPackets(
+            (PrivateKey) ReflectionTestUtils.getField(CRYPTO, "serverPrivateKey"), HMAC_KEY);
+
+    @Test
+    void testMerchantIsProcessedByOneWorker() throws Exception {
+        Map<String, Set<String>> writers = new ConcurrentHashMap<>();
+        AtomicInteger batches = new AtomicInteger();
+        List<TransactionEntity> stored = new ArrayList<>();
+        TransactionStore store = new TransactionStore() {
+            @Override
+            public void save(TransactionEntity transaction) {
+                throw new AssertionError("Partition workers must save in batches");
+            }
+
+            @Override
+            public synchronized void saveAll(List<TransactionEntity> transactions) {
+                batches.incrementAndGet();
+                for (TransactionEntity transaction : transactions) {
+                    writers.computeIfAbsent(transaction.getMerchantId(), key -> ConcurrentHashMap.newKeySet())
+                            .add(Thread.currentThread().getName());
+                }
+                stored.addAll(transactions);
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        try (AuthorizationEngine engine = engine(store, registry)) {
+            List<byte[]> responses = authorizeConcurrently(engine, 6, 20);
+
+            responses.forEach(response -> assertEquals(0x00, response[0]));
+            assertEquals(120, stored.size());
+            writers.values().forEach(threads -> assertEquals(1, threads.size()));
+            assertTrue(batches.get() <= 120);
+            assertNotNull(registry.find("acquirer.partition.queue.depth").tag("partition", "3").gauge());
+            assertTrue(registry.get("acquirer.partition.skew").gauge().value() >= 1.0);
+        }
+    }
+
+    @Test
+    void testBatchFailure_FallsBackToSingleSaves() throws Exception {
+        List<String> reversed = new ArrayList<>();
+        List<TransactionEntity> stored = new ArrayList<>();
+        TransactionStore store = new TransactionStore() {
+            @Override
+            public synchronized void save(TransactionEntity transaction) {
+                if (transaction.getAmount() == 13) {
+                    throw new IllegalStateException("constraint violation");
+                }
+                stored.add(transaction);
+            }
+
+            @Override
+            public void saveAll(List<TransactionEntity> transactions) {
+                throw new IllegalStateException("batch rejected");
+            }
+        };
+        Authorizer authorizer = new Authorizer() {
+            @Override
+            public String authorize(TransactionEntity transaction) {
+                return null;
+            }
+
+            @Override
+            public synchronized void reverse(TransactionEntity transaction) {
+                reversed.add(transaction.getTransactionId());
+            }
+        };
+
+        try (AuthorizationEngine engine = AuthorizationEngine.builder()
+                .cryptoUtils(CRYPTO)
+                .transactionStore(store)
+                .authorizer(authorizer)
+                .partitioned(new PartitionSettings(2, PartitionKey.PAN, 16, 8))
+                .build()) {
+            String failingId = UUID.randomUUID().toString();
+            byte[] failed = engine.authorize(PACKETS.packet(
+                    TestPackets.transactionTlv("4242********4242", 13, failingId, "MERCHANT_001")));
+            byte[] approved = engine.authorize(PACKETS.packet(TestPackets.transactionTlv(
+                    "4242********4242", 100, UUID.randomUUID().toString(), "MERCHANT_001")));
+
+            assertEquals(0x01, failed[0], "Unsaved approval must be answered with PROCESSING_ERROR");
+            assertEquals(0x00, approved[0]);
+            assertEquals(1, stored.size());
+            assertEquals(List.of(failingId), reversed);
+        }
+    }
+
+    @Test
+    void testPendingExternalDecision_DoesNotBlockPartition() throws Exception {
+        List<TransactionEntity> stored = new ArrayList<>();
+        TransactionStore store = new TransactionStore() {
+            @Override
+            public void save(TransactionEntity transaction) {
+                throw new AssertionError("Partition workers must save in batches");
+            }
+
+            @Override
+            public synchronized void saveAll(List<TransactionEntity> transactions) {
+                stored.addAll(transactions);
+            }
+        };
+        CompletableFuture<String> issuerDecision = new CompletableFuture<>();
+        Authorizer authorizer = new Authorizer() {
+            @Override
+            public String authorize(TransactionEntity transaction) {
+                return authorizeAsync(transaction).join();
+            }
+
+            @Override
+            public CompletableFuture<String> authorizeAsync(TransactionEntity transaction) {
+                return transaction.getAmount() == 500 ? issuerDecision : CompletableFuture.completedFuture(null);
+            }
+        };
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+
+        try (AuthorizationEngine engine = AuthorizationEngine.builder()
+                .cryptoUtils(CRYPTO)
+                .transactionStore(store)
+                .authorizer(authorizer)
+                .partitioned(new PartitionSettings(1, PartitionKey.MERCHANT, 16, 8))
+                .build()) {
+            byte[] slowPacket = PACKETS.packet(TestPackets.transactionTlv(
+                    "4242********4242", 500, UUID.randomUUID().toString(), "MERCHANT_001"));
+            Future<byte[]> slow = pool.submit(() -> engine.authorize(slowPacket));
+            while (issuerDecision.getNumberOfDependents() == 0) {
+                Thread.sleep(5);
+            }
+
+            // Тот же мерчант и та же партиция: ответ не ждет решения по первой транзакции
+            byte[] fast = engine.authorize(PACKETS.packet(TestPackets.transactionTlv(
+                    "4242********4242", 100, UUID.randomUUID().toString(), "MERCHANT_001")));
+            assertEquals(0x00, fast[0]);
+            assertFalse(slow.isDone());
+
+            issuerDecision.complete(null);
+            assertEquals(0x00, slow.get(5, TimeUnit.SECONDS)[0]);
+            assertEquals(2, stored.size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static AuthorizationEngine engine(TransactionStore store, SimpleMeterRegistry registry) {
+        return AuthorizationEngine.builder()
+                .cryptoUtils(CRYPTO)
+                .transactionStore(store)
+                .metrics(new ProcessingMetrics(registry))
+                .partitioned(new PartitionSettings(4, PartitionKey.MERCHANT, 256, 16))
+                .build();
+    }
+
+    private static List<byte[]> authorizeConcurrently(AuthorizationEngine engine, int merchants, int perMerchant)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<byte[]>> futures = new ArrayList<>();
+        for (int m = 0; m < merchants; m++) {
+            for (int i = 0; i < perMerchant; i++) {
+                byte[] packet = PACKETS.packet(TestPackets.transactionTlv(
+                        "4242********4242", 100, UUID.randomUUID().toString(), "MERCHANT_00" + m));
+                futures.add(pool.submit(() -> engine.authorize(packet)));
+            }
+        }
+        List<byte[]> responses = new ArrayList<>();
+        for (Future<byte[]> future : futures) {
+            responses.add(future.get());
+        }
+        pool.shutdown();
+        return responses;
+    }
+}
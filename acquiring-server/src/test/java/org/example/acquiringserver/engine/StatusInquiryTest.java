@@ -0,0 +1,165 @@
+package org.example.acquiringserver.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.acquiringserver.crypto.CryptoUtils;
+import org.example.acquiringserver.metrics.ProcessingMetrics;
+import org.example.acquiringserver.model.TransactionEntity;
+import org.example.acquiringserver.support.TestPackets;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.PrivateKey;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Запрос статуса транзакции: кэш последних транзакций, затем хранилище
+ */
+class StatusInquiryTest {
+
+    private static final String HMAC_KEY = "my-secret-hmac-key-12345";
+    private static final CryptoUtils CRYPTO = CryptoUtils.load("classpath:server-private.pem", HMAC_KEY);
+    private static final TestPackets PACKETS = new TestPackets(
+            (PrivateKey) ReflectionTestUtils.getField(CRYPTO, "serverPrivateKey"), HMAC_KEY);
+
+    @Test
+    void testInquiry_CacheThenStore() {
+        Map<String, TransactionEntity> stored = new ConcurrentHashMap<>();
+        TransactionStore store = new TransactionStore() {
+            @Override
+            public void save(TransactionEntity transaction) {
+                stored.put(transaction.getTransactionId(), transaction);
+            }
+
+            @Override
+            public TransactionEntity findByTransactionId(String transactionId) {
+                return stored.get(transactionId);
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AuthorizationEngine engine = AuthorizationEngine.builder()
+                .cryptoUtils(CRYPTO)
+                .transactionStore(store)
+                .authorizer(transaction -> transaction.getAmount() > 1000 ? "INSUFFICIENT_FUNDS" : null)
+                .metrics(new ProcessingMetrics(registry))
+                .recentTransactions(new RecentTransactionCache(1))
+                .build();
+
+        byte[] approval = engine.authorize(PACKETS.packet(
+                TestPackets.transactionTlv("4111111111111111", 500, "TX-APPROVED", "MERCHANT_001")));
+        byte[] decline = engine.authorize(PACKETS.packet(
+                TestPackets.transactionTlv("4111111111111111", 5000, "TX-DECLINED", "MERCHANT_001")));
+        assertEquals(0x00, approval[0]);
+        assertEquals(0x01, decline[0]);
+
+        // TX-APPROVED вытеснен из кэша емкостью 1 и находится через хранилище
+        byte[] approvedStatus = engine.authorize(PACKETS.statusInquiry("TX-APPROVED"));
+        byte[] declinedStatus = engine.authorize(PACKETS.statusInquiry("TX-DECLINED"));
+        byte[] unknownStatus = engine.authorize(PACKETS.statusInquiry("TX-UNKNOWN"));
+
+        assertEquals(0x00, approvedStatus[0]);
+        assertEquals(new String(Arrays.copyOfRange(approval, 1, 7), StandardCharsets.US_ASCII),
+                new String(Arrays.copyOfRange(approvedStatus, 1, 7), StandardCharsets.US_ASCII));
+        assertEquals(0x01, declinedStatus[0]);
+        assertEquals("DECLIN", new String(Arrays.copyOfRange(declinedStatus, 1, 7), StandardCharsets.US_ASCII));
+        assertEquals(0x07, unknownStatus[0]);
+        assertEquals(1.0, registry.get("acquirer.inquiries").tag("result", "cache").counter().count());
+        assertEquals(1.0, registry.get("acquirer.inquiries").tag("result", "store").counter().count());
+        assertEquals(1.0, registry.get("acquirer.inquiries").tag("result", "not_found").counter().count());
+    }
+
+    @Test
+    void testResend_AnsweredWithStoredOutcome() {
+        Map<String, TransactionEntity> stored = new ConcurrentHashMap<>();
+        AtomicInteger decisions = new AtomicInteger();
+        AtomicInteger reversals = new AtomicInteger();
+        TransactionStore store = new TransactionStore() {
+            @Override
+            public void save(TransactionEntity transaction) {
+                // Как уникальный индекс transaction_id
+                if (stored.putIfAbsent(transaction.getTransactionId(), transaction) != null) {
+                    throw new IllegalStateException("Duplicate transaction_id " + transaction.getTransactionId());
+                }
+            }
+
+            @Override
+            public TransactionEntity findByTransactionId(String transactionId) {
+                return stored.get(transactionId);
+            }
+        };
+        Authorizer authorizer = new Authorizer() {
+            @Override
+            public String authorize(TransactionEntity transaction) {
+                decisions.incrementAndGet();
+                return null;
+            }
+
+            @Override
+            public void reverse(TransactionEntity transaction) {
+                reversals.incrementAndGet();
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AuthorizationEngine engine = AuthorizationEngine.builder()
+                .cryptoUtils(CRYPTO)
+                .transactionStore(store)
+                .authorizer(authorizer)
+                .metrics(new ProcessingMetrics(registry))
+                .recentTransactions(new RecentTransactionCache(1))
+                .build();
+        byte[] tlv = TestPackets.transactionTlv("4111111111111111", 500, "TX-RESENT", "MERCHANT_001");
+
+        byte[] approval = engine.authorize(PACKETS.packet(tlv));
+        byte[] cachedResend = engine.authorize(PACKETS.packet(tlv));
+        assertEquals(1, decisions.get(), "Recent resend must not be decided again");
+
+        engine.authorize(PACKETS.packet(
+                TestPackets.transactionTlv("4111111111111111", 500, "TX-OTHER", "MERCHANT_001")));
+        // TX-RESENT вытеснен из кэша емкостью 1: повтор отклоняется хранилищем, новое решение отменяется
+        byte[] storedResend = engine.authorize(PACKETS.packet(tlv));
+
+        String approvalHead = Arrays.toString(Arrays.copyOfRange(approval, 0, 7));
+        assertEquals(0x00, approval[0]);
+        assertEquals(approvalHead, Arrays.toString(Arrays.copyOfRange(cachedResend, 0, 7)));
+        assertEquals(approvalHead, Arrays.toString(Arrays.copyOfRange(storedResend, 0, 7)));
+        assertEquals(1, reversals.get());
+        assertEquals(2, stored.size());
+        assertEquals(2.0, registry.get("acquirer.resends").counter().count());
+    }
+
+    @Test
+    void testInquiry_InvalidHmac() {
+        AuthorizationEngine engine = AuthorizationEngine.builder()
+                .cryptoUtils(CRYPTO)
+                .transactionStore(transaction -> { })
+                .build();
+        byte[] inquiry = PACKETS.statusInquiry("TX-1");
+        inquiry[inquiry.length - 1] ^= 0x01;
+
+        assertEquals(0x06, engine.authorize(inquiry)[0]);
+    }
+
+    @Test
+    void testCache_EvictsOldest() {
+        RecentTransactionCache cache = new RecentTransactionCache(2);
+        for (int i = 1; i <= 3; i++) {
+            TransactionEntity transaction = new TransactionEntity();
+            transaction.setTransactionId("TX-" + i);
+            transaction.setStatus("APPROVED");
+            transaction.setAuthCode("00000" + i);
+            cache.put(transaction);
+        }
+
+        assertNull(cache.get("TX-1"));
+        assertNotNull(cache.get("TX-3"));
+        assertEquals("000002", cache.get("TX-2").authCode());
+        assertEquals(2, cache.size());
+    }
+}
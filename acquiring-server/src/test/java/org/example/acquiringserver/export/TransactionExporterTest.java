@@ -0,0 +1,118 @@
+package org.example.acquiringserver.export;
+
+import org.example.acquiringserver.metrics.MetricsHttpServer;
+import org.example.acquiringserver.model.TransactionEntity;
+import org.example.acquiringserver.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты потоковой выгрузки транзакций
+ */
+@SpringBootTest(properties = {
+        "server.port=0",
+        "metrics.http.port=0",
+        "ledger.snapshot.enabled=false",
+        "aggregation.snapshot.enabled=false",
+        "spring.jpa.show-sql=false"
+})
+class TransactionExporterTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Autowired
+    private TransactionExporter exporter;
+
+    @Autowired
+    private TransactionRepository repository;
+
+    @Autowired
+    private MetricsHttpServer metricsHttpServer;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        List<TransactionEntity> transactions = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            TransactionEntity transaction = new TransactionEntity();
+            transaction.setTransactionId(UUID.randomUUID().toString());
+            transaction.setPan("424242******4242");
+            transaction.setAmount(i);
+            transaction.setMerchantId(i % 2 == 0 ? "MERCHANT_001" : "MERCHANT_002");
+            transaction.setStatus(i % 10 == 0 ? "DECLINED" : "APPROVED");
+            transaction.setDeclineReason(i % 10 == 0 ? "INSUFFICIENT_FUNDS" : null);
+            transaction.setAuthCode(i % 10 == 0 ? "DECLINED" : "123456");
+            transaction.setTimestamp(DAY.plusSeconds(i));
+            transactions.add(transaction);
+        }
+        repository.saveAll(transactions);
+    }
+
+    @Test
+    void testCsv_FiltersByMerchantStatusAndTime() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ExportFilter filter = new ExportFilter(DAY.plusSeconds(1000), DAY.plusSeconds(2000), "MERCHANT_001", "DECLINED");
+
+        ExportResult result = exporter.export(filter, ExportFormat.CSV, Channels.newChannel(output));
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(100, result.rows());
+        assertEquals(101, lines.length);
+        assertEquals(CsvExportWriter.HEADER.trim(), lines[0]);
+        assertTrue(lines[1].contains(",1000,MERCHANT_001,DECLINED,INSUFFICIENT_FUNDS,"), lines[1]);
+        assertEquals(output.size(), result.bytes());
+    }
+
+    @Test
+    void testColumnar_RoundTrip() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        ExportResult result = exporter.export(ExportFilter.all(), ExportFormat.COLUMNAR, Channels.newChannel(output));
+
+        List<TransactionEntity> read = new ArrayList<>();
+        ColumnarTransactionReader.read(Channels.newChannel(new ByteArrayInputStream(output.toByteArray())), read::add);
+        assertEquals(10_000, result.rows());
+        assertEquals(10_000, read.size());
+        TransactionEntity first = read.get(0);
+        assertEquals("MERCHANT_001", first.getMerchantId());
+        assertEquals("INSUFFICIENT_FUNDS", first.getDeclineReason());
+        assertEquals(DAY, first.getTimestamp());
+        assertEquals(9_999, read.get(9_999).getAmount());
+        assertEquals(null, read.get(9_999).getDeclineReason());
+    }
+
+    @Test
+    void testHttpEndpoint_Ndjson() throws Exception {
+        HttpResponse<String> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(
+                        "http://localhost:" + metricsHttpServer.getPort() + "/export?format=ndjson&merchant=MERCHANT_002"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        String[] lines = response.body().split("\n");
+        assertEquals(5_000, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":") && lines[0].contains("\"merchantId\":\"MERCHANT_002\""), lines[0]);
+
+        HttpResponse<String> invalid = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(
+                        "http://localhost:" + metricsHttpServer.getPort() + "/export?format=xml"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, invalid.statusCode());
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.acquiringserver.fault;
+
+import org.example.acquiringserver.metrics.FaultType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты для конфигурации fault injection
+ */
+class FaultConfigurationTest {
+
+    @Test
+    void testParse_MerchantOverrideInheritsDefaults() {
+        Properties properties = new Properties();
+        properties.setProperty("timeout.probability", "0.05");
+        properties.setProperty("issuer-reject.probability", "0.03");
+        properties.setProperty("network-delay.distribution", "UNIFORM");
+        properties.setProperty("network-delay.max-ms", "100");
+        properties.setProperty("merchant.MERCHANT_001.issuer-reject.probability", "0.5");
+        properties.setProperty("merchant.MERCHANT_001.network-delay.distribution", "FIXED");
+        properties.setProperty("merchant.MERCHANT_001.network-delay.mean-ms", "40");
+
+        FaultConfiguration configuration = FaultConfiguration.parse(properties);
+
+        FaultProfile defaults = configuration.profile(null);
+        FaultProfile merchant = configuration.profile("MERCHANT_001");
+        assertEquals(0.03, defaults.probability(FaultType.ISSUER_REJECT));
+        assertEquals(0.5, merchant.probability(FaultType.ISSUER_REJECT));
+        assertEquals(0.05, merchant.probability(FaultType.TIMEOUT));
+        assertEquals(100, merchant.getDelay().maxMs());
+        assertEquals(40, merchant.getDelay().sample(FaultRandom.seeded(1)));
+        assertSame(defaults, configuration.profile("MERCHANT_002"));
+        assertEquals(1, configuration.merchantOverrideCount());
+    }
+
+    @Test
+    void testParse_InvalidProbability() {
+        Properties properties = new Properties();
+        properties.setProperty("database-failure.probability", "1.5");
+
+        assertThrows(IllegalArgumentException.class, () -> FaultConfiguration.parse(properties));
+    }
+
+    @Test
+    void testParse_DeclineReasons() {
+        Properties properties = new Properties();
+        properties.setProperty("issuer-reject.reasons", "CARD_EXPIRED, CARD_BLOCKED");
+
+        FaultConfiguration configuration = FaultConfiguration.parse(properties);
+
+        assertEquals(2, configuration.declineReasonCount());
+        assertEquals("CARD_BLOCKED", configuration.declineReason(1));
+    }
+
+    @Test
+    void testSeededRandom_Reproducible() {
+        FaultRandom first = FaultRandom.seeded(42);
+        FaultRandom second = FaultRandom.seeded(42);
+        DelayDistribution delay = new DelayDistribution(DelayDistribution.Type.EXPONENTIAL, 5, 500, 50);
+
+        for (int i = 0; i < 100; i++) {
+            long sample = delay.sample(first);
+            assertEquals(sample, delay.sample(second));
+            assertTrue(sample >= 5 && sample <= 500);
+        }
+    }
+}
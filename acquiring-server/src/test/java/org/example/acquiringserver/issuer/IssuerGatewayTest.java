@@ -0,0 +1,166 @@
+package org.example.acquiringserver.issuer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.acquiringserver.bin.BinRoute;
+import org.example.acquiringserver.engine.Authorizer;
+import org.example.acquiringserver.model.TransactionEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Тесты для шлюза эмитентов и заглушки эмитента
+ */
+class IssuerGatewayTest {
+
+    private static final String ISSUER = "BANK_A";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private IssuerStubServer stub;
+    private IssuerGateway gateway;
+
+    @AfterEach
+    void tearDown() {
+        if (gateway != null) {
+            gateway.close();
+        }
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void testAuthorize_ManyRequestsShareOneConnection() throws IOException {
+        stub = IssuerStubServer.start(0, IssuerStubProfile.parse("distribution=UNIFORM,min-ms=1,max-ms=30"));
+        gateway = gateway(";connections=1;max-in-flight=500;timeout-ms=2000");
+
+        List<CompletableFuture<IssuerGateway.Decision>> decisions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            decisions.add(gateway.authorize(ISSUER, transaction(i, 100)));
+        }
+
+        for (CompletableFuture<IssuerGateway.Decision> decision : decisions) {
+            assertEquals(new IssuerGateway.Decision(IssuerGateway.Result.APPROVED, null), decision.join());
+        }
+        assertEquals(200.0, meterRegistry.counter("acquirer.issuer.requests",
+                "issuer", ISSUER, "result", "APPROVED").count());
+
+        stub.setProfile(IssuerStubProfile.parse("decline=1"));
+        assertEquals(new IssuerGateway.Decision(IssuerGateway.Result.DECLINED, IssuerStubProfile.DECLINE_REASON),
+                gateway.authorize(ISSUER, transaction(1000, 100)).join());
+    }
+
+    @Test
+    void testAuthorize_SlowIssuerTimesOutAndStandInDecides() throws IOException {
+        stub = IssuerStubServer.start(0, IssuerStubProfile.parse("mean-ms=500"));
+        gateway = gateway(";timeout-ms=50");
+        Authorizer authorizer = new IssuerAuthorizer(gateway, new StandInRules(1000), Authorizer.APPROVE_ALL,
+                meterRegistry);
+
+        assertEquals(IssuerGateway.Result.TIMEOUT, gateway.authorize(ISSUER, transaction(1, 100)).join().result());
+        assertNull(authorizer.authorize(routed(transaction(2, 1000), BinRoute.Route.ISSUER)));
+        assertEquals(StandInRules.ISSUER_UNAVAILABLE,
+                authorizer.authorize(routed(transaction(3, 1001), BinRoute.Route.ISSUER)));
+        assertEquals(1.0, meterRegistry.counter("acquirer.issuer.stand-in", "result", "approved").count());
+        assertEquals(1.0, meterRegistry.counter("acquirer.issuer.stand-in", "result", "declined").count());
+    }
+
+    @Test
+    void testAuthorizeAsync_LateApprovalIsReversedWhenStandInDeclines() throws Exception {
+        // Эмитент одобряет, но позже таймаута шлюза
+        stub = IssuerStubServer.start(0, IssuerStubProfile.parse("distribution=UNIFORM,min-ms=300,max-ms=300"));
+        gateway = gateway(";timeout-ms=50");
+        Authorizer authorizer = new IssuerAuthorizer(gateway, new StandInRules(1000), Authorizer.APPROVE_ALL,
+                meterRegistry);
+
+        assertNull(authorizer.authorizeAsync(routed(transaction(1, 1000), BinRoute.Route.ISSUER)).join());
+        assertEquals(StandInRules.ISSUER_UNAVAILABLE,
+                authorizer.authorizeAsync(routed(transaction(2, 1001), BinRoute.Route.ISSUER)).join());
+
+        assertEquals(1.0, meterRegistry.counter("acquirer.issuer.timeout-reversals").count());
+        long deadline = System.currentTimeMillis() + 2000;
+        while (stub.getReversals() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, stub.getReversals());
+    }
+
+    @Test
+    void testAuthorize_InFlightLimitRejectsExcess() throws IOException {
+        stub = IssuerStubServer.start(0, IssuerStubProfile.parse("mean-ms=200"));
+        gateway = gateway(";max-in-flight=2;timeout-ms=2000");
+
+        List<CompletableFuture<IssuerGateway.Decision>> decisions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            decisions.add(gateway.authorize(ISSUER, transaction(i, 100)));
+        }
+
+        long approved = decisions.stream()
+                .filter(decision -> decision.join().result() == IssuerGateway.Result.APPROVED).count();
+        long rejected = decisions.stream()
+                .filter(decision -> decision.join().result() == IssuerGateway.Result.REJECTED).count();
+        assertEquals(2, approved);
+        assertEquals(3, rejected);
+        // Разрешения возвращены: следующий запрос снова проходит
+        assertEquals(IssuerGateway.Result.APPROVED, gateway.authorize(ISSUER, transaction(9, 100)).join().result());
+    }
+
+    @Test
+    void testAuthorize_UnavailableIssuerAndLocalRoute() throws IOException {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        gateway = new IssuerGateway(List.of(IssuerEndpoint.parse(ISSUER + "=localhost:" + closedPort, 1, 8, 200)),
+                meterRegistry);
+        Authorizer local = transaction -> "LOCAL_DECISION";
+        Authorizer authorizer = new IssuerAuthorizer(gateway, new StandInRules(0), local, meterRegistry);
+
+        assertEquals(IssuerGateway.Result.UNAVAILABLE, gateway.authorize(ISSUER, transaction(1, 100)).join().result());
+        assertEquals(IssuerGateway.Result.UNAVAILABLE,
+                gateway.authorize("BANK_X", transaction(2, 100)).join().result());
+        assertEquals(StandInRules.ISSUER_UNAVAILABLE,
+                authorizer.authorize(routed(transaction(3, 100), BinRoute.Route.ISSUER)));
+        assertEquals("LOCAL_DECISION", authorizer.authorize(routed(transaction(4, 100), BinRoute.Route.LOCAL)));
+        assertEquals("LOCAL_DECISION", authorizer.authorize(transaction(5, 100)));
+    }
+
+    @Test
+    void testEndpointParse() {
+        IssuerEndpoint endpoint = IssuerEndpoint.parse(
+                " BANK_A=issuer.local:9101;timeout-ms=300;connections=4", 2, 64, 500);
+
+        assertEquals(new IssuerEndpoint("BANK_A", "issuer.local", 9101, 4, 64, 300), endpoint);
+        assertThrows(IllegalArgumentException.class, () -> IssuerEndpoint.parse("BANK_A:9101", 2, 64, 500));
+        assertThrows(IllegalArgumentException.class, () -> IssuerEndpoint.parse("BANK_A=h:1;retries=3", 2, 64, 500));
+        assertThrows(IllegalArgumentException.class, () -> IssuerStubProfile.parse("decline=2"));
+    }
+
+    private IssuerGateway gateway(String options) {
+        return new IssuerGateway(List.of(IssuerEndpoint.parse(
+                ISSUER + "=localhost:" + stub.getLocalPort() + options, 2, 64, 500)), meterRegistry);
+    }
+
+    private static TransactionEntity transaction(int id, int amount) {
+        TransactionEntity transaction = new TransactionEntity();
+        transaction.setTransactionId("TX-" + id);
+        transaction.setPan("4242424242424242");
+        transaction.setMerchantId("MERCHANT_001");
+        transaction.setAmount(amount);
+        return transaction;
+    }
+
+    private static TransactionEntity routed(TransactionEntity transaction, BinRoute.Route route) {
+        transaction.setBinRoute(new BinRoute(ISSUER, "VISA", route));
+        return transaction;
+    }
+}
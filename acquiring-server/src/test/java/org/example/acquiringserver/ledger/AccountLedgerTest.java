@@ -0,0 +1,107 @@
+package org.example.acquiringserver.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Тесты для леджера счетов
+ */
+class AccountLedgerTest {
+
+    private static final String PAN = "424242******4242";
+    private static final Clock DAY_ONE = Clock.fixed(Instant.parse("2024-01-01T10:00:00Z"), ZoneOffset.UTC);
+    private static final Clock DAY_TWO = Clock.fixed(Instant.parse("2024-01-02T10:00:00Z"), ZoneOffset.UTC);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testAuthorize_LimitsAndBalance() {
+        AccountLedger ledger = new AccountLedger(1000, 600, 900, DAY_ONE);
+
+        assertEquals(DeclineReason.TRANSACTION_LIMIT_EXCEEDED, ledger.authorize(PAN, 700));
+        assertNull(ledger.authorize(PAN, 500));
+        assertEquals(DeclineReason.TRANSACTION_LIMIT_EXCEEDED, ledger.authorize(PAN, 450));
+        assertNull(ledger.authorize(PAN, 400));
+        assertEquals(100, ledger.state(PAN).balance());
+
+        // Новый день сбрасывает суточный расход, но не баланс
+        AccountLedger nextDay = new AccountLedger(1000, 600, 900, DAY_TWO);
+        nextDay.restore(ledger.snapshot());
+        assertEquals(DeclineReason.INSUFFICIENT_FUNDS, nextDay.authorize(PAN, 200));
+        assertNull(nextDay.authorize(PAN, 100));
+        assertEquals(100, nextDay.state(PAN).dailySpent());
+    }
+
+    @Test
+    void testBlockedCardAndReverse() {
+        AccountLedger ledger = new AccountLedger(1000, 1000, 1000, Set.of("555555******5555"), DAY_ONE);
+
+        assertEquals(DeclineReason.CARD_BLOCKED, ledger.authorize("555555******5555", 10));
+        assertNull(ledger.authorize(PAN, 300));
+        ledger.reverse(PAN, 300);
+        assertEquals(1000, ledger.state(PAN).balance());
+        assertEquals(0, ledger.state(PAN).dailySpent());
+    }
+
+    @Test
+    void testConcurrentDebits_NoOverdraft() throws Exception {
+        AccountLedger ledger = new AccountLedger(10_000, 100, 1_000_000, DAY_ONE);
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                int approved = 0;
+                for (int i = 0; i < 1000; i++) {
+                    if (ledger.authorize(PAN, 7) == null) {
+                        approved++;
+                    }
+                }
+                return approved;
+            }));
+        }
+        start.countDown();
+        int approved = 0;
+        for (Future<Integer> future : futures) {
+            approved += future.get();
+        }
+        pool.shutdown();
+
+        assertEquals(10_000 / 7, approved);
+        assertEquals(10_000 % 7, ledger.state(PAN).balance());
+    }
+
+    @Test
+    void testSnapshot_RoundTrip() throws Exception {
+        AccountLedger ledger = new AccountLedger(1000, 1000, 1000, DAY_ONE);
+        ledger.authorize(PAN, 250);
+        ledger.block("378282******0005");
+        Path file = tempDir.resolve("ledger-snapshot.txt");
+
+        LedgerSnapshots.write(file, ledger.snapshot());
+        AccountLedger restored = new AccountLedger(0, 0, 0, DAY_ONE);
+        restored.restore(LedgerSnapshots.read(file));
+
+        assertEquals(2, restored.size());
+        assertEquals(ledger.state(PAN), restored.state(PAN));
+        assertEquals(DeclineReason.CARD_BLOCKED, restored.authorize("378282******0005", 1));
+    }
+}
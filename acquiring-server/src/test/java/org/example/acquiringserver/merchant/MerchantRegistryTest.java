@@ -0,0 +1,153 @@
+package org.example.acquiringserver.merchant;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.acquiringserver.engine.Authorizer;
+import org.example.acquiringserver.model.TransactionEntity;
+import org.example.acquiringserver.support.AllocationBudgets;
+import org.example.acquiringserver.support.AllocationMeter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты для реестра мерчантов
+ */
+class MerchantRegistryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testFind_EveryMerchantHasOwnSlot() throws IOException {
+        List<MerchantRecord> merchants = merchants(10_000);
+        Path file = dir.resolve("merchants.bin");
+        MerchantRegistryFile.write(file, merchants);
+
+        MerchantTable table = MerchantTable.open(file);
+
+        assertEquals(10_000, table.size());
+        Set<Integer> slots = new HashSet<>();
+        for (MerchantRecord merchant : merchants) {
+            int slot = table.find(merchant.merchantId());
+            assertTrue(slot >= 0, "Merchant not found: " + merchant.merchantId());
+            assertTrue(slots.add(slot), "Slot collision for " + merchant.merchantId());
+            assertEquals(merchant.active(), table.active(slot));
+            assertEquals(merchant.mcc(), table.mcc(slot));
+            assertEquals(merchant.maxAmount(), table.maxAmount(slot));
+        }
+        assertEquals(-1, table.find("MERCHANT_UNKNOWN"));
+        assertEquals(-1, table.find("M"));
+        assertEquals(-1, table.find(""));
+        assertEquals(-1, table.find("MERCHANT_" + "X".repeat(40)));
+    }
+
+    @Test
+    void testWrite_RejectsDuplicatesAndReadsCsv() throws IOException {
+        Path csv = dir.resolve("merchants.csv");
+        Files.writeString(csv, "merchant_id,active,mcc,max_amount\n"
+                + "MERCHANT_001,true,5411,0\n"
+                + "MERCHANT_002,false,5812,500\n");
+
+        List<MerchantRecord> merchants = MerchantRegistryFile.readCsv(csv);
+
+        assertEquals(List.of(new MerchantRecord("MERCHANT_001", true, 5411, 0),
+                new MerchantRecord("MERCHANT_002", false, 5812, 500)), merchants);
+        assertThrows(IllegalArgumentException.class, () -> MerchantRegistryFile.write(dir.resolve("dup.bin"),
+                List.of(merchants.get(0), merchants.get(0))));
+    }
+
+    @Test
+    void testReload_SwapsTableAndKeepsOldOnError() throws IOException {
+        Path file = dir.resolve("merchants.bin");
+        MerchantRegistryFile.write(file, List.of(new MerchantRecord("MERCHANT_001", true, 5411, 0)));
+        MerchantRegistry registry = new MerchantRegistry(file.toString(), new SimpleMeterRegistry());
+        registry.load();
+        MerchantTable first = registry.current();
+
+        MerchantRegistryFile.write(file, List.of(new MerchantRecord("MERCHANT_001", true, 5411, 0),
+                new MerchantRecord("MERCHANT_002", true, 5411, 0)));
+        touch(file, 10_000);
+        registry.reloadIfModified();
+
+        MerchantTable second = registry.current();
+        assertNotEquals(first, second);
+        assertEquals(2, second.size());
+        assertTrue(second.find("MERCHANT_002") >= 0);
+        // Старое отображение остается рабочим у тех, кто взял ссылку до подмены
+        assertEquals(-1, first.find("MERCHANT_002"));
+        assertTrue(first.find("MERCHANT_001") >= 0);
+
+        Files.write(file, new byte[]{1, 2, 3});
+        touch(file, 20_000);
+        registry.reloadIfModified();
+
+        assertSame(second, registry.current());
+    }
+
+    @Test
+    void testAuthorizer_DeclinesUnknownInactiveAndOverLimit() throws IOException {
+        Path file = dir.resolve("merchants.bin");
+        MerchantRegistryFile.write(file, List.of(
+                new MerchantRecord("MERCHANT_001", true, 5411, 0),
+                new MerchantRecord("MERCHANT_002", false, 5411, 0),
+                new MerchantRecord("MERCHANT_003", true, 5411, 1000)));
+        MerchantRegistry registry = new MerchantRegistry(file.toString(), new SimpleMeterRegistry());
+        registry.load();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Authorizer authorizer = new MerchantAuthorizer(registry, Authorizer.APPROVE_ALL, meterRegistry);
+
+        assertNull(authorizer.authorize(transaction("MERCHANT_001", 50_000)));
+        assertNull(authorizer.authorize(transaction("MERCHANT_003", 1000)));
+        assertEquals(MerchantAuthorizer.INVALID_MERCHANT, authorizer.authorize(transaction("MERCHANT_999", 100)));
+        assertEquals(MerchantAuthorizer.INVALID_MERCHANT, authorizer.authorize(transaction("MERCHANT_002", 100)));
+        assertEquals(MerchantAuthorizer.TRANSACTION_LIMIT_EXCEEDED,
+                authorizer.authorize(transaction("MERCHANT_003", 1001)));
+        assertEquals(1.0, meterRegistry.counter("acquirer.merchant.declines", "reason", "unknown").count());
+        assertEquals(1.0, meterRegistry.counter("acquirer.merchant.declines", "reason", "limit").count());
+    }
+
+    @Test
+    void testFind_AllocationBudget() throws IOException {
+        Path file = dir.resolve("merchants.bin");
+        MerchantRegistryFile.write(file, merchants(1000));
+        MerchantTable table = MerchantTable.open(file);
+
+        long bytes = AllocationMeter.bytesPerOperation(20_000, 100_000, () -> table.find("MERCHANT_00042"));
+
+        AllocationBudgets.assertWithinBudget("merchant-table.find", bytes);
+    }
+
+    private static List<MerchantRecord> merchants(int count) {
+        List<MerchantRecord> merchants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            merchants.add(new MerchantRecord(String.format("MERCHANT_%05d", i), i % 10 != 0, 5000 + i % 1000, i));
+        }
+        return merchants;
+    }
+
+    private static TransactionEntity transaction(String merchantId, int amount) {
+        TransactionEntity transaction = new TransactionEntity();
+        transaction.setMerchantId(merchantId);
+        transaction.setAmount(amount);
+        return transaction;
+    }
+
+    private static void touch(Path file, long offsetMillis) throws IOException {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + offsetMillis));
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.acquiringserver.network;
+
+import org.example.acquiringserver.metrics.ProcessingTrace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты для расширений конверта версии 0x02
+ */
+class EnvelopeExtensionsTest {
+
+    private final ProcessingTrace trace = ProcessingTrace.current();
+
+    @BeforeEach
+    void setUp() {
+        trace.begin(System.nanoTime());
+    }
+
+    @AfterEach
+    void tearDown() {
+        trace.end();
+    }
+
+    @Test
+    void testRead_TraceContextAfterUnknownExtension() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.putShort((short) (3 + 26));
+        buffer.put((byte) 0x7F).put((byte) 1).put((byte) 0x55);
+        buffer.put(EnvelopeExtensions.TAG_TRACE_CONTEXT).put((byte) 24)
+                .putLong(0x0102030405060708L).putLong(0x1112131415161718L).putLong(1_700_000_000_000_000L);
+        buffer.put((byte) 0xAB);
+        buffer.flip();
+
+        assertTrue(EnvelopeExtensions.read(buffer, trace));
+
+        assertTrue(trace.hasTraceContext());
+        assertEquals(0x0102030405060708L, trace.getTraceIdHigh());
+        assertEquals(0x1112131415161718L, trace.getTraceIdLow());
+        assertEquals(1_700_000_000_000_000L, trace.getClientSendMicros());
+        assertEquals((byte) 0xAB, buffer.get(), "Buffer must point to the first byte after the extension block");
+    }
+
+    @Test
+    void testRead_TruncatedExtension() {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putShort((short) 4);
+        buffer.put(EnvelopeExtensions.TAG_TRACE_CONTEXT).put((byte) 24).put((byte) 0).put((byte) 0);
+        buffer.flip();
+
+        assertFalse(EnvelopeExtensions.read(buffer, trace));
+        assertFalse(trace.hasTraceContext());
+    }
+
+    @Test
+    void testRead_BlockLongerThanPacket() {
+        ByteBuffer buffer = ByteBuffer.allocate(4).putShort((short) 100).putShort((short) 0);
+        buffer.flip();
+
+        assertFalse(EnvelopeExtensions.read(buffer, trace));
+    }
+
+    @Test
+    void testWriteResponse_OnlyWithTraceContext() {
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        EnvelopeExtensions.writeResponse(plain, trace);
+        assertEquals(0, plain.size());
+
+        trace.traceContext(1L, 2L, 3L);
+        ByteArrayOutputStream extended = new ByteArrayOutputStream();
+        EnvelopeExtensions.writeResponse(extended, trace);
+
+        ByteBuffer response = ByteBuffer.wrap(extended.toByteArray());
+        assertEquals(26, response.remaining());
+        assertEquals(EnvelopeExtensions.TAG_TRACE_CONTEXT, response.get());
+        assertEquals(24, response.get());
+        long received = response.getLong();
+        long started = response.getLong();
+        long finished = response.getLong();
+        assertTrue(received <= started && started <= finished);
+    }
+}
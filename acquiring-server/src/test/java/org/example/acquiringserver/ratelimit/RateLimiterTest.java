@@ -0,0 +1,189 @@
+package org.example.acquiringserver.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.acquiringserver.crypto.CryptoUtils;
+import org.example.acquiringserver.engine.AuthorizationEngine;
+import org.example.acquiringserver.metrics.ProcessingTrace;
+import org.example.acquiringserver.model.TransactionEntity;
+import org.example.acquiringserver.support.TestPackets;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты для ограничения частоты
+ */
+class RateLimiterTest {
+
+    private static final String HMAC_KEY = "my-secret-hmac-key-12345";
+    private static final CryptoUtils CRYPTO = CryptoUtils.load("classpath:server-private.pem", HMAC_KEY);
+    private static final TestPackets PACKETS = new TestPackets(
+            (PrivateKey) ReflectionTestUtils.getField(CRYPTO, "serverPrivateKey"), HMAC_KEY);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testTokenBucket_BurstThenRefill() {
+        RateLimit limit = RateLimit.parse("10/3");
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(now);
+
+        assertTrue(bucket.tryAcquire(limit, now));
+        assertTrue(bucket.tryAcquire(limit, now));
+        assertTrue(bucket.tryAcquire(limit, now));
+        assertFalse(bucket.tryAcquire(limit, now));
+        assertFalse(bucket.isFull(now));
+
+        // 10 токенов в секунду: через 100 мс появляется ровно один
+        now += TimeUnit.MILLISECONDS.toNanos(100);
+        assertTrue(bucket.tryAcquire(limit, now));
+        assertFalse(bucket.tryAcquire(limit, now));
+        assertTrue(bucket.isFull(now + TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    @Test
+    void testAdmit_TerminalAndMerchantOverridesReload() throws IOException {
+        Path config = dir.resolve("rate-limits.properties");
+        Files.writeString(config, "merchant.MERCHANT_VIP=1/5\n");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimiter limiter = limiter(config, "1000/1000", "1/2", "1/1", 1000, meterRegistry);
+
+        assertTrue(limiter.admitTransaction("T1", null));
+        assertTrue(limiter.admitTransaction("T1", null));
+        assertFalse(limiter.admitTransaction("T1", null));
+        assertTrue(limiter.admitTransaction("T2", "MERCHANT_001"));
+        assertFalse(limiter.admitTransaction("T3", "MERCHANT_001"));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.admitTransaction("VIP-" + i, "MERCHANT_VIP"));
+        }
+        assertFalse(limiter.admitTransaction("VIP-5", "MERCHANT_VIP"));
+        assertEquals(1.0, meterRegistry.counter("acquirer.rate-limit.rejected", "scope", "terminal").count());
+        assertEquals(2.0, meterRegistry.counter("acquirer.rate-limit.rejected", "scope", "merchant").count());
+
+        Files.writeString(config, "merchant.MERCHANT_VIP=1/100\n");
+        Files.setLastModifiedTime(config, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        limiter.reloadIfModified();
+        assertTrue(limiter.admitTransaction("VIP-6", "MERCHANT_VIP"));
+
+        Files.writeString(config, "merchant.MERCHANT_VIP=fast\n");
+        Files.setLastModifiedTime(config, FileTime.fromMillis(System.currentTimeMillis() + 20_000));
+        limiter.reloadIfModified();
+        assertEquals(new RateLimit(1, 100), limiter.getConfiguration().merchant("MERCHANT_VIP"));
+    }
+
+    @Test
+    void testAdmit_RotatingTerminalIdsLimitedByAddress() throws IOException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimiter limiter = limiter(dir.resolve("missing.properties"), "1/5", "1/2", "1000/1000", 10,
+                meterRegistry);
+
+        int admitted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (limiter.admitClient("10.0.0.1") && limiter.admitTransaction("SPOOFED-" + i, null)) {
+                admitted++;
+            }
+        }
+        // Новый ID терминала не дает новой корзины: действует корзина адреса
+        assertEquals(5, admitted);
+        assertTrue(limiter.admitClient("10.0.0.2"));
+
+        // Ключей терминалов уже max-keys: новые терминалы не получают корзину, но и не делят
+        // общую исчерпанную корзину - их ограничивает только собственный адрес
+        for (int i = 5; i < 20; i++) {
+            assertTrue(limiter.admitTransaction("SPOOFED-" + i, null));
+        }
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.admitTransaction("TERMINAL_REAL", null));
+        }
+        assertEquals(12, limiter.size());
+        assertEquals(13.0, meterRegistry.counter("acquirer.rate-limit.overflow").count());
+        assertEquals(95.0, meterRegistry.counter("acquirer.rate-limit.rejected", "scope", "address").count());
+    }
+
+    @Test
+    void testEngine_AddressBeforeHmacTerminalAndMerchantAfterDecryption() throws IOException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimiter limiter = limiter(dir.resolve("missing.properties"), "1000/1000", "1/1", "1/1", 1000,
+                meterRegistry);
+        List<TransactionEntity> saved = new ArrayList<>();
+        AuthorizationEngine engine = AuthorizationEngine.builder()
+                .cryptoUtils(CRYPTO)
+                .transactionStore(saved::add)
+                .admissionControl(limiter)
+                .build();
+        byte[] identity = TestPackets.identityExtension("TERMINAL_01", "MERCHANT_001");
+
+        // Мусор с чужими ID в конверте: HMAC не сходится, корзины терминала и мерчанта не тратятся
+        byte[] junk = PACKETS.packet(
+                TestPackets.transactionTlv("4111111111111111", 500, "TX-0", "MERCHANT_001", "TERMINAL_01"), identity);
+        junk[junk.length - 1] ^= 0x01;
+        byte[] junkResponse = engine.authorize(junk);
+        // Конверт не совпадает с TLV под HMAC - отказ до ограничения
+        byte[] spoofedTerminal = engine.authorize(PACKETS.packet(
+                TestPackets.transactionTlv("4111111111111111", 500, "TX-00", "MERCHANT_001", "TERMINAL_66"), identity));
+        byte[] missingTerminal = engine.authorize(PACKETS.packet(
+                TestPackets.transactionTlv("4111111111111111", 500, "TX-01", "MERCHANT_001"), identity));
+
+        byte[] first = engine.authorize(PACKETS.packet(
+                TestPackets.transactionTlv("4111111111111111", 500, "TX-1", "MERCHANT_001", "TERMINAL_01"), identity));
+        byte[] sameMerchant = engine.authorize(PACKETS.packet(
+                TestPackets.transactionTlv("4111111111111111", 500, "TX-2", "MERCHANT_001", "TERMINAL_02")));
+        byte[] sameTerminal = engine.authorize(PACKETS.packet(
+                TestPackets.transactionTlv("4111111111111111", 500, "TX-3", "MERCHANT_002", "TERMINAL_01")));
+
+        assertEquals(0x06, junkResponse[0]);
+        assertEquals(0x01, spoofedTerminal[0]);
+        assertEquals(0x01, missingTerminal[0]);
+        assertEquals(0x00, first[0]);
+        assertEquals(0x08, sameMerchant[0]);
+        assertEquals(0x08, sameTerminal[0]);
+        assertEquals(List.of("TX-1"), saved.stream().map(TransactionEntity::getTransactionId).toList());
+        assertEquals(1.0, meterRegistry.counter("acquirer.rate-limit.rejected", "scope", "terminal").count());
+        assertEquals(1.0, meterRegistry.counter("acquirer.rate-limit.rejected", "scope", "merchant").count());
+
+        // Адрес ограничивается до HMAC
+        RateLimiter strict = limiter(dir.resolve("missing.properties"), "1/1", "1000/1000", "1000/1000", 1000,
+                new SimpleMeterRegistry());
+        AuthorizationEngine strictEngine = AuthorizationEngine.builder()
+                .cryptoUtils(CRYPTO)
+                .transactionStore(saved::add)
+                .admissionControl(strict)
+                .build();
+        assertEquals(0x06, authorizeFrom(strictEngine, "10.0.0.1", junk)[0]);
+        assertEquals(0x08, authorizeFrom(strictEngine, "10.0.0.1", junk)[0]);
+    }
+
+    private static byte[] authorizeFrom(AuthorizationEngine engine, String clientAddress, byte[] packet) {
+        ProcessingTrace trace = ProcessingTrace.current();
+        trace.begin(System.nanoTime());
+        trace.client(clientAddress);
+        try {
+            return engine.authorize(packet);
+        } finally {
+            trace.end();
+        }
+    }
+
+    private static RateLimiter limiter(Path config, String address, String terminal, String merchant, int maxKeys,
+                                       SimpleMeterRegistry meterRegistry) throws IOException {
+        RateLimiter limiter = new RateLimiter(new DefaultResourceLoader(), meterRegistry,
+                config.toUri().toString(), address, terminal, merchant, maxKeys);
+        limiter.init();
+        return limiter;
+    }
+}
@@ -0,0 +1,190 @@
+package org.example.acquiringserver.retention;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.acquiringserver.export.TransactionExporter;
+import org.example.acquiringserver.model.TransactionEntity;
+import org.example.acquiringserver.repository.TransactionRepository;
+import org.example.acquiringserver.settlement.SettlementService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты архивации транзакций в сегменты
+ */
+@SpringBootTest(properties = {
+        "server.port=0",
+        "metrics.http.port=0",
+        "ledger.snapshot.enabled=false",
+        "aggregation.snapshot.enabled=false",
+        "spring.jpa.show-sql=false"
+})
+class RetentionServiceTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @TempDir
+    static Path archiveDir;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("retention.archive-dir", () -> archiveDir.toString());
+    }
+
+    @Autowired
+    private RetentionService retentionService;
+
+    @Autowired
+    private TransactionArchive archive;
+
+    @Autowired
+    private TransactionRepository repository;
+
+    @Autowired
+    private TransactionExporter exporter;
+
+    @Autowired
+    private ObjectProvider<SettlementService> settlement;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void testArchive_MovesOldRowsAndKeepsThemQueryable() throws Exception {
+        List<TransactionEntity> transactions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            transactions.add(transaction("TX-" + i, DAY.plusMinutes(i)));
+        }
+        repository.saveAll(transactions);
+
+        ArchiveSegment first = retentionService.archiveOlderThan(DAY.plusMinutes(600));
+        ArchiveSegment second = retentionService.archiveOlderThan(DAY.plusMinutes(800));
+
+        assertEquals(600, first.getRows());
+        assertEquals(200, second.getRows());
+        assertNull(retentionService.archiveOlderThan(DAY.plusMinutes(800)));
+        assertEquals(200, repository.count());
+        assertTrue(Files.exists(first.getDataFile()));
+
+        assertEquals(DAY.plusMinutes(42), archive.findByTransactionId("TX-42").orElseThrow().getTimestamp());
+        assertEquals("TX-700", archive.findByTransactionId("TX-700").orElseThrow().getTransactionId());
+        assertFalse(archive.findByTransactionId("TX-900").isPresent());
+
+        List<TransactionEntity> range = new ArrayList<>();
+        archive.findByTimeRange(DAY.plusMinutes(590), DAY.plusMinutes(610), range::add);
+        assertEquals(20, range.size());
+        assertEquals("TX-590", range.get(0).getTransactionId());
+
+        // Индексы сегментов читаются заново после перезапуска
+        TransactionArchive reloaded = new TransactionArchive(archiveDir.toString(), 0.01, new SimpleMeterRegistry());
+        reloaded.load();
+        assertEquals(800, reloaded.rowCount());
+        assertEquals(archive.archivedUpToMicros(), reloaded.archivedUpToMicros());
+    }
+
+    @Test
+    void testArchive_StopsAtUnsettledApproval(@TempDir Path ownArchiveDir) throws Exception {
+        List<TransactionEntity> transactions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            transactions.add(transaction("TX-" + i, DAY.plusMinutes(i)));
+        }
+        // Отклонения в расчет не входят; одобрение TX-60 еще не рассчитано
+        transactions.get(30).setStatus("DECLINED");
+        transactions.get(30).setSettlementBatch(null);
+        transactions.get(60).setSettlementBatch(null);
+        repository.saveAll(transactions);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RetentionService retention = retention(ownArchiveDir, settlement, meterRegistry);
+
+        ArchiveSegment segment = retention.archiveOlderThan(DAY.plusMinutes(90));
+
+        assertEquals(60, segment.getRows());
+        assertEquals(40, repository.count());
+        assertTrue(repository.findByTransactionId("TX-60").isPresent());
+        assertNull(retention.archiveOlderThan(DAY.plusMinutes(90)));
+        // Архивация отстает от границы на 30 минут из-за TX-60
+        assertEquals(1800.0, meterRegistry.get("acquirer.archive.settlement-holdback.seconds").gauge().value());
+    }
+
+    @Test
+    void testArchive_SettlementDisabledIgnoresUnsettled(@TempDir Path ownArchiveDir) throws Exception {
+        List<TransactionEntity> transactions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            TransactionEntity transaction = transaction("TX-" + i, DAY.plusMinutes(i));
+            transaction.setSettlementBatch(null);
+            transactions.add(transaction);
+        }
+        repository.saveAll(transactions);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ObjectProvider<SettlementService> noSettlement =
+                new StaticListableBeanFactory().getBeanProvider(SettlementService.class);
+        RetentionService retention = retention(ownArchiveDir, noSettlement, meterRegistry);
+
+        // Без взаиморасчетов пакетов не бывает: граница не останавливается на первом одобрении
+        ArchiveSegment segment = retention.archiveOlderThan(DAY.plusMinutes(90));
+
+        assertEquals(90, segment.getRows());
+        assertEquals(10, repository.count());
+        assertEquals(0.0, meterRegistry.get("acquirer.archive.settlement-holdback.seconds").gauge().value());
+    }
+
+    @Test
+    void testBloomFilter_NoFalseNegatives() {
+        BloomFilter bloom = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            bloom.add("TX-" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(bloom.mightContain("TX-" + i));
+            if (bloom.mightContain("OTHER-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "False positives: " + falsePositives);
+    }
+
+    /**
+     * Сервис со своим архивом: граница общего архива зависит от порядка тестов
+     */
+    private RetentionService retention(Path archiveDir, ObjectProvider<SettlementService> settlement,
+                                       SimpleMeterRegistry meterRegistry) {
+        TransactionArchive ownArchive = new TransactionArchive(archiveDir.toString(), 0.01, meterRegistry);
+        return new RetentionService(repository, exporter, ownArchive, Duration.ofDays(30), settlement,
+                meterRegistry);
+    }
+
+    private static TransactionEntity transaction(String transactionId, LocalDateTime timestamp) {
+        TransactionEntity transaction = new TransactionEntity();
+        transaction.setTransactionId(transactionId);
+        transaction.setPan("424242******4242");
+        transaction.setAmount(100);
+        transaction.setMerchantId("MERCHANT_001");
+        transaction.setStatus("APPROVED");
+        transaction.setAuthCode("123456");
+        transaction.setSettlementBatch("BATCH-1");
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+}
@@ -0,0 +1,141 @@
+package org.example.acquiringserver.settlement;
+
+import org.example.acquiringserver.model.TransactionEntity;
+import org.example.acquiringserver.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты взаиморасчетов: неттинг по мерчантам, отметка строк и продолжение с контрольной точки
+ */
+@SpringBootTest(properties = {
+        "server.port=0",
+        "metrics.http.port=0",
+        "ledger.snapshot.enabled=false",
+        "aggregation.snapshot.enabled=false",
+        "spring.jpa.show-sql=false",
+        "settlement.page-size=70",
+        "settlement.update-batch-size=25"
+})
+class SettlementServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @TempDir
+    static Path outputDir;
+
+    @DynamicPropertySource
+    static void settlementProperties(DynamicPropertyRegistry registry) {
+        registry.add("settlement.output-dir", () -> outputDir.toString());
+    }
+
+    @Autowired
+    private SettlementService settlementService;
+
+    @Autowired
+    private TransactionRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void testSettle_NetsApprovedTransactionsPerMerchant() throws Exception {
+        List<TransactionEntity> transactions = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            transactions.add(transaction("A-" + i, "MERCHANT_00" + (i % 3), i, "APPROVED",
+                    DAY.atStartOfDay().plusMinutes(i)));
+        }
+        for (int i = 0; i < 50; i++) {
+            transactions.add(transaction("D-" + i, "MERCHANT_000", 1000, "DECLINED", DAY.atTime(12, 0)));
+        }
+        // После границы дня - войдет в следующий пакет
+        transactions.add(transaction("NEXT", "MERCHANT_000", 1000, "APPROVED", DAY.plusDays(1).atTime(0, 5)));
+        repository.saveAll(transactions);
+
+        SettlementResult result = settlementService.settle(DAY);
+
+        assertEquals(300, result.rows());
+        assertEquals(3, result.merchants().size());
+        assertEquals(new MerchantSettlement("MERCHANT_000", 100, 14850), result.merchants().get(0));
+        assertEquals(299 * 300 / 2, result.totalAmount());
+        List<String> report = Files.readAllLines(result.reportFile());
+        assertEquals(SettlementService.REPORT_HEADER, report.get(0));
+        assertEquals("TOTAL,300," + 299 * 300 / 2, report.get(report.size() - 1));
+        assertFalse(Files.exists(outputDir.resolve("settlement-" + DAY + ".checkpoint")));
+
+        Map<String, Long> batches = new HashMap<>();
+        repository.findAll().forEach(transaction ->
+                batches.merge(String.valueOf(transaction.getSettlementBatch()), 1L, Long::sum));
+        assertEquals(Map.of("SETTLE-" + DAY, 300L, "null", 51L), batches);
+        assertNull(settlementService.settle(DAY));
+    }
+
+    @Test
+    void testSettle_ResumesFromCheckpoint() throws Exception {
+        LocalDate day = DAY.plusDays(10);
+        List<TransactionEntity> transactions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            transactions.add(transaction("R-" + i, "MERCHANT_00" + (i % 4), 10, "APPROVED", day.atTime(10, 0)));
+        }
+        repository.saveAll(transactions);
+        List<TransactionEntity> saved = new ArrayList<>(repository.findAll());
+        saved.sort(Comparator.comparing(TransactionEntity::getId));
+
+        // Прерванный прогон: первые 80 строк помечены, контрольная точка успела записаться после 50
+        String batchId = "SETTLE-" + day;
+        repository.markSettled(batchId, saved.subList(0, 80).stream().map(TransactionEntity::getId).toList());
+        SettlementCheckpoint checkpoint = new SettlementCheckpoint(batchId, day.plusDays(1).atStartOfDay());
+        List<SettlementRow> settled = saved.subList(0, 50).stream()
+                .map(transaction -> new SettlementRow(transaction.getId(), transaction.getMerchantId(), 10))
+                .toList();
+        checkpoint.add(SettlementNetting.net(settled, 4, ForkJoinPool.commonPool()),
+                saved.get(49).getId(), 50);
+        checkpoint.write(outputDir.resolve("settlement-" + day + ".checkpoint"));
+
+        SettlementResult result = settlementService.settle(day);
+
+        assertTrue(result.resumed());
+        assertEquals(200, result.rows());
+        assertEquals(2000, result.totalAmount());
+        result.merchants().forEach(merchant -> assertEquals(50, merchant.transactionCount()));
+        assertEquals(200, repository.findAll().stream()
+                .filter(transaction -> batchId.equals(transaction.getSettlementBatch()))
+                .count());
+    }
+
+    private static TransactionEntity transaction(String transactionId, String merchantId, int amount, String status,
+                                                 LocalDateTime timestamp) {
+        TransactionEntity transaction = new TransactionEntity();
+        transaction.setTransactionId(transactionId);
+        transaction.setPan("424242******4242");
+        transaction.setAmount(amount);
+        transaction.setMerchantId(merchantId);
+        transaction.setStatus(status);
+        transaction.setAuthCode("123456");
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+}
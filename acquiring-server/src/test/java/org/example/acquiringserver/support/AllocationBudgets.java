@@ -0,0 +1,50 @@
+package org.example.acquiringserver.support;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Бюджеты аллокаций на операцию из allocation-budgets.properties.
+ * <p>
+ * Бюджет - верхняя граница в байтах; превышение означает регрессию на горячем пути.
+ * При осознанном изменении аллокаций бюджет правится в том же коммите
+ */
+public final class AllocationBudgets {
+
+    private static final String BUDGETS_RESOURCE = "/allocation-budgets.properties";
+    private static final Properties BUDGETS = load();
+
+    private AllocationBudgets() {
+    }
+
+    public static long budget(String operation) {
+        String value = BUDGETS.getProperty(operation);
+        if (value == null) {
+            throw new IllegalStateException("No allocation budget for " + operation + " in " + BUDGETS_RESOURCE);
+        }
+        return Long.parseLong(value.trim());
+    }
+
+    public static void assertWithinBudget(String operation, long bytesPerOperation) {
+        long budget = budget(operation);
+        assertTrue(bytesPerOperation <= budget,
+                operation + " allocates " + bytesPerOperation + " bytes/op, budget " + budget + " bytes/op");
+    }
+
+    private static Properties load() {
+        Properties budgets = new Properties();
+        try (InputStream input = AllocationBudgets.class.getResourceAsStream(BUDGETS_RESOURCE)) {
+            if (input == null) {
+                throw new IllegalStateException("Missing " + BUDGETS_RESOURCE);
+            }
+            budgets.load(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return budgets;
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.acquiringserver.support;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+/**
+ * Замер байтов, выделенных текущим потоком на одну операцию.
+ * <p>
+ * Используется счетчик аллокаций потока из com.sun.management.ThreadMXBean (точность - TLAB,
+ * поэтому берется среднее по многим итерациям). Перед замером операция прогревается, чтобы
+ * JIT успел применить escape analysis и результат соответствовал установившемуся режиму
+ */
+public final class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Результат операции сохраняется, чтобы JIT не выбросил вызов как мертвый код
+    private static volatile Object sink;
+
+    private AllocationMeter() {
+    }
+
+    /**
+     * Среднее число байт на одну операцию после warmup прогревочных вызовов
+     */
+    public static long bytesPerOperation(int warmup, int iterations, Supplier<?> operation) {
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("Thread allocation counter is not supported by this JVM");
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        for (int i = 0; i < warmup; i++) {
+            sink = operation.get();
+        }
+        // Собственные аллокации вызова счетчика вычитаются по пустому замеру
+        long overhead = counterOverhead();
+        long start = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            sink = operation.get();
+        }
+        long allocated = THREADS.getCurrentThreadAllocatedBytes() - start - overhead;
+        sink = null;
+        return Math.max(0, allocated) / iterations;
+    }
+
+    private static long counterOverhead() {
+        long start = THREADS.getCurrentThreadAllocatedBytes();
+        return THREADS.getCurrentThreadAllocatedBytes() - start;
+    }
+}
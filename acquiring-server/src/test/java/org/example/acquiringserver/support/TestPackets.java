@@ -0,0 +1,179 @@
+package org.example.acquiringserver.support;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PSource;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.RSAPublicKeySpec;
+
+/**
+ * Сборка корректных пакетов так же, как это делает pos-terminal: RSA-OAEP сессионный ключ,
+ * AES-GCM шифрование TLV и HMAC-SHA256 над шифротекстом.
+ * <p>
+ * Публичный ключ выводится из закрытого ключа сервера, поэтому пакеты всегда проходят проверку
+ */
+public final class TestPackets {
+
+    private static final String RSA_ALGORITHM = "RSA/ECB/OAEPWithSHA-256AndMGF1Padding";
+    private static final String AES_ALGORITHM = "AES/GCM/NoPadding";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final PublicKey serverPublicKey;
+    private final byte[] hmacKey;
+    private final SecureRandom random = new SecureRandom();
+
+    public TestPackets(PrivateKey serverPrivateKey, String hmacKey) {
+        this.serverPublicKey = publicKeyOf(serverPrivateKey);
+        this.hmacKey = hmacKey.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * TLV транзакции: PAN, сумма (big-endian), ID транзакции, ID мерчанта
+     */
+    public static byte[] transactionTlv(String pan, int amount, String transactionId, String merchantId) {
+        return transactionTlv(pan, amount, transactionId, merchantId, null);
+    }
+
+    /**
+     * То же с необязательным ID терминала (0x50); null - без поля
+     */
+    public static byte[] transactionTlv(String pan, int amount, String transactionId, String merchantId,
+                                        String terminalId) {
+        ByteArrayOutputStream tlv = new ByteArrayOutputStream();
+        writeField(tlv, 0x10, pan.getBytes(StandardCharsets.US_ASCII));
+        writeField(tlv, 0x20, ByteBuffer.allocate(4).putInt(amount).array());
+        writeField(tlv, 0x30, transactionId.getBytes(StandardCharsets.US_ASCII));
+        writeField(tlv, 0x40, merchantId.getBytes(StandardCharsets.US_ASCII));
+        if (terminalId != null) {
+            writeField(tlv, 0x50, terminalId.getBytes(StandardCharsets.US_ASCII));
+        }
+        return tlv.toByteArray();
+    }
+
+    /**
+     * Пакет версии 0x01
+     */
+    public byte[] packet(byte[] tlv) {
+        return packet(tlv, null);
+    }
+
+    /**
+     * Пакет версии 0x02 с блоком расширений (например, контекстом трассировки), либо 0x01 при extensions == null
+     */
+    public byte[] packet(byte[] tlv, byte[] extensions) {
+        try {
+            byte[] sessionKey = new byte[32];
+            byte[] iv = new byte[12];
+            random.nextBytes(sessionKey);
+            random.nextBytes(iv);
+
+            Cipher rsa = Cipher.getInstance(RSA_ALGORITHM);
+            rsa.init(Cipher.ENCRYPT_MODE, serverPublicKey, new OAEPParameterSpec(
+                    "SHA-256", "MGF1", MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT));
+            byte[] encryptedSessionKey = rsa.doFinal(sessionKey);
+
+            Cipher aes = Cipher.getInstance(AES_ALGORITHM);
+            aes.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(sessionKey, "AES"), new GCMParameterSpec(128, iv));
+            byte[] encryptedTlv = aes.doFinal(tlv);
+
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(hmacKey, HMAC_ALGORITHM));
+            byte[] hmac = mac.doFinal(encryptedTlv);
+
+            int headerLength = extensions == null ? 4 : 4 + 2 + extensions.length;
+            int totalLength = headerLength + encryptedSessionKey.length + iv.length + hmac.length + encryptedTlv.length;
+            ByteBuffer packet = ByteBuffer.allocate(totalLength);
+            packet.put(extensions == null ? (byte) 0x01 : (byte) 0x02).put((byte) 0x01).putShort((short) totalLength);
+            if (extensions != null) {
+                packet.putShort((short) extensions.length).put(extensions);
+            }
+            packet.put(encryptedSessionKey).put(iv).put(hmac).put(encryptedTlv);
+            return packet.array();
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Failed to build test packet", e);
+        }
+    }
+
+    /**
+     * Запрос статуса (тип 0x02): HMAC над ID транзакции и сам ID, без шифрования
+     */
+    public byte[] statusInquiry(String transactionId) {
+        try {
+            byte[] id = transactionId.getBytes(StandardCharsets.US_ASCII);
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(hmacKey, HMAC_ALGORITHM));
+            byte[] hmac = mac.doFinal(id);
+            int totalLength = 4 + hmac.length + id.length;
+            return ByteBuffer.allocate(totalLength)
+                    .put((byte) 0x01).put((byte) 0x02).putShort((short) totalLength)
+                    .put(hmac).put(id)
+                    .array();
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Failed to build status inquiry", e);
+        }
+    }
+
+    /**
+     * Расширение с контекстом трассировки (тег 0x01): traceId и время отправки клиентом
+     */
+    public static byte[] traceContextExtension(long traceIdHigh, long traceIdLow, long clientSendMicros) {
+        return ByteBuffer.allocate(26)
+                .put((byte) 0x01).put((byte) 24)
+                .putLong(traceIdHigh).putLong(traceIdLow).putLong(clientSendMicros)
+                .array();
+    }
+
+    /**
+     * Расширение со сроком ответа (тег 0x04): бюджет клиента в мс
+     */
+    public static byte[] deadlineExtension(int budgetMillis) {
+        return new byte[]{0x04, 2, (byte) (budgetMillis >> 8), (byte) budgetMillis};
+    }
+
+    /**
+     * Расширения с ID терминала (тег 0x02) и мерчанта (тег 0x03); null пропускается
+     */
+    public static byte[] identityExtension(String terminalId, String merchantId) {
+        ByteArrayOutputStream extension = new ByteArrayOutputStream();
+        if (terminalId != null) {
+            extension.write(0x02);
+            extension.write(terminalId.length());
+            extension.writeBytes(terminalId.getBytes(StandardCharsets.US_ASCII));
+        }
+        if (merchantId != null) {
+            extension.write(0x03);
+            extension.write(merchantId.length());
+            extension.writeBytes(merchantId.getBytes(StandardCharsets.US_ASCII));
+        }
+        return extension.toByteArray();
+    }
+
+    private static void writeField(ByteArrayOutputStream tlv, int tag, byte[] value) {
+        tlv.write(tag);
+        tlv.write((value.length >> 8) & 0xFF);
+        tlv.write(value.length & 0xFF);
+        tlv.writeBytes(value);
+    }
+
+    private static PublicKey publicKeyOf(PrivateKey privateKey) {
+        try {
+            RSAPrivateCrtKey rsaKey = (RSAPrivateCrtKey) privateKey;
+            return KeyFactory.getInstance("RSA")
+                    .generatePublic(new RSAPublicKeySpec(rsaKey.getModulus(), rsaKey.getPublicExponent()));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Failed to derive server public key", e);
+        }
+    }
+}
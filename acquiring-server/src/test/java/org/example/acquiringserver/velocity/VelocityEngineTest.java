@@ -0,0 +1,139 @@
+package org.example.acquiringserver.velocity;
+
+import org.example.acquiringserver.support.AllocationBudgets;
+import org.example.acquiringserver.support.AllocationMeter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Тесты для проверки скорости
+ */
+class VelocityEngineTest {
+
+    private static final String PAN = "424242******4242";
+    private static final List<VelocityWindow> WINDOWS = List.of(
+            VelocityWindow.parse("1m/12"), VelocityWindow.parse("1h/12"));
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T10:00:00Z").toEpochMilli());
+
+    @Test
+    void testWindowSlides() {
+        VelocityEngine engine = new VelocityEngine(WINDOWS, List.of(), clock);
+
+        for (int i = 0; i < 5; i++) {
+            engine.check(PAN, "MERCHANT_001", 100);
+            clock.advance(TimeUnit.SECONDS.toMillis(20));
+        }
+
+        // Прошло 100 с: в минутном окне остались попытки на 40 и 60 с, в часовом - все
+        assertEquals(2, engine.panCount(PAN, 0));
+        assertEquals(5, engine.panCount(PAN, 1));
+        assertEquals(500, engine.merchantAmount("MERCHANT_001", 1));
+    }
+
+    @Test
+    void testRules_DeclineTakesPriorityOverFlag() {
+        VelocityRule flag = VelocityRule.parse("MERCHANT:1h:AMOUNT>150:FLAG", WINDOWS);
+        VelocityRule decline = VelocityRule.parse("PAN:1m:COUNT>2:DECLINE", WINDOWS);
+        VelocityEngine engine = new VelocityEngine(WINDOWS, List.of(flag, decline), clock);
+
+        assertNull(engine.check(PAN, "MERCHANT_001", 100));
+        assertSame(flag, engine.check(PAN, "MERCHANT_001", 100));
+        assertSame(decline, engine.check(PAN, "MERCHANT_001", 100));
+        assertThrows(IllegalArgumentException.class, () -> VelocityRule.parse("PAN:5m:COUNT>2:DECLINE", WINDOWS));
+    }
+
+    @Test
+    void testEvictIdle() {
+        VelocityEngine engine = new VelocityEngine(WINDOWS, List.of(), clock);
+        engine.check(PAN, "MERCHANT_001", 100);
+        clock.advance(TimeUnit.MINUTES.toMillis(30));
+        engine.check("555555******5555", "MERCHANT_001", 100);
+        clock.advance(TimeUnit.MINUTES.toMillis(31));
+
+        assertEquals(1, engine.evictIdle());
+        assertEquals(0, engine.panCount(PAN, 1));
+        assertEquals(2, engine.size());
+    }
+
+    @Test
+    void testConcurrentChecks_NoLostUpdates() throws Exception {
+        VelocityEngine engine = new VelocityEngine(WINDOWS, List.of(), clock);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    engine.check(PAN, "MERCHANT_001", 3);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertEquals(40_000, engine.panCount(PAN, 0));
+        assertEquals(120_000, engine.merchantAmount("MERCHANT_001", 0));
+    }
+
+    @Test
+    void testCheck_AllocationBudget() {
+        VelocityEngine engine = new VelocityEngine(WINDOWS,
+                List.of(VelocityRule.parse("PAN:1m:COUNT>1000000:DECLINE", WINDOWS)), Clock.systemUTC());
+
+        long bytes = AllocationMeter.bytesPerOperation(20_000, 100_000,
+                () -> engine.check(PAN, "MERCHANT_001", 100));
+
+        AllocationBudgets.assertWithinBudget("velocity-engine.check", bytes);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private final AtomicLong millis;
+
+        MutableClock(long millis) {
+            this.millis = new AtomicLong(millis);
+        }
+
+        void advance(long delta) {
+            millis.addAndGet(delta);
+        }
+
+        @Override
+        public long millis() {
+            return millis.get();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package org.example.posterminal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.posterminal.service.TransactionService;
+import org.example.posterminal.simulator.FleetSimulator;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -18,6 +20,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 public class PosTerminalApplication {
 
     private final TransactionService transactionService;
+    private final ObjectProvider<FleetSimulator> fleetSimulator;
 
     public static void main(String[] args) {
         SpringApplication.run(PosTerminalApplication.class, args);
@@ -28,6 +31,12 @@ public class PosTerminalApplication {
         return args -> {
             log.info("Starting POS Terminal...");
 
+            FleetSimulator simulator = fleetSimulator.getIfAvailable();
+            if (simulator != null) {
+                simulator.run();
+                return;
+            }
+
             // Отправка 20 тестовых транзакций с интервалом 1 секунда
             for (int i = 0; i < 20; i++) {
                 try {
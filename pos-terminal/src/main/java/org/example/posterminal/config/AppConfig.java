@@ -1,11 +1,18 @@
 package org.example.posterminal.config;
 
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.logging.LoggingMeterRegistry;
+import io.micrometer.core.instrument.logging.LoggingRegistryConfig;
+import org.example.posterminal.resilience.CircuitBreakerSettings;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.Base64;
 
 @Configuration
@@ -32,4 +39,37 @@ public class AppConfig {
     public Base64.Decoder base64Decoder() {
         return Base64.getDecoder();
     }
-}
\ No newline at end of file
+
+    /**
+     * Реестр метрик терминала: у POS нет HTTP сервера, поэтому метрики периодически пишутся в лог
+     */
+    @Bean(destroyMethod = "close")
+    public MeterRegistry meterRegistry(@Value("${metrics.log.step:60s}") Duration step) {
+        LoggingRegistryConfig config = new LoggingRegistryConfig() {
+            @Override
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public Duration step() {
+                return step;
+            }
+        };
+        return new LoggingMeterRegistry(config, Clock.SYSTEM);
+    }
+
+    /**
+     * Параметры circuit breaker'а; у каждого узла эквайринга свой экземпляр (см. AcquirerRouter)
+     */
+    @Bean
+    public CircuitBreakerSettings circuitBreakerSettings(
+            @Value("${circuit-breaker.window-size:20}") int windowSize,
+            @Value("${circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${circuit-breaker.failure-rate-threshold:50}") int failureRateThreshold,
+            @Value("${circuit-breaker.open-duration-ms:10000}") long openDurationMs,
+            @Value("${circuit-breaker.half-open-permitted-calls:3}") int halfOpenPermittedCalls) {
+        return new CircuitBreakerSettings(
+                windowSize, minimumCalls, failureRateThreshold, openDurationMs, halfOpenPermittedCalls);
+    }
+}
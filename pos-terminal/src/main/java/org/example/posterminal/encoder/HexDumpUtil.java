@@ -1,41 +1,53 @@
 package org.example.posterminal.encoder;
 
 /**
- * Утилита для преобразования бинарных данных в hexdump формат
+ * Утилита для преобразования бинарных данных в hexdump формат.
+ * <p>
+ * Строка собирается в один StringBuilder заранее известной емкости, без String.format
+ * на каждый байт; вызывающий код строит hexdump только при включенном DEBUG
  */
 public class HexDumpUtil {
 
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final int BYTES_PER_LINE = 16;
+    // "0000: " + "XX " * 16 + "  " + 16 символов ASCII + перевод строки
+    private static final int LINE_LENGTH = 6 + 3 * BYTES_PER_LINE + 2 + BYTES_PER_LINE + 1;
+
     public static String toHexDump(byte[] data) {
         return toHexDump(data, 0, data.length);
     }
 
     public static String toHexDump(byte[] data, int offset, int length) {
-        StringBuilder result = new StringBuilder();
-        StringBuilder ascii = new StringBuilder();
+        StringBuilder result = new StringBuilder((length + BYTES_PER_LINE - 1) / BYTES_PER_LINE * LINE_LENGTH);
 
-        for (int i = offset; i < offset + length; i++) {
-            if ((i - offset) % 16 == 0) {
-                if (i != offset) {
-                    result.append("  ").append(ascii).append("\n");
-                    ascii = new StringBuilder();
-                }
-                result.append(String.format("%04X: ", i - offset));
+        for (int line = 0; line < length; line += BYTES_PER_LINE) {
+            if (line > 0) {
+                result.append('\n');
             }
-
-            byte b = data[i];
-            result.append(String.format("%02X ", b));
-
-            if (b >= 32 && b < 127) {
-                ascii.append((char) b);
-            } else {
-                ascii.append(".");
+            appendOffset(result, line);
+            int end = Math.min(line + BYTES_PER_LINE, length);
+            for (int i = line; i < end; i++) {
+                byte b = data[offset + i];
+                result.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]).append(' ');
+            }
+            result.append("  ");
+            for (int i = line; i < end; i++) {
+                byte b = data[offset + i];
+                result.append(b >= 32 && b < 127 ? (char) b : '.');
             }
-        }
-
-        if (ascii.length() > 0) {
-            result.append("  ").append(ascii);
         }
 
         return result.toString();
     }
+
+    /**
+     * Смещение строки: не меньше 4 шестнадцатеричных цифр, как %04X
+     */
+    private static void appendOffset(StringBuilder result, int value) {
+        int digits = Math.max(4, (Integer.SIZE - Integer.numberOfLeadingZeros(value) + 3) / 4);
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            result.append(HEX[(value >>> shift) & 0xF]);
+        }
+        result.append(": ");
+    }
 }
@@ -14,6 +14,7 @@ public class TLVEncoder {
     private static final byte TAG_AMOUNT = 0x20;       // Сумма транзакции
     private static final byte TAG_TRANSACTION_ID = 0x30; // UUID транзакции
     private static final byte TAG_MERCHANT_ID = 0x40;  // ID мерчанта
+    private static final byte TAG_TERMINAL_ID = 0x50;  // ID терминала (необязательное поле)
 
     /**
      * Кодирование объекта транзакции в TLV бинарный формат
@@ -30,6 +31,9 @@ public class TLVEncoder {
             encodeField(output, TAG_AMOUNT, amountBytes);
             encodeField(output, TAG_TRANSACTION_ID, transaction.getTransactionId().getBytes());
             encodeField(output, TAG_MERCHANT_ID, transaction.getMerchantId().getBytes());
+            if (transaction.getTerminalId() != null) {
+                encodeField(output, TAG_TERMINAL_ID, transaction.getTerminalId().getBytes());
+            }
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to encode TLV data", e);
@@ -13,6 +13,7 @@ public class Transaction {
     private int amount;
     private String transactionId;
     private String merchantId;
+    private String terminalId;
     private LocalDateTime timestamp;
 
     public Transaction() {
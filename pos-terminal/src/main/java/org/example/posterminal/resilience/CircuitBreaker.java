@@ -0,0 +1,182 @@
+package org.example.posterminal.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker вокруг обращений к серверу эквайринга.
+ * <p>
+ * CLOSED - вызовы проходят, результаты пишутся в скользящее окно последних вызовов.
+ * Когда доля ошибок в окне достигает порога, цепь переходит в OPEN и все вызовы
+ * отклоняются сразу, без открытия сокета. По истечении openDuration цепь переходит
+ * в HALF_OPEN и пропускает ограниченное число пробных вызовов: если все они успешны,
+ * цепь замыкается, первая же ошибка снова размыкает ее.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final CircuitBreakerSettings settings;
+    private final LongSupplier nanoClock;
+
+    // Кольцевой буфер исходов последних вызовов: true - ошибка
+    private final boolean[] window;
+    private int windowPosition;
+    private int recordedCalls;
+    private int failuresInWindow;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenPermitsIssued;
+    private int halfOpenSuccesses;
+
+    private final Map<State, Counter> transitionCounters = new EnumMap<>(State.class);
+    private final Counter rejectedCounter;
+
+    public CircuitBreaker(String name, CircuitBreakerSettings settings, MeterRegistry meterRegistry) {
+        this(name, settings, meterRegistry, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, CircuitBreakerSettings settings, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.name = name;
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+        this.window = new boolean[settings.windowSize()];
+
+        for (State target : State.values()) {
+            transitionCounters.put(target, Counter.builder("pos.circuit.transitions")
+                    .description("Circuit breaker state transitions")
+                    .tag("name", name)
+                    .tag("state", target.name())
+                    .register(meterRegistry));
+        }
+        this.rejectedCounter = Counter.builder("pos.circuit.rejected")
+                .description("Calls rejected while the circuit was not closed")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("pos.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .description("Circuit breaker state: 0 - CLOSED, 1 - OPEN, 2 - HALF_OPEN")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запрос разрешения на вызов. Если разрешение не выдано, вызов должен завершиться сразу
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAtNanos >= TimeUnit.MILLISECONDS.toNanos(settings.openDurationMs())) {
+            transitionTo(State.HALF_OPEN);
+        }
+
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (halfOpenPermitsIssued < settings.halfOpenPermittedCalls()) {
+                    halfOpenPermitsIssued++;
+                    return true;
+                }
+                break;
+            default:
+                break;
+        }
+
+        rejectedCounter.increment();
+        return false;
+    }
+
+    /**
+     * Вызов завершился успешно
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            halfOpenSuccesses++;
+            if (halfOpenSuccesses >= settings.halfOpenPermittedCalls()) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * Вызов завершился ошибкой (таймаут, отказ соединения, SERVICE_UNAVAILABLE)
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recordedCalls >= settings.minimumCalls()
+                    && failuresInWindow * 100 >= settings.failureRateThreshold() * recordedCalls) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * Возврат неиспользованного разрешения: вызов не дошел до сервера по причинам,
+     * не связанным с его состоянием (например, ошибка сборки пакета)
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermitsIssued > 0) {
+            halfOpenPermitsIssued--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void record(boolean failure) {
+        if (recordedCalls == window.length) {
+            if (window[windowPosition]) {
+                failuresInWindow--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        window[windowPosition] = failure;
+        if (failure) {
+            failuresInWindow++;
+        }
+        windowPosition = (windowPosition + 1) % window.length;
+    }
+
+    private void transitionTo(State target) {
+        log.warn("Circuit breaker '{}' state change: {} -> {}", name, state, target);
+        state = target;
+        halfOpenPermitsIssued = 0;
+        halfOpenSuccesses = 0;
+
+        if (target == State.OPEN) {
+            openedAtNanos = nanoClock.getAsLong();
+        } else if (target == State.CLOSED) {
+            resetWindow();
+        }
+        transitionCounters.get(target).increment();
+    }
+
+    private void resetWindow() {
+        Arrays.fill(window, false);
+        windowPosition = 0;
+        recordedCalls = 0;
+        failuresInWindow = 0;
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.posterminal.resilience;
+
+import java.io.IOException;
+
+/**
+ * Вызов отклонен без обращения к серверу: цепь разомкнута
+ */
+public class CircuitBreakerOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitBreakerOpenException(String name) {
+        super("Circuit breaker '" + name + "' is open");
+    }
+}
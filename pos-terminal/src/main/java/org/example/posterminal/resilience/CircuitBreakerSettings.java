@@ -0,0 +1,32 @@
+package org.example.posterminal.resilience;
+
+/**
+ * Параметры circuit breaker'а
+ *
+ * @param windowSize            размер скользящего окна (количество последних вызовов)
+ * @param minimumCalls          минимум вызовов в окне, после которого оценивается доля ошибок
+ * @param failureRateThreshold  доля ошибок в процентах, при которой цепь размыкается
+ * @param openDurationMs        время в состоянии OPEN до перехода в HALF_OPEN
+ * @param halfOpenPermittedCalls количество пробных вызовов в состоянии HALF_OPEN
+ */
+public record CircuitBreakerSettings(int windowSize,
+                                     int minimumCalls,
+                                     int failureRateThreshold,
+                                     long openDurationMs,
+                                     int halfOpenPermittedCalls) {
+
+    public CircuitBreakerSettings {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive");
+        }
+        if (minimumCalls <= 0 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("minimumCalls must be in (0, windowSize]");
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 100) {
+            throw new IllegalArgumentException("failureRateThreshold must be in (0, 100]");
+        }
+        if (halfOpenPermittedCalls <= 0) {
+            throw new IllegalArgumentException("halfOpenPermittedCalls must be positive");
+        }
+    }
+}
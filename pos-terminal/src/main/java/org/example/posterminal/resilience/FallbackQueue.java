@@ -0,0 +1,58 @@
+package org.example.posterminal.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.example.posterminal.model.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Локальная очередь store-and-forward для транзакций, не отправленных из-за разомкнутой цепи.
+ * <p>
+ * Хранятся сами транзакции, а не готовые пакеты: при повторной отправке пакет
+ * собирается заново с новым сессионным ключом.
+ */
+@Slf4j
+@Component
+public class FallbackQueue {
+
+    private final BlockingQueue<Transaction> queue;
+    private final Counter queuedCounter;
+    private final Counter droppedCounter;
+
+    public FallbackQueue(@Value("${circuit-breaker.fallback.capacity:1000}") int capacity,
+                         MeterRegistry meterRegistry) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.queuedCounter = meterRegistry.counter("pos.fallback.queued");
+        this.droppedCounter = meterRegistry.counter("pos.fallback.dropped");
+        meterRegistry.gaugeCollectionSize("pos.fallback.size", Tags.empty(), queue);
+    }
+
+    /**
+     * Постановка транзакции в очередь. Если очередь заполнена, транзакция отбрасывается
+     */
+    public boolean offer(Transaction transaction) {
+        if (queue.offer(transaction)) {
+            queuedCounter.increment();
+            log.info("Transaction {} queued for deferred sending ({} pending)",
+                    transaction.getTransactionId(), queue.size());
+            return true;
+        }
+        droppedCounter.increment();
+        log.warn("Fallback queue is full, transaction {} dropped", transaction.getTransactionId());
+        return false;
+    }
+
+    public Transaction poll() {
+        return queue.poll();
+    }
+
+    public int size() {
+        return queue.size();
+    }
+}
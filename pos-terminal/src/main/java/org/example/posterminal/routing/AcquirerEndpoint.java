@@ -0,0 +1,72 @@
+package org.example.posterminal.routing;
+
+import org.example.posterminal.resilience.CircuitBreaker;
+
+/**
+ * Узел сервера эквайринга: адрес, собственный circuit breaker и результат health check'ов
+ */
+public final class AcquirerEndpoint {
+
+    private final String id;
+    private final String host;
+    private final int port;
+    private final CircuitBreaker circuitBreaker;
+
+    // Меняется только потоком health check'ов, читается потоками отправки
+    private volatile boolean healthy = true;
+    private int consecutiveFailures;
+
+    AcquirerEndpoint(String host, int port, CircuitBreaker circuitBreaker) {
+        this.id = host + ":" + port;
+        this.host = host;
+        this.port = port;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Учет результата health check'а
+     *
+     * @return true, если состояние узла изменилось
+     */
+    boolean recordHealthCheck(boolean success, int failureThreshold) {
+        if (success) {
+            consecutiveFailures = 0;
+            if (!healthy) {
+                healthy = true;
+                return true;
+            }
+            return false;
+        }
+        consecutiveFailures++;
+        if (healthy && consecutiveFailures >= failureThreshold) {
+            healthy = false;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
@@ -0,0 +1,226 @@
+package org.example.posterminal.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.posterminal.resilience.CircuitBreaker;
+import org.example.posterminal.resilience.CircuitBreakerSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Маршрутизация транзакций по нескольким серверам эквайринга.
+ * <p>
+ * Узел выбирается консистентным хешированием по merchantId, поэтому трафик мерчанта
+ * всегда идет на один сервер и его кэши остаются прогретыми. Если узел-владелец не проходит
+ * health check или его цепь разомкнута, транзакция уходит на следующий узел по кольцу;
+ * ключи остальных узлов при этом не перемещаются. Узлы можно добавлять на ходу: из кода
+ * через {@link #addEndpoint} или через файл acquirer.endpoints-file, который перечитывается
+ * при изменении.
+ */
+@Slf4j
+@Component
+public class AcquirerRouter {
+
+    private final CircuitBreakerSettings circuitBreakerSettings;
+    private final MeterRegistry meterRegistry;
+    private final int healthCheckTimeoutMs;
+    private final int healthCheckFailureThreshold;
+    private final Path endpointsFile;
+    private final Counter failoverCounter;
+
+    private final Set<String> configuredEndpoints = new HashSet<>();
+    private final Map<String, Gauge> healthGauges = new HashMap<>();
+
+    private volatile ConsistentHashRing<AcquirerEndpoint> ring;
+    private Set<String> fileEndpoints = Set.of();
+    private long endpointsFileModified = Long.MIN_VALUE;
+
+    public AcquirerRouter(@Value("${acquirer.endpoints:localhost:8081}") String endpoints,
+                          @Value("${acquirer.endpoints-file:}") String endpointsFile,
+                          @Value("${acquirer.virtual-nodes:160}") int virtualNodes,
+                          @Value("${acquirer.health-check.timeout-ms:1000}") int healthCheckTimeoutMs,
+                          @Value("${acquirer.health-check.failure-threshold:2}") int healthCheckFailureThreshold,
+                          CircuitBreakerSettings circuitBreakerSettings,
+                          MeterRegistry meterRegistry) {
+        this.circuitBreakerSettings = circuitBreakerSettings;
+        this.meterRegistry = meterRegistry;
+        this.healthCheckTimeoutMs = healthCheckTimeoutMs;
+        this.healthCheckFailureThreshold = healthCheckFailureThreshold;
+        this.endpointsFile = endpointsFile.isBlank() ? null : Path.of(endpointsFile.trim());
+        this.failoverCounter = Counter.builder("pos.acquirer.failover")
+                .description("Transactions routed past their primary acquirer node")
+                .register(meterRegistry);
+        this.ring = ConsistentHashRing.empty(virtualNodes);
+
+        for (String address : parseAddresses(endpoints)) {
+            configuredEndpoints.add(addEndpoint(address).getId());
+        }
+        reloadEndpointsFile();
+        if (ring.size() == 0) {
+            throw new IllegalStateException("No acquirer endpoints configured");
+        }
+        log.info("Routing across {} acquirer node(s): {}", ring.size(), ring.nodes());
+    }
+
+    /**
+     * Выбор узла для транзакции мерчанта. Возвращенный узел уже выдал разрешение своего
+     * circuit breaker'а: вызывающий обязан сообщить ему об успехе, ошибке или вернуть разрешение
+     *
+     * @return узел или null, если ни один узел не принимает трафик
+     */
+    public AcquirerEndpoint acquire(String merchantId) {
+        ConsistentHashRing<AcquirerEndpoint> current = ring;
+        AcquirerEndpoint primary = current.primary(merchantId);
+        AcquirerEndpoint endpoint = current.route(merchantId,
+                node -> node.isHealthy() && node.getCircuitBreaker().tryAcquirePermission());
+        if (endpoint != null && endpoint != primary) {
+            failoverCounter.increment();
+            log.debug("Merchant {} routed to {} instead of {}", merchantId, endpoint, primary);
+        }
+        return endpoint;
+    }
+
+    /**
+     * Есть ли узел, готовый принять трафик (для разбора отложенных транзакций)
+     */
+    public boolean hasAvailableEndpoint() {
+        for (AcquirerEndpoint endpoint : ring.nodes()) {
+            if (endpoint.isHealthy() && endpoint.getCircuitBreaker().getState() == CircuitBreaker.State.CLOSED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Добавление узла на ходу: к нему переходит только его доля ключей
+     */
+    public synchronized AcquirerEndpoint addEndpoint(String address) {
+        String normalized = address.trim();
+        AcquirerEndpoint existing = ring.node(normalized);
+        if (existing != null) {
+            return existing;
+        }
+        int separator = normalized.lastIndexOf(':');
+        if (separator <= 0 || separator == normalized.length() - 1) {
+            throw new IllegalArgumentException("Acquirer endpoint must be host:port, got '" + address + "'");
+        }
+        String host = normalized.substring(0, separator);
+        int port = Integer.parseInt(normalized.substring(separator + 1));
+
+        AcquirerEndpoint endpoint = new AcquirerEndpoint(host, port,
+                new CircuitBreaker("acquirer-" + normalized, circuitBreakerSettings, meterRegistry));
+        healthGauges.put(endpoint.getId(), Gauge.builder("pos.acquirer.healthy", endpoint, node -> node.isHealthy() ? 1 : 0)
+                .description("Acquirer node health check state: 1 - healthy, 0 - down")
+                .tag("endpoint", endpoint.getId())
+                .register(meterRegistry));
+        ring = ring.withNode(endpoint.getId(), endpoint);
+        log.info("Acquirer node {} added, {} node(s) on the ring", endpoint, ring.size());
+        return endpoint;
+    }
+
+    /**
+     * Вывод узла из ротации; его ключи переходят к следующим узлам по кольцу
+     */
+    public synchronized void removeEndpoint(String address) {
+        String id = address.trim();
+        if (ring.contains(id)) {
+            ring = ring.withoutNode(id);
+            meterRegistry.remove(healthGauges.remove(id));
+            log.info("Acquirer node {} removed, {} node(s) on the ring", id, ring.size());
+        }
+    }
+
+    public List<AcquirerEndpoint> getEndpoints() {
+        return new ArrayList<>(ring.nodes());
+    }
+
+    /**
+     * Проверка узлов: успешное TCP соединение означает, что сервер принимает подключения.
+     * Узел выводится из маршрутизации после нескольких неудач подряд и возвращается после первой удачи
+     */
+    @Scheduled(fixedDelayString = "${acquirer.health-check.interval-ms:5000}",
+            initialDelayString = "${acquirer.health-check.interval-ms:5000}")
+    public void checkHealth() {
+        reloadEndpointsFile();
+        for (AcquirerEndpoint endpoint : ring.nodes()) {
+            boolean reachable = probe(endpoint);
+            if (endpoint.recordHealthCheck(reachable, healthCheckFailureThreshold)) {
+                if (endpoint.isHealthy()) {
+                    log.info("Acquirer node {} is back, traffic returns to it", endpoint);
+                } else {
+                    log.warn("Acquirer node {} failed {} health checks, failing over to the next node",
+                            endpoint, healthCheckFailureThreshold);
+                }
+            }
+        }
+    }
+
+    private boolean probe(AcquirerEndpoint endpoint) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(endpoint.getHost(), endpoint.getPort()), healthCheckTimeoutMs);
+            return true;
+        } catch (IOException e) {
+            log.debug("Health check of {} failed: {}", endpoint, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Файл со списком узлов (по одному host:port в строке, # - комментарий). Узлы, которых
+     * больше нет в файле, выводятся из ротации; узлы из acquirer.endpoints файлом не удаляются
+     */
+    private synchronized void reloadEndpointsFile() {
+        if (endpointsFile == null) {
+            return;
+        }
+        try {
+            long modified = Files.getLastModifiedTime(endpointsFile).toMillis();
+            if (modified == endpointsFileModified) {
+                return;
+            }
+            endpointsFileModified = modified;
+            Set<String> listed = new LinkedHashSet<>();
+            for (String line : Files.readAllLines(endpointsFile)) {
+                String address = line.strip();
+                if (!address.isEmpty() && !address.startsWith("#")) {
+                    listed.add(addEndpoint(address).getId());
+                }
+            }
+            for (String id : fileEndpoints) {
+                if (!listed.contains(id) && !configuredEndpoints.contains(id)) {
+                    removeEndpoint(id);
+                }
+            }
+            fileEndpoints = listed;
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to read acquirer endpoints from {}: {}", endpointsFile, e.getMessage());
+        }
+    }
+
+    private static List<String> parseAddresses(String endpoints) {
+        List<String> addresses = new ArrayList<>();
+        for (String address : endpoints.split(",")) {
+            if (!address.isBlank()) {
+                addresses.add(address.trim());
+            }
+        }
+        return addresses;
+    }
+}
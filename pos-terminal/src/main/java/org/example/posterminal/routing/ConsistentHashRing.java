@@ -0,0 +1,162 @@
+package org.example.posterminal.routing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Кольцо консистентного хеширования с виртуальными узлами.
+ * <p>
+ * Каждый узел занимает virtualNodes точек на кольце; ключ принадлежит первой точке по часовой
+ * стрелке. При добавлении узла к нему переходят только ключи из его новых отрезков, остальные
+ * остаются на месте. Кольцо неизменяемо: добавление и удаление возвращают новое кольцо, поэтому
+ * читающие потоки работают без блокировок, а подмена делается одной записью volatile ссылки.
+ *
+ * @param <N> узел кольца
+ */
+public final class ConsistentHashRing<N> {
+
+    private final int virtualNodes;
+    private final Map<String, N> nodes;
+    private final NavigableMap<Long, N> ring;
+
+    private ConsistentHashRing(int virtualNodes, Map<String, N> nodes) {
+        this.virtualNodes = virtualNodes;
+        this.nodes = Collections.unmodifiableMap(nodes);
+        this.ring = new TreeMap<>();
+        // Порядок добавления фиксирован, поэтому при коллизии точек результат детерминирован
+        for (Map.Entry<String, N> node : nodes.entrySet()) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(hash(node.getKey() + '#' + i), node.getValue());
+            }
+        }
+    }
+
+    public static <N> ConsistentHashRing<N> empty(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        return new ConsistentHashRing<>(virtualNodes, new LinkedHashMap<>());
+    }
+
+    public ConsistentHashRing<N> withNode(String id, N node) {
+        Map<String, N> updated = new LinkedHashMap<>(nodes);
+        updated.put(id, node);
+        return new ConsistentHashRing<>(virtualNodes, updated);
+    }
+
+    public ConsistentHashRing<N> withoutNode(String id) {
+        if (!nodes.containsKey(id)) {
+            return this;
+        }
+        Map<String, N> updated = new LinkedHashMap<>(nodes);
+        updated.remove(id);
+        return new ConsistentHashRing<>(virtualNodes, updated);
+    }
+
+    /**
+     * Узел-владелец ключа без учета доступности
+     */
+    public N primary(String key) {
+        return route(key, node -> true);
+    }
+
+    /**
+     * Первый узел по часовой стрелке от ключа, принятый фильтром. Каждый узел проверяется
+     * не больше одного раза, поэтому фильтр может иметь побочные эффекты (выдача разрешения
+     * circuit breaker'ом)
+     *
+     * @return узел или null, если фильтр отклонил все узлы
+     */
+    public N route(String key, Predicate<N> accept) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        long hash = hash(key);
+        Set<N> rejected = null;
+        Iterator<N> clockwise = new RingIterator<>(ring, hash);
+        while (clockwise.hasNext()) {
+            N node = clockwise.next();
+            if (rejected != null && rejected.contains(node)) {
+                continue;
+            }
+            if (accept.test(node)) {
+                return node;
+            }
+            if (rejected == null) {
+                rejected = new HashSet<>();
+            }
+            rejected.add(node);
+            if (rejected.size() == nodes.size()) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    public boolean contains(String id) {
+        return nodes.containsKey(id);
+    }
+
+    public N node(String id) {
+        return nodes.get(id);
+    }
+
+    public Collection<N> nodes() {
+        return nodes.values();
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * 64-битный FNV-1a по байтам UTF-8 с финализатором MurmurHash3: близкие ключи
+     * ("MERCHANT_001", "MERCHANT_002") расходятся по всему кольцу
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Обход точек кольца по часовой стрелке начиная с hash, ровно один круг
+     */
+    private static final class RingIterator<N> implements Iterator<N> {
+
+        private final Iterator<N> tail;
+        private final Iterator<N> head;
+
+        RingIterator(NavigableMap<Long, N> ring, long hash) {
+            this.tail = ring.tailMap(hash, true).values().iterator();
+            this.head = ring.headMap(hash, false).values().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return tail.hasNext() || head.hasNext();
+        }
+
+        @Override
+        public N next() {
+            return tail.hasNext() ? tail.next() : head.next();
+        }
+    }
+}
@@ -7,9 +7,17 @@ import org.example.posterminal.crypto.KeyRotationService;
 import org.example.posterminal.encoder.HexDumpUtil;
 import org.example.posterminal.encoder.TLVEncoder;
 import org.example.posterminal.model.Transaction;
+import org.example.posterminal.resilience.CircuitBreaker;
+import org.example.posterminal.resilience.CircuitBreakerOpenException;
+import org.example.posterminal.resilience.FallbackQueue;
+import org.example.posterminal.routing.AcquirerEndpoint;
+import org.example.posterminal.routing.AcquirerRouter;
+import org.example.posterminal.tracing.TraceContext;
+import org.example.posterminal.tracing.TraceRecorder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
@@ -19,8 +27,11 @@ import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Сервис для управления транзакциями
@@ -34,18 +45,51 @@ public class TransactionService {
     private static final int ENCRYPTED_SESSION_KEY_SIZE = 256;
     private static final int IV_SIZE = 12;
     private static final int HMAC_SIZE = 32;
+    private static final int RESPONSE_SIZE = 15;
+    private static final byte PROTOCOL_VERSION = 0x01;
+    private static final byte PROTOCOL_VERSION_EXTENDED = 0x02;
+    private static final byte MESSAGE_TYPE_AUTHORIZATION = 0x01;
+    private static final byte MESSAGE_TYPE_STATUS_INQUIRY = 0x02;
+    private static final int STATUS_APPROVED = 0x00;
+    private static final int STATUS_DECLINED = 0x01;
+    private static final int STATUS_SERVICE_UNAVAILABLE = 0x05;
+    private static final int STATUS_TRANSACTION_NOT_FOUND = 0x07;
+    private static final int STATUS_RATE_LIMITED = 0x08;
+    // Поле данных отклонения, как ResponseEncoder.DECLINE_DATA сервера: у ошибки обработки тот же код 0x01
+    private static final byte[] DECLINE_DATA = "DECLIN".getBytes(StandardCharsets.US_ASCII);
+    private static final byte EXTENSION_TERMINAL_ID = 0x02;
+    private static final byte EXTENSION_MERCHANT_ID = 0x03;
+    private static final byte EXTENSION_DEADLINE = 0x04;
+    private static final int STATUS_INVALID_RESPONSE = -1;
 
     private final CryptoUtils cryptoUtils;
     private final TLVEncoder tlvEncoder;
     private final KeyRotationService keyRotationService;
     private final SecureRandom secureRandom;
     private final TransactionGenerator transactionGenerator;
+    private final AcquirerRouter acquirerRouter;
+    private final FallbackQueue fallbackQueue;
+    private final TraceRecorder traceRecorder;
 
-    @Value("${server.host}")
-    private String serverHost;
+    @Value("${circuit-breaker.fallback.enabled:true}")
+    private boolean fallbackEnabled;
 
-    @Value("${server.port}")
-    private int serverPort;
+    @Value("${tracing.enabled:true}")
+    private boolean tracingEnabled;
+
+    @Value("${status-inquiry.enabled:true}")
+    private boolean statusInquiryEnabled;
+
+    @Value("${deadline-propagation.enabled:true}")
+    private boolean deadlinePropagationEnabled;
+
+    /**
+     * Hexdump каждого N-го пакета при DEBUG; 0 - без hexdump
+     */
+    @Value("${diagnostics.hex-dump.sample-every:100}")
+    private int hexDumpSampleEvery;
+
+    private final AtomicLong packetsCreated = new AtomicLong();
 
     /**
      * Генерация и отправка случайной транзакции
@@ -57,20 +101,75 @@ public class TransactionService {
 
     @Retryable(maxAttempts = 2, backoff = @Backoff(delay = 3000), include = SocketTimeoutException.class)
     public void sendTransaction(Transaction transaction) throws IOException {
+        // Узел выбирается по мерчанту; если цепи всех узлов разомкнуты или узлы не проходят
+        // health check, не тратим RSA и сокет на заведомо недоступные серверы
+        AcquirerEndpoint endpoint = acquirerRouter.acquire(routingKey(transaction));
+        if (endpoint == null) {
+            handleRejectedTransaction(transaction);
+            return;
+        }
+
         keyRotationService.incrementTransactionCount();
-        log.info("Sending transaction: {}", transaction.getTransactionId());
+        log.debug("Sending transaction: {}", transaction.getTransactionId());
 
-        byte[] packet = createPacket(transaction);
-        log.debug("Packet hexdump:\n{}", HexDumpUtil.toHexDump(packet));
+        TraceContext trace = tracingEnabled ? TraceContext.start(transaction) : null;
+        byte[] packet;
+        try {
+            packet = createPacket(transaction, trace);
+        } catch (RuntimeException e) {
+            endpoint.getCircuitBreaker().releasePermission();
+            throw e;
+        }
+        if (log.isDebugEnabled() && hexDumpSampleEvery > 0
+                && packetsCreated.getAndIncrement() % hexDumpSampleEvery == 0) {
+            log.debug("Packet hexdump:\n{}", HexDumpUtil.toHexDump(packet));
+        }
+
+        sendPacket(endpoint, transaction, packet, trace);
+    }
+
+    /**
+     * Повторная отправка транзакций, отложенных во время разомкнутой цепи.
+     * Очередь разбирается, пока есть узел с замкнутой цепью, чтобы не мешать пробным вызовам HALF_OPEN
+     */
+    @Scheduled(fixedDelayString = "${circuit-breaker.fallback.drain-interval-ms:5000}")
+    public void drainFallbackQueue() {
+        int pending = fallbackQueue.size();
+        for (int i = 0; i < pending && acquirerRouter.hasAvailableEndpoint(); i++) {
+            Transaction transaction = fallbackQueue.poll();
+            if (transaction == null) {
+                return;
+            }
+            try {
+                sendTransaction(transaction);
+            } catch (IOException e) {
+                log.warn("Deferred transaction {} failed: {}", transaction.getTransactionId(), e.getMessage());
+                fallbackQueue.offer(transaction);
+                return;
+            }
+        }
+    }
 
-        log.debug("Packet structure: header=4, sessionKey={}, iv={}, hmac={}, data={}",
-                ENCRYPTED_SESSION_KEY_SIZE, IV_SIZE, HMAC_SIZE,
-                (packet.length - 4 - ENCRYPTED_SESSION_KEY_SIZE - IV_SIZE - HMAC_SIZE));
+    private void handleRejectedTransaction(Transaction transaction) throws CircuitBreakerOpenException {
+        if (fallbackEnabled && fallbackQueue.offer(transaction)) {
+            return;
+        }
+        log.warn("Transaction {} rejected: no acquirer node is available", transaction.getTransactionId());
+        throw new CircuitBreakerOpenException("acquirer");
+    }
 
-        sendPacket(packet);
+    /**
+     * Ключ маршрутизации - мерчант; транзакция без мерчанта распределяется по своему ID
+     */
+    private static String routingKey(Transaction transaction) {
+        return transaction.getMerchantId() != null ? transaction.getMerchantId() : transaction.getTransactionId();
     }
 
-    private byte[] createPacket(Transaction transaction) {
+    /**
+     * Сборка пакета. С контекстом трассировки пакет имеет версию 0x02: после заголовка идет
+     * блок расширений [длина 2 байта][tag][len][value]..., дальше формат совпадает с 0x01
+     */
+    private byte[] createPacket(Transaction transaction, TraceContext trace) {
         try {
             byte[] sessionKey = cryptoUtils.generateSessionKey();
             byte[] encryptedSessionKey = cryptoUtils.encryptWithRSA(sessionKey);
@@ -91,15 +190,23 @@ public class TransactionService {
                 throw new RuntimeException("HMAC has wrong size: " + hmac.length);
             }
 
-            int totalLength = 4 + encryptedSessionKey.length + iv.length + hmac.length + encryptedData.length;
+            byte[] extensions = envelopeExtensions(transaction, trace);
+            int headerLength = extensions != null ? 4 + 2 + extensions.length : 4;
+            int totalLength = headerLength + encryptedSessionKey.length + iv.length + hmac.length + encryptedData.length;
 
             ByteArrayOutputStream packet = new ByteArrayOutputStream(totalLength);
 
-            packet.write(0x01); // версия
-            packet.write(0x01); // тип сообщения
+            packet.write(extensions != null ? PROTOCOL_VERSION_EXTENDED : PROTOCOL_VERSION); // версия
+            packet.write(MESSAGE_TYPE_AUTHORIZATION); // тип сообщения
             packet.write((totalLength >> 8) & 0xFF); // старший байт длины
             packet.write(totalLength & 0xFF); // младший байт длины
 
+            if (extensions != null) {
+                packet.write((extensions.length >> 8) & 0xFF);
+                packet.write(extensions.length & 0xFF);
+                packet.write(extensions);
+            }
+
             packet.write(encryptedSessionKey);
             packet.write(iv);
             packet.write(hmac);
@@ -111,6 +218,9 @@ public class TransactionService {
                 throw new RuntimeException("Packet length mismatch. Expected: " + totalLength + ", Actual: " + result.length);
             }
 
+            log.debug("Packet structure: header={}, sessionKey={}, iv={}, hmac={}, data={}",
+                    headerLength, ENCRYPTED_SESSION_KEY_SIZE, IV_SIZE, HMAC_SIZE, encryptedData.length);
+
             return result;
 
         } catch (Exception e) {
@@ -119,10 +229,137 @@ public class TransactionService {
     }
 
     /**
-     * Отправка бинарного пакета на сервер по TCP
+     * Расширения конверта: контекст трассировки (первым - его время отправки дописывается
+     * по фиксированному смещению), ID терминала и мерчанта для ограничения частоты на сервере
+     * и срок ответа - таймаут чтения, после которого терминал перестает ждать и сервер может
+     * бросить транзакцию. Без расширений пакет отправляется в версии 0x01
      */
-    private void sendPacket(byte[] packet) throws IOException {
-        try (Socket socket = new Socket(serverHost, serverPort);
+    private byte[] envelopeExtensions(Transaction transaction, TraceContext trace) {
+        ByteArrayOutputStream extensions = new ByteArrayOutputStream(64);
+        if (trace != null) {
+            extensions.writeBytes(trace.extension());
+        }
+        writeExtension(extensions, EXTENSION_TERMINAL_ID, transaction.getTerminalId());
+        writeExtension(extensions, EXTENSION_MERCHANT_ID, transaction.getMerchantId());
+        if (deadlinePropagationEnabled) {
+            extensions.write(EXTENSION_DEADLINE);
+            extensions.write(2);
+            extensions.write((SOCKET_TIMEOUT_MS >> 8) & 0xFF);
+            extensions.write(SOCKET_TIMEOUT_MS & 0xFF);
+        }
+        return extensions.size() > 0 ? extensions.toByteArray() : null;
+    }
+
+    private static void writeExtension(ByteArrayOutputStream extensions, byte tag, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        extensions.write(tag);
+        extensions.write(bytes.length);
+        extensions.writeBytes(bytes);
+    }
+
+    /**
+     * Отправка пакета с учетом результата в circuit breaker. После таймаута итог сначала
+     * запрашивается у того же узла, и только неизвестная серверу транзакция отправляется повторно
+     */
+    private void sendPacket(AcquirerEndpoint endpoint, Transaction transaction, byte[] packet, TraceContext trace)
+            throws IOException {
+        CircuitBreaker circuitBreaker = endpoint.getCircuitBreaker();
+        int status;
+        try {
+            status = exchangePacket(endpoint, packet, trace);
+        } catch (SocketTimeoutException e) {
+            circuitBreaker.onFailure();
+            if (statusInquiryEnabled && inquireStatus(endpoint, transaction.getTransactionId())) {
+                return;
+            }
+            throw e;
+        } catch (IOException e) {
+            circuitBreaker.onFailure();
+            throw e;
+        }
+
+        if (trace != null && status != STATUS_INVALID_RESPONSE) {
+            traceRecorder.record(trace);
+        }
+
+        if (status == STATUS_SERVICE_UNAVAILABLE || status == STATUS_INVALID_RESPONSE) {
+            circuitBreaker.onFailure();
+        } else if (status == STATUS_RATE_LIMITED) {
+            // Узел исправен и отклонил только этот терминал: цепь не размыкается
+            log.warn("Transaction {} rejected by rate limit", transaction.getTransactionId());
+            circuitBreaker.onSuccess();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    /**
+     * Запрос статуса транзакции (тип 0x02): [заголовок 4][HMAC 32][ID транзакции].
+     * Запрос не шифруется и не требует RSA, поэтому дешевле повторной авторизации
+     *
+     * @return true, если сервер знает итог транзакции и повторная отправка не нужна
+     */
+    private boolean inquireStatus(AcquirerEndpoint endpoint, String transactionId) {
+        byte[] transactionIdBytes = transactionId.getBytes(StandardCharsets.US_ASCII);
+        byte[] hmac = cryptoUtils.calculateHmac(transactionIdBytes);
+        int totalLength = 4 + hmac.length + transactionIdBytes.length;
+        ByteBuffer packet = ByteBuffer.allocate(totalLength)
+                .put(PROTOCOL_VERSION)
+                .put(MESSAGE_TYPE_STATUS_INQUIRY)
+                .putShort((short) totalLength)
+                .put(hmac)
+                .put(transactionIdBytes);
+
+        byte[] response;
+        try (Socket socket = new Socket(endpoint.getHost(), endpoint.getPort());
+             OutputStream output = socket.getOutputStream();
+             InputStream input = socket.getInputStream()) {
+            socket.setSoTimeout(SOCKET_TIMEOUT_MS);
+            output.write(packet.array());
+            output.flush();
+            response = input.readNBytes(RESPONSE_SIZE);
+        } catch (IOException e) {
+            log.warn("Status inquiry for {} failed: {}", transactionId, e.getMessage());
+            return false;
+        }
+        if (response.length < RESPONSE_SIZE) {
+            log.warn("Invalid status inquiry response length: {}", response.length);
+            return false;
+        }
+
+        int status = response[0];
+        if (status == STATUS_APPROVED) {
+            log.info("Transaction {} was APPROVED before timeout. Auth code: {}",
+                    transactionId, new String(response, 1, 6, StandardCharsets.US_ASCII).trim());
+            return true;
+        }
+        if (status == STATUS_DECLINED && Arrays.equals(response, 1, 1 + DECLINE_DATA.length,
+                DECLINE_DATA, 0, DECLINE_DATA.length)) {
+            log.info("Transaction {} was DECLINED before timeout", transactionId);
+            return true;
+        }
+        if (status == STATUS_TRANSACTION_NOT_FOUND) {
+            log.info("Transaction {} is unknown to the server, sending it again", transactionId);
+        } else {
+            log.warn("Status inquiry for {} returned status {}", transactionId, status);
+        }
+        return false;
+    }
+
+    /**
+     * Отправка бинарного пакета на узел эквайринга по TCP
+     *
+     * @return статус ответа сервера
+     */
+    private int exchangePacket(AcquirerEndpoint endpoint, byte[] packet, TraceContext trace) throws IOException {
+        if (trace != null) {
+            // Время отправки включает установку соединения
+            trace.markSent(packet);
+        }
+        try (Socket socket = new Socket(endpoint.getHost(), endpoint.getPort());
              OutputStream output = socket.getOutputStream();
              InputStream input = socket.getInputStream()) {
 
@@ -130,11 +367,13 @@ public class TransactionService {
             output.write(packet);
             output.flush();
 
+            // Сервер закрывает соединение после ответа; читаем до конца потока,
+            // чтобы расширения ответа не потерялись при дроблении на сегменты
             byte[] response = new byte[1024];
-            int bytesRead = input.read(response);
+            int bytesRead = input.readNBytes(response, 0, response.length);
 
             if (bytesRead > 0) {
-                processServerResponse(response, bytesRead);
+                return processServerResponse(response, bytesRead, trace);
             } else {
                 throw new SocketTimeoutException("No response from server");
             }
@@ -144,10 +383,13 @@ public class TransactionService {
     /**
      * Обработка ответа от сервера
      */
-    private void processServerResponse(byte[] response, int length) {
-        if (length < 15) {
+    private int processServerResponse(byte[] response, int length, TraceContext trace) {
+        if (length < RESPONSE_SIZE) {
             log.error("Invalid response length: {}", length);
-            return;
+            return STATUS_INVALID_RESPONSE;
+        }
+        if (trace != null) {
+            trace.markResponse(response[0]);
         }
 
         ByteBuffer buffer = ByteBuffer.wrap(response, 0, length);
@@ -162,14 +404,38 @@ public class TransactionService {
             timestamp = (timestamp << 8) | (buffer.get() & 0xFF);
         }
 
-        if (status == 0x00) {
-            log.info("Transaction APPROVED. Auth code: {}, Time: {}",
-                    authCode, Instant.ofEpochMilli(timestamp));
-        } else if (status == 0x01) {
-            log.info("Transaction DECLINED. Time: {}",
-                    Instant.ofEpochMilli(timestamp));
-        } else {
+        readResponseExtensions(buffer, trace);
+
+        if (status != 0x00 && status != 0x01) {
             log.warn("Server returned error status: {}", status);
+        } else if (log.isDebugEnabled()) {
+            if (status == 0x00) {
+                log.debug("Transaction APPROVED. Auth code: {}, Time: {}",
+                        authCode, Instant.ofEpochMilli(timestamp));
+            } else {
+                log.debug("Transaction DECLINED. Time: {}", Instant.ofEpochMilli(timestamp));
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Расширения ответа идут после 15 байт основного ответа в том же формате [tag][len][value]
+     */
+    private void readResponseExtensions(ByteBuffer buffer, TraceContext trace) {
+        while (buffer.remaining() >= 2) {
+            byte tag = buffer.get();
+            int valueLength = buffer.get() & 0xFF;
+            if (valueLength > buffer.remaining()) {
+                log.warn("Truncated response extension 0x{}", String.format("%02X", tag));
+                return;
+            }
+            if (tag == TraceContext.EXTENSION_TAG && valueLength == TraceContext.RESPONSE_EXTENSION_LENGTH
+                    && trace != null) {
+                trace.serverTimestamps(buffer.getLong(), buffer.getLong(), buffer.getLong());
+            } else {
+                buffer.position(buffer.position() + valueLength);
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package org.example.posterminal.simulator;
+
+import java.util.SplittableRandom;
+
+/**
+ * Распределение сумм транзакций (в минимальных единицах валюты)
+ */
+public class AmountDistribution {
+
+    public enum Type {
+        FIXED, UNIFORM, LOGNORMAL
+    }
+
+    private final Type type;
+    private final int min;
+    private final int max;
+    private final double mu;
+    private final double sigma;
+
+    /**
+     * @param type   тип распределения
+     * @param min    нижняя граница суммы (для FIXED - сама сумма)
+     * @param max    верхняя граница суммы
+     * @param median медиана для LOGNORMAL
+     * @param sigma  параметр разброса для LOGNORMAL
+     */
+    public AmountDistribution(Type type, int min, int max, int median, double sigma) {
+        if (min <= 0 || max < min) {
+            throw new IllegalArgumentException("Amount bounds must satisfy 0 < min <= max");
+        }
+        this.type = type;
+        this.min = min;
+        this.max = max;
+        this.mu = Math.log(Math.max(median, 1));
+        this.sigma = sigma;
+    }
+
+    public int sample(SplittableRandom random) {
+        switch (type) {
+            case FIXED:
+                return min;
+            case UNIFORM:
+                return min + random.nextInt(max - min + 1);
+            case LOGNORMAL:
+                double value = Math.exp(mu + sigma * nextGaussian(random));
+                return (int) Math.max(min, Math.min(max, Math.round(value)));
+            default:
+                throw new IllegalStateException("Unknown amount distribution: " + type);
+        }
+    }
+
+    /**
+     * Нормальная величина методом Бокса-Мюллера: у SplittableRandom нет nextGaussian в Java 17
+     */
+    private static double nextGaussian(SplittableRandom random) {
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2.0 * Math.PI * u2);
+    }
+}
@@ -0,0 +1,195 @@
+package org.example.posterminal.simulator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example.posterminal.model.Transaction;
+import org.example.posterminal.service.TransactionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Симулятор парка терминалов.
+ * <p>
+ * Каждый виртуальный терминал живет по собственному расписанию: планировщик будит его
+ * по истечении паузы, покупка отправляется на пуле ввода-вывода, после чего терминал
+ * планирует следующую. Поток на терминал не выделяется, поэтому десятки тысяч терминалов
+ * обслуживаются небольшим числом потоков; число одновременных соединений ограничено
+ * размером пула ввода-вывода.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "simulator.enabled", havingValue = "true")
+public class FleetSimulator {
+
+    private final TransactionService transactionService;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Timer latencyTimer;
+
+    @Value("${simulator.terminals:10000}")
+    private int terminals;
+
+    @Value("${simulator.seed:42}")
+    private long seed;
+
+    @Value("${simulator.duration-seconds:300}")
+    private long durationSeconds;
+
+    @Value("${simulator.io-threads:256}")
+    private int ioThreads;
+
+    @Value("${simulator.think-time-ms:30000}")
+    private double meanThinkTimeMs;
+
+    @Value("${simulator.think-time-sigma:0.5}")
+    private double thinkTimeSigma;
+
+    @Value("${simulator.merchants:2000}")
+    private int merchants;
+
+    @Value("${simulator.merchant-zipf-exponent:1.1}")
+    private double merchantExponent;
+
+    @Value("${simulator.cards:100000}")
+    private int cards;
+
+    @Value("${simulator.card-zipf-exponent:0.8}")
+    private double cardExponent;
+
+    @Value("${simulator.amount.distribution:LOGNORMAL}")
+    private AmountDistribution.Type amountType;
+
+    @Value("${simulator.amount.min:100}")
+    private int amountMin;
+
+    @Value("${simulator.amount.max:1000000}")
+    private int amountMax;
+
+    @Value("${simulator.amount.median:2500}")
+    private int amountMedian;
+
+    @Value("${simulator.amount.sigma:1.0}")
+    private double amountSigma;
+
+    @Value("${simulator.traffic.hourly-weights:1,1,1,1,1,2,4,6,8,8,9,10,12,10,9,8,9,11,12,10,7,4,2,1}")
+    private double[] hourlyWeights;
+
+    @Value("${simulator.traffic.time-scale:288}")
+    private double timeScale;
+
+    @Value("${simulator.traffic.start-hour:6}")
+    private int startHour;
+
+    private volatile boolean running;
+
+    public FleetSimulator(TransactionService transactionService, MeterRegistry meterRegistry) {
+        this.transactionService = transactionService;
+        this.sentCounter = meterRegistry.counter("pos.simulator.transactions", "outcome", "sent");
+        this.failedCounter = meterRegistry.counter("pos.simulator.transactions", "outcome", "failed");
+        this.latencyTimer = Timer.builder("pos.simulator.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запуск симуляции; возвращает управление по истечении simulator.duration-seconds
+     */
+    public void run() throws InterruptedException {
+        SplittableRandom master = new SplittableRandom(seed);
+        TrafficModel model = new TrafficModel(merchants, merchantExponent, cards, cardExponent,
+                new AmountDistribution(amountType, amountMin, amountMax, amountMedian, amountSigma));
+        TrafficProfile profile = new TrafficProfile(hourlyWeights, timeScale, startHour);
+        VirtualTerminal[] fleet = createFleet(master, model);
+
+        log.info("Starting fleet simulation: terminals={}, merchants={}, cards={}, seed={}, duration={}s",
+                terminals, merchants, cards, seed, durationSeconds);
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2,
+                new CustomizableThreadFactory("Fleet-Scheduler-"));
+        ExecutorService ioPool = Executors.newFixedThreadPool(ioThreads,
+                new CustomizableThreadFactory("Fleet-IO-"));
+        long startedAt = System.currentTimeMillis();
+        running = true;
+
+        try {
+            // Первые покупки равномерно размазаны по средней паузе, чтобы не было залпа на старте
+            for (VirtualTerminal terminal : fleet) {
+                long initialDelay = (long) (master.nextDouble() * meanThinkTimeMs);
+                scheduler.schedule(() -> fire(terminal, model, profile, scheduler, ioPool, startedAt),
+                        initialDelay, TimeUnit.MILLISECONDS);
+            }
+
+            TimeUnit.SECONDS.sleep(durationSeconds);
+        } finally {
+            running = false;
+            scheduler.shutdownNow();
+            ioPool.shutdown();
+            ioPool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        log.info("Fleet simulation finished: sent={}, failed={}, mean latency={}ms, max latency={}ms",
+                (long) sentCounter.count(), (long) failedCounter.count(),
+                (long) latencyTimer.mean(TimeUnit.MILLISECONDS), (long) latencyTimer.max(TimeUnit.MILLISECONDS));
+    }
+
+    private VirtualTerminal[] createFleet(SplittableRandom master, TrafficModel model) {
+        VirtualTerminal[] fleet = new VirtualTerminal[terminals];
+        for (int i = 0; i < terminals; i++) {
+            SplittableRandom terminalRandom = master.split();
+            String merchantId = model.sampleMerchant(terminalRandom);
+            // Терминалы различаются загрузкой: средняя пауза разбросана в e^±sigma раз вокруг общей
+            double thinkTime = meanThinkTimeMs * Math.exp(thinkTimeSigma * (terminalRandom.nextDouble() * 2 - 1));
+            fleet[i] = new VirtualTerminal(String.format("TERM%06d", i + 1), merchantId, terminalRandom, thinkTime);
+        }
+        return fleet;
+    }
+
+    private void fire(VirtualTerminal terminal, TrafficModel model, TrafficProfile profile,
+                      ScheduledExecutorService scheduler, ExecutorService ioPool, long startedAt) {
+        if (!running) {
+            return;
+        }
+        try {
+            ioPool.execute(() -> {
+                sendOnce(terminal, model);
+                if (running) {
+                    double multiplier = profile.rateMultiplier(System.currentTimeMillis() - startedAt);
+                    long thinkTime = terminal.nextThinkTimeMs(multiplier);
+                    try {
+                        scheduler.schedule(() -> fire(terminal, model, profile, scheduler, ioPool, startedAt),
+                                thinkTime, TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException e) {
+                        // симуляция завершается
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // симуляция завершается
+        }
+    }
+
+    private void sendOnce(VirtualTerminal terminal, TrafficModel model) {
+        Transaction transaction = terminal.nextTransaction(model);
+        long start = System.nanoTime();
+        try {
+            transactionService.sendTransaction(transaction);
+            sentCounter.increment();
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.debug("Terminal {} failed to send transaction: {}", terminal.getTerminalId(), e.getMessage());
+        } finally {
+            latencyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.posterminal.simulator;
+
+import java.util.SplittableRandom;
+
+/**
+ * Модель популяции мерчантов и карт для симулятора.
+ * <p>
+ * Популярность мерчантов и карт подчиняется закону Ципфа: небольшое число
+ * "горячих" ключей дает основную долю трафика, как в реальном процессинге.
+ */
+public class TrafficModel {
+
+    // Первая цифра PAN определяет платежную систему: 4 - Visa, 5 - Mastercard, 2 - Mir, 3 - Amex
+    private static final char[] SCHEME_DIGITS = {'4', '5', '2', '3'};
+
+    private final String[] merchantIds;
+    private final String[] pans;
+    private final ZipfDistribution merchantPopularity;
+    private final ZipfDistribution cardPopularity;
+    private final AmountDistribution amountDistribution;
+
+    public TrafficModel(int merchants, double merchantExponent,
+                        int cards, double cardExponent,
+                        AmountDistribution amountDistribution) {
+        this.merchantIds = new String[merchants];
+        for (int i = 0; i < merchants; i++) {
+            merchantIds[i] = String.format("MERCHANT_%06d", i + 1);
+        }
+
+        this.pans = new String[cards];
+        for (int i = 0; i < cards; i++) {
+            pans[i] = maskedPan(i);
+        }
+
+        this.merchantPopularity = new ZipfDistribution(merchants, merchantExponent);
+        this.cardPopularity = new ZipfDistribution(cards, cardExponent);
+        this.amountDistribution = amountDistribution;
+    }
+
+    public String sampleMerchant(SplittableRandom random) {
+        return merchantIds[merchantPopularity.sample(random)];
+    }
+
+    public String samplePan(SplittableRandom random) {
+        return pans[cardPopularity.sample(random)];
+    }
+
+    public int sampleAmount(SplittableRandom random) {
+        return amountDistribution.sample(random);
+    }
+
+    /**
+     * PAN в формате BIN (6 цифр) + маска + последние 4 цифры. Номер карты однозначно
+     * определяется индексом, поэтому маскированные PAN различны для всей популяции
+     */
+    static String maskedPan(int index) {
+        char scheme = SCHEME_DIGITS[index % SCHEME_DIGITS.length];
+        return String.format("%c%05d******%04d", scheme, (index / 10000) % 100000, index % 10000);
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.posterminal.simulator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Суточный профиль нагрузки: относительная интенсивность прихода транзакций по часам.
+ * <p>
+ * Симулированное время течет в timeScale раз быстрее реального, чтобы сутки
+ * с утренним и вечерним пиками можно было прогнать за минуты.
+ */
+public class TrafficProfile {
+
+    private static final int HOURS_PER_DAY = 24;
+
+    private final double[] hourlyMultipliers = new double[HOURS_PER_DAY];
+    private final double timeScale;
+    private final long startOffsetMs;
+
+    /**
+     * @param hourlyWeights веса интенсивности для каждого из 24 часов
+     * @param timeScale     во сколько раз симулированное время быстрее реального
+     * @param startHour     час суток, с которого начинается симуляция
+     */
+    public TrafficProfile(double[] hourlyWeights, double timeScale, int startHour) {
+        if (hourlyWeights.length != HOURS_PER_DAY) {
+            throw new IllegalArgumentException("Traffic profile needs exactly 24 hourly weights");
+        }
+        if (timeScale <= 0) {
+            throw new IllegalArgumentException("Time scale must be positive");
+        }
+
+        double sum = 0;
+        for (double weight : hourlyWeights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Hourly weights must not be negative");
+            }
+            sum += weight;
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("At least one hourly weight must be positive");
+        }
+
+        // Нормируем так, чтобы средний множитель за сутки был равен 1
+        double mean = sum / HOURS_PER_DAY;
+        for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+            hourlyMultipliers[hour] = hourlyWeights[hour] / mean;
+        }
+        this.timeScale = timeScale;
+        this.startOffsetMs = TimeUnit.HOURS.toMillis(Math.floorMod(startHour, HOURS_PER_DAY));
+    }
+
+    /**
+     * Множитель интенсивности в момент, когда с начала симуляции прошло elapsedMs реального времени
+     */
+    public double rateMultiplier(long elapsedMs) {
+        long simulatedMs = startOffsetMs + (long) (elapsedMs * timeScale);
+        int hour = (int) (TimeUnit.MILLISECONDS.toHours(simulatedMs) % HOURS_PER_DAY);
+        return hourlyMultipliers[hour];
+    }
+}
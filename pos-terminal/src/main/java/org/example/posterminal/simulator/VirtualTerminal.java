@@ -0,0 +1,56 @@
+package org.example.posterminal.simulator;
+
+import org.example.posterminal.model.Transaction;
+
+import java.util.SplittableRandom;
+
+/**
+ * Виртуальный терминал: собственный идентификатор, мерчант, генератор случайных чисел
+ * и средняя пауза между покупками.
+ * <p>
+ * Генератор каждого терминала получается через split() от общего зерна,
+ * поэтому последовательность его транзакций воспроизводима от запуска к запуску.
+ */
+public class VirtualTerminal {
+
+    private final String terminalId;
+    private final String merchantId;
+    private final SplittableRandom random;
+    private final double meanThinkTimeMs;
+
+    public VirtualTerminal(String terminalId, String merchantId, SplittableRandom random, double meanThinkTimeMs) {
+        this.terminalId = terminalId;
+        this.merchantId = merchantId;
+        this.random = random;
+        this.meanThinkTimeMs = meanThinkTimeMs;
+    }
+
+    /**
+     * Следующая покупка на терминале. Вызывается последовательно, одним потоком за раз
+     */
+    public Transaction nextTransaction(TrafficModel model) {
+        Transaction transaction = new Transaction(model.samplePan(random), model.sampleAmount(random), merchantId);
+        transaction.setTerminalId(terminalId);
+        return transaction;
+    }
+
+    /**
+     * Пауза до следующей покупки: экспоненциальное распределение (пуассоновский поток),
+     * средняя пауза уменьшается в часы пик пропорционально множителю интенсивности
+     */
+    public long nextThinkTimeMs(double rateMultiplier) {
+        if (rateMultiplier <= 0) {
+            return (long) (meanThinkTimeMs * 10);
+        }
+        double mean = meanThinkTimeMs / rateMultiplier;
+        return Math.max(1, (long) (-Math.log(1.0 - random.nextDouble()) * mean));
+    }
+
+    public String getTerminalId() {
+        return terminalId;
+    }
+
+    public String getMerchantId() {
+        return merchantId;
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.posterminal.tracing;
+
+/**
+ * Разбивка времени одной транзакции в микросекундах.
+ * <p>
+ * Очередь и обработка считаются по часам сервера, сборка пакета и полный обмен - по часам
+ * терминала, поэтому эти величины точны при любом расхождении часов. Сеть - это обмен за
+ * вычетом времени на сервере; на плечи запроса и ответа она делится по отметкам двух часов,
+ * а если часы явно расходятся - поровну (requestNetworkEstimated = true).
+ */
+public record LatencyBreakdown(long buildMicros,
+                               long requestNetworkMicros,
+                               long queueMicros,
+                               long serverMicros,
+                               long responseNetworkMicros,
+                               boolean requestNetworkEstimated) {
+
+    public enum Segment {
+        BUILD("build"),
+        REQUEST_NETWORK("request_network"),
+        QUEUE("queue"),
+        SERVER("server"),
+        RESPONSE_NETWORK("response_network"),
+        TOTAL("total");
+
+        private final String tag;
+
+        Segment(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    public long totalMicros() {
+        return buildMicros + requestNetworkMicros + queueMicros + serverMicros + responseNetworkMicros;
+    }
+
+    public long micros(Segment segment) {
+        return switch (segment) {
+            case BUILD -> buildMicros;
+            case REQUEST_NETWORK -> requestNetworkMicros;
+            case QUEUE -> queueMicros;
+            case SERVER -> serverMicros;
+            case RESPONSE_NETWORK -> responseNetworkMicros;
+            case TOTAL -> totalMicros();
+        };
+    }
+}
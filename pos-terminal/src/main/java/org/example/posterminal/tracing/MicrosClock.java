@@ -0,0 +1,35 @@
+package org.example.posterminal.tracing;
+
+import java.time.Instant;
+
+/**
+ * Время в микросекундах от эпохи с точностью System.nanoTime().
+ * <p>
+ * Стенные часы считываются один раз при загрузке класса, дальше время отсчитывается
+ * по монотонным часам, поэтому отметки внутри процесса не скачут при коррекции NTP.
+ */
+public final class MicrosClock {
+
+    private static final long ANCHOR_NANOS;
+    private static final long ANCHOR_EPOCH_MICROS;
+
+    static {
+        Instant now = Instant.now();
+        ANCHOR_NANOS = System.nanoTime();
+        ANCHOR_EPOCH_MICROS = now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+
+    private MicrosClock() {
+    }
+
+    public static long nowMicros() {
+        return toEpochMicros(System.nanoTime());
+    }
+
+    /**
+     * Перевод отметки System.nanoTime() этого процесса в микросекунды от эпохи
+     */
+    public static long toEpochMicros(long nanoTime) {
+        return ANCHOR_EPOCH_MICROS + (nanoTime - ANCHOR_NANOS) / 1_000;
+    }
+}
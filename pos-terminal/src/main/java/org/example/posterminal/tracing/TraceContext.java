@@ -0,0 +1,159 @@
+package org.example.posterminal.tracing;
+
+import org.example.posterminal.model.Transaction;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Контекст трассировки одной попытки отправки транзакции.
+ * <p>
+ * В пакет версии 0x02 контекст попадает расширением конверта
+ * [tag 0x01][len 24][traceId 16 байт][время отправки, мкс от эпохи 8 байт].
+ * Расширение идет первым, поэтому время отправки лежит по фиксированному смещению
+ * и проставляется непосредственно перед установкой соединения. Сервер отвечает
+ * расширением с тем же тегом: [время приема][начало обработки][конец обработки].
+ */
+public final class TraceContext {
+
+    public static final byte EXTENSION_TAG = 0x01;
+    public static final int REQUEST_EXTENSION_LENGTH = 24;
+    public static final int RESPONSE_EXTENSION_LENGTH = 24;
+
+    /**
+     * Заголовок (4) + длина блока расширений (2) + тег и длина (2) + traceId (16)
+     */
+    static final int SEND_TIMESTAMP_OFFSET = 24;
+
+    private final long traceIdHigh;
+    private final long traceIdLow;
+    private final String transactionId;
+    private final String merchantId;
+    private final long buildStartNanos;
+
+    private long sendNanos;
+    private long sendEpochMicros;
+    private long responseNanos;
+    private int status = -1;
+
+    private boolean serverTimestamps;
+    private long serverReceivedMicros;
+    private long serverStartMicros;
+    private long serverFinishMicros;
+
+    TraceContext(long traceIdHigh, long traceIdLow, Transaction transaction, long buildStartNanos) {
+        this.traceIdHigh = traceIdHigh;
+        this.traceIdLow = traceIdLow;
+        this.transactionId = transaction.getTransactionId();
+        this.merchantId = transaction.getMerchantId();
+        this.buildStartNanos = buildStartNanos;
+    }
+
+    /**
+     * Новый контекст со случайным traceId; отсчет сборки пакета начинается с этого момента
+     */
+    public static TraceContext start(Transaction transaction) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new TraceContext(random.nextLong(), random.nextLong(), transaction, System.nanoTime());
+    }
+
+    /**
+     * Расширение конверта с контекстом; время отправки пока нулевое
+     */
+    public byte[] extension() {
+        return ByteBuffer.allocate(2 + REQUEST_EXTENSION_LENGTH)
+                .put(EXTENSION_TAG)
+                .put((byte) REQUEST_EXTENSION_LENGTH)
+                .putLong(traceIdHigh)
+                .putLong(traceIdLow)
+                .putLong(0L)
+                .array();
+    }
+
+    /**
+     * Отметка начала отправки и запись ее в уже собранный пакет
+     */
+    public void markSent(byte[] packet) {
+        sendNanos = System.nanoTime();
+        sendEpochMicros = MicrosClock.toEpochMicros(sendNanos);
+        ByteBuffer.wrap(packet).putLong(SEND_TIMESTAMP_OFFSET, sendEpochMicros);
+    }
+
+    public void markResponse(int status) {
+        this.responseNanos = System.nanoTime();
+        this.status = status;
+    }
+
+    public void serverTimestamps(long receivedMicros, long startMicros, long finishMicros) {
+        this.serverReceivedMicros = receivedMicros;
+        this.serverStartMicros = startMicros;
+        this.serverFinishMicros = finishMicros;
+        this.serverTimestamps = true;
+    }
+
+    public boolean hasServerTimestamps() {
+        return serverTimestamps;
+    }
+
+    /**
+     * Разбивка времени транзакции; без отметок сервера весь обмен относится к сети
+     */
+    public LatencyBreakdown breakdown() {
+        long build = (sendNanos - buildStartNanos) / 1_000;
+        long exchange = (responseNanos - sendNanos) / 1_000;
+        if (!serverTimestamps) {
+            return new LatencyBreakdown(build, exchange, 0, 0, 0, true);
+        }
+
+        long queue = Math.max(0, serverStartMicros - serverReceivedMicros);
+        long server = Math.max(0, serverFinishMicros - serverStartMicros);
+        long network = Math.max(0, exchange - queue - server);
+
+        long request = serverReceivedMicros - sendEpochMicros;
+        boolean estimated = request < 0 || request > network;
+        if (estimated) {
+            request = network / 2;
+        }
+        return new LatencyBreakdown(build, request, queue, server, network - request, estimated);
+    }
+
+    public String traceIdHex() {
+        return String.format("%016x%016x", traceIdHigh, traceIdLow);
+    }
+
+    public long getTraceIdLow() {
+        return traceIdLow;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String getMerchantId() {
+        return merchantId;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long buildStartEpochMicros() {
+        return MicrosClock.toEpochMicros(buildStartNanos);
+    }
+
+    public long getSendEpochMicros() {
+        return sendEpochMicros;
+    }
+
+    public long getServerReceivedMicros() {
+        return serverReceivedMicros;
+    }
+
+    public long getServerStartMicros() {
+        return serverStartMicros;
+    }
+
+    public long getServerFinishMicros() {
+        return serverFinishMicros;
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.posterminal.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Учет завершенных трасс: разбивка по сегментам попадает в гистограммы
+ * pos.latency{segment} и, если включено, выгружается в файл
+ */
+@Slf4j
+@Component
+public class TraceRecorder {
+
+    private static final LatencyBreakdown.Segment[] SEGMENTS = LatencyBreakdown.Segment.values();
+
+    private final Timer[] segmentTimers = new Timer[SEGMENTS.length];
+    private final ZipkinSpanExporter exporter;
+
+    public TraceRecorder(MeterRegistry meterRegistry, ZipkinSpanExporter exporter) {
+        this.exporter = exporter;
+        for (LatencyBreakdown.Segment segment : SEGMENTS) {
+            segmentTimers[segment.ordinal()] = Timer.builder("pos.latency")
+                    .description("Transaction latency by segment")
+                    .tag("segment", segment.getTag())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(500))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(meterRegistry);
+        }
+    }
+
+    public void record(TraceContext trace) {
+        LatencyBreakdown breakdown = trace.breakdown();
+        for (LatencyBreakdown.Segment segment : SEGMENTS) {
+            segmentTimers[segment.ordinal()].record(breakdown.micros(segment), TimeUnit.MICROSECONDS);
+        }
+        log.debug("Latency breakdown for {}: {}", trace.getTransactionId(), breakdown);
+        exporter.export(trace);
+    }
+}
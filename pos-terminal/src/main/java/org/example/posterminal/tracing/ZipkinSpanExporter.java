@@ -0,0 +1,182 @@
+package org.example.posterminal.tracing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выгрузка трасс в файл в формате Zipkin v2 JSON, по одному спану на строку.
+ * <p>
+ * Терминал только ставит завершенный контекст в очередь, форматирование и запись выполняет
+ * фоновый поток. При переполнении очереди трасса отбрасывается, а не тормозит платеж.
+ * Загрузить файл в Zipkin: {@code jq -s . spans.json | curl -H 'Content-Type: application/json'
+ * --data-binary @- http://localhost:9411/api/v2/spans}
+ * <p>
+ * Каждая транзакция дает спаны: payment (корень), build_packet, authorize (CLIENT) и
+ * общий с ним authorize (SERVER) на стороне эквайера с дочерним process. Разрыв между
+ * началом SERVER спана и process - ожидание в очереди сервера.
+ */
+@Slf4j
+@Component
+public class ZipkinSpanExporter {
+
+    private static final String POS_SERVICE = "pos-terminal";
+    private static final String ACQUIRER_SERVICE = "acquiring-server";
+
+    private final Counter droppedCounter;
+    private final Counter exportedCounter;
+
+    @Value("${tracing.export.enabled:false}")
+    private boolean enabled;
+
+    @Value("${tracing.export.file:traces/zipkin-spans.json}")
+    private Path file;
+
+    @Value("${tracing.export.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private BlockingQueue<TraceContext> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    public ZipkinSpanExporter(MeterRegistry meterRegistry) {
+        this.droppedCounter = meterRegistry.counter("pos.tracing.dropped");
+        this.exportedCounter = meterRegistry.counter("pos.tracing.exported");
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::writeLoop, "Zipkin-Exporter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Exporting Zipkin spans to {}", file.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writerThread != null) {
+            running = false;
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Постановка завершенной трассы в очередь на выгрузку
+     */
+    public void export(TraceContext trace) {
+        if (!enabled) {
+            return;
+        }
+        if (!queue.offer(trace)) {
+            droppedCounter.increment();
+        }
+    }
+
+    private void writeLoop() {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            StringBuilder line = new StringBuilder(512);
+            while (running || !queue.isEmpty()) {
+                TraceContext trace = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (trace == null) {
+                    writer.flush();
+                    continue;
+                }
+                line.setLength(0);
+                appendSpans(line, trace);
+                writer.write(line.toString());
+                exportedCounter.increment();
+            }
+        } catch (IOException e) {
+            log.error("Zipkin span export to {} failed: {}", file, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static void appendSpans(StringBuilder out, TraceContext trace) {
+        LatencyBreakdown breakdown = trace.breakdown();
+        String traceId = trace.traceIdHex();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String rootId = spanId(trace.getTraceIdLow());
+        String clientId = spanId(random.nextLong());
+
+        long rootStart = trace.buildStartEpochMicros();
+        long exchange = breakdown.requestNetworkMicros() + breakdown.queueMicros()
+                + breakdown.serverMicros() + breakdown.responseNetworkMicros();
+
+        span(out, traceId, rootId, null, "payment", null, POS_SERVICE, rootStart, breakdown.totalMicros());
+        tags(out, trace, breakdown);
+        span(out, traceId, spanId(random.nextLong()), rootId, "build_packet", null, POS_SERVICE,
+                rootStart, breakdown.buildMicros());
+        out.append("}\n");
+        span(out, traceId, clientId, rootId, "authorize", "CLIENT", POS_SERVICE,
+                trace.getSendEpochMicros(), exchange);
+        out.append(",\"remoteEndpoint\":{\"serviceName\":\"").append(ACQUIRER_SERVICE).append("\"}}\n");
+
+        if (trace.hasServerTimestamps()) {
+            span(out, traceId, clientId, rootId, "authorize", "SERVER", ACQUIRER_SERVICE,
+                    trace.getServerReceivedMicros(), breakdown.queueMicros() + breakdown.serverMicros());
+            out.append(",\"shared\":true}\n");
+            span(out, traceId, spanId(random.nextLong()), clientId, "process", null, ACQUIRER_SERVICE,
+                    trace.getServerStartMicros(), breakdown.serverMicros());
+            out.append("}\n");
+        }
+    }
+
+    private static void span(StringBuilder out, String traceId, String id, String parentId, String name,
+                             String kind, String service, long timestamp, long duration) {
+        out.append("{\"traceId\":\"").append(traceId).append("\",\"id\":\"").append(id).append('"');
+        if (parentId != null) {
+            out.append(",\"parentId\":\"").append(parentId).append('"');
+        }
+        out.append(",\"name\":\"").append(name).append('"');
+        if (kind != null) {
+            out.append(",\"kind\":\"").append(kind).append('"');
+        }
+        // Zipkin отбрасывает спаны с нулевой длительностью как незавершенные
+        out.append(",\"timestamp\":").append(timestamp)
+                .append(",\"duration\":").append(Math.max(1, duration))
+                .append(",\"localEndpoint\":{\"serviceName\":\"").append(service).append("\"}");
+    }
+
+    private static void tags(StringBuilder out, TraceContext trace, LatencyBreakdown breakdown) {
+        out.append(",\"tags\":{\"transaction.id\":\"").append(trace.getTransactionId())
+                .append("\",\"merchant.id\":\"").append(trace.getMerchantId())
+                .append("\",\"response.status\":\"").append(trace.getStatus())
+                .append("\",\"network.split.estimated\":\"").append(breakdown.requestNetworkEstimated())
+                .append("\"}}\n");
+    }
+
+    private static String spanId(long value) {
+        return String.format("%016x", value);
+    }
+}
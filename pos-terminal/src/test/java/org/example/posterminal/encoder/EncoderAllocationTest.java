@@ -0,0 +1,53 @@
+package org.example.posterminal.encoder;
+
+import org.example.posterminal.model.Transaction;
+import org.example.posterminal.support.AllocationMeter;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.example.posterminal.support.AllocationBudgets.assertWithinBudget;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Бюджеты аллокаций TLV кодировщика и hexdump
+ */
+class EncoderAllocationTest {
+
+    private final TLVEncoder tlvEncoder = new TLVEncoder();
+
+    @Test
+    void testEncodeTransaction_WithinBudget() {
+        Transaction transaction = new Transaction("4242********4242", 10_000, "MERCHANT_001");
+        transaction.setTerminalId("TERM_0001");
+
+        long bytes = AllocationMeter.bytesPerOperation(50_000, 20_000, () -> tlvEncoder.encodeTransaction(transaction));
+
+        assertWithinBudget("tlv-encoder.encode-transaction", bytes);
+    }
+
+    @Test
+    void testHexDump_WithinBudget() {
+        // Размер типичного пакета версии 0x02: заголовок, расширения, RSA ключ, IV, HMAC и TLV
+        byte[] packet = new byte[390];
+        new Random(42).nextBytes(packet);
+
+        long bytes = AllocationMeter.bytesPerOperation(2_000, 2_000, () -> HexDumpUtil.toHexDump(packet));
+
+        assertWithinBudget("hex-dump.packet", bytes);
+    }
+
+    @Test
+    void testHexDump_Format() {
+        byte[] data = new byte[19];
+        System.arraycopy("Hello, hex dump!".getBytes(StandardCharsets.US_ASCII), 0, data, 0, 16);
+        data[17] = 0x7F;
+        data[18] = (byte) 0xFF;
+
+        assertEquals("0000: 48 65 6C 6C 6F 2C 20 68 65 78 20 64 75 6D 70 21   Hello, hex dump!\n"
+                + "0010: 00 7F FF   ...", HexDumpUtil.toHexDump(data));
+        assertEquals("0000: 65 6C   el", HexDumpUtil.toHexDump(data, 1, 2));
+        assertEquals("", HexDumpUtil.toHexDump(new byte[0]));
+    }
+}
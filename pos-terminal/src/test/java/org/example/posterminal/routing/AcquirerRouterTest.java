@@ -0,0 +1,126 @@
+package org.example.posterminal.routing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.posterminal.resilience.CircuitBreakerSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Маршрутизация по локальным серверам на разных портах
+ */
+class AcquirerRouterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<ServerSocket> servers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (ServerSocket server : servers) {
+            server.close();
+        }
+    }
+
+    @Test
+    void testMerchantStaysOnOneNode() throws IOException {
+        AcquirerRouter router = router(startServer() + "," + startServer(), "");
+
+        AcquirerEndpoint first = acquire(router, "MERCHANT_001");
+        for (int i = 0; i < 10; i++) {
+            assertEquals(first, acquire(router, "MERCHANT_001"));
+        }
+    }
+
+    @Test
+    void testFailedHealthChecksFailOverToNextNode() throws IOException {
+        AcquirerRouter router = router(startServer() + "," + startServer(), "");
+        String merchant = "MERCHANT_001";
+        AcquirerEndpoint primary = acquire(router, merchant);
+
+        closeServer(primary.getPort());
+        router.checkHealth();
+        assertTrue(primary.isHealthy(), "One failed check is below the threshold");
+        router.checkHealth();
+
+        assertFalse(primary.isHealthy());
+        AcquirerEndpoint failover = acquire(router, merchant);
+        assertNotEquals(primary, failover);
+        assertEquals(1.0, meterRegistry.get("pos.acquirer.failover").counter().count());
+        assertEquals(0.0, meterRegistry.get("pos.acquirer.healthy").tag("endpoint", primary.getId()).gauge().value());
+    }
+
+    @Test
+    void testNoEndpointWhenAllNodesAreDown() throws IOException {
+        String address = startServer();
+        AcquirerRouter router = router(address, "");
+        closeServer(router.getEndpoints().get(0).getPort());
+
+        router.checkHealth();
+        router.checkHealth();
+
+        assertNull(router.acquire("MERCHANT_001"));
+        assertFalse(router.hasAvailableEndpoint());
+    }
+
+    @Test
+    void testEndpointsFileAddsAndRemovesNodes(@TempDir Path directory) throws IOException {
+        String configured = startServer();
+        String added = startServer();
+        Path file = directory.resolve("acquirers.txt");
+        Files.writeString(file, "# runtime nodes\n");
+        AcquirerRouter router = router(configured, file.toString());
+        assertEquals(1, router.getEndpoints().size());
+
+        Files.writeString(file, "# runtime nodes\n" + added + "\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 1000));
+        router.checkHealth();
+        assertEquals(2, router.getEndpoints().size());
+
+        Files.writeString(file, "");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+        router.checkHealth();
+        assertEquals(List.of(configured), router.getEndpoints().stream().map(AcquirerEndpoint::getId).toList());
+    }
+
+    private AcquirerRouter router(String endpoints, String endpointsFile) {
+        return new AcquirerRouter(endpoints, endpointsFile, 160, 200, 2,
+                new CircuitBreakerSettings(10, 5, 50, 1000, 1), meterRegistry);
+    }
+
+    /**
+     * Выбор узла с возвратом разрешения circuit breaker'а - в тесте вызов не выполняется
+     */
+    private static AcquirerEndpoint acquire(AcquirerRouter router, String merchantId) {
+        AcquirerEndpoint endpoint = router.acquire(merchantId);
+        endpoint.getCircuitBreaker().releasePermission();
+        return endpoint;
+    }
+
+    private String startServer() throws IOException {
+        ServerSocket server = new ServerSocket(0);
+        servers.add(server);
+        return "localhost:" + server.getLocalPort();
+    }
+
+    private void closeServer(int port) throws IOException {
+        for (ServerSocket server : servers) {
+            if (server.getLocalPort() == port) {
+                server.close();
+            }
+        }
+    }
+}
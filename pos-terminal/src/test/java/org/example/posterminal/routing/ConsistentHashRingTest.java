@@ -0,0 +1,83 @@
+package org.example.posterminal.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 20_000;
+
+    private final ConsistentHashRing<String> ring = ConsistentHashRing.<String>empty(160)
+            .withNode("node-a:8081", "A")
+            .withNode("node-b:8081", "B")
+            .withNode("node-c:8081", "C");
+
+    @Test
+    void testKeysSpreadEvenlyAcrossNodes() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.primary("MERCHANT_" + i), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(Math.abs(count - KEYS / 3.0) < KEYS / 3.0 * 0.2, "Unbalanced ring: " + counts);
+        }
+    }
+
+    @Test
+    void testAddedNodeTakesOnlyItsShare() {
+        ConsistentHashRing<String> grown = ring.withNode("node-d:8081", "D");
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "MERCHANT_" + i;
+            String before = ring.primary(key);
+            String after = grown.primary(key);
+            if (!before.equals(after)) {
+                assertEquals("D", after, "Keys may only move to the new node");
+                moved++;
+            }
+        }
+        assertTrue(Math.abs(moved - KEYS / 4.0) < KEYS / 4.0 * 0.2, "Moved " + moved + " of " + KEYS);
+    }
+
+    @Test
+    void testFailoverMovesOnlyKeysOfUnavailableNode() {
+        for (int i = 0; i < KEYS; i++) {
+            String key = "MERCHANT_" + i;
+            String primary = ring.primary(key);
+            String routed = ring.route(key, node -> !node.equals("B"));
+
+            if (primary.equals("B")) {
+                assertNotEquals("B", routed);
+                assertEquals(ring.withoutNode("node-b:8081").primary(key), routed,
+                        "Failover must go to the next node on the ring");
+            } else {
+                assertEquals(primary, routed);
+            }
+        }
+    }
+
+    @Test
+    void testRouteChecksEachNodeOnce() {
+        Map<String, Integer> checks = new HashMap<>();
+
+        String routed = ring.route("MERCHANT_42", node -> {
+            checks.merge(node, 1, Integer::sum);
+            return false;
+        });
+
+        assertNull(routed);
+        assertEquals(Set.of("A", "B", "C"), checks.keySet());
+        assertTrue(checks.values().stream().allMatch(count -> count == 1), "Checks: " + checks);
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.posterminal.simulator;
+
+import org.example.posterminal.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipfDistributionTest {
+
+    @Test
+    void testHotKeysDominate() {
+        ZipfDistribution zipf = new ZipfDistribution(1000, 1.1);
+        SplittableRandom random = new SplittableRandom(7);
+        int[] hits = new int[1000];
+
+        for (int i = 0; i < 100_000; i++) {
+            hits[zipf.sample(random)]++;
+        }
+
+        int topTen = 0;
+        for (int rank = 0; rank < 10; rank++) {
+            topTen += hits[rank];
+        }
+        assertTrue(hits[0] > hits[1] && hits[1] > hits[10], "Popularity must decrease with rank");
+        assertTrue(topTen > 40_000, "Top 1% of keys should take a large share of traffic, got " + topTen);
+    }
+
+    @Test
+    void testZeroExponentIsUniform() {
+        ZipfDistribution zipf = new ZipfDistribution(4, 0.0);
+        SplittableRandom random = new SplittableRandom(7);
+        int[] hits = new int[4];
+
+        for (int i = 0; i < 40_000; i++) {
+            hits[zipf.sample(random)]++;
+        }
+
+        for (int count : hits) {
+            assertEquals(10_000, count, 500);
+        }
+    }
+
+    @Test
+    void testSameSeedGivesSameTraffic() {
+        AmountDistribution amounts = new AmountDistribution(AmountDistribution.Type.LOGNORMAL, 100, 1_000_000, 2500, 1.0);
+        TrafficModel model = new TrafficModel(100, 1.1, 1000, 0.8, amounts);
+
+        VirtualTerminal first = new VirtualTerminal("TERM000001", "MERCHANT_000001", new SplittableRandom(42), 1000);
+        VirtualTerminal second = new VirtualTerminal("TERM000001", "MERCHANT_000001", new SplittableRandom(42), 1000);
+
+        for (int i = 0; i < 100; i++) {
+            Transaction a = first.nextTransaction(model);
+            Transaction b = second.nextTransaction(model);
+            assertEquals(a.getPan(), b.getPan());
+            assertEquals(a.getAmount(), b.getAmount());
+            assertEquals(first.nextThinkTimeMs(1.0), second.nextThinkTimeMs(1.0));
+        }
+    }
+
+    @Test
+    void testMaskedPansAreDistinct() {
+        assertEquals(16, TrafficModel.maskedPan(0).length());
+        assertNotEquals(TrafficModel.maskedPan(1), TrafficModel.maskedPan(10_001));
+        assertEquals("400000******0000", TrafficModel.maskedPan(0));
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.posterminal.tracing;
+
+import org.example.posterminal.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TraceContextTest {
+
+    private final Transaction transaction = new Transaction("4242********4242", 1000, "MERCHANT_000001");
+
+    @Test
+    void testMarkSent_WritesTimestampIntoExtension() {
+        TraceContext trace = new TraceContext(1L, 2L, transaction, System.nanoTime());
+        byte[] extension = trace.extension();
+        byte[] packet = new byte[4 + 2 + extension.length + 10];
+        System.arraycopy(extension, 0, packet, 6, extension.length);
+
+        trace.markSent(packet);
+
+        ByteBuffer buffer = ByteBuffer.wrap(packet);
+        assertEquals(TraceContext.EXTENSION_TAG, buffer.get(6));
+        assertEquals(1L, buffer.getLong(8));
+        assertEquals(2L, buffer.getLong(16));
+        assertEquals(trace.getSendEpochMicros(), buffer.getLong(24));
+    }
+
+    @Test
+    void testBreakdown_UsesServerClockForQueueAndProcessing() throws InterruptedException {
+        TraceContext trace = new TraceContext(1L, 2L, transaction, System.nanoTime());
+        trace.markSent(new byte[64]);
+        long sent = trace.getSendEpochMicros();
+        Thread.sleep(20);
+        trace.markResponse(0);
+
+        // Часы сервера отстают на час: плечо запроса нельзя измерить напрямую
+        long skew = -3_600_000_000L;
+        trace.serverTimestamps(sent + skew + 2_000, sent + skew + 5_000, sent + skew + 9_000);
+
+        LatencyBreakdown breakdown = trace.breakdown();
+        assertEquals(3_000, breakdown.queueMicros());
+        assertEquals(4_000, breakdown.serverMicros());
+        assertTrue(breakdown.requestNetworkEstimated());
+        assertTrue(Math.abs(breakdown.requestNetworkMicros() - breakdown.responseNetworkMicros()) <= 1);
+        assertEquals(breakdown.buildMicros() + breakdown.requestNetworkMicros() + 3_000 + 4_000
+                + breakdown.responseNetworkMicros(), breakdown.totalMicros());
+    }
+
+    @Test
+    void testBreakdown_SynchronizedClocks() throws InterruptedException {
+        TraceContext trace = new TraceContext(1L, 2L, transaction, System.nanoTime());
+        trace.markSent(new byte[64]);
+        long sent = trace.getSendEpochMicros();
+        Thread.sleep(30);
+        trace.markResponse(0);
+        trace.serverTimestamps(sent + 1_000, sent + 2_000, sent + 3_000);
+
+        LatencyBreakdown breakdown = trace.breakdown();
+        assertFalse(breakdown.requestNetworkEstimated());
+        assertEquals(1_000, breakdown.requestNetworkMicros());
+        assertTrue(breakdown.responseNetworkMicros() >= 25_000);
+    }
+}